@@ -6,7 +6,7 @@ import org.springframework.context.annotation.Configuration;
 
 /**
  * Application configuration properties for the Grape Application Server.
- * Handles port range settings and slow feature configuration.
+ * Handles port range settings, slow feature and deadline configuration.
  */
 @Data
 @Configuration
@@ -17,9 +17,12 @@ public class AppConfig {
     public static final int MAX_PORT_DEFAULT_VALUE = 9010;
     public static final boolean SLOW_ENABLED_DEFAULT_VALUE = false;
     public static final long SLOW_SLEEP_TIME_MS_DEFAULT_VALUE = 800L;
+    public static final String DEADLINE_HEADER_DEFAULT_VALUE = "X-Request-Deadline";
+    public static final String DEADLINE_EXPIRED_HEADER_DEFAULT_VALUE = "X-Deadline-Expired";
 
     private Port port = new Port();
     private Slow slow = new Slow();
+    private Deadline deadline = new Deadline();
 
     /**
      * Configuration for server port range when no explicit port is specified.
@@ -38,4 +41,15 @@ public class AppConfig {
         private boolean enabled = SLOW_ENABLED_DEFAULT_VALUE;
         private long sleepTimeMs = SLOW_SLEEP_TIME_MS_DEFAULT_VALUE;
     }
+
+    /**
+     * Configuration for the deadline propagated by the routing server.
+     * The header names must match routing.timeout.deadline-header and
+     * routing.timeout.deadline-expired-header of the routing server.
+     */
+    @Data
+    public static class Deadline {
+        private String header = DEADLINE_HEADER_DEFAULT_VALUE;
+        private String expiredHeader = DEADLINE_EXPIRED_HEADER_DEFAULT_VALUE;
+    }
 }
\ No newline at end of file
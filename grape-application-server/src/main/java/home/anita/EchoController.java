@@ -5,20 +5,33 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * REST controller that provides an echo endpoint for testing purposes.
  * Returns the request body with the actual server port added to JSON objects.
  * Supports optional slow response feature for testing latency scenarios.
+ * Honors the deadline propagated by the routing server: a request whose deadline has passed,
+ * or would pass during the artificial delay, is answered with 504 without doing the work.
+ * Such a 504 carries the deadline-expired header, so the routing server does not count it
+ * against the health of this server. The deadline arrives as the milliseconds left until it and
+ * is measured on the monotonic clock from the moment the request is handled, so it does not
+ * depend on the wall clocks of the routing server and this server agreeing.
  */
 @RestController
 @RequiredArgsConstructor
+@Slf4j
 public class EchoController {
 
+    private static final String DEADLINE_EXCEEDED_BODY = "{\"status\": \"error\", \"message\": \"Deadline exceeded\"}";
+
     private final AppConfig appConfig;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
@@ -27,13 +40,24 @@ public class EchoController {
      * For JSON objects, adds a "port" field with the current server port.
      * For non-JSON content, returns the body unchanged.
      * Optionally applies artificial delay if slow feature is enabled.
+     * Returns 504 once the deadline of the request has passed.
      */
     @PostMapping("/api/echo")
     public ResponseEntity<String> echo(@RequestBody String requestBody,
                                        HttpServletRequest request) {
+        var startNanos = System.nanoTime();
+        var timeoutNanos = getTimeoutNanos(request);
         try {
             if (shouldSlowDown()) {
-                Thread.sleep(appConfig.getSlow().getSleepTimeMs());
+                var sleepTimeMs = appConfig.getSlow().getSleepTimeMs();
+                if (getRemainingNanos(startNanos, timeoutNanos) < TimeUnit.MILLISECONDS.toNanos(sleepTimeMs)) {
+                    // Nobody will read the response once the delay is over
+                    return deadlineExceeded(timeoutNanos);
+                }
+                Thread.sleep(sleepTimeMs);
+            }
+            if (getRemainingNanos(startNanos, timeoutNanos) <= 0) {
+                return deadlineExceeded(timeoutNanos);
             }
 
             JsonNode jsonNode = objectMapper.readTree(requestBody);
@@ -53,6 +77,41 @@ public class EchoController {
         }
     }
 
+    /**
+     * Reads the time left until the propagated deadline of the request, sent in milliseconds in
+     * the configured deadline header, as nanoseconds. Returns Long.MAX_VALUE when the header is
+     * missing or invalid.
+     */
+    private long getTimeoutNanos(HttpServletRequest request) {
+        var headerName = appConfig.getDeadline().getHeader();
+        var header = request.getHeader(headerName);
+        if (header == null) {
+            return Long.MAX_VALUE;
+        }
+        try {
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(Long.parseLong(header.trim()), 0));
+        } catch (NumberFormatException e) {
+            log.debug("Ignoring invalid {} header: {}", headerName, header);
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Gets the time left of a request started at the given System.nanoTime() value. Only the
+     * elapsed time is computed from nanoTime values, so an unbounded timeout cannot overflow.
+     */
+    private static long getRemainingNanos(long startNanos, long timeoutNanos) {
+        return timeoutNanos - (System.nanoTime() - startNanos);
+    }
+
+    private ResponseEntity<String> deadlineExceeded(long timeoutNanos) {
+        log.info("Aborting echo request, deadline {} ms after its arrival is or would be exceeded",
+                TimeUnit.NANOSECONDS.toMillis(timeoutNanos));
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT)
+                .header(appConfig.getDeadline().getExpiredHeader(), "true")
+                .body(DEADLINE_EXCEEDED_BODY);
+    }
+
     /**
      * Determines if artificial delay should be applied to the response.
      */
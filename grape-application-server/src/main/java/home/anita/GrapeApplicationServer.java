@@ -16,9 +16,13 @@ public class GrapeApplicationServer {
         try (ConfigurableApplicationContext tempContext = tempApp.run(new String[]{"--spring.main.web-application-type=none"})) {
             SlowArgumentHandler slow = tempContext.getBean(SlowArgumentHandler.class);
             PortArgumentHandler port = tempContext.getBean(PortArgumentHandler.class);
+            VirtualThreadArgumentHandler virtualThreads = tempContext.getBean(VirtualThreadArgumentHandler.class);
+            H2cArgumentHandler h2c = tempContext.getBean(H2cArgumentHandler.class);
 
             slow.configure(args);
             port.configure(args);
+            virtualThreads.configure(args);
+            h2c.configure(args);
         }
 
         // Now run the actual application
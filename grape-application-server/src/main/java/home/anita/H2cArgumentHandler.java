@@ -0,0 +1,32 @@
+package home.anita;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Handles command line h2c arguments for the application.
+ * Processes --h2c arguments and enables HTTP/2 on Tomcat's connector. Without TLS Tomcat then
+ * accepts HTTP/2 cleartext, both with prior knowledge, as vine sends it, and by upgrade from
+ * HTTP/1.1, and HTTP/1.1 clients keep working. Tomcat allows 100 concurrent streams per
+ * connection.
+ */
+@Component
+@Slf4j
+public class H2cArgumentHandler extends ArgumentHandler {
+
+    public static final boolean H2C_ENABLED_DEFAULT_VALUE = false;
+
+    /**
+     * Configures h2c from command line arguments.
+     * If --h2c=true is specified, sets server.http2.enabled.
+     */
+    public void configure(String[] args) {
+        boolean h2cEnabled = getBooleanFromArgs(args, "h2c", H2C_ENABLED_DEFAULT_VALUE);
+
+        if (h2cEnabled) {
+            System.setProperty("server.http2.enabled", "true");
+        }
+
+        log.info("h2c: {}", h2cEnabled ? "ENABLED" : "DISABLED");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package home.anita;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Handles command line virtual thread arguments for the application.
+ * Processes --virtual-threads arguments and enables Spring Boot's virtual thread support,
+ * so Tomcat handles every request on its own virtual thread and the slow feature sleeps
+ * without holding a platform thread. Virtual threads need Java 21.
+ */
+@Component
+@Slf4j
+public class VirtualThreadArgumentHandler extends ArgumentHandler {
+
+    public static final boolean VIRTUAL_THREADS_ENABLED_DEFAULT_VALUE = false;
+
+    /**
+     * Configures virtual threads from command line arguments.
+     * If --virtual-threads=true is specified, sets spring.threads.virtual.enabled.
+     */
+    public void configure(String[] args) {
+        boolean virtualThreadsEnabled = getBooleanFromArgs(args, "virtual-threads", VIRTUAL_THREADS_ENABLED_DEFAULT_VALUE);
+
+        if (virtualThreadsEnabled) {
+            System.setProperty("spring.threads.virtual.enabled", "true");
+            if (Runtime.version().feature() < 21) {
+                log.warn("Virtual threads need Java 21, running on Java {} with platform threads",
+                        Runtime.version().feature());
+            }
+        }
+
+        log.info("Virtual threads: {}", virtualThreadsEnabled ? "ENABLED" : "DISABLED");
+    }
+}
\ No newline at end of file
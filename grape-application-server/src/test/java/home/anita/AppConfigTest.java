@@ -46,6 +46,14 @@ class AppConfigTest {
         assertEquals(4000, port.getMax());
     }
     
+    @Test
+    void testDefaultDeadlineConfiguration() {
+        AppConfig config = new AppConfig();
+
+        assertEquals("X-Request-Deadline", config.getDeadline().getHeader());
+        assertEquals("X-Deadline-Expired", config.getDeadline().getExpiredHeader());
+    }
+
     @Test
     void testLombokGeneratedMethods() {
         // Test that Lombok generates proper equals, hashCode, toString methods
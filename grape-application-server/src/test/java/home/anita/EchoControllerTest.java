@@ -8,6 +8,7 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -29,6 +30,7 @@ class EchoControllerTest {
         slowConfig.setSleepTimeMs(800L);
 
         when(appConfig.getSlow()).thenReturn(slowConfig);
+        when(appConfig.getDeadline()).thenReturn(new AppConfig.Deadline());
     }
 
     @Test
@@ -180,4 +182,69 @@ class EchoControllerTest {
                 .andExpect(jsonPath("$.message").value("test"))
                 .andExpect(jsonPath("$.port").value("8765"));  // Should reflect actual server port
     }
+
+    @Test
+    void testPassedDeadlineReturns504() throws Exception {
+        mockMvc.perform(post("/api/echo")
+                        .contentType(MediaType.TEXT_PLAIN)
+                        .header(AppConfig.DEADLINE_HEADER_DEFAULT_VALUE, "0")
+                        .content("test"))
+                .andExpect(status().isGatewayTimeout())
+                .andExpect(header().string(AppConfig.DEADLINE_EXPIRED_HEADER_DEFAULT_VALUE, "true"))
+                .andExpect(jsonPath("$.message").value("Deadline exceeded"));
+    }
+
+    @Test
+    void testConfiguredDeadlineHeaderIsRead() throws Exception {
+        AppConfig.Deadline deadlineConfig = new AppConfig.Deadline();
+        deadlineConfig.setHeader("X-Deadline");
+        when(appConfig.getDeadline()).thenReturn(deadlineConfig);
+
+        mockMvc.perform(post("/api/echo")
+                        .contentType(MediaType.TEXT_PLAIN)
+                        .header("X-Deadline", "0")
+                        .content("test"))
+                .andExpect(status().isGatewayTimeout());
+    }
+
+    @Test
+    void testFutureDeadlineIsServed() throws Exception {
+        mockMvc.perform(post("/api/echo")
+                        .contentType(MediaType.TEXT_PLAIN)
+                        .header(AppConfig.DEADLINE_HEADER_DEFAULT_VALUE, "10000")
+                        .content("test"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("test"));
+    }
+
+    @Test
+    void testInvalidDeadlineIsIgnored() throws Exception {
+        mockMvc.perform(post("/api/echo")
+                        .contentType(MediaType.TEXT_PLAIN)
+                        .header(AppConfig.DEADLINE_HEADER_DEFAULT_VALUE, "soon")
+                        .content("test"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("test"));
+    }
+
+    @Test
+    void testSlowFeatureSkippedWhenDeadlinePassesDuringDelay() throws Exception {
+        AppConfig.Slow slowConfig = new AppConfig.Slow();
+        slowConfig.setEnabled(true);
+        slowConfig.setSleepTimeMs(2000L);
+
+        when(appConfig.getSlow()).thenReturn(slowConfig);
+
+        long startTime = System.currentTimeMillis();
+
+        mockMvc.perform(post("/api/echo")
+                        .contentType(MediaType.TEXT_PLAIN)
+                        .header(AppConfig.DEADLINE_HEADER_DEFAULT_VALUE, "500")
+                        .content("test"))
+                .andExpect(status().isGatewayTimeout());
+
+        // Should answer without sleeping the full delay
+        long duration = System.currentTimeMillis() - startTime;
+        assertTrue(duration < 2000);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,52 @@
+package home.anita;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class H2cArgumentHandlerTest {
+
+    @Autowired
+    private H2cArgumentHandler h2cArgumentHandler;
+
+    @AfterEach
+    void cleanUp() {
+        System.clearProperty("server.http2.enabled");
+    }
+
+    @Test
+    void testConfigureEnabled() {
+        String[] args = {"--h2c=true"};
+
+        h2cArgumentHandler.configure(args);
+
+        assertEquals("true", System.getProperty("server.http2.enabled"));
+    }
+
+    @Test
+    void testConfigureDisabled() {
+        String[] args = {"--h2c=false"};
+
+        h2cArgumentHandler.configure(args);
+
+        assertNull(System.getProperty("server.http2.enabled"));
+    }
+
+    @Test
+    void testConfigureNotSpecified() {
+        String[] args = {"--slow=true"};
+
+        h2cArgumentHandler.configure(args);
+
+        assertNull(System.getProperty("server.http2.enabled"));
+    }
+
+    @Test
+    void testH2cEnabledDefaultValue() {
+        assertFalse(H2cArgumentHandler.H2C_ENABLED_DEFAULT_VALUE);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,52 @@
+package home.anita;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class VirtualThreadArgumentHandlerTest {
+
+    @Autowired
+    private VirtualThreadArgumentHandler virtualThreadArgumentHandler;
+
+    @AfterEach
+    void cleanUp() {
+        System.clearProperty("spring.threads.virtual.enabled");
+    }
+
+    @Test
+    void testConfigureEnabled() {
+        String[] args = {"--virtual-threads=true"};
+
+        virtualThreadArgumentHandler.configure(args);
+
+        assertEquals("true", System.getProperty("spring.threads.virtual.enabled"));
+    }
+
+    @Test
+    void testConfigureDisabled() {
+        String[] args = {"--virtual-threads=false"};
+
+        virtualThreadArgumentHandler.configure(args);
+
+        assertNull(System.getProperty("spring.threads.virtual.enabled"));
+    }
+
+    @Test
+    void testConfigureNotSpecified() {
+        String[] args = {"--slow=true"};
+
+        virtualThreadArgumentHandler.configure(args);
+
+        assertNull(System.getProperty("spring.threads.virtual.enabled"));
+    }
+
+    @Test
+    void testVirtualThreadsEnabledDefaultValue() {
+        assertFalse(VirtualThreadArgumentHandler.VIRTUAL_THREADS_ENABLED_DEFAULT_VALUE);
+    }
+}
\ No newline at end of file
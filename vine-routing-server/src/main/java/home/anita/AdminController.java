@@ -0,0 +1,402 @@
+package home.anita;
+
+import home.anita.http.ConnectionPools;
+import home.anita.server.AdmissionQueue;
+import home.anita.server.CircuitBreakerRegistry;
+import home.anita.server.ConcurrencyLimiter;
+import home.anita.server.HealthCheckService;
+import home.anita.server.IdempotencyStore;
+import home.anita.server.RateLimiter;
+import home.anita.server.RequestCoalescer;
+import home.anita.server.ResponseCache;
+import home.anita.server.ServerLoadTracker;
+import home.anita.server.SlowStartPolicy;
+import home.anita.server.TcpProxy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Diagnostics endpoints for operators.
+ * Only GET mappings are registered here, so routed POST traffic is not affected.
+ */
+@RestController
+@RequestMapping("/admin")
+@Slf4j
+public class AdminController {
+
+    private final RoutingConfig routingConfig;
+    private final HealthCheckService healthCheckService;
+    private final ServerLoadTracker serverLoadTracker;
+    private final SlowStartPolicy slowStartPolicy;
+    private final ConcurrencyLimiter concurrencyLimiter;
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final AdmissionQueue admissionQueue;
+    private final RateLimiter rateLimiter;
+    private final RequestCoalescer requestCoalescer;
+    private final ResponseCache responseCache;
+    private final IdempotencyStore idempotencyStore;
+    private final ConnectionPools connectionPools;
+    private final TcpProxy tcpProxy;
+
+    public AdminController(RoutingConfig routingConfig, HealthCheckService healthCheckService,
+                           ServerLoadTracker serverLoadTracker, SlowStartPolicy slowStartPolicy,
+                           ConcurrencyLimiter concurrencyLimiter, CircuitBreakerRegistry circuitBreakerRegistry,
+                           AdmissionQueue admissionQueue, RateLimiter rateLimiter,
+                           RequestCoalescer requestCoalescer, ResponseCache responseCache,
+                           IdempotencyStore idempotencyStore, ConnectionPools connectionPools,
+                           TcpProxy tcpProxy) {
+        this.routingConfig = routingConfig;
+        this.healthCheckService = healthCheckService;
+        this.serverLoadTracker = serverLoadTracker;
+        this.slowStartPolicy = slowStartPolicy;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.circuitBreakerRegistry = circuitBreakerRegistry;
+        this.admissionQueue = admissionQueue;
+        this.rateLimiter = rateLimiter;
+        this.requestCoalescer = requestCoalescer;
+        this.responseCache = responseCache;
+        this.idempotencyStore = idempotencyStore;
+        this.connectionPools = connectionPools;
+        this.tcpProxy = tcpProxy;
+    }
+
+    /**
+     * Lists the health and live load of every configured server.
+     *
+     * @return The status of each server, ordered by URL
+     */
+    @GetMapping("/servers")
+    public List<ServerStatus> getServers() {
+        var servers = routingConfig.getServers();
+        if (servers == null) {
+            return List.of();
+        }
+
+        return servers.stream()
+                .sorted(Comparator.comparing(RoutingConfig.ServerConfig::getUrl))
+                .map(server -> {
+                    var health = healthCheckService.getServerHealth(server.getUrl());
+                    return new ServerStatus(
+                            server.getUrl(),
+                            health != null ? health.getStatus().name() : "UNKNOWN",
+                            health != null ? health.getLastChecked() : null,
+                            health != null ? health.getHealthySince() : null,
+                            health != null ? health.getErrorMessage() : null,
+                            health != null && health.isEjected(),
+                            server.getWeight(),
+                            server.getPriority(),
+                            slowStartPolicy.getWeight(server),
+                            serverLoadTracker.getInFlight(server));
+                })
+                .toList();
+    }
+
+    /**
+     * Lists the current adaptive concurrency limit of every configured server.
+     *
+     * @return The limit of each server, ordered by URL
+     */
+    @GetMapping("/limits")
+    public List<LimitStatus> getLimits() {
+        var servers = routingConfig.getServers();
+        if (servers == null) {
+            return List.of();
+        }
+
+        return servers.stream()
+                .sorted(Comparator.comparing(RoutingConfig.ServerConfig::getUrl))
+                .map(server -> {
+                    var limit = concurrencyLimiter.getLimit(server);
+                    return new LimitStatus(
+                            server.getUrl(),
+                            limit.getLimit(),
+                            limit.getInFlight(),
+                            limit.getRejected(),
+                            TimeUnit.NANOSECONDS.toMicros(limit.getMinRttNanos()) / 1000.0);
+                })
+                .toList();
+    }
+
+    /**
+     * Lists the circuit breaker state of every configured server.
+     *
+     * @return The circuit of each server, ordered by URL
+     */
+    @GetMapping("/circuits")
+    public List<CircuitStatus> getCircuits() {
+        var servers = routingConfig.getServers();
+        if (servers == null) {
+            return List.of();
+        }
+
+        var now = System.nanoTime();
+        return servers.stream()
+                .sorted(Comparator.comparing(RoutingConfig.ServerConfig::getUrl))
+                .map(server -> {
+                    var circuitBreaker = circuitBreakerRegistry.getCircuitBreaker(server);
+                    var stats = circuitBreaker.getWindowStats(now);
+                    return new CircuitStatus(
+                            server.getUrl(),
+                            circuitBreaker.getState().name(),
+                            stats.calls(),
+                            stats.failures(),
+                            stats.slowCalls());
+                })
+                .toList();
+    }
+
+    /**
+     * Shows the state of the admission queue in front of the routing.
+     *
+     * @return The queue depth, counters and recent sojourn times
+     */
+    @GetMapping("/admission")
+    public AdmissionStatus getAdmission() {
+        return new AdmissionStatus(
+                admissionQueue.getInFlight(),
+                admissionQueue.getQueueDepth(),
+                admissionQueue.isOverloaded(),
+                admissionQueue.getAdmitted(),
+                admissionQueue.getDropped(),
+                admissionQueue.getRejected(),
+                admissionQueue.getSojournPercentileMillis(50),
+                admissionQueue.getSojournPercentileMillis(99));
+    }
+
+    /**
+     * Shows the state of the per-client rate limiting.
+     *
+     * @return The number of tracked clients and limited requests
+     */
+    @GetMapping("/rate-limit")
+    public RateLimitStatus getRateLimit() {
+        return new RateLimitStatus(rateLimiter.isEnabled(), rateLimiter.getClientCount(), rateLimiter.getLimited());
+    }
+
+    /**
+     * Shows how many requests were coalesced into the call of an identical request.
+     *
+     * @return The in-flight keys and coalescing counters
+     */
+    @GetMapping("/coalescing")
+    public CoalescingStatus getCoalescing() {
+        return new CoalescingStatus(requestCoalescer.getInFlight(), requestCoalescer.getLeaders(),
+                requestCoalescer.getCoalesced(), requestCoalescer.getBypassed());
+    }
+
+    /**
+     * Shows the size and counters of the response cache.
+     *
+     * @return The cached entries, their size and the hit, miss and eviction counts
+     */
+    @GetMapping("/cache")
+    public CacheStatus getCache() {
+        return new CacheStatus(responseCache.getEntryCount(), responseCache.getSizeBytes(), responseCache.getHits(),
+                responseCache.getStaleHits(), responseCache.getMisses(), responseCache.getEvictions(),
+                responseCache.getRevalidations());
+    }
+
+    /**
+     * Shows the counters and direct memory of the idempotency key store.
+     *
+     * @return The stored, replayed and conflicting requests and the memory used
+     */
+    @GetMapping("/idempotency")
+    public IdempotencyStatus getIdempotency() {
+        return new IdempotencyStatus(idempotencyStore.getInFlight(), idempotencyStore.getStored(),
+                idempotencyStore.getReplayed(), idempotencyStore.getConflicts(), idempotencyStore.getUsedBytes(),
+                idempotencyStore.getAllocatedBytes());
+    }
+
+    /**
+     * Lists the connection pool of every configured server.
+     *
+     * @return The connections, waiting requests and acquire times of each server, ordered by URL
+     */
+    @GetMapping("/pools")
+    public List<PoolStatus> getPools() {
+        var servers = routingConfig.getServers();
+        if (servers == null) {
+            return List.of();
+        }
+
+        return servers.stream()
+                .sorted(Comparator.comparing(RoutingConfig.ServerConfig::getUrl))
+                .map(server -> {
+                    var stats = connectionPools.getStats(server.getUrl());
+                    return new PoolStatus(
+                            server.getUrl(),
+                            stats.active(),
+                            stats.idle(),
+                            stats.pending(),
+                            stats.maxConnections(),
+                            stats.acquired(),
+                            stats.failedAcquires(),
+                            stats.acquireP50Ms(),
+                            stats.acquireP99Ms());
+                })
+                .toList();
+    }
+
+    /**
+     * Shows the counters of the TCP passthrough and the bytes and duration of its connections.
+     *
+     * @return The passthrough counters and its open and recently closed connections, newest first
+     */
+    @GetMapping("/tcp")
+    public TcpStatus getTcp() {
+        return new TcpStatus(routingConfig.getTcp().isEnabled(), tcpProxy.getPort(), tcpProxy.getOpenConnections(),
+                tcpProxy.getAccepted(), tcpProxy.getRefused(), tcpProxy.getFailed(), tcpProxy.getBytesFromClients(),
+                tcpProxy.getBytesFromServers(), tcpProxy.getConnections());
+    }
+
+    /**
+     * Health and load of a single server.
+     *
+     * @param url             The server URL
+     * @param status          The health status, or UNKNOWN before the first check
+     * @param lastChecked     The time of the last health check
+     * @param healthySince    The time the server last became healthy
+     * @param errorMessage    The last health check error
+     * @param ejected         Whether outlier detection ejected the server from selection
+     * @param weight          The configured weight
+     * @param priority        The configured priority tier
+     * @param slowStartWeight The current slow-start weight, 1 once the ramp is over
+     * @param inFlight        The number of in-flight requests
+     */
+    public record ServerStatus(String url, String status, LocalDateTime lastChecked, LocalDateTime healthySince,
+                               String errorMessage, boolean ejected, int weight, int priority, double slowStartWeight,
+                               int inFlight) {
+    }
+
+    /**
+     * Concurrency limit of a single server.
+     *
+     * @param url      The server URL
+     * @param limit    The current concurrency limit
+     * @param inFlight The number of requests holding a permit
+     * @param rejected The number of requests turned away at the limit
+     * @param minRttMs The minimum round-trip time the limit is measured against
+     */
+    public record LimitStatus(String url, int limit, int inFlight, long rejected, double minRttMs) {
+    }
+
+    /**
+     * Circuit breaker of a single server.
+     *
+     * @param url       The server URL
+     * @param state     The circuit state: CLOSED, OPEN or HALF_OPEN
+     * @param calls     The number of calls in the sliding window
+     * @param failures  The number of failed calls in the sliding window
+     * @param slowCalls The number of slow calls in the sliding window
+     */
+    public record CircuitStatus(String url, String state, int calls, int failures, int slowCalls) {
+    }
+
+    /**
+     * Connection pool of a single server.
+     *
+     * @param url            The server URL
+     * @param active         The connections in use by a request
+     * @param idle           The open connections waiting in the pool
+     * @param pending        The requests waiting for a connection
+     * @param maxConnections The most connections the pool opens
+     * @param acquired       The number of connections handed to requests
+     * @param failedAcquires The number of requests that got no connection
+     * @param acquireP50Ms   The median recent wait for a connection, -1 before any request
+     * @param acquireP99Ms   The 99th percentile recent wait for a connection, -1 before any request
+     */
+    public record PoolStatus(String url, int active, int idle, int pending, int maxConnections, long acquired,
+                             long failedAcquires, double acquireP50Ms, double acquireP99Ms) {
+    }
+
+    /**
+     * State of the admission queue.
+     *
+     * @param inFlight      The number of admitted requests being routed
+     * @param queueDepth    The number of requests waiting for a slot
+     * @param overloaded    Whether the queue stayed non-empty for a whole interval, so waits are cut to the target
+     * @param admitted      The number of requests admitted
+     * @param dropped       The number of requests dropped after waiting too long
+     * @param rejected      The number of requests rejected because the queue was full
+     * @param sojournP50Ms  The median recent time spent in the queue, -1 before any request
+     * @param sojournP99Ms  The 99th percentile recent time spent in the queue, -1 before any request
+     */
+    public record AdmissionStatus(int inFlight, int queueDepth, boolean overloaded, long admitted, long dropped,
+                                  long rejected, double sojournP50Ms, double sojournP99Ms) {
+    }
+
+    /**
+     * State of the per-client rate limiting.
+     *
+     * @param enabled Whether requests are rate limited
+     * @param clients The number of clients with a bucket
+     * @param limited The number of requests refused with 429
+     */
+    public record RateLimitStatus(boolean enabled, int clients, long limited) {
+    }
+
+    /**
+     * State of the request coalescing.
+     *
+     * @param inFlight  The number of distinct requests in flight that can be waited on
+     * @param leaders   The number of coalescable requests routed to a server
+     * @param coalesced The number of requests answered with the response of an identical request
+     * @param bypassed  The number of coalescable requests routed on their own because the map was full
+     */
+    public record CoalescingStatus(int inFlight, long leaders, long coalesced, long bypassed) {
+    }
+
+    /**
+     * State of the response cache.
+     *
+     * @param entries       The number of cached responses
+     * @param sizeBytes     The approximate memory taken by the cached responses
+     * @param hits          The number of requests answered with a fresh cached response
+     * @param staleHits     The number of requests answered with a stale cached response while it was refreshed
+     * @param misses        The number of cacheable requests routed to a server
+     * @param evictions     The number of responses evicted for size or after expiring
+     * @param revalidations The number of stale responses refreshed in the background
+     */
+    public record CacheStatus(long entries, long sizeBytes, long hits, long staleHits, long misses, long evictions,
+                              long revalidations) {
+    }
+
+    /**
+     * State of the idempotency key store.
+     *
+     * @param inFlight       The number of keyed requests in flight
+     * @param stored         The number of responses stored for replay
+     * @param replayed       The number of requests answered with a stored response
+     * @param conflicts      The number of requests refused for reusing a key with another request
+     * @param usedBytes      The direct memory holding stored responses
+     * @param allocatedBytes The direct memory allocated for the store and its index
+     */
+    public record IdempotencyStatus(int inFlight, long stored, long replayed, long conflicts, long usedBytes,
+                                    long allocatedBytes) {
+    }
+
+    /**
+     * State of the TCP passthrough.
+     *
+     * @param enabled          Whether TCP connections are forwarded
+     * @param port             The port the passthrough listens on, -1 if it is not running
+     * @param open             The number of connections being forwarded
+     * @param accepted         The number of connections accepted
+     * @param refused          The number of connections closed for exceeding max-connections
+     * @param failed           The number of connections no server accepted
+     * @param bytesFromClients The bytes forwarded from clients to servers
+     * @param bytesFromServers The bytes forwarded from servers to clients
+     * @param connections      The open and recently closed connections, newest first
+     */
+    public record TcpStatus(boolean enabled, int port, int open, long accepted, long refused, long failed,
+                            long bytesFromClients, long bytesFromServers, List<TcpProxy.ConnectionStats> connections) {
+    }
+}
\ No newline at end of file
@@ -0,0 +1,85 @@
+package home.anita;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.DeferredResultProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Reads the body of a request in reactive mode without holding a thread while the client sends it.
+ * The servlet input stream can only be read with a ReadListener once the request is asynchronous,
+ * which happens after the controller has returned its Mono. The reader therefore registers with
+ * the async manager of the request and sets its listener when asynchronous processing starts;
+ * the container then calls it whenever body bytes arrive. A request whose input stream cannot
+ * be read without blocking fails rather than holding the thread.
+ */
+final class AsyncBodyReader implements DeferredResultProcessingInterceptor, ReadListener {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final HttpServletRequest request;
+    private final HttpHeaders headers;
+    private final Sinks.One<String> body = Sinks.one();
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private ServletInputStream input;
+
+    private AsyncBodyReader(HttpServletRequest request, HttpHeaders headers) {
+        this.request = request;
+        this.headers = headers;
+    }
+
+    /**
+     * Reads the body of a request once the controller has returned.
+     *
+     * @return Mono emitting the body in the charset of its content type, or an
+     * HttpMessageNotReadableException if the request has no body
+     */
+    static Mono<String> read(HttpServletRequest request, HttpHeaders headers) {
+        var reader = new AsyncBodyReader(request, headers);
+        WebAsyncUtils.getAsyncManager(request).registerDeferredResultInterceptor(AsyncBodyReader.class.getName(), reader);
+        return reader.body.asMono();
+    }
+
+    @Override
+    public <T> void preProcess(NativeWebRequest webRequest, DeferredResult<T> deferredResult) {
+        try {
+            input = request.getInputStream();
+            input.setReadListener(this);
+        } catch (IOException | RuntimeException e) {
+            // Also a container without non-blocking reads, the body is never read by blocking
+            body.tryEmitError(e);
+        }
+    }
+
+    @Override
+    public void onDataAvailable() throws IOException {
+        int read;
+        while (input.isReady() && (read = input.read(buffer)) != -1) {
+            bytes.write(buffer, 0, read);
+        }
+    }
+
+    @Override
+    public void onAllDataRead() {
+        try {
+            body.tryEmitValue(RoutingController.requireBody(bytes.toString(RoutingController.getCharset(headers)), request));
+        } catch (RuntimeException e) {
+            body.tryEmitError(e);
+        }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        body.tryEmitError(t);
+    }
+}
\ No newline at end of file
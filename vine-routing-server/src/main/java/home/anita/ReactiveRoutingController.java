@@ -0,0 +1,75 @@
+package home.anita;
+
+import home.anita.server.AdmissionQueue;
+import home.anita.server.RateLimiter;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+/**
+ * Routes requests in reactive mode. The controller returns a Mono, so the servlet request is
+ * handled asynchronously: the request thread is released once the request was sent, and the
+ * response is written when the server answers. The body is read and the admission slot awaited
+ * without a thread either, so the number of requests in flight is bounded by the admission queue
+ * and the open sockets, not by the request threads.
+ */
+@RestController
+@ConditionalOnProperty(prefix = "routing", name = "mode", havingValue = "reactive")
+@Slf4j
+public class ReactiveRoutingController {
+
+    private final RoutingService routingService;
+    private final RoutingConfig routingConfig;
+    private final AdmissionQueue admissionQueue;
+    private final RateLimiter rateLimiter;
+
+    public ReactiveRoutingController(RoutingService routingService, RoutingConfig routingConfig,
+                                     AdmissionQueue admissionQueue, RateLimiter rateLimiter) {
+        this.routingService = routingService;
+        this.routingConfig = routingConfig;
+        this.admissionQueue = admissionQueue;
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * Routes a POST request without waiting for the body, a free admission slot or the response.
+     * The admission slot of the request is held until the response was produced or the client
+     * went away.
+     */
+    @PostMapping("/**")
+    public Mono<ResponseEntity<String>> routePost(
+            @RequestHeader HttpHeaders headers,
+            HttpServletRequest request) {
+
+        String path = request.getRequestURI();
+        log.info("Received POST request for path: {}", path);
+
+        var clientAddress = request.getRemoteAddr();
+        var limited = RoutingController.checkRateLimit(rateLimiter, path, headers, null, clientAddress);
+        if (limited != null) {
+            return Mono.just(limited);
+        }
+
+        return AsyncBodyReader.read(request, headers).flatMap(requestBody -> {
+            var bodyLimited = RoutingController.checkRateLimit(rateLimiter, path, headers, requestBody, clientAddress);
+            if (bodyLimited != null) {
+                return Mono.just(bodyLimited);
+            }
+
+            return admissionQueue.acquireAsync().flatMap(admitted -> {
+                if (!admitted) {
+                    return Mono.just(RoutingController.overloaded(admissionQueue));
+                }
+                return Mono.defer(() -> routingService.routeRequestAsync(requestBody, headers, path, clientAddress,
+                                routingConfig.getServers()))
+                        .doFinally(signal -> admissionQueue.release());
+            });
+        });
+    }
+}
\ No newline at end of file
@@ -1,11 +1,16 @@
 package home.anita;
 
+import home.anita.server.LoadMetric;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 
 @Configuration
@@ -15,15 +20,960 @@ public class RoutingConfig {
 
     private Set<ServerConfig> servers;
 
+    /**
+     * How routed requests are handled. In reactive mode the controller returns a Mono and
+     * no thread waits for the response of a server. In streaming mode the request and response
+     * bodies are passed through in chunks instead of being read whole.
+     * Default is blocking.
+     */
+    private RoutingMode mode = RoutingMode.BLOCKING;
+
+    /**
+     * Strategy used to select the server for each routed request.
+     * Default is round-robin.
+     */
+    private SelectorType selector = SelectorType.ROUND_ROBIN;
+
+    /**
+     * Decay time constant of the peak-EWMA latency estimate kept for each server.
+     * Default is 10 seconds.
+     */
+    private Duration latencyDecayTime = Duration.ofSeconds(10);
+
+    /**
+     * Load metric compared by power-of-two-choices selection.
+     * Default is the number of in-flight requests.
+     */
+    private LoadMetric loadMetric = LoadMetric.IN_FLIGHT;
+
+    /**
+     * Settings of consistent-hash selection.
+     */
+    private ConsistentHashConfig consistentHash = new ConsistentHashConfig();
+
+    /**
+     * Settings of the traffic ramp for servers recovering to HEALTHY.
+     */
+    private SlowStartConfig slowStart = new SlowStartConfig();
+
+    /**
+     * Settings of the adaptive per-server concurrency limits.
+     */
+    private ConcurrencyLimitConfig concurrencyLimit = new ConcurrencyLimitConfig();
+
+    /**
+     * Settings of the spillover between server priority tiers.
+     */
+    private PriorityConfig priority = new PriorityConfig();
+
+    /**
+     * Settings of the passive outlier detection on live traffic.
+     */
+    private OutlierDetectionConfig outlierDetection = new OutlierDetectionConfig();
+
+    /**
+     * Settings of the per-server circuit breakers.
+     */
+    private CircuitBreakerConfig circuitBreaker = new CircuitBreakerConfig();
+
+    /**
+     * Settings of the retries on another server after connection failures.
+     */
+    private RetryConfig retry = new RetryConfig();
+
+    /**
+     * Settings of the hedged requests.
+     */
+    private HedgingConfig hedging = new HedgingConfig();
+
+    /**
+     * Settings of the request timeouts and the propagated deadline.
+     */
+    private TimeoutConfig timeout = new TimeoutConfig();
+
+    /**
+     * Settings of the admission queue in front of the routing.
+     */
+    private AdmissionConfig admission = new AdmissionConfig();
+
+    /**
+     * Settings of the per-client rate limiting.
+     */
+    private RateLimitConfig rateLimit = new RateLimitConfig();
+
+    /**
+     * Settings of the coalescing of identical in-flight requests.
+     */
+    private CoalescingConfig coalescing = new CoalescingConfig();
+
+    /**
+     * Settings of the response cache.
+     */
+    private CacheConfig cache = new CacheConfig();
+
+    /**
+     * Settings of the deduplication of requests carrying an idempotency key.
+     */
+    private IdempotencyConfig idempotency = new IdempotencyConfig();
+
+    /**
+     * Settings of the streaming mode.
+     */
+    private StreamingConfig streaming = new StreamingConfig();
+
+    /**
+     * Settings of the connection pool kept for each server.
+     */
+    private ConnectionPoolConfig connectionPool = new ConnectionPoolConfig();
+
+    /**
+     * Settings of the layer-4 TCP passthrough.
+     */
+    private TcpConfig tcp = new TcpConfig();
+
+    /**
+     * Ways routed requests are handled.
+     */
+    public enum RoutingMode {
+        BLOCKING,
+        REACTIVE,
+        STREAMING
+    }
+
+    /**
+     * Protocols of the connections to the servers.
+     */
+    public enum UpstreamProtocol {
+        HTTP11,
+        H2C
+    }
+
+    /**
+     * Available server selection strategies.
+     */
+    public enum SelectorType {
+        ROUND_ROBIN,
+        HEALTH_AWARE,
+        LEAST_OUTSTANDING,
+        PEAK_EWMA,
+        POWER_OF_TWO_CHOICES,
+        WEIGHTED_ROUND_ROBIN,
+        CONSISTENT_HASH
+    }
+
+    /**
+     * Request attributes that can be used as the consistent-hash key or the rate-limit client key.
+     */
+    public enum HashKeySource {
+        HEADER,
+        CLIENT_IP,
+        BODY_FIELD
+    }
+
+    /**
+     * Shapes of the slow-start traffic ramp.
+     */
+    public enum SlowStartCurve {
+        LINEAR,
+        EXPONENTIAL
+    }
+
+    @Data
+    public static class SlowStartConfig {
+
+        /**
+         * Time over which a recovered server ramps up to its full share of traffic.
+         * Default is zero, which disables slow start.
+         */
+        private Duration window = Duration.ZERO;
+
+        /**
+         * Shape of the ramp from the minimum weight to the full weight.
+         * Default is linear.
+         */
+        private SlowStartCurve curve = SlowStartCurve.LINEAR;
+
+        /**
+         * Fraction of its full traffic share a server receives right after recovering,
+         * between 0 (exclusive) and 1. Default is 0.1.
+         */
+        private double minWeight = 0.1;
+    }
+
+    @Data
+    public static class PriorityConfig {
+
+        /**
+         * Factor applied to the healthy share of a tier when deciding how much traffic it keeps.
+         * With 1.4, a tier keeps all its traffic while at least 1/1.4 (about 72%) of its servers are healthy.
+         * Default is 1.4.
+         */
+        private double overprovisioningFactor = 1.4;
+
+        /**
+         * Healthy share of all tiers below which unhealthy servers receive traffic too.
+         * Default is 0, which never sends traffic to unhealthy servers.
+         */
+        private double panicThreshold = 0;
+    }
+
+    @Data
+    public static class OutlierDetectionConfig {
+
+        /**
+         * Whether servers are ejected from selection based on the results of routed requests.
+         * Default is false.
+         */
+        private boolean enabled;
+
+        /**
+         * Number of 5xx responses in a row after which a server is ejected.
+         * Default is 5.
+         */
+        private int consecutive5xx = 5;
+
+        /**
+         * Number of requests in a row failing without a response, such as refused connections,
+         * after which a server is ejected.
+         * Default is 5.
+         */
+        private int consecutiveFailures = 5;
+
+        /**
+         * Factor of the pool median latency above which the average latency of a server makes it an outlier.
+         * Needs at least three servers with traffic. Default is 5, 0 disables latency ejection.
+         */
+        private double latencyMultiplier = 5;
+
+        /**
+         * Interval at which expired ejections are lifted and latencies are compared.
+         * Default is 1 second.
+         */
+        private Duration interval = Duration.ofSeconds(1);
+
+        /**
+         * Length of the first ejection of a server, doubled for every further ejection in a row.
+         * Default is 30 seconds.
+         */
+        private Duration baseEjectionTime = Duration.ofSeconds(30);
+
+        /**
+         * Longest ejection of a server.
+         * Default is 300 seconds.
+         */
+        private Duration maxEjectionTime = Duration.ofSeconds(300);
+
+        /**
+         * Largest percentage of servers ejected at the same time. One server can always be ejected.
+         * Default is 10.
+         */
+        private int maxEjectionPercent = 10;
+    }
+
+    @Data
+    public static class HedgingConfig {
+
+        /**
+         * Whether opted-in requests are hedged.
+         * Default is false.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Path prefixes whose requests are hedged. Only list paths whose requests are safe to process twice.
+         */
+        private List<String> paths = new ArrayList<>();
+
+        /**
+         * Request header that opts a single request in to hedging when set to true.
+         * Default is X-Hedge.
+         */
+        private String header = "X-Hedge";
+
+        /**
+         * Fixed time after which a hedge is sent. Default is 0, which uses the live latency percentile of the route.
+         */
+        private Duration delay = Duration.ZERO;
+
+        /**
+         * Latency percentile of the route used as hedge delay when no fixed delay is set.
+         * Default is 95.
+         */
+        private double percentile = 95;
+
+        /**
+         * Hedges allowed per hedgeable request, capping the extra load.
+         * Default is 0.05, at most one hedge per twenty requests.
+         */
+        private double budgetRatio = 0.05;
+    }
+
+    @Data
+    public static class IdempotencyConfig {
+
+        /**
+         * Whether the responses of requests carrying an idempotency key are stored and replayed.
+         * Default is false.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Request header carrying the idempotency key.
+         * Default is Idempotency-Key.
+         */
+        private String header = "Idempotency-Key";
+
+        /**
+         * Request headers whose values scope the idempotency key, so clients cannot replay
+         * each other's responses.
+         * Default is Authorization.
+         */
+        private List<String> scopeHeaders = new ArrayList<>(List.of("Authorization"));
+
+        /**
+         * Longest idempotency key accepted, longer keys are answered with 400.
+         * Default is 255.
+         */
+        private int maxKeyLength = 255;
+
+        /**
+         * Time a stored response is replayed.
+         * Default is 24 hours.
+         */
+        private Duration retention = Duration.ofHours(24);
+
+        /**
+         * Direct memory holding the stored responses, the oldest are overwritten once it is full.
+         * Default is 64MB.
+         */
+        private DataSize capacity = DataSize.ofMegabytes(64);
+
+        /**
+         * Number of keys the off-heap index is sized for, taking 32 bytes of direct memory per key.
+         * Default is 1000000.
+         */
+        private int maxKeys = 1_000_000;
+
+        /**
+         * Response header set to true on replayed responses.
+         * Default is Idempotent-Replayed.
+         */
+        private String replayHeader = "Idempotent-Replayed";
+    }
+
+    @Data
+    public static class StreamingConfig {
+
+        /**
+         * Size of the chunks the request body is read from the client in.
+         * Default is 8KB.
+         */
+        private DataSize chunkSize = DataSize.ofKilobytes(8);
+
+        /**
+         * Number of body chunks read ahead of the side they are written to, in each direction.
+         * With the chunk size it bounds the memory a request holds, whatever its body size.
+         * Default is 4.
+         */
+        private int prefetch = 4;
+    }
+
+    @Data
+    public static class ConnectionPoolConfig {
+
+        /**
+         * Protocol of the connections to the servers. h2c sends the requests to a server as
+         * streams multiplexed over a few HTTP/2 cleartext connections; the servers must accept
+         * h2c with prior knowledge, as grape does with --h2c=true.
+         * Default is HTTP/1.1.
+         */
+        private UpstreamProtocol protocol = UpstreamProtocol.HTTP11;
+
+        /**
+         * Most HTTP/1.1 connections open to a single server.
+         * Default is 500.
+         */
+        private int maxConnections = 500;
+
+        /**
+         * Most requests waiting for a connection to a single server, further requests fail
+         * right away. -1 does not bound the queue.
+         * Default is 1000.
+         */
+        private int maxPendingAcquires = 1000;
+
+        /**
+         * Longest time a request waits for a connection once the pool is at its maximum.
+         * Default is 5 seconds.
+         */
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(5);
+
+        /**
+         * Time after which an idle connection is closed, keep it below the keep-alive
+         * timeout of the servers so they do not close a connection as it is reused.
+         * Default is 30 seconds.
+         */
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+
+        /**
+         * Time after which a connection is closed once it is released, so connections are
+         * spread again over the instances behind a server address.
+         * Default is 5 minutes.
+         */
+        private Duration maxLifeTime = Duration.ofMinutes(5);
+
+        /**
+         * Interval of the background eviction of idle and expired connections, 0s only
+         * evicts them when they are acquired.
+         * Default is 10 seconds.
+         */
+        private Duration evictionInterval = Duration.ofSeconds(10);
+
+        /**
+         * Whether the native transport, epoll on Linux, is used when it is available.
+         * Default is true.
+         */
+        private boolean nativeTransport = true;
+
+        /**
+         * Most HTTP/2 connections open to a single server in h2c mode.
+         * Default is 2.
+         */
+        private int maxMultiplexedConnections = 2;
+
+        /**
+         * Most concurrent streams on one HTTP/2 connection in h2c mode, lowered to the limit a
+         * server announces. Keep it at or below that limit, Tomcat's is 100: the server
+         * selection skips a server with no stream free on any of its connections.
+         * Default is 100.
+         */
+        private int maxConcurrentStreams = 100;
+    }
+
+    @Data
+    public static class TcpConfig {
+
+        /**
+         * Whether TCP connections are accepted on the passthrough port and forwarded to the
+         * servers as they are, without HTTP parsing.
+         * Default is false.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Port the TCP passthrough listens on, 0 for any free port.
+         * Default is 8091.
+         */
+        private int port = 8091;
+
+        /**
+         * Size of the direct buffer each direction of a connection copies through.
+         * Default is 64KB.
+         */
+        private DataSize bufferSize = DataSize.ofKilobytes(64);
+
+        /**
+         * Most released buffers kept for reuse, further ones are left to the garbage collector,
+         * so a burst of connections does not pin its buffers for good.
+         * Default is 64.
+         */
+        private int idleBuffers = 64;
+
+        /**
+         * Platform threads selecting and connecting servers for accepted connections, further
+         * connections wait for one. Forwarding takes no thread of its own, and with virtual
+         * threads every connection is connected on a virtual thread instead.
+         * Default is 16.
+         */
+        private int connectThreads = 16;
+
+        /**
+         * Most connections forwarded at once, further connections are closed right away.
+         * Default is 1000.
+         */
+        private int maxConnections = 1000;
+
+        /**
+         * Number of closed connections whose metrics are kept for /admin/tcp.
+         * Default is 100.
+         */
+        private int recentConnections = 100;
+    }
+
+    @Data
+    public static class CacheConfig {
+
+        /**
+         * Whether responses of the configured routes are cached.
+         * Default is false.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Routes whose responses are cached. Only list paths whose response depends on nothing
+         * but the path, body and key headers.
+         */
+        private List<RouteCacheConfig> routes = new ArrayList<>();
+
+        /**
+         * Request headers whose values are part of the cache key.
+         * Default is Authorization.
+         */
+        private List<String> keyHeaders = new ArrayList<>(List.of("Authorization"));
+
+        /**
+         * Time a response is served from the cache, for routes that do not set their own.
+         * Default is 1 minute.
+         */
+        private Duration ttl = Duration.ofMinutes(1);
+
+        /**
+         * Time after the TTL during which a stale response is still served while it is refreshed
+         * in the background, for routes that do not set their own.
+         * Default is 10 seconds.
+         */
+        private Duration staleWhileRevalidate = Duration.ofSeconds(10);
+
+        /**
+         * Approximate memory bound of the cached responses and their keys.
+         * Default is 64MB.
+         */
+        private DataSize maxSize = DataSize.ofMegabytes(64);
+
+        /**
+         * Threads refreshing stale responses in the background.
+         * Default is 2.
+         */
+        private int revalidationThreads = 2;
+
+        /**
+         * Response header telling whether a response was served from the cache: HIT, STALE or MISS.
+         * Default is X-Cache.
+         */
+        private String header = "X-Cache";
+    }
+
+    @Data
+    public static class RouteCacheConfig {
+
+        /**
+         * Path prefix of the requests whose responses are cached.
+         */
+        private String path;
+
+        /**
+         * Time a response of the route is served from the cache. The default TTL applies when not set.
+         */
+        private Duration ttl;
+
+        /**
+         * Time after the TTL during which a stale response of the route is served while it is
+         * refreshed. The default applies when not set.
+         */
+        private Duration staleWhileRevalidate;
+    }
+
+    @Data
+    public static class CoalescingConfig {
+
+        /**
+         * Whether identical concurrent requests share one call to a server.
+         * Default is false.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Path prefixes whose requests are coalesced. Only list paths whose response does not
+         * depend on anything but the path, body and key headers.
+         */
+        private List<String> paths = new ArrayList<>();
+
+        /**
+         * Request headers whose values are part of the coalescing key, so requests differing in
+         * them are never coalesced.
+         * Default is Authorization.
+         */
+        private List<String> keyHeaders = new ArrayList<>(List.of("Authorization"));
+
+        /**
+         * Distinct requests in flight that can be waited on, further requests are sent on their own.
+         * Default is 10000.
+         */
+        private int maxInFlight = 10000;
+
+        /**
+         * Response header set to true on responses shared from another request.
+         * Default is X-Coalesced.
+         */
+        private String header = "X-Coalesced";
+    }
+
+    @Data
+    public static class RateLimitConfig {
+
+        /**
+         * Whether requests are limited per client with a token bucket.
+         * Default is false.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Request attribute the client key is taken from. Requests without the key are limited by client IP.
+         * Default is the client IP address.
+         */
+        private HashKeySource keySource = HashKeySource.CLIENT_IP;
+
+        /**
+         * Header name, such as an API-key header, or dot-separated JSON field path of the client key.
+         * Not used for the client IP source.
+         */
+        private String keyName;
+
+        /**
+         * Sustained requests per second allowed for each client.
+         * Default is 100.
+         */
+        private double requestsPerSecond = 100;
+
+        /**
+         * Requests a client can send at once after being idle, the size of its bucket.
+         * Default is 200.
+         */
+        private int burst = 200;
+
+        /**
+         * Time a client's bucket is kept after it refilled, evicted buckets start full again.
+         * Default is 1 minute.
+         */
+        private Duration idleTimeout = Duration.ofMinutes(1);
+    }
+
+    @Data
+    public static class AdmissionConfig {
+
+        /**
+         * Whether requests wait in a CoDel-managed queue when too many are routed at once.
+         * Default is false.
+         */
+        private boolean enabled;
+
+        /**
+         * Number of requests routed at the same time. Keep it below the server thread count,
+         * so excess requests queue here instead of in the connector.
+         * Default is 100.
+         */
+        private int maxConcurrent = 100;
+
+        /**
+         * Number of requests that can wait for a slot; further requests are rejected right away.
+         * Default is 100.
+         */
+        private int maxQueueSize = 100;
+
+        /**
+         * Longest time a request may wait once the queue has stayed non-empty for a whole interval.
+         * Default is 5 milliseconds.
+         */
+        private Duration target = Duration.ofMillis(5);
+
+        /**
+         * Time the queue may stay non-empty before the target applies, and the longest wait before that.
+         * Default is 100 milliseconds.
+         */
+        private Duration interval = Duration.ofMillis(100);
+
+        /**
+         * Delay sent in the Retry-After header of dropped requests, rounded up to whole seconds.
+         * Default is 1 second.
+         */
+        private Duration retryAfter = Duration.ofSeconds(1);
+    }
+
+    @Data
+    public static class TimeoutConfig {
+
+        /**
+         * Longest time to establish a connection to a server.
+         * Default is 2 seconds.
+         */
+        private Duration connect = Duration.ofSeconds(2);
+
+        /**
+         * Longest time a server may take to send the first byte of its response,
+         * and between two reads of the response. Default is 10 seconds.
+         */
+        private Duration firstByte = Duration.ofSeconds(10);
+
+        /**
+         * Longest time for a routed request from the client's point of view, including retries,
+         * and for a single attempt. Default is 30 seconds.
+         */
+        private Duration total = Duration.ofSeconds(30);
+
+        /**
+         * Header carrying the deadline of a request as the milliseconds left until it. An incoming
+         * deadline is kept when it is earlier, and the deadline of every attempt is forwarded to
+         * the server.
+         * Default is X-Request-Deadline.
+         */
+        private String deadlineHeader = "X-Request-Deadline";
+
+        /**
+         * Header a server sets to true on a 504 answered because the forwarded deadline passed.
+         * Such a response counts as neither a failure nor a success of the server.
+         * Default is X-Deadline-Expired.
+         */
+        private String deadlineExpiredHeader = "X-Deadline-Expired";
+
+        /**
+         * First-byte and total timeouts of requests on a path prefix, taking precedence over the
+         * timeouts of the server. The first matching prefix applies.
+         */
+        private List<RouteTimeoutConfig> routes = new ArrayList<>();
+    }
+
+    @Data
+    public static class RouteTimeoutConfig {
+
+        /**
+         * Path prefix of the requests the timeouts apply to.
+         */
+        private String path;
+
+        /**
+         * First-byte timeout of the route. The server or default timeout applies when not set.
+         */
+        private Duration firstByte;
+
+        /**
+         * Total timeout of the route. The server or default timeout applies when not set.
+         */
+        private Duration total;
+    }
+
+    @Data
+    public static class RetryConfig {
+
+        /**
+         * Whether a request that failed before a response started is sent again to another server.
+         * Default is false.
+         */
+        private boolean enabled;
+
+        /**
+         * Maximum number of attempts per request, including the first one.
+         * Default is 3.
+         */
+        private int maxAttempts = 3;
+
+        /**
+         * Upper bound of the random delay before the first retry, doubled for every further retry.
+         * Default is 10 milliseconds.
+         */
+        private Duration initialBackoff = Duration.ofMillis(10);
+
+        /**
+         * Largest upper bound of the random delay before a retry.
+         * Default is 100 milliseconds.
+         */
+        private Duration maxBackoff = Duration.ofMillis(100);
+
+        /**
+         * Retries allowed per routed request across all requests, so retries cannot amplify an overload.
+         * Default is 0.1, at most one retry per ten requests.
+         */
+        private double budgetRatio = 0.1;
+
+        /**
+         * Retries allowed per second regardless of the traffic, so low traffic can still retry.
+         * Default is 5.
+         */
+        private double minRetriesPerSecond = 5;
+    }
+
+    @Data
+    public static class CircuitBreakerConfig {
+
+        /**
+         * Whether requests to a server are refused while its circuit is open.
+         * Default is false.
+         */
+        private boolean enabled;
+
+        /**
+         * Percentage of failed calls in the window at which the circuit opens.
+         * Failed calls are requests without a response and 5xx responses. Default is 50.
+         */
+        private double failureRateThreshold = 50;
+
+        /**
+         * Percentage of slow calls in the window at which the circuit opens.
+         * Default is 80.
+         */
+        private double slowCallRateThreshold = 80;
+
+        /**
+         * Latency from which a call counts as slow.
+         * Default is 2 seconds.
+         */
+        private Duration slowCallDuration = Duration.ofSeconds(2);
+
+        /**
+         * Length of the sliding window the rates are computed over.
+         * Default is 10 seconds.
+         */
+        private Duration window = Duration.ofSeconds(10);
+
+        /**
+         * Number of calls the window must hold before the rates are judged.
+         * Default is 20.
+         */
+        private int minimumCalls = 20;
+
+        /**
+         * Time an open circuit refuses requests before it lets trial requests through.
+         * Default is 10 seconds.
+         */
+        private Duration waitDurationInOpenState = Duration.ofSeconds(10);
+
+        /**
+         * Number of trial requests that decide whether a half-open circuit closes or opens again.
+         * Default is 5.
+         */
+        private int permittedCallsInHalfOpenState = 5;
+    }
+
+    @Data
+    public static class ConcurrencyLimitConfig {
+
+        /**
+         * Whether requests are capped by a learned concurrency limit per server.
+         * Default is false.
+         */
+        private boolean enabled;
+
+        /**
+         * Limit of a server before any latency was observed.
+         * Default is 20.
+         */
+        private int initialLimit = 20;
+
+        /**
+         * Lowest limit the algorithm can reach.
+         * Default is 1.
+         */
+        private int minLimit = 1;
+
+        /**
+         * Highest limit the algorithm can reach.
+         * Default is 500.
+         */
+        private int maxLimit = 500;
+
+        /**
+         * Factor applied to the limit when a request to the server fails or is shed.
+         * Default is 0.9.
+         */
+        private double backoffRatio = 0.9;
+    }
+
+    @Data
+    public static class ConsistentHashConfig {
+
+        /**
+         * Request attribute the hash key is taken from.
+         * Default is the client IP address.
+         */
+        private HashKeySource keySource = HashKeySource.CLIENT_IP;
+
+        /**
+         * Header name, or dot-separated JSON field path, of the hash key.
+         * Not used for the client IP source.
+         */
+        private String keyName;
+
+        /**
+         * Maximum load of a server relative to the average in-flight load, must be above 1.
+         * Requests for a key whose server is above the bound move on along the ring.
+         * Default is 1.25.
+         */
+        private double loadFactor = 1.25;
+
+        /**
+         * Number of points each server of weight 1 places on the hash ring.
+         * Default is 160.
+         */
+        private int virtualNodes = 160;
+    }
+
     @Data
     @EqualsAndHashCode(onlyExplicitlyIncluded = true)
     public static class ServerConfig {
+
+        /**
+         * Largest weight a server may have.
+         */
+        public static final int MAX_WEIGHT = 1000;
+
         @EqualsAndHashCode.Include
         private String url;
 
+        /**
+         * Relative share of traffic for weighted selection, from 1 to 1000. The weighted
+         * round-robin schedule holds one entry per unit of total weight, so the cap bounds it.
+         * Default is 1.
+         */
+        private int weight = 1;
+
+        /**
+         * Maximum number of in-flight requests for weighted selection. A request finding
+         * every server at its maximum is rejected with 503. In HTTP/1.1 mode it also replaces
+         * connection-pool.max-connections for the pool of the server.
+         * Unlimited when not set.
+         */
+        private Integer maxConnections;
+
+        /**
+         * Priority tier of the server, 0 is the highest. A tier only receives traffic
+         * once the tiers above it lack healthy servers.
+         * Default is 0.
+         */
+        private int priority = 0;
+
+        /**
+         * Connect timeout of the connections to the server, fixed for its connection pool.
+         * The default timeout applies when not set.
+         */
+        private Duration connectTimeout;
+
+        /**
+         * First-byte timeout of requests to the server.
+         * The default timeout applies when not set.
+         */
+        private Duration firstByteTimeout;
+
+        /**
+         * Total timeout of a single attempt on the server.
+         * The default timeout applies when not set.
+         */
+        private Duration totalTimeout;
+
+        /**
+         * Sets the weight, rejecting a weight out of range when the configuration is bound.
+         *
+         * @throws IllegalArgumentException if the weight is not between 1 and MAX_WEIGHT
+         */
+        public void setWeight(int weight) {
+            if (weight <= 0 || weight > MAX_WEIGHT) {
+                throw new IllegalArgumentException("Weight of server " + url + " must be between 1 and "
+                        + MAX_WEIGHT + ", got " + weight);
+            }
+            this.weight = weight;
+        }
+
         @Override
         public String toString() {
-            return "ServerConfig{url='" + url + "'}";
+            return "ServerConfig{url='" + url + "', weight=" + weight + ", priority=" + priority + "}";
         }
     }
 }
\ No newline at end of file
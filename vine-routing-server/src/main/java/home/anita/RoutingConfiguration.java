@@ -14,17 +14,39 @@ public class RoutingConfiguration {
 
     /**
      * Provides the primary server selector bean.
-     * Uses RoundRobinServerSelector as the first priority, which distributes
-     * requests evenly across healthy servers in a round-robin manner.
+     * The strategy is chosen by the routing.selector property and defaults to
+     * RoundRobinServerSelector, which distributes requests evenly across
+     * healthy servers in a round-robin manner.
      *
+     * @param routingConfig        The routing configuration holding the selector type
+     * @param randomServerSelector The random server selector for fallback
      * @param healthCheckService   The health check service for server status
-     * @return The configured round-robin server selector
+     * @param serverLoadTracker    The tracker of in-flight requests and latency per server
+     * @param hashKeyExtractor     The extractor of the consistent-hash key of a request
+     * @return The configured server selector
      */
     @Bean
     @Primary
-    public ServerSelector serverSelector(RandomServerSelector randomServerSelector,
-                                         HealthCheckService healthCheckService) {
-        return new RoundRobinServerSelector(randomServerSelector, healthCheckService);
+    public ServerSelector serverSelector(RoutingConfig routingConfig,
+                                         RandomServerSelector randomServerSelector,
+                                         HealthCheckService healthCheckService,
+                                         ServerLoadTracker serverLoadTracker,
+                                         HashKeyExtractor hashKeyExtractor) {
+        var priorityConfig = routingConfig.getPriority();
+        return switch (routingConfig.getSelector()) {
+            case HEALTH_AWARE -> new HealthAwareServerSelector(randomServerSelector, healthCheckService, priorityConfig);
+            case LEAST_OUTSTANDING -> new LeastOutstandingServerSelector(randomServerSelector, healthCheckService,
+                    priorityConfig, serverLoadTracker);
+            case PEAK_EWMA -> new PeakEwmaServerSelector(randomServerSelector, healthCheckService,
+                    priorityConfig, serverLoadTracker);
+            case POWER_OF_TWO_CHOICES -> new PowerOfTwoChoicesServerSelector(randomServerSelector, healthCheckService,
+                    priorityConfig, serverLoadTracker, routingConfig.getLoadMetric());
+            case WEIGHTED_ROUND_ROBIN -> new WeightedRoundRobinServerSelector(randomServerSelector, healthCheckService,
+                    priorityConfig, serverLoadTracker);
+            case CONSISTENT_HASH -> new ConsistentHashServerSelector(randomServerSelector, healthCheckService,
+                    priorityConfig, serverLoadTracker, hashKeyExtractor, routingConfig.getConsistentHash());
+            case ROUND_ROBIN -> new RoundRobinServerSelector(randomServerSelector, healthCheckService, priorityConfig);
+        };
     }
 
     /**
@@ -33,12 +55,14 @@ public class RoutingConfiguration {
      *
      * @param randomServerSelector The random server selector for fallback
      * @param healthCheckService   The health check service for server status
+     * @param routingConfig        The routing configuration with the priority tier settings
      * @return The health-aware server selector
      */
     @Bean("healthAwareServerSelector")
     public HealthAwareServerSelector healthAwareServerSelector(RandomServerSelector randomServerSelector,
-                                                               HealthCheckService healthCheckService) {
-        return new HealthAwareServerSelector(randomServerSelector, healthCheckService);
+                                                               HealthCheckService healthCheckService,
+                                                               RoutingConfig routingConfig) {
+        return new HealthAwareServerSelector(randomServerSelector, healthCheckService, routingConfig.getPriority());
     }
 
     /**
@@ -1,35 +1,149 @@
 package home.anita;
 
+import home.anita.server.AdmissionQueue;
+import home.anita.server.RateLimiter;
+import home.anita.server.RoutingContext;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.bind.annotation.PostMapping;
-import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Routes requests in blocking mode, the request thread waits for the response of the server.
+ */
 @RestController
+@ConditionalOnProperty(prefix = "routing", name = "mode", havingValue = "blocking", matchIfMissing = true)
 @Slf4j
 public class RoutingController {
 
     private final RoutingService routingService;
     private final RoutingConfig routingConfig;
+    private final AdmissionQueue admissionQueue;
+    private final RateLimiter rateLimiter;
 
-    public RoutingController(RoutingService routingService, RoutingConfig routingConfig) {
+    public RoutingController(RoutingService routingService, RoutingConfig routingConfig,
+                             AdmissionQueue admissionQueue, RateLimiter rateLimiter) {
         this.routingService = routingService;
         this.routingConfig = routingConfig;
+        this.admissionQueue = admissionQueue;
+        this.rateLimiter = rateLimiter;
     }
 
+    /**
+     * Routes a POST request. The body is read by hand, so a client over its rate limit is
+     * refused before its body is read, unless the client key is a body field.
+     */
     @PostMapping("/**")
     public ResponseEntity<String> routePost(
-            @RequestBody String requestBody,
             @RequestHeader HttpHeaders headers,
-            HttpServletRequest request) {
+            HttpServletRequest request) throws IOException {
 
         String path = request.getRequestURI();
         log.info("Received POST request for path: {}", path);
 
-        return routingService.routeRequest(requestBody, headers, path, routingConfig.getServers());
+        var clientAddress = request.getRemoteAddr();
+        var limited = checkRateLimit(rateLimiter, path, headers, null, clientAddress);
+        if (limited != null) {
+            return limited;
+        }
+
+        String requestBody = readBody(request, headers);
+        limited = checkRateLimit(rateLimiter, path, headers, requestBody, clientAddress);
+        if (limited != null) {
+            return limited;
+        }
+
+        if (!admissionQueue.tryAcquire()) {
+            return overloaded(admissionQueue);
+        }
+        try {
+            return routingService.routeRequest(requestBody, headers, path, clientAddress,
+                    routingConfig.getServers());
+        } finally {
+            admissionQueue.release();
+        }
+    }
+
+    /**
+     * Checks the rate limit of the client of a request. A limiter keyed by a body field checks
+     * once the body was read, any other limiter before.
+     *
+     * @param requestBody The body, or null if it was not read yet
+     * @return The 429 response if the client is over its rate limit, otherwise null
+     */
+    static ResponseEntity<String> checkRateLimit(RateLimiter rateLimiter, String path, HttpHeaders headers,
+                                                 String requestBody, String clientAddress) {
+        if (!rateLimiter.isEnabled() || rateLimiter.isBodyKeyed() != (requestBody != null)) {
+            return null;
+        }
+        var waitNanos = rateLimiter.tryAcquire(RoutingContext.create(path, headers, requestBody, clientAddress));
+        return waitNanos > 0 ? rateLimited(waitNanos) : null;
+    }
+
+    /**
+     * Builds the 503 response of a request refused by the admission queue.
+     */
+    static ResponseEntity<String> overloaded(AdmissionQueue admissionQueue) {
+        String errorJson = "{\"status\": \"error\", \"message\": \"Router is overloaded\"}";
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(admissionQueue.getRetryAfterSeconds()))
+                .body(errorJson);
+    }
+
+    /**
+     * Reads the request body in the charset of its content type, UTF-8 by default.
+     *
+     * @throws HttpMessageNotReadableException if the request has no body
+     */
+    static String readBody(HttpServletRequest request, HttpHeaders headers) throws IOException {
+        return requireBody(StreamUtils.copyToString(request.getInputStream(), getCharset(headers)), request);
+    }
+
+    /**
+     * Gets the charset of the content type of a request, UTF-8 by default.
+     */
+    static Charset getCharset(HttpHeaders headers) {
+        var contentType = headers.getContentType();
+        return contentType != null && contentType.getCharset() != null
+                ? contentType.getCharset() : StandardCharsets.UTF_8;
+    }
+
+    /**
+     * Checks that a request body was sent.
+     *
+     * @throws HttpMessageNotReadableException if the body is empty
+     */
+    static String requireBody(String body, HttpServletRequest request) {
+        if (body.isEmpty()) {
+            throw new HttpMessageNotReadableException("Required request body is missing",
+                    new ServletServerHttpRequest(request));
+        }
+        return body;
+    }
+
+    /**
+     * Builds the 429 response of a client over its rate limit.
+     *
+     * @param waitNanos The time until the client may send again, rounded up to whole seconds for Retry-After
+     */
+    private static ResponseEntity<String> rateLimited(long waitNanos) {
+        var retryAfterSeconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        String errorJson = "{\"status\": \"error\", \"message\": \"Rate limit exceeded\"}";
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(errorJson);
     }
 }
\ No newline at end of file
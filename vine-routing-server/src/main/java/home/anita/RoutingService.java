@@ -1,16 +1,41 @@
 package home.anita;
 
 import home.anita.RoutingConfig.ServerConfig;
+import home.anita.http.ConnectionPools;
 import home.anita.http.RequestHandler;
 import home.anita.http.RoutingRequest;
+import home.anita.server.CircuitBreakerRegistry;
+import home.anita.server.CircuitOpenException;
+import home.anita.server.ConcurrencyLimiter;
+import home.anita.server.HedgePolicy;
+import home.anita.server.IdempotencyStore;
+import home.anita.server.NoHealthyServerException;
+import home.anita.server.OutlierDetector;
+import home.anita.server.RequestCoalescer;
+import home.anita.server.ResponseCache;
+import home.anita.server.RetryPolicy;
+import home.anita.server.RoutingContext;
+import home.anita.server.ServerLoadTracker;
 import home.anita.server.ServerSelector;
+import home.anita.server.SlowStartPolicy;
+import home.anita.server.TimeoutPolicy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 @Slf4j
@@ -19,54 +44,690 @@ public class RoutingService {
     private final HeaderHandler headerHandler;
     private final ServerSelector serverSelector;
     private final RequestHandler requestHandler;
+    private final ServerLoadTracker serverLoadTracker;
+    private final SlowStartPolicy slowStartPolicy;
+    private final ConcurrencyLimiter concurrencyLimiter;
+    private final OutlierDetector outlierDetector;
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final RetryPolicy retryPolicy;
+    private final HedgePolicy hedgePolicy;
+    private final TimeoutPolicy timeoutPolicy;
+    private final RequestCoalescer requestCoalescer;
+    private final ResponseCache responseCache;
+    private final IdempotencyStore idempotencyStore;
+    private final ConnectionPools connectionPools;
 
-    public RoutingService(HeaderHandler headerHandler, ServerSelector serverSelector, RequestHandler requestHandler) {
+    public RoutingService(HeaderHandler headerHandler, ServerSelector serverSelector, RequestHandler requestHandler,
+                          ServerLoadTracker serverLoadTracker, SlowStartPolicy slowStartPolicy,
+                          ConcurrencyLimiter concurrencyLimiter, OutlierDetector outlierDetector,
+                          CircuitBreakerRegistry circuitBreakerRegistry, RetryPolicy retryPolicy,
+                          HedgePolicy hedgePolicy, TimeoutPolicy timeoutPolicy,
+                          RequestCoalescer requestCoalescer, ResponseCache responseCache,
+                          IdempotencyStore idempotencyStore, ConnectionPools connectionPools) {
         this.headerHandler = headerHandler;
         this.serverSelector = serverSelector;
         this.requestHandler = requestHandler;
+        this.serverLoadTracker = serverLoadTracker;
+        this.slowStartPolicy = slowStartPolicy;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.outlierDetector = outlierDetector;
+        this.circuitBreakerRegistry = circuitBreakerRegistry;
+        this.retryPolicy = retryPolicy;
+        this.hedgePolicy = hedgePolicy;
+        this.timeoutPolicy = timeoutPolicy;
+        this.requestCoalescer = requestCoalescer;
+        this.responseCache = responseCache;
+        this.idempotencyStore = idempotencyStore;
+        this.connectionPools = connectionPools;
     }
 
-    public ResponseEntity<String> routeRequest(String requestBody, HttpHeaders headers, String path, Set<ServerConfig> servers) {
+    public ResponseEntity<String> routeRequest(String requestBody, HttpHeaders headers, String path,
+                                               String clientAddress, Set<ServerConfig> servers) {
+        var routingContext = RoutingContext.create(path, headers, requestBody, clientAddress);
+        // A replayed or cached response is answered without selecting a server,
+        // a miss may still share the call of an identical request
+        return idempotencyStore.execute(routingContext, () -> responseCache.execute(routingContext,
+                () -> requestCoalescer.execute(routingContext,
+                        () -> route(routingContext, requestBody, headers, path, servers))));
+    }
+
+    /**
+     * Routes a request without blocking the calling thread: no thread waits for the response
+     * of a server, a retry backoff or a hedge delay. The features of the blocking path apply
+     * in the same order.
+     *
+     * @return Mono emitting the response for the client
+     */
+    public Mono<ResponseEntity<String>> routeRequestAsync(String requestBody, HttpHeaders headers, String path,
+                                                          String clientAddress, Set<ServerConfig> servers) {
+        var routingContext = RoutingContext.create(path, headers, requestBody, clientAddress);
+        return idempotencyStore.executeAsync(routingContext, () -> responseCache.executeAsync(routingContext,
+                () -> requestCoalescer.executeAsync(routingContext,
+                        () -> routeAsync(routingContext, requestBody, headers, path, servers))));
+    }
+
+    /**
+     * Routes a request without holding its body or the response body in memory: the body is
+     * sent to the server as it is read from the client, and the response body is passed on as
+     * it arrives. As the body is not kept, the request goes to a single server and is neither
+     * retried, hedged, cached, coalesced nor deduplicated. The permits of the server are held
+     * until the response body has been passed on, when the outcome is recorded.
+     *
+     * @param requestBody The chunks of the request body, read once a server was selected
+     * @return Mono emitting the response for the client, whose body must be subscribed to once
+     */
+    public Mono<ResponseEntity<Flux<DataBuffer>>> routeRequestStreaming(Flux<DataBuffer> requestBody,
+                                                                        HttpHeaders headers, String path,
+                                                                        String clientAddress,
+                                                                        Set<ServerConfig> servers) {
+        return Mono.defer(() -> {
+            var routingContext = RoutingContext.create(path, headers, null, clientAddress);
+            var deadlineNanos = timeoutPolicy.getDeadlineNanos(routingContext);
+            var selection = selectFirstServer(servers, routingContext, path, deadlineNanos);
+            if (selection.rejection() != null) {
+                return Mono.just(streamed(selection.rejection()));
+            }
+            return forwardStreaming(selection.server(), requestBody, headers, path, deadlineNanos);
+        });
+    }
+
+    /**
+     * Routes the request to a server, retrying or hedging it on other servers as configured.
+     */
+    private ResponseEntity<String> route(RoutingContext routingContext, String requestBody, HttpHeaders headers,
+                                         String path, Set<ServerConfig> servers) {
+        var deadlineNanos = timeoutPolicy.getDeadlineNanos(routingContext);
+        var selection = selectFirstServer(servers, routingContext, path, deadlineNanos);
+        if (selection.rejection() != null) {
+            return selection.rejection();
+        }
+
+        var selectedServer = selection.server();
+        var hedgeRoute = hedgePolicy.getRoute(routingContext);
+        if (hedgeRoute != null) {
+            hedgePolicy.onRequest();
+        }
+        retryPolicy.onRequest();
+        var maxAttempts = retryPolicy.getMaxAttempts();
+        for (var attempt = 1; ; attempt++) {
+            var result = hedgeRoute != null
+                    ? forwardHedged(selectedServer, hedgeRoute, servers, routingContext, requestBody, headers, path,
+                    deadlineNanos)
+                    : forward(selectedServer, requestBody, headers, path, deadlineNanos);
+            if (!result.retryable() || attempt >= maxAttempts) {
+                return result.response();
+            }
+
+            var failedServer = result.server();
+            var nextServer = selectRetryServer(servers, routingContext, failedServer, attempt, deadlineNanos);
+            if (nextServer == null) {
+                return result.response();
+            }
+            log.info("Retrying request to {} on {} after failure on {}, attempt {} of {}",
+                    path, nextServer.getUrl(), failedServer.getUrl(), attempt + 1, maxAttempts);
+            selectedServer = nextServer;
+        }
+    }
+
+    /**
+     * Routes the request to a server without blocking, retrying or hedging it on other servers as configured.
+     */
+    private Mono<ResponseEntity<String>> routeAsync(RoutingContext routingContext, String requestBody,
+                                                    HttpHeaders headers, String path, Set<ServerConfig> servers) {
+        return Mono.defer(() -> {
+            var deadlineNanos = timeoutPolicy.getDeadlineNanos(routingContext);
+            var selection = selectFirstServer(servers, routingContext, path, deadlineNanos);
+            if (selection.rejection() != null) {
+                return Mono.just(selection.rejection());
+            }
+
+            var hedgeRoute = hedgePolicy.getRoute(routingContext);
+            if (hedgeRoute != null) {
+                hedgePolicy.onRequest();
+            }
+            retryPolicy.onRequest();
+            return attemptAsync(selection.server(), 1, hedgeRoute, servers, routingContext, requestBody, headers,
+                    path, deadlineNanos);
+        });
+    }
+
+    /**
+     * Sends one attempt of the request and, if it failed before a response started, retries
+     * it on another server after the backoff.
+     */
+    private Mono<ResponseEntity<String>> attemptAsync(ServerConfig selectedServer, int attempt, String hedgeRoute,
+                                                      Set<ServerConfig> servers, RoutingContext routingContext,
+                                                      String requestBody, HttpHeaders headers, String path,
+                                                      long deadlineNanos) {
+        var result = hedgeRoute != null
+                ? forwardHedgedAsync(selectedServer, hedgeRoute, servers, routingContext, requestBody, headers, path,
+                deadlineNanos)
+                : forwardAsync(selectedServer, requestBody, headers, path, deadlineNanos);
+        var maxAttempts = retryPolicy.getMaxAttempts();
+        return result.flatMap(forwardResult -> {
+            if (!forwardResult.retryable() || attempt >= maxAttempts) {
+                return Mono.just(forwardResult.response());
+            }
+
+            var failedServer = forwardResult.server();
+            return selectRetryServerAsync(servers, routingContext, failedServer, attempt, deadlineNanos)
+                    .flatMap(nextServer -> {
+                        log.info("Retrying request to {} on {} after failure on {}, attempt {} of {}",
+                                path, nextServer.getUrl(), failedServer.getUrl(), attempt + 1, maxAttempts);
+                        return attemptAsync(nextServer, attempt + 1, hedgeRoute, servers, routingContext,
+                                requestBody, headers, path, deadlineNanos);
+                    })
+                    .switchIfEmpty(Mono.fromSupplier(forwardResult::response));
+        });
+    }
+
+    /**
+     * Selects the first server for the request, unless its deadline has passed.
+     *
+     * @return The selected server, or the response rejecting the request
+     */
+    private Selection selectFirstServer(Set<ServerConfig> servers, RoutingContext routingContext, String path,
+                                        long deadlineNanos) {
+        if (timeoutPolicy.isExpired(deadlineNanos)) {
+            log.warn("Rejecting request to {}: its deadline has already passed", path);
+            String errorJson = "{\"status\": \"error\", \"message\": \"Request deadline exceeded\"}";
+            return Selection.rejected(ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(errorJson));
+        }
+
         ServerConfig selectedServer;
         try {
-            selectedServer = serverSelector.select(servers);
+            selectedServer = selectServer(servers, routingContext);
+        } catch (NoHealthyServerException e) {
+            log.error("No healthy servers for routing: {}", e.getMessage());
+            String errorJson = "{\"status\": \"error\", \"message\": \"No healthy servers available\"}";
+            return Selection.rejected(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(errorJson));
+        } catch (CircuitOpenException e) {
+            log.warn("Rejecting request to {}: {}", path, e.getMessage());
+            String errorJson = "{\"status\": \"error\", \"message\": \"All servers have an open circuit\"}";
+            return Selection.rejected(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(errorJson));
         } catch (IllegalArgumentException e) {
             log.error("No available servers for routing: {}", e.getMessage());
             String errorJson = "{\"status\": \"error\", \"message\": \"No available servers\"}";
-            return ResponseEntity.internalServerError().body(errorJson);
+            return Selection.rejected(ResponseEntity.internalServerError().body(errorJson));
         }
 
-        log.info("Routing request to: {}{}", selectedServer.getUrl(), path);
+        if (selectedServer == null) {
+            log.warn("All servers are at their concurrency limit, rejecting request to {}", path);
+            String errorJson = "{\"status\": \"error\", \"message\": \"All servers are at their concurrency limit\"}";
+            return Selection.rejected(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(errorJson));
+        }
+        return new Selection(selectedServer, null);
+    }
 
+    /**
+     * Sends the request to the given server, which holds a circuit breaker permission and a
+     * concurrency permit, and records the outcome.
+     *
+     * @return The response for the client, and whether the request failed before a response
+     * started so it can be retried on another server
+     */
+    private ForwardResult forward(ServerConfig selectedServer, String requestBody, HttpHeaders headers, String path,
+                                  long deadlineNanos) {
+        var startNanos = dispatch(selectedServer, path);
+        ResponseEntity<String> response;
         try {
-            var forwardHeaders = headerHandler.processHeaders(headers);
-            var routingRequest = RoutingRequest.create(
-                    selectedServer.getUrl(),
-                    path,
-                    forwardHeaders,
-                    requestBody
-            );
+            response = requestHandler.sendRequest(createRequest(selectedServer, requestBody, headers, path, deadlineNanos));
+        } catch (Exception e) {
+            return complete(selectedServer, path, startNanos, null, e);
+        }
+        return complete(selectedServer, path, startNanos, response, null);
+    }
+
+    /**
+     * Sends the request to the given server and, if it has not answered within the hedge delay
+     * of the route, a second copy to another server. The first successful response wins and the
+     * other request is cancelled. Without enough latency samples for the route, or without budget
+     * or a server for the hedge, only the first request is sent.
+     *
+     * @return The first successful response, or the last failure if both copies failed
+     */
+    private ForwardResult forwardHedged(ServerConfig selectedServer, String hedgeRoute, Set<ServerConfig> servers,
+                                        RoutingContext routingContext, String requestBody, HttpHeaders headers,
+                                        String path, long deadlineNanos) {
+        var startNanos = System.nanoTime();
+        var delayNanos = hedgePolicy.getDelayNanos(hedgeRoute);
+        var result = delayNanos < 0
+                ? forward(selectedServer, requestBody, headers, path, deadlineNanos)
+                : raceHedge(selectedServer, delayNanos, servers, routingContext, requestBody, headers, path,
+                deadlineNanos).block();
+        hedgePolicy.recordLatency(hedgeRoute, System.nanoTime() - startNanos);
+        return result;
+    }
+
+    /**
+     * Sends the request and its hedge like forwardHedged, without blocking.
+     *
+     * @return Mono emitting the first successful response, or the last failure if both copies failed
+     */
+    private Mono<ForwardResult> forwardHedgedAsync(ServerConfig selectedServer, String hedgeRoute,
+                                                   Set<ServerConfig> servers, RoutingContext routingContext,
+                                                   String requestBody, HttpHeaders headers, String path,
+                                                   long deadlineNanos) {
+        return Mono.defer(() -> {
+            var startNanos = System.nanoTime();
+            var delayNanos = hedgePolicy.getDelayNanos(hedgeRoute);
+            var result = delayNanos < 0
+                    ? forwardAsync(selectedServer, requestBody, headers, path, deadlineNanos)
+                    : raceHedge(selectedServer, delayNanos, servers, routingContext, requestBody, headers, path,
+                    deadlineNanos);
+            return result.doOnNext(forwardResult ->
+                    hedgePolicy.recordLatency(hedgeRoute, System.nanoTime() - startNanos));
+        });
+    }
+
+    /**
+     * Sends the request to the given server and a hedge to another server once the delay
+     * passed without a response. The first successful response wins and the other copy is
+     * cancelled. A copy that failed leaves the race to the other one, and a primary failing
+     * before the delay passed is returned right away, without sending the hedge.
+     */
+    private Mono<ForwardResult> raceHedge(ServerConfig selectedServer, long delayNanos, Set<ServerConfig> servers,
+                                          RoutingContext routingContext, String requestBody, HttpHeaders headers,
+                                          String path, long deadlineNanos) {
+        // Copies sent and not failed yet, no hedge is sent once it dropped to zero
+        var pending = new AtomicInteger(1);
+        var primary = forwardAsync(selectedServer, requestBody, headers, path, deadlineNanos);
+        var hedge = Mono.delay(Duration.ofNanos(delayNanos))
+                .flatMap(tick -> {
+                    if (pending.getAndUpdate(count -> count == 0 ? 0 : count + 1) == 0) {
+                        return Mono.<ForwardResult>empty();
+                    }
+                    var hedgeServer = selectHedgeServer(servers, routingContext, selectedServer);
+                    if (hedgeServer == null) {
+                        pending.decrementAndGet();
+                        return Mono.<ForwardResult>empty();
+                    }
+                    log.info("Hedging request to {} on {} after {}ms without response from {}",
+                            path, hedgeServer.getUrl(), TimeUnit.NANOSECONDS.toMillis(delayNanos),
+                            selectedServer.getUrl());
+                    return forwardAsync(hedgeServer, requestBody, headers, path, deadlineNanos);
+                });
+        return Flux.merge(primary, hedge)
+                .takeUntil(result -> isSuccessful(result) || pending.decrementAndGet() == 0)
+                .last();
+    }
+
+    /**
+     * Checks if a copy of a hedged request got a response that ends the race.
+     */
+    private static boolean isSuccessful(ForwardResult result) {
+        return !result.retryable() && !result.response().getStatusCode().is5xxServerError();
+    }
+
+    /**
+     * Sends the request to the given server without blocking, recording the outcome when the
+     * response arrives. Cancelling the returned Mono aborts the request and only frees its permits.
+     */
+    private Mono<ForwardResult> forwardAsync(ServerConfig selectedServer, String requestBody, HttpHeaders headers,
+                                             String path, long deadlineNanos) {
+        return Mono.defer(() -> {
+            var startNanos = dispatch(selectedServer, path);
+            // Completion and cancellation can race, only the first one records
+            var finished = new AtomicBoolean();
+            return Mono.fromCallable(() -> createRequest(selectedServer, requestBody, headers, path, deadlineNanos))
+                    .flatMap(requestHandler::sendRequestAsync)
+                    .<ForwardResult>handle((response, sink) -> {
+                        if (finished.compareAndSet(false, true)) {
+                            sink.next(complete(selectedServer, path, startNanos, response, null));
+                        }
+                    })
+                    .onErrorResume(e -> finished.compareAndSet(false, true)
+                            ? Mono.just(complete(selectedServer, path, startNanos, null, e))
+                            : Mono.empty())
+                    .doOnCancel(() -> {
+                        if (finished.compareAndSet(false, true)) {
+                            cancel(selectedServer, path);
+                        }
+                    });
+        });
+    }
+
+    /**
+     * Sends the streamed request to the given server. The outcome is recorded when the response
+     * body has ended, failed or was cancelled; a failure before the response started is answered
+     * as in the other modes.
+     */
+    private Mono<ResponseEntity<Flux<DataBuffer>>> forwardStreaming(ServerConfig selectedServer,
+                                                                    Flux<DataBuffer> requestBody, HttpHeaders headers,
+                                                                    String path, long deadlineNanos) {
+        var startNanos = dispatch(selectedServer, path);
+        // Completion, failure and cancellation can race, only the first one records
+        var finished = new AtomicBoolean();
+        return Mono.fromCallable(() -> createStreamingRequest(selectedServer, headers, path, deadlineNanos))
+                .flatMap(request -> requestHandler.sendStreamingRequest(request, requestBody))
+                .map(response -> {
+                    var statusCode = response.getStatusCode().value();
+                    log.info("Response started from {}{}: status={}", selectedServer.getUrl(), path, statusCode);
+                    var body = response.getBody() != null ? response.getBody() : Flux.<DataBuffer>empty();
+                    return ResponseEntity.status(response.getStatusCode())
+                            .headers(response.getHeaders())
+                            .body(body
+                                    .doOnComplete(() -> {
+                                        if (finished.compareAndSet(false, true)) {
+                                            recordResponse(selectedServer, System.nanoTime() - startNanos, statusCode,
+                                                    response.getHeaders(), isShed(statusCode));
+                                        }
+                                    })
+                                    .doOnError(e -> {
+                                        if (finished.compareAndSet(false, true)) {
+                                            complete(selectedServer, path, startNanos, null, e);
+                                        }
+                                    })
+                                    .doOnCancel(() -> {
+                                        if (finished.compareAndSet(false, true)) {
+                                            cancel(selectedServer, path);
+                                        }
+                                    }));
+                })
+                .onErrorResume(e -> finished.compareAndSet(false, true)
+                        ? Mono.just(streamed(complete(selectedServer, path, startNanos, null, e).response()))
+                        : Mono.empty())
+                .doOnCancel(() -> {
+                    if (finished.compareAndSet(false, true)) {
+                        cancel(selectedServer, path);
+                    }
+                });
+    }
+
+    /**
+     * Selects another server for a hedge, if the hedge budget allows it.
+     *
+     * @return The server to send the hedge to, or null if no hedge should be sent
+     */
+    private ServerConfig selectHedgeServer(Set<ServerConfig> servers, RoutingContext routingContext,
+                                           ServerConfig primaryServer) {
+        routingContext.exclude(primaryServer);
+        if (!hedgePolicy.tryAcquireHedge()) {
+            return null;
+        }
+
+        try {
+            return selectServer(servers, routingContext);
+        } catch (NoHealthyServerException | CircuitOpenException | IllegalArgumentException e) {
+            log.debug("No server left to hedge on: {}", e.getMessage());
+            return null;
+        }
+    }
 
-            var response = requestHandler.sendRequest(routingRequest);
+    private long dispatch(ServerConfig selectedServer, String path) {
+        log.info("Routing request to: {}{}", selectedServer.getUrl(), path);
+        serverLoadTracker.onDispatch(selectedServer);
+        return System.nanoTime();
+    }
+
+    private RoutingRequest createRequest(ServerConfig selectedServer, String requestBody, HttpHeaders headers,
+                                         String path, long deadlineNanos) {
+        var forwardHeaders = headerHandler.processHeaders(headers);
+        var timeouts = timeoutPolicy.getTimeouts(selectedServer, path, deadlineNanos);
+        timeoutPolicy.setDeadlineHeader(forwardHeaders, timeouts);
+        return RoutingRequest.create(
+                selectedServer.getUrl(),
+                path,
+                forwardHeaders,
+                requestBody,
+                timeouts
+        );
+    }
+
+    /**
+     * Creates the request for a streamed body. A body of known length is forwarded with its
+     * Content-Length, any other body is sent chunked.
+     */
+    private RoutingRequest createStreamingRequest(ServerConfig selectedServer, HttpHeaders headers, String path,
+                                                  long deadlineNanos) {
+        var request = createRequest(selectedServer, null, headers, path, deadlineNanos);
+        request.getHeaders().remove(HttpHeaders.TRANSFER_ENCODING);
+        if (headers.getContentLength() >= 0) {
+            request.getHeaders().setContentLength(headers.getContentLength());
+        }
+        return request;
+    }
 
+    /**
+     * Turns the response or failure of a request into the result for the client and records
+     * the outcome with the load tracker, outlier detector, circuit breaker and concurrency limiter.
+     */
+    private ForwardResult complete(ServerConfig selectedServer, String path, long startNanos,
+                                   ResponseEntity<String> response, Throwable failure) {
+        var latencyNanos = System.nanoTime() - startNanos;
+        var targetUrl = selectedServer.getUrl() + path;
+        if (failure == null) {
             log.info("Response received from {}: status={}",
-                    routingRequest.getUrl(), response != null ? response.getStatusCode() : "null");
-            return response;
+                    targetUrl, response != null ? response.getStatusCode() : "null");
+            var statusCode = response != null ? response.getStatusCode().value() : 0;
+            recordResponse(selectedServer, latencyNanos, statusCode,
+                    response != null ? response.getHeaders() : null, false);
+            return new ForwardResult(selectedServer, response, false);
+        }
 
-        } catch (WebClientResponseException e) {
-            var targetUrl = selectedServer.getUrl() + path;
+        if (failure instanceof WebClientResponseException e) {
             if (e.getStatusCode().is4xxClientError()) {
                 log.warn("Client error from {}: status={}, body={}", targetUrl, e.getStatusCode(), e.getResponseBodyAsString());
             } else {
                 log.error("Server error from {}: status={}, body={}", targetUrl, e.getStatusCode(), e.getResponseBodyAsString());
             }
-            return ResponseEntity.status(e.getStatusCode()).body(e.getResponseBodyAsString());
+            recordResponse(selectedServer, latencyNanos, e.getStatusCode().value(), e.getHeaders(),
+                    isShed(e.getStatusCode().value()));
+            return new ForwardResult(selectedServer,
+                    ResponseEntity.status(e.getStatusCode()).body(e.getResponseBodyAsString()), false);
+        }
 
-        } catch (Exception e) {
-            var targetUrl = selectedServer.getUrl() + path;
-            log.error("Unexpected error routing to {}: {}", targetUrl, e.getMessage());
-            return ResponseEntity.internalServerError().body("Internal routing error");
+        serverLoadTracker.onFailure(selectedServer, latencyNanos);
+        outlierDetector.onFailure(selectedServer);
+        circuitBreakerRegistry.onResult(selectedServer, latencyNanos, true);
+        concurrencyLimiter.release(selectedServer, latencyNanos, true);
+        var retryable = retryPolicy.isRetryable(failure);
+        if (timeoutPolicy.isTimeout(failure)) {
+            log.error("Request to {} timed out after {}ms", targetUrl, TimeUnit.NANOSECONDS.toMillis(latencyNanos));
+            return new ForwardResult(selectedServer,
+                    ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body("Upstream request timed out"), retryable);
+        }
+        log.error("Unexpected error routing to {}: {}", targetUrl, failure.getMessage());
+        return new ForwardResult(selectedServer, ResponseEntity.internalServerError().body("Internal routing error"),
+                retryable);
+    }
+
+    private void recordResponse(ServerConfig selectedServer, long latencyNanos, int statusCode,
+                                HttpHeaders responseHeaders, boolean shed) {
+        if (timeoutPolicy.isDeadlineExpired(statusCode, responseHeaders)) {
+            // The server gave up once the deadline passed, which says nothing about its health
+            log.info("Server {} answered 504 as the deadline of the request passed", selectedServer.getUrl());
+            releasePermits(selectedServer);
+            return;
         }
+        serverLoadTracker.onComplete(selectedServer, latencyNanos);
+        outlierDetector.onResponse(selectedServer, statusCode, latencyNanos);
+        circuitBreakerRegistry.onResult(selectedServer, latencyNanos, statusCode >= 500);
+        concurrencyLimiter.release(selectedServer, latencyNanos, shed);
     }
 
+    /**
+     * Frees the permits of a request cancelled before it completed, without recording an outcome.
+     */
+    private void cancel(ServerConfig selectedServer, String path) {
+        log.info("Cancelled request to {}{}", selectedServer.getUrl(), path);
+        releasePermits(selectedServer);
+    }
+
+    private void releasePermits(ServerConfig selectedServer) {
+        serverLoadTracker.onCancel(selectedServer);
+        circuitBreakerRegistry.releasePermission(selectedServer);
+        concurrencyLimiter.release(selectedServer, 0, false);
+    }
+
+    /**
+     * Selects another server for a retry after a jittered backoff, if the retry budget allows it
+     * and the deadline of the request has not passed. The failed server and every server tried
+     * before are excluded.
+     *
+     * @return The server to retry on, or null if the request should not be retried
+     */
+    private ServerConfig selectRetryServer(Set<ServerConfig> servers, RoutingContext routingContext,
+                                           ServerConfig failedServer, int attempt, long deadlineNanos) {
+        routingContext.exclude(failedServer);
+        if (timeoutPolicy.isExpired(deadlineNanos) || !retryPolicy.tryAcquireRetry()) {
+            return null;
+        }
+
+        try {
+            TimeUnit.NANOSECONDS.sleep(retryPolicy.getBackoffNanos(attempt));
+            if (timeoutPolicy.isExpired(deadlineNanos)) {
+                return null;
+            }
+            return selectServer(servers, routingContext);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (NoHealthyServerException | CircuitOpenException | IllegalArgumentException e) {
+            log.warn("No server left to retry on: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Selects another server for a retry like selectRetryServer, waiting for the backoff on a
+     * timer instead of a sleeping thread.
+     *
+     * @return Mono emitting the server to retry on, or empty if the request should not be retried
+     */
+    private Mono<ServerConfig> selectRetryServerAsync(Set<ServerConfig> servers, RoutingContext routingContext,
+                                                      ServerConfig failedServer, int attempt, long deadlineNanos) {
+        routingContext.exclude(failedServer);
+        if (timeoutPolicy.isExpired(deadlineNanos) || !retryPolicy.tryAcquireRetry()) {
+            return Mono.empty();
+        }
+
+        return Mono.delay(Duration.ofNanos(retryPolicy.getBackoffNanos(attempt)))
+                .flatMap(tick -> {
+                    if (timeoutPolicy.isExpired(deadlineNanos)) {
+                        return Mono.<ServerConfig>empty();
+                    }
+                    try {
+                        return Mono.justOrEmpty(selectServer(servers, routingContext));
+                    } catch (NoHealthyServerException | CircuitOpenException | IllegalArgumentException e) {
+                        log.warn("No server left to retry on: {}", e.getMessage());
+                        return Mono.<ServerConfig>empty();
+                    }
+                });
+    }
+
+    /**
+     * Selects a server for the request and takes a circuit breaker permission and a
+     * concurrency permit for it. A server throttled by slow start, with an open circuit, at
+     * its concurrency limit or with no h2c stream free is excluded for the request and
+     * selection is repeated, at most once per server. Throttled servers are kept as a last
+     * resort once every other server was tried.
+     *
+     * @return The server to send the request to, or null if every server is at its limit
+     * @throws CircuitOpenException if every server was refused by its open circuit
+     */
+    private ServerConfig selectServer(Set<ServerConfig> servers, RoutingContext routingContext) {
+        ServerConfig throttledServer = null;
+        var openCircuits = 0;
+        var limited = 0;
+        var selectedServer = serverSelector.select(servers, routingContext);
+        for (var attempt = 1; ; attempt++) {
+            if (selectedServer == null) {
+                // The selector found every server at its cap
+                limited++;
+                break;
+            }
+            // A selector returns an excluded server once its candidates are used up,
+            // selecting again may still reach another priority tier
+            if (!routingContext.isExcluded(selectedServer)) {
+                if (slowStartPolicy.isThrottled(selectedServer)) {
+                    if (throttledServer == null) {
+                        throttledServer = selectedServer;
+                    }
+                } else if (!hasStreamCapacity(selectedServer)) {
+                    limited++;
+                } else if (!circuitBreakerRegistry.tryAcquirePermission(selectedServer)) {
+                    openCircuits++;
+                } else if (concurrencyLimiter.tryAcquire(selectedServer)) {
+                    return selectedServer;
+                } else {
+                    circuitBreakerRegistry.releasePermission(selectedServer);
+                    limited++;
+                }
+            }
+            if (attempt >= servers.size()) {
+                break;
+            }
+
+            routingContext.exclude(selectedServer);
+            selectedServer = serverSelector.select(servers, routingContext);
+        }
+
+        if (throttledServer != null) {
+            if (!hasStreamCapacity(throttledServer)) {
+                limited++;
+            } else if (!circuitBreakerRegistry.tryAcquirePermission(throttledServer)) {
+                openCircuits++;
+            } else if (concurrencyLimiter.tryAcquire(throttledServer)) {
+                return throttledServer;
+            } else {
+                circuitBreakerRegistry.releasePermission(throttledServer);
+                limited++;
+            }
+        }
+        if (openCircuits > 0 && limited == 0) {
+            throw new CircuitOpenException(openCircuits + " servers tried have an open circuit");
+        }
+        return null;
+    }
+
+    /**
+     * Whether a server has a stream free for one more request, a server at its stream limit
+     * counts as limited like one at its concurrency limit.
+     */
+    private boolean hasStreamCapacity(ServerConfig server) {
+        var streamCapacity = connectionPools.getStreamCapacity();
+        return streamCapacity < 0 || serverLoadTracker.getInFlight(server) < streamCapacity;
+    }
+
+    /**
+     * Whether an HTTP error status means the server shed the request because it is overloaded.
+     */
+    private static boolean isShed(int status) {
+        return status == HttpStatus.SERVICE_UNAVAILABLE.value() || status == HttpStatus.TOO_MANY_REQUESTS.value();
+    }
+
+    /**
+     * Turns a response built by the router into a streamed one.
+     */
+    private static ResponseEntity<Flux<DataBuffer>> streamed(ResponseEntity<String> response) {
+        var body = response.getBody() != null
+                ? Flux.<DataBuffer>just(DefaultDataBufferFactory.sharedInstance.wrap(
+                response.getBody().getBytes(StandardCharsets.UTF_8)))
+                : Flux.<DataBuffer>empty();
+        return ResponseEntity.status(response.getStatusCode()).headers(response.getHeaders()).body(body);
+    }
+
+    /**
+     * Outcome of sending the request to one server.
+     *
+     * @param server    The server the request was sent to
+     * @param response  The response for the client
+     * @param retryable Whether the request failed before a response started
+     */
+    private record ForwardResult(ServerConfig server, ResponseEntity<String> response, boolean retryable) {
+    }
+
+    /**
+     * Outcome of selecting the first server for a request.
+     *
+     * @param server    The server holding the permits of the request, or null if it was rejected
+     * @param rejection The response rejecting the request, or null if a server was selected
+     */
+    private record Selection(ServerConfig server, ResponseEntity<String> rejection) {
+
+        static Selection rejected(ResponseEntity<String> rejection) {
+            return new Selection(null, rejection);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,146 @@
+package home.anita;
+
+import home.anita.server.AdmissionQueue;
+import home.anita.server.RateLimiter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Routes requests in streaming mode. The request body is sent to the server in chunks as it
+ * is read from the client, and the response status and headers are sent to the client before
+ * the response body, which is then copied chunk by chunk. A request holds a few chunks in
+ * each direction, so its memory does not grow with the size of its body. The request thread
+ * waits for the response as in blocking mode.
+ */
+@RestController
+@ConditionalOnProperty(prefix = "routing", name = "mode", havingValue = "streaming")
+@Slf4j
+public class StreamingRoutingController {
+
+    /**
+     * Hop-by-hop headers of the server response, set by Tomcat for the client connection.
+     */
+    private static final Set<String> SKIPPED_RESPONSE_HEADERS = Set.of(
+        "connection",
+        "keep-alive",
+        "transfer-encoding"
+    );
+
+    private final RoutingService routingService;
+    private final RoutingConfig routingConfig;
+    private final AdmissionQueue admissionQueue;
+    private final RateLimiter rateLimiter;
+
+    public StreamingRoutingController(RoutingService routingService, RoutingConfig routingConfig,
+                                      AdmissionQueue admissionQueue, RateLimiter rateLimiter) {
+        this.routingService = routingService;
+        this.routingConfig = routingConfig;
+        this.admissionQueue = admissionQueue;
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * Routes a POST request, streaming its body to the server and the response body back.
+     * The body is never read whole, so a rate limiter keyed by a body field does not apply.
+     */
+    @PostMapping("/**")
+    public void routePost(
+            @RequestHeader HttpHeaders headers,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+
+        String path = request.getRequestURI();
+        log.info("Received streaming POST request for path: {}", path);
+
+        var clientAddress = request.getRemoteAddr();
+        var limited = RoutingController.checkRateLimit(rateLimiter, path, headers, null, clientAddress);
+        if (limited != null) {
+            write(response, limited);
+            return;
+        }
+
+        if (request.getContentLengthLong() <= 0 && headers.getFirst(HttpHeaders.TRANSFER_ENCODING) == null) {
+            throw new HttpMessageNotReadableException("Required request body is missing",
+                    new ServletServerHttpRequest(request));
+        }
+
+        if (!admissionQueue.tryAcquire()) {
+            write(response, RoutingController.overloaded(admissionQueue));
+            return;
+        }
+        try {
+            var streaming = routingConfig.getStreaming();
+            // Reads from the servlet stream block, so they run off the Netty event loop
+            Flux<DataBuffer> requestBody = DataBufferUtils.readInputStream(request::getInputStream,
+                            DefaultDataBufferFactory.sharedInstance, (int) streaming.getChunkSize().toBytes())
+                    .limitRate(streaming.getPrefetch())
+                    .subscribeOn(Schedulers.boundedElastic());
+            var routed = routingService.routeRequestStreaming(requestBody, headers, path, clientAddress,
+                    routingConfig.getServers()).block();
+            stream(response, routed, streaming.getPrefetch());
+        } finally {
+            admissionQueue.release();
+        }
+    }
+
+    /**
+     * Writes the status and headers of the response and flushes them, then copies the body
+     * chunk by chunk as it arrives. Closing the chunk stream early, when the client went away,
+     * cancels the response of the server.
+     */
+    private void stream(HttpServletResponse response, ResponseEntity<Flux<DataBuffer>> routed, int prefetch)
+            throws IOException {
+        var body = routed.getBody() != null ? routed.getBody() : Flux.<DataBuffer>empty();
+        try (var chunks = body.doOnDiscard(DataBuffer.class, DataBufferUtils::release).toStream(prefetch)) {
+            writeHeaders(response, routed);
+            response.flushBuffer();
+
+            var outputStream = response.getOutputStream();
+            var iterator = chunks.iterator();
+            while (iterator.hasNext()) {
+                try (var chunk = iterator.next().asInputStream(true)) {
+                    chunk.transferTo(outputStream);
+                }
+                outputStream.flush();
+            }
+        }
+    }
+
+    /**
+     * Writes a response built by the router.
+     */
+    private void write(HttpServletResponse response, ResponseEntity<String> entity) throws IOException {
+        writeHeaders(response, entity);
+        if (entity.getBody() != null) {
+            response.getOutputStream().write(entity.getBody().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private void writeHeaders(HttpServletResponse response, ResponseEntity<?> entity) {
+        response.setStatus(entity.getStatusCode().value());
+        entity.getHeaders().forEach((name, values) -> {
+            if (!SKIPPED_RESPONSE_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+                values.forEach(value -> response.addHeader(name, value));
+            }
+        });
+    }
+}
\ No newline at end of file
@@ -0,0 +1,337 @@
+package home.anita.http;
+
+import home.anita.RoutingConfig;
+import home.anita.RoutingConfig.ConnectionPoolConfig;
+import home.anita.RoutingConfig.ServerConfig;
+import home.anita.RoutingConfig.UpstreamProtocol;
+import home.anita.server.LatencyHistogram;
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.netty.http.Http2AllocationStrategy;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.HttpResources;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionPoolMetrics;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+
+import java.net.SocketAddress;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Connection pools to the application servers, one per server origin, so a slow server cannot
+ * take the connections of the others. Each pool caps its connections and the requests waiting
+ * for one, closes connections idle or open for too long, and records the time requests wait
+ * to acquire a connection. The pools share the event loops of Reactor Netty, on the native
+ * transport when it is available and enabled. Connections are opened with the connect timeout
+ * of the server, fixed when its pool is created, so every request to a server shares the one
+ * pool and its limits.
+ * In h2c mode a pool holds a few HTTP/2 cleartext connections and a request acquires a stream
+ * on one of them, so a server takes as many concurrent requests as it has streams.
+ * In HTTP/1.1 mode a server with its own maxConnections gets a pool of that many connections.
+ */
+@Component
+@Slf4j
+public class ConnectionPools {
+
+    private static final int MIN_SAMPLES = 1;
+
+    private final RoutingConfig routingConfig;
+    private final ConnectionPoolConfig config;
+    private final Duration defaultConnectTimeout;
+    private final Map<String, Pool> pools = new ConcurrentHashMap<>();
+
+    public ConnectionPools(RoutingConfig routingConfig) {
+        this.routingConfig = routingConfig;
+        this.config = routingConfig.getConnectionPool();
+        this.defaultConnectTimeout = routingConfig.getTimeout().getConnect();
+        if (config.isNativeTransport()) {
+            log.info("Native transport for server connections is {}",
+                    LoopResources.hasNativeSupport() ? "available" : "not available, using NIO");
+        }
+    }
+
+    /**
+     * Gets the HTTP client sending requests over the pool of the given server, creating the
+     * pool on first use.
+     *
+     * @param url A URL on the server
+     * @return The HTTP client of the server
+     * @throws IllegalArgumentException if the URL has no scheme or host
+     */
+    public HttpClient getHttpClient(String url) {
+        return getPool(getOrigin(url)).httpClient;
+    }
+
+    /**
+     * Gets the live state of the pool of the given server.
+     *
+     * @param url A URL on the server
+     * @return The state of the pool, all zero before the first request to the server
+     */
+    public PoolStats getStats(String url) {
+        var origin = getOrigin(url);
+        var pool = pools.get(origin);
+        if (pool == null) {
+            return new PoolStats(0, 0, 0, getMaxConnections(origin), 0, 0, -1, -1);
+        }
+        return pool.getStats();
+    }
+
+    /**
+     * Starts timing the wait of a request for a connection, or a stream in h2c mode, of the
+     * server of the given URL.
+     *
+     * @param url The URL of the request
+     * @return The timer to report the outcome of the wait to
+     * @throws IllegalArgumentException if the URL has no scheme or host
+     */
+    public AcquireTimer startAcquire(String url) {
+        return new AcquireTimer(getPool(getOrigin(url)));
+    }
+
+    /**
+     * Gets the most concurrent requests a server takes without waiting for a stream. Only h2c
+     * pools bound the streams of a server, at the most connections times the most streams per
+     * connection.
+     *
+     * @return The stream capacity of a server, -1 if it is not bounded
+     */
+    public int getStreamCapacity() {
+        return config.getProtocol() == UpstreamProtocol.H2C
+                ? config.getMaxMultiplexedConnections() * config.getMaxConcurrentStreams() : -1;
+    }
+
+    /**
+     * Halves the acquire latency samples of every pool every 10 seconds,
+     * so the percentiles follow the recent wait for connections.
+     */
+    @Scheduled(fixedDelay = 10000)
+    public void decayLatencies() {
+        pools.values().forEach(pool -> pool.acquireLatency.decay());
+    }
+
+    /**
+     * Closes the connections of every pool.
+     */
+    @PreDestroy
+    public void close() {
+        pools.values().forEach(pool -> pool.provider.dispose());
+        pools.clear();
+    }
+
+    /**
+     * Gets the origin of a URL, the scheme, host and port a pool is kept for.
+     *
+     * @throws IllegalArgumentException if the URL has no scheme or host
+     */
+    static String getOrigin(String url) {
+        var uri = URI.create(url);
+        if (uri.getScheme() == null || uri.getHost() == null) {
+            throw new IllegalArgumentException("URL has no scheme or host: " + url);
+        }
+        var scheme = uri.getScheme().toLowerCase();
+        var port = uri.getPort() != -1 ? uri.getPort() : "https".equals(scheme) ? 443 : 80;
+        return scheme + "://" + uri.getHost().toLowerCase() + ":" + port;
+    }
+
+    private Pool getPool(String origin) {
+        var pool = pools.get(origin);
+        if (pool != null) {
+            return pool;
+        }
+        return pools.computeIfAbsent(origin, this::createPool);
+    }
+
+    private Pool createPool(String origin) {
+        var pool = new Pool(getMaxConnections(origin));
+        var h2c = config.getProtocol() == UpstreamProtocol.H2C;
+        var builder = ConnectionProvider.builder("server-" + origin.substring(origin.indexOf("://") + 3))
+                .maxConnections(pool.maxConnections)
+                .pendingAcquireMaxCount(config.getMaxPendingAcquires())
+                .pendingAcquireTimeout(config.getPendingAcquireTimeout())
+                .maxIdleTime(config.getMaxIdleTime())
+                .maxLifeTime(config.getMaxLifeTime())
+                .metrics(true, () -> pool);
+        if (!config.getEvictionInterval().isZero()) {
+            builder.evictInBackground(config.getEvictionInterval());
+        }
+        if (h2c) {
+            // Replaces the limit of HTTP/1.1 connections set above
+            builder.allocationStrategy(Http2AllocationStrategy.builder()
+                    .minConnections(1)
+                    .maxConnections(config.getMaxMultiplexedConnections())
+                    .maxConcurrentStreams(config.getMaxConcurrentStreams())
+                    .build());
+        }
+        pool.provider = builder.build();
+        var httpClient = HttpClient.create(pool.provider)
+                .runOn(HttpResources.get(), config.isNativeTransport());
+        if (h2c) {
+            httpClient = httpClient.protocol(HttpProtocol.H2C);
+        }
+        var connectTimeout = getConnectTimeout(origin);
+        pool.httpClient = httpClient.option(ChannelOption.CONNECT_TIMEOUT_MILLIS,
+                (int) Math.min(connectTimeout.toMillis(), Integer.MAX_VALUE));
+        log.info("Created {} connection pool for {} with up to {} connections", h2c ? "h2c" : "HTTP/1.1", origin,
+                pool.maxConnections);
+        return pool;
+    }
+
+    /**
+     * Gets the most connections the pool of a server opens: the maxConnections of the server when
+     * it sets one, the pool default otherwise. In h2c mode every server gets the same few
+     * multiplexed connections.
+     */
+    private int getMaxConnections(String origin) {
+        if (config.getProtocol() == UpstreamProtocol.H2C) {
+            return config.getMaxMultiplexedConnections();
+        }
+        var server = getServer(origin);
+        return server != null && server.getMaxConnections() != null
+                ? server.getMaxConnections() : config.getMaxConnections();
+    }
+
+    /**
+     * Gets the connect timeout of the pool of a server: the connectTimeout of the server when
+     * it sets one, the default connect timeout otherwise.
+     */
+    private Duration getConnectTimeout(String origin) {
+        var server = getServer(origin);
+        return server != null && server.getConnectTimeout() != null
+                ? server.getConnectTimeout() : defaultConnectTimeout;
+    }
+
+    private ServerConfig getServer(String origin) {
+        if (routingConfig.getServers() == null) {
+            return null;
+        }
+        for (var server : routingConfig.getServers()) {
+            if (origin.equals(getOrigin(server.getUrl()))) {
+                return server;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Live state of the connection pool of a server.
+     *
+     * @param active         The connections in use by a request, the streams in use in h2c mode
+     * @param idle           The open connections waiting in the pool
+     * @param pending        The requests waiting for a connection, or a stream in h2c mode
+     * @param maxConnections The most connections the pool opens
+     * @param acquired       The number of connections handed to requests
+     * @param failedAcquires The number of requests that got no connection, for a full queue, a timeout or a connect failure
+     * @param acquireP50Ms   The median recent wait for a connection, -1 before any request
+     * @param acquireP99Ms   The 99th percentile recent wait for a connection, -1 before any request
+     */
+    public record PoolStats(int active, int idle, int pending, int maxConnections, long acquired,
+                            long failedAcquires, double acquireP50Ms, double acquireP99Ms) {
+    }
+
+    /**
+     * Pool of a single server, registered by Reactor Netty with the metrics of each of its sub-pools.
+     */
+    private final class Pool implements ConnectionProvider.MeterRegistrar {
+
+        private final int maxConnections;
+        private final LatencyHistogram acquireLatency = new LatencyHistogram();
+        private final AtomicLong acquired = new AtomicLong();
+        private final AtomicLong failedAcquires = new AtomicLong();
+        private final Map<String, ConnectionPoolMetrics> subPools = new ConcurrentHashMap<>();
+        private ConnectionProvider provider;
+        private HttpClient httpClient;
+
+        Pool(int maxConnections) {
+            this.maxConnections = maxConnections;
+        }
+
+        @Override
+        public void registerMetrics(String poolName, String id, SocketAddress remoteAddress,
+                                    ConnectionPoolMetrics metrics) {
+            subPools.put(id, metrics);
+        }
+
+        @Override
+        public void deRegisterMetrics(String poolName, String id, SocketAddress remoteAddress) {
+            subPools.remove(id);
+        }
+
+        void onAcquired(long latencyNanos) {
+            acquired.incrementAndGet();
+            acquireLatency.record(latencyNanos);
+        }
+
+        void onAcquireFailed() {
+            failedAcquires.incrementAndGet();
+        }
+
+        PoolStats getStats() {
+            int active = 0;
+            int idle = 0;
+            int pending = 0;
+            for (var metrics : subPools.values()) {
+                active += metrics.acquiredSize();
+                idle += metrics.idleSize();
+                pending += metrics.pendingAcquireSize();
+            }
+            return new PoolStats(
+                    active,
+                    idle,
+                    pending,
+                    maxConnections,
+                    acquired.get(),
+                    failedAcquires.get(),
+                    toMillis(acquireLatency.getPercentileNanos(50, MIN_SAMPLES)),
+                    toMillis(acquireLatency.getPercentileNanos(99, MIN_SAMPLES)));
+        }
+
+        private static double toMillis(long nanos) {
+            return nanos < 0 ? -1 : TimeUnit.NANOSECONDS.toMicros(nanos) / 1000.0;
+        }
+    }
+
+    /**
+     * Times the wait of a single request for a connection, from the subscription of the exchange
+     * until the request is written on a connection. Only the first outcome reported counts.
+     */
+    public static final class AcquireTimer {
+
+        private final Pool pool;
+        private final long startNanos = System.nanoTime();
+        private final AtomicBoolean reported = new AtomicBoolean();
+
+        private AcquireTimer(Pool pool) {
+            this.pool = pool;
+        }
+
+        /**
+         * Records that the request got its connection.
+         */
+        public void onAcquired() {
+            if (reported.compareAndSet(false, true)) {
+                pool.onAcquired(System.nanoTime() - startNanos);
+            }
+        }
+
+        /**
+         * Records that the request failed, which counts as a failed acquire unless it got its
+         * connection before.
+         */
+        public void onFailed() {
+            if (reported.compareAndSet(false, true)) {
+                pool.onAcquireFailed();
+            }
+        }
+    }
+}
\ No newline at end of file
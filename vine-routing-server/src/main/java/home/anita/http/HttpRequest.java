@@ -18,10 +18,19 @@ public abstract class HttpRequest {
     private final HttpHeaders headers;
     private final String body;
 
+    /**
+     * Timeouts of the request, null to send it without timeouts.
+     */
+    private final RequestTimeouts timeouts;
+
     protected HttpRequest(String url, HttpMethod method) {
         this(url, method, new HttpHeaders(), null);
     }
 
+    public HttpRequest(String url, HttpMethod method, HttpHeaders headers, String body) {
+        this(url, method, headers, body, null);
+    }
+
     @Override
     public String toString() {
         return String.format("%s{method=%s, url='%s', hasHeaders=%s, hasBody=%s}",
@@ -1,12 +1,27 @@
 package home.anita.http;
 
+import home.anita.RoutingConfig;
+import home.anita.http.ConnectionPools.AcquireTimer;
 import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClient.ResponseSpec;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClientRequest;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 import static org.springframework.http.HttpMethod.GET;
 import static org.springframework.http.HttpMethod.POST;
@@ -14,15 +29,25 @@ import static org.springframework.http.HttpMethod.POST;
 /**
  * Centralized HTTP request handler using WebClient.
  * All HTTP requests should go through this handler for consistency and maintainability.
+ * The timeouts of a request are applied per request: the first-byte timeout is set on the
+ * native request and the total timeout bounds the whole exchange, while the connect timeout is
+ * fixed per server by its pool. Requests to a server share its pool from ConnectionPools,
+ * which records how long each request waits for its connection.
  */
 @Component
 @Slf4j
 public class RequestHandler {
 
-    private final WebClient webClient;
+    private final ConnectionPools connectionPools;
+    private final Map<String, WebClient> webClients = new ConcurrentHashMap<>();
+
+    @Autowired
+    public RequestHandler(ConnectionPools connectionPools) {
+        this.connectionPools = connectionPools;
+    }
 
-    public RequestHandler() {
-        this.webClient = WebClient.builder().build();
+    RequestHandler() {
+        this(new ConnectionPools(new RoutingConfig()));
     }
 
     /**
@@ -37,31 +62,8 @@ public class RequestHandler {
         log.debug("Sending {} request to: {}", request.getMethod(), request.getUrl());
 
         try {
-            ResponseSpec responseSpec;
-
-            if (POST.equals(request.getMethod())) {
-                var bodySpec = webClient.post()
-                        .uri(request.getUrl())
-                        .headers(httpHeaders -> addHeaders(httpHeaders, request.getHeaders()));
-
-                if (request.getBody() != null && !request.getBody().isEmpty()) {
-                    responseSpec = bodySpec.bodyValue(request.getBody()).retrieve();
-                } else {
-                    responseSpec = bodySpec.retrieve();
-                }
-            } else if (GET.equals(request.getMethod())) {
-                responseSpec = webClient.get()
-                        .uri(request.getUrl())
-                        .headers(httpHeaders -> addHeaders(httpHeaders, request.getHeaders()))
-                        .retrieve();
-            } else {
-                throw new IllegalArgumentException("Unsupported HTTP method: " + request.getMethod());
-            }
-
             // Execute request and get response
-            var response = responseSpec
-                    .toEntity(String.class)
-                    .block();
+            var response = exchange(request).block();
 
             log.debug("Request to {} completed with status: {}",
                     request.getUrl(), response != null ? response.getStatusCode() : "null");
@@ -80,6 +82,142 @@ public class RequestHandler {
         }
     }
 
+    /**
+     * Sends an HTTP request without blocking the calling thread.
+     * Cancelling the returned Mono aborts the request.
+     *
+     * @param request The request model containing all necessary information for the HTTP call
+     * @return Mono emitting the response from the target server, failing with
+     * WebClientResponseException for HTTP error status and RuntimeException for other errors
+     */
+    public Mono<ResponseEntity<String>> sendRequestAsync(HttpRequest request) {
+        log.debug("Sending async {} request to: {}", request.getMethod(), request.getUrl());
+
+        return Mono.defer(() -> exchange(request))
+                .onErrorMap(e -> !(e instanceof WebClientResponseException), e -> {
+                    log.error("Unexpected error sending request to {}: {}", request.getUrl(), e.getMessage());
+                    return new RuntimeException("Failed to send HTTP request", e);
+                });
+    }
+
+    /**
+     * Sends an HTTP request with a streamed body and streams the response body back, without
+     * holding either body in memory whole. The body is read from the given publisher as the
+     * connection can take it, and the returned Mono emits once the status and headers arrived.
+     * Error statuses are emitted like any other response. The total timeout bounds the time to
+     * the response headers, the body may then take longer as long as data keeps arriving
+     * within the first-byte timeout.
+     *
+     * @param request The request model, its body is ignored
+     * @param body    The chunks of the request body
+     * @return Mono emitting the response, whose body must be subscribed to once to release the
+     * connection, failing with RuntimeException for network or processing errors
+     */
+    public Mono<ResponseEntity<Flux<DataBuffer>>> sendStreamingRequest(HttpRequest request,
+                                                                       Publisher<DataBuffer> body) {
+        log.debug("Sending streaming {} request to: {}", request.getMethod(), request.getUrl());
+
+        return Mono.defer(() -> {
+                    var timeouts = request.getTimeouts();
+                    var client = getWebClient(request.getUrl());
+                    var acquire = connectionPools.startAcquire(request.getUrl());
+                    var response = client
+                            .method(request.getMethod())
+                            .uri(request.getUrl())
+                            .headers(httpHeaders -> addHeaders(httpHeaders, request.getHeaders()))
+                            .httpRequest(onConnected(acquire, timeouts))
+                            .body(BodyInserters.fromDataBuffers(body))
+                            .retrieve()
+                            // An empty handler passes error statuses on as normal responses
+                            .onStatus(status -> true, clientResponse -> Mono.empty())
+                            .toEntityFlux(DataBuffer.class);
+                    if (timeouts != null && timeouts.total() != null) {
+                        response = response.timeout(timeouts.total());
+                    }
+                    return response.doOnError(e -> acquire.onFailed());
+                })
+                .onErrorMap(e -> {
+                    log.error("Unexpected error sending streaming request to {}: {}", request.getUrl(), e.getMessage());
+                    return new RuntimeException("Failed to send HTTP request", e);
+                });
+    }
+
+    private Mono<ResponseEntity<String>> exchange(HttpRequest request) {
+        var timeouts = request.getTimeouts();
+        var client = getWebClient(request.getUrl());
+        var acquire = connectionPools.startAcquire(request.getUrl());
+        ResponseSpec responseSpec;
+
+        if (POST.equals(request.getMethod())) {
+            var bodySpec = client.post()
+                    .uri(request.getUrl())
+                    .headers(httpHeaders -> addHeaders(httpHeaders, request.getHeaders()))
+                    .httpRequest(onConnected(acquire, timeouts));
+
+            if (request.getBody() != null && !request.getBody().isEmpty()) {
+                responseSpec = bodySpec.bodyValue(request.getBody()).retrieve();
+            } else {
+                responseSpec = bodySpec.retrieve();
+            }
+        } else if (GET.equals(request.getMethod())) {
+            responseSpec = client.get()
+                    .uri(request.getUrl())
+                    .headers(httpHeaders -> addHeaders(httpHeaders, request.getHeaders()))
+                    .httpRequest(onConnected(acquire, timeouts))
+                    .retrieve();
+        } else {
+            throw new IllegalArgumentException("Unsupported HTTP method: " + request.getMethod());
+        }
+
+        var response = responseSpec.toEntity(String.class);
+        if (timeouts != null && timeouts.total() != null) {
+            // Fails with a TimeoutException and cancels the exchange, which closes the connection
+            response = response.timeout(timeouts.total());
+        }
+        // An error before the request got its connection is a failed acquire
+        return response.doOnError(e -> acquire.onFailed());
+    }
+
+    /**
+     * Gets the WebClient sending requests over the pool of the server of the given URL,
+     * creating it on first use.
+     *
+     * @param url The URL of the request
+     * @return The WebClient to send the request with
+     */
+    private WebClient getWebClient(String url) {
+        var origin = ConnectionPools.getOrigin(url);
+        var client = webClients.get(origin);
+        if (client != null) {
+            return client;
+        }
+        return webClients.computeIfAbsent(origin, key -> WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(connectionPools.getHttpClient(key)))
+                .build());
+    }
+
+    /**
+     * Callback on the native request, built once the request got its connection, or its stream
+     * in h2c mode: it records the wait for the connection and applies the first-byte timeout.
+     */
+    private Consumer<ClientHttpRequest> onConnected(AcquireTimer acquire, RequestTimeouts timeouts) {
+        return httpRequest -> {
+            acquire.onAcquired();
+            applyFirstByteTimeout(httpRequest, timeouts);
+        };
+    }
+
+    /**
+     * Sets the first-byte timeout on the native Reactor Netty request. The response fails
+     * with a ReadTimeoutException when no data arrives within it.
+     */
+    private void applyFirstByteTimeout(ClientHttpRequest httpRequest, RequestTimeouts timeouts) {
+        if (timeouts != null && timeouts.firstByte() != null
+                && httpRequest.getNativeRequest() instanceof HttpClientRequest nativeRequest) {
+            nativeRequest.responseTimeout(timeouts.firstByte());
+        }
+    }
+
     /**
      * Helper method to add headers to the WebClient request.
      *
@@ -0,0 +1,14 @@
+package home.anita.http;
+
+import java.time.Duration;
+
+/**
+ * Timeouts applied by RequestHandler to a single request.
+ * A null timeout is not applied.
+ *
+ * @param firstByte Longest time between sending the request and the first byte of the response,
+ *                  and between two reads of the response
+ * @param total     Longest time for the whole exchange, from acquiring a connection to the last byte of the response
+ */
+public record RequestTimeouts(Duration firstByte, Duration total) {
+}
\ No newline at end of file
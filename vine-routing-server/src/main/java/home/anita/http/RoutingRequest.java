@@ -24,7 +24,21 @@ public class RoutingRequest extends HttpRequest {
      * @param body            The request body to forward
      */
     public RoutingRequest(String targetServerUrl, String path, HttpHeaders headers, String body) {
-        super(targetServerUrl + path, POST, headers, body);
+        this(targetServerUrl, path, headers, body, null);
+    }
+
+    /**
+     * Creates a routing request with timeouts for forwarding to an application server.
+     *
+     * @param targetServerUrl The base URL of the target application server
+     * @param path            The path to append to the server URL
+     * @param headers         The HTTP headers to forward
+     * @param body            The request body to forward
+     * @param timeouts        The timeouts of the request, null for none
+     */
+    public RoutingRequest(String targetServerUrl, String path, HttpHeaders headers, String body,
+                          RequestTimeouts timeouts) {
+        super(targetServerUrl + path, POST, headers, body, timeouts);
         this.path = path;
         this.targetServerUrl = targetServerUrl;
     }
@@ -42,6 +56,21 @@ public class RoutingRequest extends HttpRequest {
         return new RoutingRequest(targetServerUrl, path, headers, requestBody);
     }
 
+    /**
+     * Creates a RoutingRequest with timeouts from the provided parameters.
+     *
+     * @param targetServerUrl The base URL of the target server
+     * @param path            The request path
+     * @param headers         The HTTP headers to forward (will be processed by HeaderHandler)
+     * @param requestBody     The request body to forward
+     * @param timeouts        The timeouts of the request, null for none
+     * @return A new RoutingRequest instance
+     */
+    public static RoutingRequest create(String targetServerUrl, String path, HttpHeaders headers, String requestBody,
+                                        RequestTimeouts timeouts) {
+        return new RoutingRequest(targetServerUrl, path, headers, requestBody, timeouts);
+    }
+
     @Override
     public String toString() {
         return String.format("RoutingRequest{targetServer='%s', path='%s', method=%s, hasHeaders=%s, hasBody=%s}",
@@ -0,0 +1,348 @@
+package home.anita.server;
+
+import home.anita.RoutingConfig;
+import home.anita.RoutingConfig.AdmissionConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admission control in front of RoutingService.
+ * At most a configured number of requests are routed at once; further requests wait in a
+ * bounded FIFO queue for a slot. The queue is managed with controlled delay (CoDel): while the
+ * queue has drained within the last interval, a request may wait up to the interval to absorb
+ * a burst, but once the queue has stayed non-empty for a whole interval the router is behind
+ * and a request waits at most the target sojourn time before it is dropped. Dropped and
+ * queue-full requests are answered right away with 503, instead of holding a thread until
+ * latency grows without bound.
+ * In reactive mode requests wait without a thread: acquireAsync() parks a waiter in its own
+ * FIFO, which a release hands the freed slot to, and a timer drops it after the CoDel wait time.
+ */
+@Component
+@Slf4j
+public class AdmissionQueue {
+
+    private final AdmissionConfig admissionConfig;
+    private final Semaphore permits;
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+    private final LatencyHistogram sojournHistogram = new LatencyHistogram();
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Last time the queue was seen empty, or turned non-empty.
+     */
+    private volatile long lastEmptyNanos;
+
+    public AdmissionQueue(RoutingConfig routingConfig) {
+        this.admissionConfig = routingConfig.getAdmission();
+        this.permits = new Semaphore(getMaxConcurrent(), true);
+        this.lastEmptyNanos = System.nanoTime();
+    }
+
+    /**
+     * Admits a request, waiting in the queue for a free slot if needed.
+     * Blocks at most the CoDel wait time.
+     *
+     * @return true if the request may be routed and must call release() when done,
+     * false if it was dropped or the queue is full
+     */
+    public boolean tryAcquire() {
+        if (!admissionConfig.isEnabled()) {
+            return true;
+        }
+
+        // Waiting requests go first, only take a free slot directly while nobody waits
+        if (queueDepth.get() == 0 && permits.tryAcquire()) {
+            lastEmptyNanos = System.nanoTime();
+            admitted.increment();
+            sojournHistogram.record(0);
+            return true;
+        }
+
+        var depth = queueDepth.incrementAndGet();
+        var enqueuedNanos = System.nanoTime();
+        if (depth == 1) {
+            // The queue was empty until now
+            lastEmptyNanos = enqueuedNanos;
+        }
+        if (depth > admissionConfig.getMaxQueueSize()) {
+            leaveQueue(enqueuedNanos);
+            rejected.increment();
+            log.warn("Admission queue is full, rejecting request");
+            return false;
+        }
+
+        var acquired = false;
+        try {
+            acquired = permits.tryAcquire(getWaitTimeoutNanos(enqueuedNanos), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        var nowNanos = System.nanoTime();
+        leaveQueue(nowNanos);
+
+        var sojournNanos = nowNanos - enqueuedNanos;
+        sojournHistogram.record(sojournNanos);
+        if (acquired) {
+            admitted.increment();
+            return true;
+        }
+        dropped.increment();
+        log.warn("Dropping request after {}ms in the admission queue", TimeUnit.NANOSECONDS.toMillis(sojournNanos));
+        return false;
+    }
+
+    /**
+     * Admits a request without blocking. A request finding no free slot waits in the queue
+     * without a thread until a release hands it a slot, or is dropped after the CoDel wait time.
+     *
+     * @return Mono emitting true if the request may be routed and must call release() when done,
+     * false if it was dropped or the queue is full
+     */
+    public Mono<Boolean> acquireAsync() {
+        if (!admissionConfig.isEnabled()) {
+            return Mono.just(true);
+        }
+        return Mono.<Boolean>create(sink -> {
+            if (queueDepth.get() == 0 && permits.tryAcquire()) {
+                lastEmptyNanos = System.nanoTime();
+                admitted.increment();
+                sojournHistogram.record(0);
+                sink.success(true);
+                return;
+            }
+
+            var depth = queueDepth.incrementAndGet();
+            var enqueuedNanos = System.nanoTime();
+            if (depth == 1) {
+                lastEmptyNanos = enqueuedNanos;
+            }
+            if (depth > admissionConfig.getMaxQueueSize()) {
+                leaveQueue(enqueuedNanos);
+                rejected.increment();
+                log.warn("Admission queue is full, rejecting request");
+                sink.success(false);
+                return;
+            }
+
+            var waiter = new Waiter(sink, enqueuedNanos);
+            sink.onCancel(() -> {
+                if (waiter.leave()) {
+                    leaveQueue(System.nanoTime());
+                }
+            });
+            waiter.timeout = Schedulers.parallel().schedule(() -> drop(waiter),
+                    getWaitTimeoutNanos(enqueuedNanos), TimeUnit.NANOSECONDS);
+            waiters.add(waiter);
+            // A slot may have been released before the waiter was queued
+            admitWaiters();
+        }).doOnDiscard(Boolean.class, acquired -> {
+            // Admitted while the request was being cancelled
+            if (acquired) {
+                release();
+            }
+        });
+    }
+
+    /**
+     * Admits background work only if a slot is free and no request waits for one, without
+     * queueing. Background work is not counted in the admitted requests.
+     *
+     * @return true if the work may run and must call release() when done,
+     * false if the router is busy
+     */
+    public boolean tryAcquireNow() {
+        if (!admissionConfig.isEnabled()) {
+            return true;
+        }
+        return queueDepth.get() == 0 && permits.tryAcquire();
+    }
+
+    /**
+     * Frees the slot of an admitted request.
+     */
+    public void release() {
+        if (admissionConfig.isEnabled()) {
+            permits.release();
+            admitWaiters();
+        }
+    }
+
+    /**
+     * Hands free slots to the requests waiting in acquireAsync(), oldest first.
+     */
+    private void admitWaiters() {
+        while (!waiters.isEmpty() && permits.tryAcquire()) {
+            Waiter waiter;
+            while ((waiter = waiters.poll()) != null && !waiter.leave()) {
+                // Dropped or cancelled, the slot goes to the next waiter
+            }
+            if (waiter == null) {
+                // Check again for a waiter queued before the slot is back
+                permits.release();
+                continue;
+            }
+            waiter.timeout.dispose();
+            var nowNanos = System.nanoTime();
+            leaveQueue(nowNanos);
+            sojournHistogram.record(nowNanos - waiter.enqueuedNanos);
+            admitted.increment();
+            waiter.sink.success(true);
+        }
+    }
+
+    private void drop(Waiter waiter) {
+        if (!waiter.leave()) {
+            return;
+        }
+        var nowNanos = System.nanoTime();
+        leaveQueue(nowNanos);
+        var sojournNanos = nowNanos - waiter.enqueuedNanos;
+        sojournHistogram.record(sojournNanos);
+        dropped.increment();
+        log.warn("Dropping request after {}ms in the admission queue", TimeUnit.NANOSECONDS.toMillis(sojournNanos));
+        waiter.sink.success(false);
+    }
+
+    private void leaveQueue(long nowNanos) {
+        if (queueDepth.decrementAndGet() == 0) {
+            lastEmptyNanos = nowNanos;
+        }
+    }
+
+    /**
+     * Gets the longest time a request entering the queue now may wait: the target sojourn time
+     * once the queue has not been empty for a whole interval, the interval otherwise.
+     */
+    long getWaitTimeoutNanos(long nowNanos) {
+        return isOverloaded(nowNanos) ? admissionConfig.getTarget().toNanos() : admissionConfig.getInterval().toNanos();
+    }
+
+    private boolean isOverloaded(long nowNanos) {
+        return queueDepth.get() > 0 && nowNanos - lastEmptyNanos > admissionConfig.getInterval().toNanos();
+    }
+
+    /**
+     * Checks whether the queue has stayed non-empty for a whole interval, so queued
+     * requests are dropped after the target sojourn time.
+     *
+     * @return true while the router is overloaded
+     */
+    public boolean isOverloaded() {
+        return isOverloaded(System.nanoTime());
+    }
+
+    /**
+     * Gets the Retry-After value sent with a dropped request.
+     *
+     * @return The delay in whole seconds, at least 1
+     */
+    public long getRetryAfterSeconds() {
+        return Math.max(1, (admissionConfig.getRetryAfter().toMillis() + 999) / 1000);
+    }
+
+    /**
+     * Gets the number of requests waiting for a slot.
+     *
+     * @return The queue depth
+     */
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    /**
+     * Gets the number of admitted requests being routed.
+     *
+     * @return The number of slots in use
+     */
+    public int getInFlight() {
+        return admissionConfig.isEnabled() ? getMaxConcurrent() - permits.availablePermits() : 0;
+    }
+
+    /**
+     * Gets the number of requests admitted so far.
+     *
+     * @return The admitted count
+     */
+    public long getAdmitted() {
+        return admitted.sum();
+    }
+
+    /**
+     * Gets the number of requests dropped after waiting too long in the queue.
+     *
+     * @return The dropped count
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Gets the number of requests rejected because the queue was full.
+     *
+     * @return The rejected count
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * Gets the recent time requests spent in the queue, admitted or dropped.
+     *
+     * @param percentile The percentile, between 0 and 100
+     * @return The sojourn time in milliseconds, or -1 before any request was seen
+     */
+    public double getSojournPercentileMillis(double percentile) {
+        var nanos = sojournHistogram.getPercentileNanos(percentile, 1);
+        return nanos < 0 ? -1 : TimeUnit.NANOSECONDS.toMicros(nanos) / 1000.0;
+    }
+
+    /**
+     * Halves the sojourn time samples every 10 seconds,
+     * so the percentiles follow the recent queueing.
+     */
+    @Scheduled(fixedDelay = 10000)
+    public void decaySojournTimes() {
+        sojournHistogram.decay();
+    }
+
+    private int getMaxConcurrent() {
+        return Math.max(admissionConfig.getMaxConcurrent(), 1);
+    }
+
+    /**
+     * A request waiting in acquireAsync(). It leaves the queue exactly once: admitted,
+     * dropped or cancelled, whichever comes first.
+     */
+    private static class Waiter {
+
+        private final MonoSink<Boolean> sink;
+        private final long enqueuedNanos;
+        private final AtomicBoolean left = new AtomicBoolean();
+        private Disposable timeout;
+
+        Waiter(MonoSink<Boolean> sink, long enqueuedNanos) {
+            this.sink = sink;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+
+        boolean leave() {
+            return left.compareAndSet(false, true);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,264 @@
+package home.anita.server;
+
+import home.anita.RoutingConfig.CircuitBreakerConfig;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Circuit breaker of a single server.
+ * While CLOSED, request outcomes are counted in a sliding time window of buckets. Once the
+ * window holds enough calls and the failure rate or the slow-call rate reaches its threshold,
+ * the circuit OPENs and requests to the server are refused until the wait duration is over.
+ * The circuit then turns HALF_OPEN and lets a few trial requests through: it closes again
+ * if they stay below the thresholds and opens again otherwise.
+ * Permission checks and outcome recording are lock-free, a state change is a single CAS.
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    /**
+     * Number of buckets the sliding window is divided into.
+     */
+    static final int WINDOW_BUCKETS = 10;
+
+    /**
+     * States of the circuit.
+     */
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    @Getter
+    private final String url;
+
+    private final CircuitBreakerConfig config;
+    private final long bucketNanos;
+    private final AtomicReferenceArray<Bucket> buckets = new AtomicReferenceArray<>(WINDOW_BUCKETS);
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+
+    /**
+     * Trial requests admitted, completed, failed and slow in the current HALF_OPEN phase.
+     */
+    private final AtomicInteger trialPermits = new AtomicInteger();
+    private final AtomicInteger trialCalls = new AtomicInteger();
+    private final AtomicInteger trialFailures = new AtomicInteger();
+    private final AtomicInteger trialSlowCalls = new AtomicInteger();
+
+    private volatile long openedAtNanos;
+
+    public CircuitBreaker(String url, CircuitBreakerConfig config) {
+        this.url = url;
+        this.config = config;
+        this.bucketNanos = Math.max(config.getWindow().toNanos() / WINDOW_BUCKETS, 1);
+    }
+
+    /**
+     * Checks whether a request may be sent to the server, turning an OPEN circuit
+     * HALF_OPEN once the wait duration is over.
+     *
+     * @param nowNanos The current System.nanoTime() value
+     * @return true if the request may be sent, false if the circuit refuses it
+     */
+    public boolean tryAcquirePermission(long nowNanos) {
+        var current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        if (current == State.OPEN) {
+            if (nowNanos - openedAtNanos < config.getWaitDurationInOpenState().toNanos()) {
+                return false;
+            }
+            transition(State.OPEN, State.HALF_OPEN);
+        }
+        return tryAcquireTrialPermit();
+    }
+
+    /**
+     * Returns a permission that was acquired but not used for a request.
+     */
+    public void releasePermission() {
+        if (state.get() == State.HALF_OPEN) {
+            trialPermits.decrementAndGet();
+        }
+    }
+
+    /**
+     * Records the outcome of a request sent with a permission.
+     *
+     * @param latencyNanos The time taken by the request
+     * @param failed       true if the request failed or the server answered with a 5xx
+     * @param nowNanos     The current System.nanoTime() value
+     */
+    public void onResult(long latencyNanos, boolean failed, long nowNanos) {
+        var slow = latencyNanos >= config.getSlowCallDuration().toNanos();
+        var current = state.get();
+        if (current == State.CLOSED) {
+            recordClosed(failed, slow, nowNanos);
+        } else if (current == State.HALF_OPEN) {
+            recordTrial(failed, slow, nowNanos);
+        }
+    }
+
+    private void recordClosed(boolean failed, boolean slow, long nowNanos) {
+        var bucket = currentBucket(nowNanos);
+        bucket.calls.incrementAndGet();
+        if (failed) {
+            bucket.failures.incrementAndGet();
+        }
+        if (slow) {
+            bucket.slowCalls.incrementAndGet();
+        }
+        if (!failed && !slow) {
+            // A good outcome can never cross a threshold, skip summing the window
+            return;
+        }
+
+        var stats = getWindowStats(nowNanos);
+        if (stats.calls() >= config.getMinimumCalls()
+                && exceedsThresholds(stats.calls(), stats.failures(), stats.slowCalls())) {
+            open(State.CLOSED, nowNanos, stats.calls(), stats.failures(), stats.slowCalls());
+        }
+    }
+
+    private void recordTrial(boolean failed, boolean slow, long nowNanos) {
+        var failures = failed ? trialFailures.incrementAndGet() : trialFailures.get();
+        var slowCalls = slow ? trialSlowCalls.incrementAndGet() : trialSlowCalls.get();
+        var calls = trialCalls.incrementAndGet();
+        if (calls < config.getPermittedCallsInHalfOpenState()) {
+            return;
+        }
+
+        if (exceedsThresholds(calls, failures, slowCalls)) {
+            open(State.HALF_OPEN, nowNanos, calls, failures, slowCalls);
+        } else if (transition(State.HALF_OPEN, State.CLOSED)) {
+            clearWindow();
+            log.info("Circuit of {} closed after {} successful trial requests", url, calls);
+        }
+    }
+
+    private boolean exceedsThresholds(int calls, int failures, int slowCalls) {
+        return failures * 100.0 / calls >= config.getFailureRateThreshold()
+                || slowCalls * 100.0 / calls >= config.getSlowCallRateThreshold();
+    }
+
+    private void open(State from, long nowNanos, int calls, int failures, int slowCalls) {
+        // Reset the trial counters while no trial can run, before the circuit can turn HALF_OPEN
+        trialCalls.set(0);
+        trialFailures.set(0);
+        trialSlowCalls.set(0);
+        trialPermits.set(0);
+        openedAtNanos = nowNanos;
+        if (transition(from, State.OPEN)) {
+            clearWindow();
+            log.warn("Circuit of {} opened: {} failed and {} slow of {} calls", url, failures, slowCalls, calls);
+        }
+    }
+
+    private boolean tryAcquireTrialPermit() {
+        while (true) {
+            var permits = trialPermits.get();
+            if (permits >= config.getPermittedCallsInHalfOpenState() || state.get() != State.HALF_OPEN) {
+                return state.get() == State.CLOSED;
+            }
+            if (trialPermits.compareAndSet(permits, permits + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private boolean transition(State from, State to) {
+        return state.compareAndSet(from, to);
+    }
+
+    /**
+     * Gets the bucket of the current time slice, replacing the expired bucket in its slot.
+     */
+    private Bucket currentBucket(long nowNanos) {
+        var epoch = Math.floorDiv(nowNanos, bucketNanos);
+        var index = (int) Math.floorMod(epoch, (long) WINDOW_BUCKETS);
+        while (true) {
+            var bucket = buckets.get(index);
+            if (bucket != null && bucket.epoch >= epoch) {
+                // A thread that read the clock later may already have rotated the slot
+                return bucket;
+            }
+            var fresh = new Bucket(epoch);
+            if (buckets.compareAndSet(index, bucket, fresh)) {
+                return fresh;
+            }
+        }
+    }
+
+    private void clearWindow() {
+        for (var i = 0; i < WINDOW_BUCKETS; i++) {
+            buckets.set(i, null);
+        }
+    }
+
+    /**
+     * Gets the current state of the circuit.
+     *
+     * @return The circuit state
+     */
+    public State getState() {
+        return state.get();
+    }
+
+    /**
+     * Gets the failure and slow-call counts of the sliding window.
+     *
+     * @param nowNanos The current System.nanoTime() value
+     * @return The calls, failures and slow calls in the window
+     */
+    public WindowStats getWindowStats(long nowNanos) {
+        var epoch = Math.floorDiv(nowNanos, bucketNanos);
+        var calls = 0;
+        var failures = 0;
+        var slowCalls = 0;
+        for (var i = 0; i < WINDOW_BUCKETS; i++) {
+            var bucket = buckets.get(i);
+            if (bucket != null && epoch - bucket.epoch < WINDOW_BUCKETS) {
+                calls += bucket.calls.get();
+                failures += bucket.failures.get();
+                slowCalls += bucket.slowCalls.get();
+            }
+        }
+        return new WindowStats(calls, failures, slowCalls);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CircuitBreaker{url='%s', state=%s}", url, state.get());
+    }
+
+    /**
+     * Outcome counts of the sliding window.
+     *
+     * @param calls     The number of completed calls
+     * @param failures  The number of failed calls
+     * @param slowCalls The number of calls slower than the slow-call duration
+     */
+    public record WindowStats(int calls, int failures, int slowCalls) {
+    }
+
+    /**
+     * Outcome counters of one time slice of the sliding window.
+     */
+    private static final class Bucket {
+
+        private final long epoch;
+        private final AtomicInteger calls = new AtomicInteger();
+        private final AtomicInteger failures = new AtomicInteger();
+        private final AtomicInteger slowCalls = new AtomicInteger();
+
+        private Bucket(long epoch) {
+            this.epoch = epoch;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,86 @@
+package home.anita.server;
+
+import home.anita.RoutingConfig;
+import home.anita.RoutingConfig.CircuitBreakerConfig;
+import home.anita.RoutingConfig.ServerConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps a circuit breaker per server.
+ * RoutingService asks for permission before sending a request, so a server with an open
+ * circuit is passed over for another one instead of tying up a request thread, and reports
+ * the outcome of every request sent.
+ */
+@Component
+@Slf4j
+public class CircuitBreakerRegistry {
+
+    private final Map<String, CircuitBreaker> circuitBreakerMap = new ConcurrentHashMap<>();
+    private final CircuitBreakerConfig circuitBreakerConfig;
+
+    public CircuitBreakerRegistry(RoutingConfig routingConfig) {
+        this.circuitBreakerConfig = routingConfig.getCircuitBreaker();
+    }
+
+    /**
+     * Checks whether a request may be sent to the given server.
+     *
+     * @param server The selected server
+     * @return true if the request may be sent, false if the circuit of the server is open
+     */
+    public boolean tryAcquirePermission(ServerConfig server) {
+        if (!circuitBreakerConfig.isEnabled()) {
+            return true;
+        }
+
+        var permitted = getCircuitBreaker(server).tryAcquirePermission(System.nanoTime());
+        if (!permitted && log.isDebugEnabled()) {
+            log.debug("Circuit of server {} is open", server.getUrl());
+        }
+        return permitted;
+    }
+
+    /**
+     * Returns a permission that was acquired for the given server but not used.
+     *
+     * @param server The server the permission was acquired for
+     */
+    public void releasePermission(ServerConfig server) {
+        if (!circuitBreakerConfig.isEnabled()) {
+            return;
+        }
+        getCircuitBreaker(server).releasePermission();
+    }
+
+    /**
+     * Records the outcome of a request to the given server.
+     *
+     * @param server       The server the request was sent to
+     * @param latencyNanos The time taken by the request
+     * @param failed       true if the request failed or the server answered with a 5xx
+     */
+    public void onResult(ServerConfig server, long latencyNanos, boolean failed) {
+        if (!circuitBreakerConfig.isEnabled()) {
+            return;
+        }
+        getCircuitBreaker(server).onResult(latencyNanos, failed, System.nanoTime());
+    }
+
+    /**
+     * Gets the circuit breaker of the given server, creating it on first use.
+     *
+     * @param server The server to look up
+     * @return The CircuitBreaker for the server
+     */
+    public CircuitBreaker getCircuitBreaker(ServerConfig server) {
+        var circuitBreaker = circuitBreakerMap.get(server.getUrl());
+        if (circuitBreaker != null) {
+            return circuitBreaker;
+        }
+        return circuitBreakerMap.computeIfAbsent(server.getUrl(), url -> new CircuitBreaker(url, circuitBreakerConfig));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,11 @@
+package home.anita.server;
+
+/**
+ * Thrown when every server that could take a request has an open circuit.
+ */
+public class CircuitOpenException extends RuntimeException {
+
+    public CircuitOpenException(String message) {
+        super(message);
+    }
+}
\ No newline at end of file
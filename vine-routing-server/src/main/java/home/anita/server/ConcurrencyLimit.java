@@ -0,0 +1,153 @@
+package home.anita.server;
+
+import home.anita.RoutingConfig.ConcurrencyLimitConfig;
+import lombok.Getter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Adaptive concurrency limit of a single server, learned with the TCP Vegas algorithm.
+ * The queue a server builds up is estimated from how far the observed round-trip time
+ * is above the minimum round-trip time: limit * (1 - minRtt / rtt). The limit grows
+ * while that queue is small and shrinks once it is large or requests fail.
+ * Acquiring a permit is lock-free; limit updates are serialized per server.
+ */
+public class ConcurrencyLimit {
+
+    /**
+     * Number of samples per unit of limit after which the minimum RTT is re-learned,
+     * so a server that became slower for good does not look permanently congested.
+     */
+    static final int PROBE_SAMPLES_PER_LIMIT = 30;
+
+    @Getter
+    private final String url;
+
+    private final ConcurrencyLimitConfig config;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+
+    private volatile int limit;
+    private long minRttNanos;
+    private long samplesSinceProbe;
+
+    public ConcurrencyLimit(String url, ConcurrencyLimitConfig config) {
+        this.url = url;
+        this.config = config;
+        this.limit = clamp(config.getInitialLimit());
+    }
+
+    /**
+     * Takes a permit if the number of in-flight requests is below the limit.
+     *
+     * @return true if the request may be sent, false if the server is at its limit
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            var current = inFlight.get();
+            if (current >= limit) {
+                rejected.incrementAndGet();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns a permit and updates the limit with the outcome of the request.
+     *
+     * @param rttNanos The round-trip time of the request
+     * @param dropped  true if the request failed or the server shed it
+     */
+    public void release(long rttNanos, boolean dropped) {
+        var inFlightBefore = inFlight.getAndDecrement();
+        update(rttNanos, inFlightBefore, dropped);
+    }
+
+    /**
+     * Gets the current concurrency limit.
+     *
+     * @return The limit
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Gets the number of requests currently holding a permit.
+     *
+     * @return The in-flight request count
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Gets the number of requests turned away because the server was at its limit.
+     *
+     * @return The rejected request count
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * Gets the minimum round-trip time observed since the last probe.
+     *
+     * @return The minimum RTT in nanoseconds, or 0 before the first sample
+     */
+    public synchronized long getMinRttNanos() {
+        return minRttNanos;
+    }
+
+    synchronized void update(long rttNanos, int inFlightAtSample, boolean dropped) {
+        if (rttNanos <= 0) {
+            return;
+        }
+
+        if (++samplesSinceProbe >= (long) limit * PROBE_SAMPLES_PER_LIMIT) {
+            samplesSinceProbe = 0;
+            minRttNanos = 0;
+        }
+        if (minRttNanos == 0 || rttNanos < minRttNanos) {
+            minRttNanos = rttNanos;
+        }
+
+        var current = limit;
+        double newLimit;
+        if (dropped) {
+            newLimit = current * config.getBackoffRatio();
+        } else if (inFlightAtSample * 2 < current) {
+            // The limit did not constrain this request, so the sample says nothing about it
+            return;
+        } else {
+            var queueSize = Math.ceil(current * (1 - (double) minRttNanos / rttNanos));
+            var log = Math.max(1, Math.log10(current));
+            var alpha = 3 * log;
+            var beta = 6 * log;
+            if (queueSize <= log) {
+                newLimit = current + beta;
+            } else if (queueSize < alpha) {
+                newLimit = current + log;
+            } else if (queueSize > beta) {
+                newLimit = current - log;
+            } else {
+                return;
+            }
+        }
+        limit = clamp((int) newLimit);
+    }
+
+    private int clamp(int value) {
+        return Math.max(config.getMinLimit(), Math.min(config.getMaxLimit(), value));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ConcurrencyLimit{url='%s', limit=%d, inFlight=%d, rejected=%d}",
+                url, limit, inFlight.get(), rejected.get());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,82 @@
+package home.anita.server;
+
+import home.anita.RoutingConfig;
+import home.anita.RoutingConfig.ConcurrencyLimitConfig;
+import home.anita.RoutingConfig.ServerConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caps the in-flight requests of every server at an adaptive concurrency limit.
+ * RoutingService acquires a permit before sending a request and releases it with
+ * the observed latency, from which each server's sustainable concurrency is learned.
+ */
+@Component
+@Slf4j
+public class ConcurrencyLimiter {
+
+    private final Map<String, ConcurrencyLimit> limitMap = new ConcurrentHashMap<>();
+    private final ConcurrencyLimitConfig concurrencyLimitConfig;
+
+    public ConcurrencyLimiter(RoutingConfig routingConfig) {
+        this.concurrencyLimitConfig = routingConfig.getConcurrencyLimit();
+    }
+
+    /**
+     * Takes a permit to send a request to the given server.
+     *
+     * @param server The selected server
+     * @return true if the request may be sent, false if the server is at its limit
+     */
+    public boolean tryAcquire(ServerConfig server) {
+        if (!concurrencyLimitConfig.isEnabled()) {
+            return true;
+        }
+
+        var acquired = getLimit(server).tryAcquire();
+        if (!acquired && log.isDebugEnabled()) {
+            log.debug("Server {} is at its concurrency limit of {}", server.getUrl(), getLimit(server).getLimit());
+        }
+        return acquired;
+    }
+
+    /**
+     * Returns the permit of a request to the given server.
+     *
+     * @param server       The server the request was sent to
+     * @param latencyNanos The time taken by the request
+     * @param dropped      true if the request failed or the server shed it
+     */
+    public void release(ServerConfig server, long latencyNanos, boolean dropped) {
+        if (!concurrencyLimitConfig.isEnabled()) {
+            return;
+        }
+        getLimit(server).release(latencyNanos, dropped);
+    }
+
+    /**
+     * Gets the limit entry for the given server, creating it on first use.
+     *
+     * @param server The server to look up
+     * @return The ConcurrencyLimit for the server
+     */
+    public ConcurrencyLimit getLimit(ServerConfig server) {
+        var limit = limitMap.get(server.getUrl());
+        if (limit != null) {
+            return limit;
+        }
+        return limitMap.computeIfAbsent(server.getUrl(), url -> new ConcurrencyLimit(url, concurrencyLimitConfig));
+    }
+
+    /**
+     * Gets the limit entries of all servers seen so far.
+     *
+     * @return Map of server URL to ConcurrencyLimit (defensive copy)
+     */
+    public Map<String, ConcurrencyLimit> getAllLimits() {
+        return new ConcurrentHashMap<>(limitMap);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,246 @@
+package home.anita.server;
+
+import home.anita.RoutingConfig.ConsistentHashConfig;
+import home.anita.RoutingConfig.PriorityConfig;
+import home.anita.RoutingConfig.ServerConfig;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Server selector that implements consistent hashing with bounded loads.
+ * Requests with the same hash key go to the same server, so the per-key caches of
+ * the servers stay warm, and only the keys of a server that leaves the healthy set
+ * move elsewhere. A server whose in-flight load is above the load factor times the
+ * average is passed over for the next server on the ring, so a hot key cannot
+ * overload a single server. Servers excluded for the request are passed over the same way.
+ * Health-aware implementation that only selects from healthy servers.
+ */
+@Slf4j
+public class ConsistentHashServerSelector extends HealthAwareServerSelector {
+
+    /**
+     * Number of rings kept at most, one per priority tier that receives traffic.
+     */
+    private static final int MAX_CACHED_RINGS = 4;
+
+    private final ServerLoadTracker serverLoadTracker;
+    private final HashKeyExtractor hashKeyExtractor;
+    private final double loadFactor;
+    private final int virtualNodes;
+
+    /**
+     * Rings kept per candidate snapshot, most recent first. Holds more than one ring
+     * while traffic spills over between priority tiers.
+     */
+    private volatile HashRing[] rings = new HashRing[0];
+
+    public ConsistentHashServerSelector(RandomServerSelector randomServerSelector,
+                                        HealthCheckService healthCheckService,
+                                        PriorityConfig priorityConfig,
+                                        ServerLoadTracker serverLoadTracker,
+                                        HashKeyExtractor hashKeyExtractor,
+                                        ConsistentHashConfig consistentHashConfig) {
+        super(randomServerSelector, healthCheckService, priorityConfig);
+        this.serverLoadTracker = serverLoadTracker;
+        this.hashKeyExtractor = hashKeyExtractor;
+        this.loadFactor = consistentHashConfig.getLoadFactor();
+        this.virtualNodes = Math.max(consistentHashConfig.getVirtualNodes(), 1);
+    }
+
+    /**
+     * Selects the server owning the hash key of the request on the hash ring.
+     * A key is also hashed to a fixed point of the traffic split between priority tiers,
+     * so it keeps hitting the same tier while the split is unchanged.
+     * Falls back to health-aware random selection if the request carries no hash key,
+     * and to all servers if the healthy share is below the panic threshold.
+     *
+     * @param servers The set of available servers to select from
+     * @param context The attributes of the request being routed
+     * @return The selected server configuration
+     * @throws IllegalArgumentException if the server set is null or empty
+     */
+    @Override
+    public ServerConfig select(Set<ServerConfig> servers, RoutingContext context) {
+        var key = hashKeyExtractor.extract(context);
+        if (key == null) {
+            log.debug("Request has no hash key, using health-aware selection");
+            return super.select(servers, context);
+        }
+
+        var healthySnapshot = getHealthySnapshot(servers);
+        if (healthySnapshot.panic()) {
+            log.warn("Healthy share below panic threshold, using all {} servers for consistent-hash selection",
+                    servers.size());
+        }
+
+        var keyHash = hash(key);
+        var currentRing = getRing(healthySnapshot.candidates(tierDraw(keyHash)));
+        var capacity = getCapacity(currentRing.snapshot);
+        var start = currentRing.indexOf(keyHash);
+
+        // Walk clockwise until a server below the load bound is found
+        var points = currentRing.owners.length;
+        for (var offset = 0; offset < points; offset++) {
+            var candidate = currentRing.owners[(start + offset) % points];
+            if (serverLoadTracker.getInFlight(candidate) < capacity && !isExcluded(context, candidate)) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Consistent hash selected server {} for key '{}' after {} ring steps",
+                            candidate.getUrl(), key, offset);
+                }
+                return candidate;
+            }
+        }
+
+        var selectedServer = currentRing.owners[start];
+        log.warn("No server below the load bound available, using ring owner {}", selectedServer.getUrl());
+        return selectedServer;
+    }
+
+    /**
+     * Gets the maximum number of in-flight requests per server, including the new request:
+     * the load factor times the average load, rounded up.
+     */
+    private int getCapacity(ServerSnapshot snapshot) {
+        var totalInFlight = 0L;
+        for (var i = 0; i < snapshot.size(); i++) {
+            totalInFlight += serverLoadTracker.getInFlight(snapshot.get(i));
+        }
+        return (int) Math.ceil(loadFactor * (totalInFlight + 1) / snapshot.size());
+    }
+
+    /**
+     * Gets the hash ring for the given servers, rebuilding it only when no ring was built
+     * for the snapshot yet.
+     */
+    private HashRing getRing(ServerSnapshot serversToUse) {
+        var currentRings = rings;
+        for (var currentRing : currentRings) {
+            if (currentRing.snapshot == serversToUse) {
+                return currentRing;
+            }
+        }
+
+        var newRing = HashRing.build(serversToUse, virtualNodes);
+        var kept = Math.min(currentRings.length, MAX_CACHED_RINGS - 1);
+        var newRings = new HashRing[kept + 1];
+        newRings[0] = newRing;
+        System.arraycopy(currentRings, 0, newRings, 1, kept);
+        rings = newRings;
+        log.info("Rebuilt consistent-hash ring with {} points for {} servers",
+                newRing.owners.length, newRing.snapshot.size());
+        return newRing;
+    }
+
+    /**
+     * Maps a key hash to a point of the traffic split between priority tiers.
+     * The hash is remixed first, so the tier choice does not correlate with the ring position.
+     */
+    static double tierDraw(long keyHash) {
+        var mixed = Long.rotateLeft(keyHash, 32) * 0x9e3779b97f4a7c15L;
+        return (mixed >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * Hashes the given value to a 64-bit ring position using FNV-1a over its UTF-8 bytes
+     * followed by the MurmurHash3 finalizer to spread similar keys.
+     * The bytes are encoded on the fly, so hashing a request key does not allocate.
+     */
+    static long hash(String value) {
+        var hash = 0xcbf29ce484222325L;
+        for (var i = 0; i < value.length(); ) {
+            var codePoint = value.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (codePoint < 0x80) {
+                hash = fnv(hash, codePoint);
+            } else if (codePoint < 0x800) {
+                hash = fnv(hash, 0xc0 | codePoint >>> 6);
+                hash = fnv(hash, 0x80 | codePoint & 0x3f);
+            } else if (codePoint < 0x10000) {
+                if (Character.isSurrogate((char) codePoint)) {
+                    // A lone surrogate is encoded as '?', like String.getBytes does
+                    hash = fnv(hash, '?');
+                } else {
+                    hash = fnv(hash, 0xe0 | codePoint >>> 12);
+                    hash = fnv(hash, 0x80 | codePoint >>> 6 & 0x3f);
+                    hash = fnv(hash, 0x80 | codePoint & 0x3f);
+                }
+            } else {
+                hash = fnv(hash, 0xf0 | codePoint >>> 18);
+                hash = fnv(hash, 0x80 | codePoint >>> 12 & 0x3f);
+                hash = fnv(hash, 0x80 | codePoint >>> 6 & 0x3f);
+                hash = fnv(hash, 0x80 | codePoint & 0x3f);
+            }
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static long fnv(long hash, int b) {
+        return (hash ^ b) * 0x100000001b3L;
+    }
+
+    /**
+     * Immutable hash ring for a fixed server set, stored as sorted point positions
+     * with the owning server of each point.
+     */
+    private static final class HashRing {
+
+        private final ServerSnapshot snapshot;
+        private final long[] points;
+        private final ServerConfig[] owners;
+
+        private HashRing(ServerSnapshot snapshot, long[] points, ServerConfig[] owners) {
+            this.snapshot = snapshot;
+            this.points = points;
+            this.owners = owners;
+        }
+
+        /**
+         * Places virtualNodes points per unit of weight for every server.
+         * Point positions only depend on the server URL, so removing a server
+         * leaves the points of all other servers in place.
+         */
+        static HashRing build(ServerSnapshot snapshot, int virtualNodes) {
+            var totalPoints = 0;
+            for (var i = 0; i < snapshot.size(); i++) {
+                totalPoints += virtualNodes * Math.max(snapshot.get(i).getWeight(), 1);
+            }
+
+            var entries = new long[totalPoints][];
+            var next = 0;
+            for (var i = 0; i < snapshot.size(); i++) {
+                var server = snapshot.get(i);
+                var serverPoints = virtualNodes * Math.max(server.getWeight(), 1);
+                for (var node = 0; node < serverPoints; node++) {
+                    entries[next++] = new long[]{hash(server.getUrl() + "#" + node), i};
+                }
+            }
+            Arrays.sort(entries, (a, b) -> Long.compare(a[0], b[0]));
+
+            var points = new long[totalPoints];
+            var owners = new ServerConfig[totalPoints];
+            for (var i = 0; i < totalPoints; i++) {
+                points[i] = entries[i][0];
+                owners[i] = snapshot.get((int) entries[i][1]);
+            }
+            return new HashRing(snapshot, points, owners);
+        }
+
+        /**
+         * Gets the index of the first point at or after the given hash, wrapping around the ring.
+         */
+        int indexOf(long hash) {
+            var index = Arrays.binarySearch(points, hash);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            return index == points.length ? 0 : index;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,72 @@
+package home.anita.server;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import home.anita.RoutingConfig;
+import home.anita.RoutingConfig.ConsistentHashConfig;
+import home.anita.RoutingConfig.HashKeySource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Extracts the consistent-hash key of a request from the configured
+ * header, client IP address or JSON body field.
+ * Also extracts the client key of the rate limiter from its own source.
+ */
+@Component
+@Slf4j
+public class HashKeyExtractor {
+
+    private final ConsistentHashConfig consistentHashConfig;
+    private final ObjectMapper objectMapper;
+
+    public HashKeyExtractor(RoutingConfig routingConfig, ObjectMapper objectMapper) {
+        this.consistentHashConfig = routingConfig.getConsistentHash();
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Extracts the hash key of the given request.
+     *
+     * @param context The attributes of the request being routed
+     * @return The hash key, or null if the request does not carry one
+     */
+    public String extract(RoutingContext context) {
+        return extract(context, consistentHashConfig.getKeySource(), consistentHashConfig.getKeyName());
+    }
+
+    /**
+     * Extracts a key of the given request from the given source.
+     *
+     * @param context   The attributes of the request being routed
+     * @param keySource The request attribute the key is taken from
+     * @param keyName   The header name or dot-separated JSON field path, not used for the client IP
+     * @return The key, or null if the request does not carry one
+     */
+    public String extract(RoutingContext context, HashKeySource keySource, String keyName) {
+        if (context == null) {
+            return null;
+        }
+
+        var key = switch (keySource) {
+            case HEADER -> context.getHeaders() != null ? context.getHeaders().getFirst(keyName) : null;
+            case CLIENT_IP -> context.getClientAddress();
+            case BODY_FIELD -> extractBodyField(context.getBody(), keyName);
+        };
+        return key == null || key.isEmpty() ? null : key;
+    }
+
+    private String extractBodyField(String body, String fieldPath) {
+        if (body == null || body.isEmpty() || fieldPath == null) {
+            return null;
+        }
+
+        try {
+            var node = objectMapper.readTree(body).at("/" + fieldPath.replace('.', '/'));
+            return node.isValueNode() ? node.asText() : null;
+        } catch (JsonProcessingException e) {
+            log.debug("Could not read hash key field '{}' from request body: {}", fieldPath, e.getMessage());
+            return null;
+        }
+    }
+}
\ No newline at end of file
@@ -1,53 +1,256 @@
 package home.anita.server;
 
+import home.anita.RoutingConfig.PriorityConfig;
 import home.anita.RoutingConfig.ServerConfig;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
 
 /**
  * Server selector that only selects from healthy servers.
- * Falls back to all servers if no healthy servers are available.
+ * Servers are grouped into priority tiers by their configured priority. The highest tier
+ * keeps all traffic while enough of its servers are healthy, and spills a proportional
+ * share over to the next tier as its healthy capacity drops. Unhealthy servers only
+ * receive traffic in panic mode, when the healthy share of all tiers drops below the
+ * panic threshold.
+ * The healthy subset of the configured servers is cached as an immutable snapshot
+ * and only recomputed when the server set or the published healthy set changes,
+ * so selection does not allocate.
  */
-@Component
 @Slf4j
 public class HealthAwareServerSelector implements ServerSelector {
 
     private final RandomServerSelector randomServerSelector;
     private final HealthCheckService healthCheckService;
+    private final PriorityConfig priorityConfig;
+
+    private volatile HealthySnapshot healthySnapshot = HealthySnapshot.EMPTY;
 
     public HealthAwareServerSelector(RandomServerSelector randomServerSelector,
-                                     HealthCheckService healthCheckService) {
+                                     HealthCheckService healthCheckService,
+                                     PriorityConfig priorityConfig) {
         this.randomServerSelector = randomServerSelector;
         this.healthCheckService = healthCheckService;
+        this.priorityConfig = priorityConfig;
     }
 
     @Override
     public ServerConfig select(Set<ServerConfig> servers) {
-        var healthyServers = getHealthyServers(servers);
+        return select(servers, null);
+    }
 
-        if (!healthyServers.isEmpty()) {
-            // Select from healthy servers
-            log.debug("Selecting from {} healthy servers out of {} total servers",
-                    healthyServers.size(), servers.size());
-            return randomServerSelector.select(healthyServers);
-        } else {
-            // No healthy servers available, fall back to all servers
-            log.warn("No healthy servers available, falling back to all servers");
-            return randomServerSelector.select(servers);
+    /**
+     * Selects a random healthy server that was not excluded for the request, or any
+     * candidate if all of them were excluded.
+     * Subclasses override this method to implement their strategy.
+     *
+     * @param servers The set of available servers to select from
+     * @param context The attributes of the request being routed, may be null
+     * @return The selected server configuration
+     * @throws IllegalArgumentException if the server set is null or empty
+     * @throws NoHealthyServerException if no server is healthy and panic mode is off
+     */
+    @Override
+    public ServerConfig select(Set<ServerConfig> servers, RoutingContext context) {
+        var healthySnapshot = getHealthySnapshot(servers);
+        if (healthySnapshot.panic()) {
+            log.warn("Healthy share below panic threshold, using all {} servers", servers.size());
         }
+
+        var serversToUse = healthySnapshot.candidates();
+        log.debug("Selecting from {} candidate servers out of {} total servers", serversToUse.size(), servers.size());
+        return randomServerSelector.select(serversToUse, context);
+    }
+
+    /**
+     * Checks if the given server was excluded for the request.
+     *
+     * @param context The attributes of the request being routed, may be null
+     * @param server  The server to check
+     * @return true if the server must be skipped while others are available
+     */
+    static boolean isExcluded(RoutingContext context, ServerConfig server) {
+        return context != null && context.isExcluded(server);
     }
 
     Set<ServerConfig> getHealthyServers(Set<ServerConfig> servers) {
+        return getHealthySnapshot(servers).healthy().asSet();
+    }
+
+    /**
+     * Gets the snapshot of healthy servers among the given servers.
+     * Returns the cached snapshot as long as the same server set is passed and
+     * the health check service publishes the same healthy set, which are both
+     * compared by reference. Configured server sets are treated as immutable.
+     *
+     * @param servers The set of available servers
+     * @return The healthy snapshot for the servers
+     * @throws IllegalArgumentException if the server set is null or empty
+     */
+    HealthySnapshot getHealthySnapshot(Set<ServerConfig> servers) {
         if (servers == null || servers.isEmpty()) {
             throw new IllegalArgumentException("Server set cannot be null or empty");
         }
 
-        Set<String> healthyServerUrls = healthCheckService.getHealthyServers();
-        return servers.stream()
-                .filter(server -> healthyServerUrls.contains(server.getUrl()))
-                .collect(Collectors.toSet());
+        var healthyServerUrls = healthCheckService.getHealthyServers();
+        var current = healthySnapshot;
+        if (current.servers() == servers && current.healthyServerUrls() == healthyServerUrls) {
+            return current;
+        }
+
+        current = buildSnapshot(servers, healthyServerUrls, current);
+        healthySnapshot = current;
+        log.debug("Refreshed healthy snapshot: {} healthy out of {} servers in {} target tiers, panic: {}",
+                current.healthy().size(), current.all().size(), current.targets().length, current.panic());
+        return current;
+    }
+
+    /**
+     * Splits the traffic between the priority tiers of the servers, as Envoy does.
+     * Each tier is credited with its healthy share times the overprovisioning factor,
+     * capped at 100%, and tiers are filled in priority order until all traffic is placed.
+     * If the credits of all tiers add up to less than 100%, they are scaled up so the
+     * healthy servers still take all traffic, unless the total is below the panic threshold.
+     */
+    private HealthySnapshot buildSnapshot(Set<ServerConfig> servers, Set<String> healthyServerUrls,
+                                          HealthySnapshot previous) {
+        var tiers = new TreeMap<Integer, List<ServerConfig>>();
+        for (var server : servers) {
+            tiers.computeIfAbsent(server.getPriority(), priority -> new ArrayList<>()).add(server);
+        }
+
+        var healthyServers = new HashSet<ServerConfig>();
+        var healthyTiers = new ArrayList<Set<ServerConfig>>();
+        var tierHealth = new double[tiers.size()];
+        var totalHealth = 0.0;
+        for (var tier : tiers.values()) {
+            var healthyInTier = tier.stream()
+                    .filter(server -> healthyServerUrls.contains(server.getUrl()))
+                    .collect(Collectors.toSet());
+            healthyServers.addAll(healthyInTier);
+
+            var health = Math.min(1.0,
+                    (double) healthyInTier.size() / tier.size() * priorityConfig.getOverprovisioningFactor());
+            tierHealth[healthyTiers.size()] = health;
+            healthyTiers.add(healthyInTier);
+            totalHealth += health;
+        }
+
+        // Keep the previous snapshot instances when their content is unchanged,
+        // so selectors caching state per snapshot do not rebuild it
+        var healthy = previous.healthy().hasSameServers(healthyServers)
+                ? previous.healthy() : ServerSnapshot.of(healthyServers);
+        var all = previous.all().hasSameServers(servers) ? previous.all() : ServerSnapshot.of(servers);
+
+        if (Math.min(1.0, totalHealth) < priorityConfig.getPanicThreshold()) {
+            return new HealthySnapshot(servers, healthyServerUrls, healthy, all,
+                    new ServerSnapshot[]{all}, new double[]{1.0}, true);
+        }
+
+        var targets = new ArrayList<ServerSnapshot>();
+        var loads = new ArrayList<Double>();
+        var remaining = 1.0;
+        for (var i = 0; i < tierHealth.length && totalHealth > 0; i++) {
+            var load = totalHealth >= 1.0 ? Math.min(remaining, tierHealth[i]) : tierHealth[i] / totalHealth;
+            remaining -= load;
+            if (load > 0) {
+                targets.add(reuse(healthyTiers.get(i), healthy, previous));
+                loads.add(load);
+            }
+        }
+
+        var cumulativeLoad = new double[loads.size()];
+        var sum = 0.0;
+        for (var i = 0; i < cumulativeLoad.length; i++) {
+            sum += loads.get(i);
+            cumulativeLoad[i] = sum;
+        }
+        if (cumulativeLoad.length > 0) {
+            cumulativeLoad[cumulativeLoad.length - 1] = 1.0;
+        }
+        return new HealthySnapshot(servers, healthyServerUrls, healthy, all,
+                targets.toArray(new ServerSnapshot[0]), cumulativeLoad, false);
+    }
+
+    /**
+     * Gets a snapshot of the given tier servers, reusing an existing instance with the same content.
+     */
+    private static ServerSnapshot reuse(Set<ServerConfig> tierServers, ServerSnapshot healthy, HealthySnapshot previous) {
+        if (healthy.hasSameServers(tierServers)) {
+            return healthy;
+        }
+        for (var target : previous.targets()) {
+            if (target.hasSameServers(tierServers)) {
+                return target;
+            }
+        }
+        return ServerSnapshot.of(tierServers);
+    }
+
+    /**
+     * Immutable view of which configured servers are healthy and how traffic is split
+     * between the priority tiers.
+     *
+     * @param servers           The configured server set the view was computed for
+     * @param healthyServerUrls The published healthy URL set the view was computed for
+     * @param healthy           The healthy servers of all tiers, possibly empty
+     * @param all               All configured servers
+     * @param targets           The servers to select from per tier receiving traffic, in priority order
+     * @param cumulativeLoad    The cumulative share of traffic up to each target, the last one is 1
+     * @param panic             Whether the healthy share is below the panic threshold, so all servers are used
+     */
+    record HealthySnapshot(Set<ServerConfig> servers, Set<String> healthyServerUrls,
+                           ServerSnapshot healthy, ServerSnapshot all,
+                           ServerSnapshot[] targets, double[] cumulativeLoad, boolean panic) {
+
+        static final HealthySnapshot EMPTY = new HealthySnapshot(
+                null, null, ServerSnapshot.of(Set.of()), ServerSnapshot.of(Set.of()),
+                new ServerSnapshot[0], new double[0], false);
+
+        /**
+         * Checks if any of the servers is healthy.
+         *
+         * @return true if at least one server is healthy
+         */
+        boolean hasHealthyServers() {
+            return !healthy.isEmpty();
+        }
+
+        /**
+         * Gets the servers to select from for a request: the healthy servers of a tier
+         * picked at random by its share of traffic, or all servers in panic mode.
+         *
+         * @return The candidate servers
+         * @throws NoHealthyServerException if no server is healthy and panic mode is off
+         */
+        ServerSnapshot candidates() {
+            return targets.length == 1 ? targets[0] : candidates(ThreadLocalRandom.current().nextDouble());
+        }
+
+        /**
+         * Gets the servers to select from for the given point of the traffic split.
+         * Passing a value derived from a request key keeps the key on the same tier.
+         *
+         * @param draw A value between 0 (inclusive) and 1 (exclusive)
+         * @return The candidate servers
+         * @throws NoHealthyServerException if no server is healthy and panic mode is off
+         */
+        ServerSnapshot candidates(double draw) {
+            if (targets.length == 0) {
+                throw new NoHealthyServerException("No healthy servers available");
+            }
+            for (var i = 0; i < targets.length - 1; i++) {
+                if (draw < cumulativeLoad[i]) {
+                    return targets[i];
+                }
+            }
+            return targets[targets.length - 1];
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,130 @@
+package home.anita.server;
+
+import home.anita.RoutingConfig;
+import home.anita.RoutingConfig.HedgingConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides which requests are hedged and when the hedge is sent.
+ * Hedging is opt-in, since a hedged request may be processed by two servers: only requests
+ * on a configured path prefix, or carrying the hedge header set to true, are hedged.
+ * The hedge delay is either fixed or the live latency percentile of the route, and hedges
+ * are capped at a share of the hedgeable requests by a RetryBudget.
+ */
+@Component
+@Slf4j
+public class HedgePolicy {
+
+    /**
+     * Route of requests that opted in with the header on a path that is not configured.
+     */
+    static final String HEADER_ROUTE = "header";
+
+    /**
+     * Number of latency samples a route needs before its percentile is used as hedge delay.
+     */
+    static final long MIN_SAMPLES = 100;
+
+    private final HedgingConfig hedgingConfig;
+    private final RetryBudget hedgeBudget;
+    private final Map<String, LatencyHistogram> histogramMap = new ConcurrentHashMap<>();
+
+    public HedgePolicy(RoutingConfig routingConfig) {
+        this.hedgingConfig = routingConfig.getHedging();
+        this.hedgeBudget = new RetryBudget(hedgingConfig.getBudgetRatio(), 0, System.nanoTime());
+    }
+
+    /**
+     * Gets the hedging route of a request.
+     *
+     * @param context The attributes of the request
+     * @return The configured path prefix the request matches, HEADER_ROUTE if it only opted in
+     * with the header, or null if the request is not hedged
+     */
+    public String getRoute(RoutingContext context) {
+        if (!hedgingConfig.isEnabled()) {
+            return null;
+        }
+
+        var path = context.getPath();
+        if (path != null) {
+            for (var prefix : hedgingConfig.getPaths()) {
+                if (path.startsWith(prefix)) {
+                    return prefix;
+                }
+            }
+        }
+
+        var headers = context.getHeaders();
+        if (headers != null && "true".equalsIgnoreCase(headers.getFirst(hedgingConfig.getHeader()))) {
+            return HEADER_ROUTE;
+        }
+        return null;
+    }
+
+    /**
+     * Records a hedgeable request, which adds to the hedge budget.
+     */
+    public void onRequest() {
+        hedgeBudget.onRequest();
+    }
+
+    /**
+     * Gets the time after which a hedge is sent for a request on the given route.
+     *
+     * @param route The hedging route
+     * @return The delay in nanoseconds, or -1 while the route has too few latency samples
+     */
+    public long getDelayNanos(String route) {
+        var delay = hedgingConfig.getDelay();
+        if (delay != null && !delay.isZero()) {
+            return delay.toNanos();
+        }
+        return getHistogram(route).getPercentileNanos(hedgingConfig.getPercentile(), MIN_SAMPLES);
+    }
+
+    /**
+     * Records the latency of a request on the given route.
+     *
+     * @param route        The hedging route
+     * @param latencyNanos The latency of the request
+     */
+    public void recordLatency(String route, long latencyNanos) {
+        getHistogram(route).record(latencyNanos);
+    }
+
+    /**
+     * Takes a hedge from the shared budget.
+     *
+     * @return true if the hedge may be sent, false if the budget is spent
+     */
+    public boolean tryAcquireHedge() {
+        var acquired = hedgeBudget.tryWithdraw(System.nanoTime());
+        if (!acquired) {
+            log.debug("Hedge budget exhausted, {} hedges refused so far", hedgeBudget.getRejected());
+        }
+        return acquired;
+    }
+
+    /**
+     * Halves the latency samples of every route every 10 seconds,
+     * so the percentiles follow the recent latency.
+     */
+    @Scheduled(fixedDelay = 10000)
+    public void decayLatencies() {
+        histogramMap.values().forEach(LatencyHistogram::decay);
+    }
+
+    private LatencyHistogram getHistogram(String route) {
+        var histogram = histogramMap.get(route);
+        if (histogram != null) {
+            return histogram;
+        }
+        return histogramMap.computeIfAbsent(route, key -> new LatencyHistogram());
+    }
+}
\ No newline at end of file
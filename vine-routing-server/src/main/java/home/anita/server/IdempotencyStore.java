@@ -0,0 +1,383 @@
+package home.anita.server;
+
+import home.anita.RoutingConfig;
+import home.anita.RoutingConfig.IdempotencyConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Deduplicates retried requests carrying an idempotency key.
+ * The first response for a key is stored for the retention time, and a request repeating the
+ * key is answered with the stored response instead of being routed, so a client retrying
+ * after a timeout does not get its request processed twice. A duplicate arriving while the
+ * original is still in flight waits for it. A key is scoped by the scope headers, and reusing
+ * it with another path or body is refused with 422. Router errors, 5xx, 408 and 429 responses
+ * are not stored, so the request can be retried. Stored responses are kept off the GC heap in
+ * an OffHeapStore, only requests in flight are tracked on the heap.
+ */
+@Component
+@Slf4j
+public class IdempotencyStore {
+
+    private final IdempotencyConfig idempotencyConfig;
+    private final LongSupplier clock;
+    private final OffHeapStore offHeapStore;
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder stored = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+
+    @Autowired
+    public IdempotencyStore(RoutingConfig routingConfig) {
+        this(routingConfig, System::currentTimeMillis);
+    }
+
+    IdempotencyStore(RoutingConfig routingConfig, LongSupplier clock) {
+        this.idempotencyConfig = routingConfig.getIdempotency();
+        this.clock = clock;
+        // Direct memory is only allocated when the store is used
+        this.offHeapStore = idempotencyConfig.isEnabled()
+                ? new OffHeapStore((int) Math.min(idempotencyConfig.getCapacity().toBytes(), Integer.MAX_VALUE - 8),
+                idempotencyConfig.getMaxKeys())
+                : null;
+    }
+
+    /**
+     * Replays the stored response of a request repeating an idempotency key, or routes the
+     * request and stores its response.
+     *
+     * @param context The attributes of the request
+     * @param route   Routes the request to a server
+     * @return The routed response, or the stored response marked with the replay header
+     */
+    public ResponseEntity<String> execute(RoutingContext context, Supplier<ResponseEntity<String>> route) {
+        var idempotencyKey = getIdempotencyKey(context);
+        if (idempotencyKey == null) {
+            return route.get();
+        }
+        if (!isValid(idempotencyKey)) {
+            return invalidKey();
+        }
+
+        var key = getStoreKey(context, idempotencyKey);
+        var fingerprint = RequestFingerprint.sha256(RequestFingerprint.of("POST", context, List.of()));
+        var storedResponse = lookup(key);
+        if (storedResponse != null) {
+            return replay(storedResponse, fingerprint);
+        }
+
+        var mapKey = new String(key, StandardCharsets.ISO_8859_1);
+        var pending = new InFlight(fingerprint, new CompletableFuture<>());
+        var existing = inFlight.putIfAbsent(mapKey, pending);
+        if (existing != null) {
+            return await(existing, fingerprint, route);
+        }
+
+        try {
+            // The original may have been stored between the lookup and taking its place in flight
+            storedResponse = lookup(key);
+            if (storedResponse != null) {
+                pending.response().complete(storedResponse);
+                return replay(storedResponse, fingerprint);
+            }
+
+            var response = route.get();
+            storedResponse = save(key, fingerprint, response);
+            pending.response().complete(storedResponse);
+            return response;
+        } catch (RuntimeException | Error e) {
+            pending.response().completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(mapKey, pending);
+        }
+    }
+
+    /**
+     * Replays the stored response of a request repeating an idempotency key, or routes the
+     * request without blocking and stores its response. A duplicate of a request in flight
+     * waits for it without holding a thread.
+     *
+     * @param context The attributes of the request
+     * @param route   Routes the request to a server when subscribed
+     * @return Mono emitting the routed response, or the stored response marked with the replay header
+     */
+    public Mono<ResponseEntity<String>> executeAsync(RoutingContext context,
+                                                     Supplier<Mono<ResponseEntity<String>>> route) {
+        var idempotencyKey = getIdempotencyKey(context);
+        if (idempotencyKey == null) {
+            return Mono.defer(route);
+        }
+        if (!isValid(idempotencyKey)) {
+            return Mono.just(invalidKey());
+        }
+
+        return Mono.defer(() -> {
+            var key = getStoreKey(context, idempotencyKey);
+            var fingerprint = RequestFingerprint.sha256(RequestFingerprint.of("POST", context, List.of()));
+            var storedResponse = lookup(key);
+            if (storedResponse != null) {
+                return Mono.just(replay(storedResponse, fingerprint));
+            }
+
+            var mapKey = new String(key, StandardCharsets.ISO_8859_1);
+            var pending = new InFlight(fingerprint, new CompletableFuture<>());
+            var existing = inFlight.putIfAbsent(mapKey, pending);
+            if (existing != null) {
+                if (!Arrays.equals(existing.fingerprint(), fingerprint)) {
+                    return Mono.just(conflict());
+                }
+                // A copy, so a cancelled duplicate does not cancel the original's future
+                return Mono.fromFuture(existing.response().copy())
+                        .onErrorResume(e -> Mono.empty())
+                        .map(original -> replay(original, fingerprint))
+                        .switchIfEmpty(Mono.defer(route));
+            }
+
+            storedResponse = lookup(key);
+            if (storedResponse != null) {
+                pending.response().complete(storedResponse);
+                inFlight.remove(mapKey, pending);
+                return Mono.just(replay(storedResponse, fingerprint));
+            }
+            return Mono.defer(route)
+                    .doOnNext(response -> pending.response().complete(save(key, fingerprint, response)))
+                    .doFinally(signal -> {
+                        inFlight.remove(mapKey, pending);
+                        // Failed, cancelled or empty, the duplicates route on their own
+                        pending.response().complete(null);
+                    });
+        });
+    }
+
+    private String getIdempotencyKey(RoutingContext context) {
+        var headers = context.getHeaders();
+        return offHeapStore != null && headers != null ? headers.getFirst(idempotencyConfig.getHeader()) : null;
+    }
+
+    private boolean isValid(String idempotencyKey) {
+        return !idempotencyKey.isEmpty() && idempotencyKey.length() <= idempotencyConfig.getMaxKeyLength();
+    }
+
+    private ResponseEntity<String> invalidKey() {
+        String errorJson = "{\"status\": \"error\", \"message\": \"Invalid " + idempotencyConfig.getHeader() + "\"}";
+        return ResponseEntity.badRequest().body(errorJson);
+    }
+
+    /**
+     * Waits for the original of a duplicate request and replays its response. The duplicate is
+     * routed on its own if the original failed or its response was not stored.
+     */
+    private ResponseEntity<String> await(InFlight original, byte[] fingerprint, Supplier<ResponseEntity<String>> route) {
+        if (!Arrays.equals(original.fingerprint(), fingerprint)) {
+            return conflict();
+        }
+
+        StoredResponse storedResponse;
+        try {
+            storedResponse = original.response().join();
+        } catch (CompletionException e) {
+            storedResponse = null;
+        }
+        return storedResponse != null ? replay(storedResponse, fingerprint) : route.get();
+    }
+
+    private ResponseEntity<String> replay(StoredResponse storedResponse, byte[] fingerprint) {
+        if (!Arrays.equals(storedResponse.fingerprint(), fingerprint)) {
+            return conflict();
+        }
+
+        replayed.increment();
+        var builder = ResponseEntity.status(storedResponse.status())
+                .header(idempotencyConfig.getReplayHeader(), "true");
+        if (storedResponse.contentType() != null) {
+            builder.header(HttpHeaders.CONTENT_TYPE, storedResponse.contentType());
+        }
+        return builder.body(storedResponse.body());
+    }
+
+    private ResponseEntity<String> conflict() {
+        conflicts.increment();
+        String errorJson = "{\"status\": \"error\", \"message\": \"" + idempotencyConfig.getHeader()
+                + " was used for a different request\"}";
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(errorJson);
+    }
+
+    private StoredResponse lookup(byte[] key) {
+        var value = offHeapStore.get(key, clock.getAsLong());
+        return value != null ? StoredResponse.decode(value) : null;
+    }
+
+    /**
+     * Stores a response unless a retry should reach a server again.
+     *
+     * @return The stored response, or null if it was not stored
+     */
+    private StoredResponse save(byte[] key, byte[] fingerprint, ResponseEntity<String> response) {
+        if (response == null || !isStorable(response.getStatusCode().value())) {
+            return null;
+        }
+
+        var contentType = response.getHeaders().getContentType();
+        var storedResponse = new StoredResponse(fingerprint, response.getStatusCode().value(),
+                contentType != null ? contentType.toString() : null, response.getBody());
+        var nowMillis = clock.getAsLong();
+        if (!offHeapStore.put(key, storedResponse.encode(), nowMillis + idempotencyConfig.getRetention().toMillis(),
+                nowMillis)) {
+            log.warn("Response of {} bytes is too large to be stored for replay",
+                    response.getBody() != null ? response.getBody().length() : 0);
+            return null;
+        }
+        stored.increment();
+        return storedResponse;
+    }
+
+    private static boolean isStorable(int status) {
+        return status < 500 && status != HttpStatus.REQUEST_TIMEOUT.value()
+                && status != HttpStatus.TOO_MANY_REQUESTS.value();
+    }
+
+    /**
+     * Gets the key a response is stored under: the hash of the scope header values followed
+     * by the idempotency key.
+     */
+    private byte[] getStoreKey(RoutingContext context, String idempotencyKey) {
+        var scope = new StringBuilder();
+        for (var name : idempotencyConfig.getScopeHeaders()) {
+            var values = context.getHeaders().get(name);
+            scope.append(name).append('=').append(values != null ? String.join(",", values) : "").append('\n');
+        }
+        var scopeHash = RequestFingerprint.sha256(scope.toString());
+        var keyBytes = idempotencyKey.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(scopeHash.length + keyBytes.length).put(scopeHash).put(keyBytes).array();
+    }
+
+    /**
+     * Gets the number of responses stored for replay.
+     *
+     * @return The stored count
+     */
+    public long getStored() {
+        return stored.sum();
+    }
+
+    /**
+     * Gets the number of requests answered with a stored response.
+     *
+     * @return The replayed count
+     */
+    public long getReplayed() {
+        return replayed.sum();
+    }
+
+    /**
+     * Gets the number of requests refused for reusing a key with another request.
+     *
+     * @return The conflict count
+     */
+    public long getConflicts() {
+        return conflicts.sum();
+    }
+
+    /**
+     * Gets the number of keyed requests in flight.
+     *
+     * @return The in-flight count
+     */
+    public int getInFlight() {
+        return inFlight.size();
+    }
+
+    /**
+     * Gets the direct memory holding stored responses.
+     *
+     * @return The used bytes, 0 while the store is disabled
+     */
+    public long getUsedBytes() {
+        return offHeapStore != null ? offHeapStore.getUsedBytes() : 0;
+    }
+
+    /**
+     * Gets the direct memory allocated for the store and its index.
+     *
+     * @return The allocated bytes, 0 while the store is disabled
+     */
+    public long getAllocatedBytes() {
+        return offHeapStore != null ? offHeapStore.getAllocatedBytes() : 0;
+    }
+
+    /**
+     * A keyed request in flight and the response it will store.
+     */
+    private record InFlight(byte[] fingerprint, CompletableFuture<StoredResponse> response) {
+    }
+
+    /**
+     * A stored response with the fingerprint of the request that produced it.
+     *
+     * @param fingerprint The SHA-256 hash of the request path and body
+     * @param status      The status code
+     * @param contentType The content type, or null if the response had none
+     * @param body        The response body, or null if the response had none
+     */
+    private record StoredResponse(byte[] fingerprint, int status, String contentType, String body) {
+
+        byte[] encode() {
+            var contentTypeBytes = contentType != null ? contentType.getBytes(StandardCharsets.UTF_8) : null;
+            var bodyBytes = body != null ? body.getBytes(StandardCharsets.UTF_8) : null;
+            var buffer = ByteBuffer.allocate(fingerprint.length + 3 * Integer.BYTES
+                    + (contentTypeBytes != null ? contentTypeBytes.length : 0)
+                    + (bodyBytes != null ? bodyBytes.length : 0));
+            buffer.put(fingerprint).putInt(status);
+            putBytes(buffer, contentTypeBytes);
+            putBytes(buffer, bodyBytes);
+            return buffer.array();
+        }
+
+        static StoredResponse decode(byte[] value) {
+            var buffer = ByteBuffer.wrap(value);
+            var fingerprint = new byte[32];
+            buffer.get(fingerprint);
+            var status = buffer.getInt();
+            var contentType = getString(buffer);
+            return new StoredResponse(fingerprint, status, contentType, getString(buffer));
+        }
+
+        /**
+         * Writes a length-prefixed byte array, with length -1 for null.
+         */
+        private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+            buffer.putInt(bytes != null ? bytes.length : -1);
+            if (bytes != null) {
+                buffer.put(bytes);
+            }
+        }
+
+        private static String getString(ByteBuffer buffer) {
+            var length = buffer.getInt();
+            if (length < 0) {
+                return null;
+            }
+            var string = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+            return string;
+        }
+    }
+}
\ No newline at end of file
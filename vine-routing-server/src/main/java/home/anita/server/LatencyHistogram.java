@@ -0,0 +1,83 @@
+package home.anita.server;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with logarithmic buckets, each 10% wider than the previous one,
+ * from 100 microseconds to about 100 seconds. Percentiles are accurate to the bucket width.
+ * Decaying halves all counts, so the histogram follows the recent latency of a route.
+ */
+public class LatencyHistogram {
+
+    static final long MIN_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    static final double GROWTH = 1.1;
+    static final int BUCKETS = 146;
+
+    private static final double LOG_GROWTH = Math.log(GROWTH);
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * Records a latency sample.
+     *
+     * @param latencyNanos The latency in nanoseconds
+     */
+    public void record(long latencyNanos) {
+        counts.incrementAndGet(indexOf(latencyNanos));
+    }
+
+    /**
+     * Gets the latency below which the given share of the samples fall.
+     *
+     * @param percentile   The percentile, between 0 and 100
+     * @param minSamples   The number of samples needed for a meaningful estimate
+     * @return The upper bound of the bucket holding the percentile in nanoseconds,
+     * or -1 if fewer than minSamples samples were recorded
+     */
+    public long getPercentileNanos(double percentile, long minSamples) {
+        var total = 0L;
+        for (var i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        if (total == 0 || total < minSamples) {
+            return -1;
+        }
+
+        var rank = (long) Math.ceil(total * percentile / 100);
+        var seen = 0L;
+        for (var i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return upperBoundOf(i);
+            }
+        }
+        return upperBoundOf(BUCKETS - 1);
+    }
+
+    /**
+     * Halves the count of every bucket, so older samples weigh less.
+     */
+    public void decay() {
+        for (var i = 0; i < BUCKETS; i++) {
+            while (true) {
+                var count = counts.get(i);
+                if (count == 0 || counts.compareAndSet(i, count, count / 2)) {
+                    break;
+                }
+            }
+        }
+    }
+
+    static int indexOf(long latencyNanos) {
+        if (latencyNanos <= MIN_NANOS) {
+            return 0;
+        }
+        var index = (int) Math.ceil(Math.log((double) latencyNanos / MIN_NANOS) / LOG_GROWTH);
+        return Math.min(index, BUCKETS - 1);
+    }
+
+    static long upperBoundOf(int index) {
+        return (long) (MIN_NANOS * Math.pow(GROWTH, index));
+    }
+}
\ No newline at end of file
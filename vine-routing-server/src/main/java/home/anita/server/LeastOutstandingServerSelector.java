@@ -0,0 +1,24 @@
+package home.anita.server;
+
+import home.anita.RoutingConfig.PriorityConfig;
+import home.anita.RoutingConfig.ServerConfig;
+
+/**
+ * Server selector that picks the server with the fewest in-flight requests.
+ * Slow servers accumulate outstanding requests and therefore receive less new traffic.
+ * Health-aware implementation that only selects from healthy servers.
+ */
+public class LeastOutstandingServerSelector extends LoadAwareServerSelector {
+
+    public LeastOutstandingServerSelector(RandomServerSelector randomServerSelector,
+                                          HealthCheckService healthCheckService,
+                                          PriorityConfig priorityConfig,
+                                          ServerLoadTracker serverLoadTracker) {
+        super(randomServerSelector, healthCheckService, priorityConfig, serverLoadTracker);
+    }
+
+    @Override
+    protected double getLoad(ServerConfig server) {
+        return serverLoadTracker.getInFlight(server);
+    }
+}
\ No newline at end of file
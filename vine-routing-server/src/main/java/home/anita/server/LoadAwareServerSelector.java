@@ -0,0 +1,93 @@
+package home.anita.server;
+
+import home.anita.RoutingConfig.PriorityConfig;
+import home.anita.RoutingConfig.ServerConfig;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Base class for selectors that pick the healthy server with the lowest load.
+ * Subclasses define the load metric using the live counters of ServerLoadTracker.
+ */
+@Slf4j
+public abstract class LoadAwareServerSelector extends HealthAwareServerSelector {
+
+    protected final ServerLoadTracker serverLoadTracker;
+
+    protected LoadAwareServerSelector(RandomServerSelector randomServerSelector,
+                                      HealthCheckService healthCheckService,
+                                      PriorityConfig priorityConfig,
+                                      ServerLoadTracker serverLoadTracker) {
+        super(randomServerSelector, healthCheckService, priorityConfig);
+        this.serverLoadTracker = serverLoadTracker;
+    }
+
+    /**
+     * Selects the healthy server with the lowest load.
+     * Ties are broken randomly so idle servers share light traffic evenly.
+     * Servers excluded for the request are skipped while others are available.
+     * Uses all servers if the healthy share is below the panic threshold.
+     *
+     * @param servers The set of available servers to select from
+     * @param context The attributes of the request being routed, may be null
+     * @return The selected server configuration
+     * @throws IllegalArgumentException if the server set is null or empty
+     */
+    @Override
+    public ServerConfig select(Set<ServerConfig> servers, RoutingContext context) {
+        var healthySnapshot = getHealthySnapshot(servers);
+        if (healthySnapshot.panic()) {
+            log.warn("Healthy share below panic threshold, using all {} servers for load-aware selection",
+                    servers.size());
+        }
+
+        var serversToUse = healthySnapshot.candidates();
+        var selectedServer = findLeastLoaded(serversToUse, context);
+        if (selectedServer == null) {
+            // Every server was excluded, ignore the exclusions
+            selectedServer = findLeastLoaded(serversToUse, null);
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("Load-aware selected server {} with load {}", selectedServer.getUrl(), getLoad(selectedServer));
+        }
+
+        return selectedServer;
+    }
+
+    /**
+     * Scans the servers for the lowest load, breaking ties randomly.
+     *
+     * @return The least loaded server that is not excluded, or null if all are excluded
+     */
+    private ServerConfig findLeastLoaded(ServerSnapshot serversToUse, RoutingContext context) {
+        ServerConfig selectedServer = null;
+        var minLoad = Double.MAX_VALUE;
+        var ties = 0;
+        for (var i = 0; i < serversToUse.size(); i++) {
+            var server = serversToUse.get(i);
+            if (isExcluded(context, server)) {
+                continue;
+            }
+            var load = getLoad(server);
+            if (selectedServer == null || load < minLoad) {
+                minLoad = load;
+                selectedServer = server;
+                ties = 1;
+            } else if (load == minLoad && ThreadLocalRandom.current().nextInt(++ties) == 0) {
+                selectedServer = server;
+            }
+        }
+        return selectedServer;
+    }
+
+    /**
+     * Gets the load metric of the given server, lower is better.
+     *
+     * @param server The server to evaluate
+     * @return The current load of the server
+     */
+    protected abstract double getLoad(ServerConfig server);
+}
\ No newline at end of file
@@ -0,0 +1,38 @@
+package home.anita.server;
+
+import home.anita.RoutingConfig.ServerConfig;
+
+/**
+ * Load metrics that load-aware selectors can compare servers by.
+ */
+public enum LoadMetric {
+
+    /**
+     * Number of requests dispatched to the server and not yet completed.
+     */
+    IN_FLIGHT {
+        @Override
+        public double getLoad(ServerLoadTracker serverLoadTracker, ServerConfig server) {
+            return serverLoadTracker.getInFlight(server);
+        }
+    },
+
+    /**
+     * Peak-EWMA latency estimate multiplied by the in-flight requests.
+     */
+    PEAK_EWMA {
+        @Override
+        public double getLoad(ServerLoadTracker serverLoadTracker, ServerConfig server) {
+            return serverLoadTracker.getPeakEwmaCost(server);
+        }
+    };
+
+    /**
+     * Gets the current load of the given server by this metric, lower is better.
+     *
+     * @param serverLoadTracker The tracker holding the live load counters
+     * @param server            The server to evaluate
+     * @return The current load of the server
+     */
+    public abstract double getLoad(ServerLoadTracker serverLoadTracker, ServerConfig server);
+}
\ No newline at end of file
@@ -0,0 +1,12 @@
+package home.anita.server;
+
+/**
+ * Thrown when none of the configured servers is healthy and the panic threshold
+ * does not allow routing to unhealthy servers.
+ */
+public class NoHealthyServerException extends RuntimeException {
+
+    public NoHealthyServerException(String message) {
+        super(message);
+    }
+}
\ No newline at end of file
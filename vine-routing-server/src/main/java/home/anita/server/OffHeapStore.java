@@ -0,0 +1,212 @@
+package home.anita.server;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A byte-array map kept in direct memory, so its entries add nothing to the GC heap.
+ * Records are appended to a ring buffer: once it is full the oldest records are overwritten,
+ * which bounds the memory and evicts in insertion order. Each record holds its expiry time,
+ * key and value. Keys are found through an open-addressing index, also in direct memory, whose
+ * slots hold the hash of a key and the position of its record. A slot whose record was
+ * overwritten or expired is reused by the next key probing it; probing is bounded, and a key
+ * that finds no slot in reach takes over the slot it hashes to.
+ * All access is synchronized, reads copy the value out of direct memory.
+ */
+final class OffHeapStore {
+
+    private static final int SLOT_BYTES = 16;
+    private static final int MAX_PROBES = 32;
+
+    /**
+     * Largest index, 1GB of direct memory.
+     */
+    private static final int MAX_SLOTS = 1 << 26;
+
+    /**
+     * Record length, expiry time and key length preceding the key.
+     */
+    private static final int RECORD_HEADER_BYTES = Integer.BYTES + Long.BYTES + Integer.BYTES;
+
+    private final ByteBuffer index;
+    private final ByteBuffer data;
+    private final int slotMask;
+    private final int capacity;
+
+    /**
+     * Position the next record is written at, counted from the first record ever written.
+     * The records between writePosition - capacity and writePosition are intact.
+     */
+    private long writePosition;
+    private long recordCount;
+
+    /**
+     * Creates a store and allocates its direct memory.
+     *
+     * @param capacity   The bytes of the ring buffer holding the records
+     * @param maxEntries The number of keys the index is sized for, at half load
+     */
+    OffHeapStore(int capacity, int maxEntries) {
+        var wanted = (int) Math.min(Math.max(maxEntries, 1) * 2L, MAX_SLOTS);
+        var slots = Math.max(Integer.highestOneBit(wanted - 1) << 1, 2);
+        this.index = ByteBuffer.allocateDirect(slots * SLOT_BYTES);
+        this.data = ByteBuffer.allocateDirect(capacity);
+        this.slotMask = slots - 1;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Gets the value of a key.
+     *
+     * @param key       The key
+     * @param nowMillis The current time in epoch milliseconds
+     * @return A copy of the value, or null if the key is unknown, expired or was overwritten
+     */
+    synchronized byte[] get(byte[] key, long nowMillis) {
+        var hash = hash(key);
+        var slot = (int) hash & slotMask;
+        for (var probe = 0; probe < MAX_PROBES; probe++, slot = (slot + 1) & slotMask) {
+            var reference = index.getLong(slot * SLOT_BYTES + Long.BYTES);
+            if (reference == 0) {
+                return null;
+            }
+            if (index.getLong(slot * SLOT_BYTES) == hash && isLive(reference - 1, nowMillis)
+                    && keyEquals(reference - 1, key)) {
+                return readValue(reference - 1, key.length);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Stores the value of a key, replacing its previous value.
+     *
+     * @param key             The key
+     * @param value           The value
+     * @param expiresAtMillis The time the value expires, in epoch milliseconds
+     * @param nowMillis       The current time in epoch milliseconds
+     * @return false if the record is larger than the store
+     */
+    synchronized boolean put(byte[] key, byte[] value, long expiresAtMillis, long nowMillis) {
+        var recordLength = RECORD_HEADER_BYTES + key.length + Integer.BYTES + value.length;
+        if (recordLength > capacity) {
+            return false;
+        }
+
+        var hash = hash(key);
+        var home = (int) hash & slotMask;
+        var target = -1;
+        var slot = home;
+        for (var probe = 0; probe < MAX_PROBES; probe++, slot = (slot + 1) & slotMask) {
+            var reference = index.getLong(slot * SLOT_BYTES + Long.BYTES);
+            if (reference == 0) {
+                if (target < 0) {
+                    target = slot;
+                }
+                break;
+            }
+            if (!isLive(reference - 1, nowMillis)) {
+                if (target < 0) {
+                    target = slot;
+                }
+            } else if (index.getLong(slot * SLOT_BYTES) == hash && keyEquals(reference - 1, key)) {
+                target = slot;
+                break;
+            }
+        }
+        if (target < 0) {
+            target = home;
+        }
+
+        var position = writeRecord(key, value, expiresAtMillis, recordLength);
+        index.putLong(target * SLOT_BYTES, hash);
+        index.putLong(target * SLOT_BYTES + Long.BYTES, position + 1);
+        recordCount++;
+        return true;
+    }
+
+    private long writeRecord(byte[] key, byte[] value, long expiresAtMillis, int recordLength) {
+        var offset = (int) (writePosition % capacity);
+        if (offset + recordLength > capacity) {
+            // Records are contiguous, skip the tail of the buffer
+            writePosition += capacity - offset;
+            offset = 0;
+        }
+        var position = writePosition;
+        data.putInt(offset, recordLength);
+        data.putLong(offset + Integer.BYTES, expiresAtMillis);
+        data.putInt(offset + Integer.BYTES + Long.BYTES, key.length);
+        data.put(offset + RECORD_HEADER_BYTES, key);
+        data.putInt(offset + RECORD_HEADER_BYTES + key.length, value.length);
+        data.put(offset + RECORD_HEADER_BYTES + key.length + Integer.BYTES, value);
+        writePosition += recordLength;
+        return position;
+    }
+
+    private boolean isLive(long position, long nowMillis) {
+        if (position < writePosition - capacity) {
+            return false;
+        }
+        var offset = (int) (position % capacity);
+        return data.getLong(offset + Integer.BYTES) > nowMillis;
+    }
+
+    private boolean keyEquals(long position, byte[] key) {
+        var offset = (int) (position % capacity);
+        if (data.getInt(offset + Integer.BYTES + Long.BYTES) != key.length) {
+            return false;
+        }
+        var stored = new byte[key.length];
+        data.get(offset + RECORD_HEADER_BYTES, stored);
+        return Arrays.equals(stored, key);
+    }
+
+    private byte[] readValue(long position, int keyLength) {
+        var offset = (int) (position % capacity) + RECORD_HEADER_BYTES + keyLength;
+        var value = new byte[data.getInt(offset)];
+        data.get(offset + Integer.BYTES, value);
+        return value;
+    }
+
+    /**
+     * Hashes a key with 64-bit FNV-1a followed by a final mix, so the low bits picking the
+     * slot depend on every byte.
+     */
+    private static long hash(byte[] key) {
+        var hash = 0xcbf29ce484222325L;
+        for (var b : key) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        return hash ^ hash >>> 33;
+    }
+
+    /**
+     * Gets the number of records written so far, including replaced and overwritten ones.
+     *
+     * @return The record count
+     */
+    synchronized long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Gets the bytes of the ring buffer holding records.
+     *
+     * @return The used bytes, at most the capacity
+     */
+    synchronized long getUsedBytes() {
+        return Math.min(writePosition, capacity);
+    }
+
+    /**
+     * Gets the direct memory taken by the ring buffer and the index.
+     *
+     * @return The allocated bytes
+     */
+    long getAllocatedBytes() {
+        return (long) capacity + index.capacity();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,201 @@
+package home.anita.server;
+
+import home.anita.RoutingConfig;
+import home.anita.RoutingConfig.OutlierDetectionConfig;
+import home.anita.RoutingConfig.ServerConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Passive outlier detection driven by the results of routed requests.
+ * A server returning consecutive 5xx responses, failing consecutive requests without a
+ * response, or answering far slower than the rest of the pool is ejected from selection.
+ * The ejection is kept on its ServerHealth, so the published healthy set and with it every
+ * selector leave the server out until the ejection expires. Every ejection in a row doubles
+ * the ejection time, each base ejection time without one halves it again, and at most a
+ * configured share of the pool is ejected at once.
+ */
+@Component
+@Slf4j
+public class OutlierDetector {
+
+    /**
+     * Minimum number of servers with latency samples before latency outliers are judged.
+     */
+    private static final int MIN_LATENCY_SERVERS = 3;
+
+    /**
+     * Weight of a new sample in the latency average of a server.
+     */
+    private static final double LATENCY_ALPHA = 0.1;
+
+    private final OutlierDetectionConfig outlierDetectionConfig;
+    private final HealthCheckService healthCheckService;
+
+    public OutlierDetector(RoutingConfig routingConfig, HealthCheckService healthCheckService) {
+        this.outlierDetectionConfig = routingConfig.getOutlierDetection();
+        this.healthCheckService = healthCheckService;
+    }
+
+    /**
+     * Records a response from the given server.
+     *
+     * @param server       The server the request was sent to
+     * @param statusCode   The HTTP status code of the response
+     * @param latencyNanos The time taken by the server to respond
+     */
+    public void onResponse(ServerConfig server, int statusCode, long latencyNanos) {
+        if (!outlierDetectionConfig.isEnabled()) {
+            return;
+        }
+        var health = healthCheckService.getServerHealth(server.getUrl());
+        if (health == null) {
+            return;
+        }
+
+        health.recordLatency(latencyNanos, LATENCY_ALPHA);
+        if (statusCode < 500) {
+            health.recordSuccess();
+            return;
+        }
+
+        var consecutive5xx = health.record5xx();
+        if (consecutive5xx >= outlierDetectionConfig.getConsecutive5xx()) {
+            eject(health, System.nanoTime(), consecutive5xx + " consecutive 5xx responses");
+        }
+    }
+
+    /**
+     * Records a TCP passthrough connection the given server accepted. It ends a run of
+     * failures, but its connect time says nothing of the server's response time, so it is
+     * kept out of the latency average.
+     *
+     * @param server The server the connection was opened to
+     */
+    public void onConnectSuccess(ServerConfig server) {
+        if (!outlierDetectionConfig.isEnabled()) {
+            return;
+        }
+        var health = healthCheckService.getServerHealth(server.getUrl());
+        if (health != null) {
+            health.recordSuccess();
+        }
+    }
+
+    /**
+     * Records a request to the given server that failed without a response.
+     *
+     * @param server The server the request was sent to
+     */
+    public void onFailure(ServerConfig server) {
+        if (!outlierDetectionConfig.isEnabled()) {
+            return;
+        }
+        var health = healthCheckService.getServerHealth(server.getUrl());
+        if (health == null) {
+            return;
+        }
+
+        var consecutiveFailures = health.recordFailure();
+        if (consecutiveFailures >= outlierDetectionConfig.getConsecutiveFailures()) {
+            eject(health, System.nanoTime(), consecutiveFailures + " consecutive failed requests");
+        }
+    }
+
+    /**
+     * Lifts expired ejections and ejects servers whose latency is far above the pool median.
+     * Uses the interval defined in routing.outlier-detection.interval.
+     */
+    @Scheduled(fixedDelayString = "#{@routingConfig.outlierDetection.interval.toMillis()}")
+    public void scheduledSweep() {
+        sweep(System.nanoTime());
+    }
+
+    synchronized void sweep(long nowNanos) {
+        if (!outlierDetectionConfig.isEnabled()) {
+            return;
+        }
+
+        var decayNanos = outlierDetectionConfig.getBaseEjectionTime().toNanos();
+        var allHealth = healthCheckService.getAllServerHealth().values();
+        for (var health : allHealth) {
+            if (health.unejectIfExpired(nowNanos)) {
+                log.info("Ejection of {} expired, returning it to selection", health.getUrl());
+            } else {
+                health.decayEjectionCount(nowNanos, decayNanos);
+            }
+        }
+
+        var multiplier = outlierDetectionConfig.getLatencyMultiplier();
+        if (multiplier <= 0) {
+            return;
+        }
+
+        var latencies = allHealth.stream()
+                .filter(ServerHealth::isAvailable)
+                .mapToDouble(ServerHealth::getLatencyEwmaNanos)
+                .filter(latency -> latency > 0)
+                .sorted()
+                .toArray();
+        if (latencies.length < MIN_LATENCY_SERVERS) {
+            return;
+        }
+
+        var median = median(latencies);
+        for (var health : allHealth) {
+            var latency = health.getLatencyEwmaNanos();
+            if (health.isAvailable() && latency > multiplier * median) {
+                eject(health, nowNanos, String.format("average latency %.1fms is above %.1f times the pool median %.1fms",
+                        latency / 1e6, multiplier, median / 1e6));
+            }
+        }
+    }
+
+    /**
+     * Ejects the server unless it is already ejected or the ejection cap is reached.
+     * Synchronized so concurrent ejections cannot exceed the cap together.
+     *
+     * @return true if the server was ejected
+     */
+    synchronized boolean eject(ServerHealth health, long nowNanos, String reason) {
+        if (health.isEjected()) {
+            return false;
+        }
+
+        var allHealth = healthCheckService.getAllServerHealth().values();
+        var ejected = allHealth.stream().filter(ServerHealth::isEjected).count();
+        var maxEjected = Math.max(1, allHealth.size() * outlierDetectionConfig.getMaxEjectionPercent() / 100);
+        if (ejected >= maxEjected) {
+            log.warn("Not ejecting {} ({}): {} of {} servers are already ejected",
+                    health.getUrl(), reason, ejected, allHealth.size());
+            return false;
+        }
+
+        var ejectionNanos = getEjectionNanos(health.getEjectionCount());
+        health.eject(nowNanos + ejectionNanos, nowNanos);
+        log.warn("Ejected {} for {}s: {}", health.getUrl(), TimeUnit.NANOSECONDS.toSeconds(ejectionNanos), reason);
+        return true;
+    }
+
+    /**
+     * Gets the ejection time after the given number of previous ejections:
+     * the base time doubled per previous ejection, up to the maximum.
+     */
+    long getEjectionNanos(int previousEjections) {
+        var base = outlierDetectionConfig.getBaseEjectionTime().toNanos();
+        var max = outlierDetectionConfig.getMaxEjectionTime().toNanos();
+        var shift = Math.min(previousEjections, 30);
+        if (base > max >> shift) {
+            return max;
+        }
+        return base << shift;
+    }
+
+    private static double median(double[] sorted) {
+        var middle = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+    }
+}
\ No newline at end of file
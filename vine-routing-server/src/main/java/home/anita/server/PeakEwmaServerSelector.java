@@ -0,0 +1,26 @@
+package home.anita.server;
+
+import home.anita.RoutingConfig.PriorityConfig;
+import home.anita.RoutingConfig.ServerConfig;
+
+/**
+ * Server selector that picks the server with the lowest peak-EWMA cost.
+ * The cost combines a decaying, peak-sensitive average of observed response latency
+ * with the number of in-flight requests, so a server that suddenly slows down
+ * loses its share of traffic on the next slow response instead of the next health check.
+ * Health-aware implementation that only selects from healthy servers.
+ */
+public class PeakEwmaServerSelector extends LoadAwareServerSelector {
+
+    public PeakEwmaServerSelector(RandomServerSelector randomServerSelector,
+                                  HealthCheckService healthCheckService,
+                                  PriorityConfig priorityConfig,
+                                  ServerLoadTracker serverLoadTracker) {
+        super(randomServerSelector, healthCheckService, priorityConfig, serverLoadTracker);
+    }
+
+    @Override
+    protected double getLoad(ServerConfig server) {
+        return serverLoadTracker.getPeakEwmaCost(server);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,91 @@
+package home.anita.server;
+
+import home.anita.RoutingConfig.PriorityConfig;
+import home.anita.RoutingConfig.ServerConfig;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Server selector using the power-of-two-choices algorithm.
+ * Samples two distinct healthy servers at random and picks the less loaded one,
+ * which avoids scanning the whole pool on every request while still steering
+ * traffic away from busy servers.
+ * Health-aware implementation that only selects from healthy servers.
+ */
+@Slf4j
+public class PowerOfTwoChoicesServerSelector extends HealthAwareServerSelector {
+
+    private final ServerLoadTracker serverLoadTracker;
+    private final LoadMetric loadMetric;
+
+    public PowerOfTwoChoicesServerSelector(RandomServerSelector randomServerSelector,
+                                           HealthCheckService healthCheckService,
+                                           PriorityConfig priorityConfig,
+                                           ServerLoadTracker serverLoadTracker,
+                                           LoadMetric loadMetric) {
+        super(randomServerSelector, healthCheckService, priorityConfig);
+        this.serverLoadTracker = serverLoadTracker;
+        this.loadMetric = loadMetric;
+    }
+
+    /**
+     * Selects the less loaded of two randomly sampled healthy servers of the same priority tier.
+     * A sampled server excluded for the request loses the comparison.
+     * Falls back to health-aware random selection if fewer than two candidate servers are available
+     * or both sampled servers were excluded.
+     *
+     * @param servers The set of available servers to select from
+     * @param context The attributes of the request being routed, may be null
+     * @return The selected server configuration
+     * @throws IllegalArgumentException if the server set is null or empty
+     */
+    @Override
+    public ServerConfig select(Set<ServerConfig> servers, RoutingContext context) {
+        var healthySnapshot = getHealthySnapshot(servers);
+        if (healthySnapshot.panic()) {
+            log.warn("Healthy share below panic threshold, using all {} servers for power-of-two-choices selection",
+                    servers.size());
+        }
+
+        var currentSnapshot = healthySnapshot.candidates();
+        var size = currentSnapshot.size();
+        if (size < 2) {
+            log.debug("Only {} candidate servers available, using health-aware selection", size);
+            return super.select(servers, context);
+        }
+
+        // Sample two distinct indexes in O(1)
+        var random = ThreadLocalRandom.current();
+        var first = random.nextInt(size);
+        var second = random.nextInt(size - 1);
+        if (second >= first) {
+            second++;
+        }
+
+        var firstServer = currentSnapshot.get(first);
+        var secondServer = currentSnapshot.get(second);
+        var firstLoad = getLoad(firstServer, context);
+        var secondLoad = getLoad(secondServer, context);
+        if (firstLoad == Double.POSITIVE_INFINITY && secondLoad == Double.POSITIVE_INFINITY) {
+            log.debug("Both sampled servers were excluded, using health-aware selection");
+            return super.select(servers, context);
+        }
+        var selectedServer = secondLoad < firstLoad ? secondServer : firstServer;
+
+        if (log.isDebugEnabled()) {
+            log.debug("Power-of-two-choices compared {} ({}) with {} ({}), selected {}",
+                    firstServer.getUrl(), firstLoad, secondServer.getUrl(), secondLoad, selectedServer.getUrl());
+        }
+
+        return selectedServer;
+    }
+
+    /**
+     * Gets the load of the given server, treating excluded servers as infinitely loaded.
+     */
+    private double getLoad(ServerConfig server, RoutingContext context) {
+        return isExcluded(context, server) ? Double.POSITIVE_INFINITY : loadMetric.getLoad(serverLoadTracker, server);
+    }
+}
\ No newline at end of file
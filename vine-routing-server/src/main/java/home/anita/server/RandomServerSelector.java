@@ -46,4 +46,43 @@ public class RandomServerSelector implements ServerSelector {
         log.warn("Fallback to first server due to unexpected selection error: {}", fallback.getUrl());
         return fallback;
     }
+
+    /**
+     * Randomly selects a server of the snapshot that was not excluded for the request.
+     * Picks by index from the snapshot array, so the selection does not allocate.
+     *
+     * @param servers The snapshot of the servers to select from
+     * @param context The attributes of the request being routed, may be null
+     * @return A randomly selected server, or any server of the snapshot if all were excluded
+     * @throws IllegalArgumentException if the snapshot is empty
+     */
+    public ServerConfig select(ServerSnapshot servers, RoutingContext context) {
+        if (servers.isEmpty()) {
+            throw new IllegalArgumentException("Server set cannot be null or empty");
+        }
+
+        int size = servers.size();
+        int remaining = size;
+        if (context != null && context.hasExclusions()) {
+            for (int i = 0; i < size; i++) {
+                if (context.isExcluded(servers.get(i))) {
+                    remaining--;
+                }
+            }
+        }
+        if (remaining == 0 || remaining == size) {
+            return servers.get(random.nextInt(size));
+        }
+
+        // Skip the excluded servers while counting up to the drawn one
+        int index = random.nextInt(remaining);
+        for (int i = 0; i < size; i++) {
+            ServerConfig server = servers.get(i);
+            if (!context.isExcluded(server) && index-- == 0) {
+                return server;
+            }
+        }
+        // This should never happen, but as a fallback return any server
+        return servers.get(random.nextInt(size));
+    }
 }
\ No newline at end of file
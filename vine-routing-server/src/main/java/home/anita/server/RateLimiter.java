@@ -0,0 +1,148 @@
+package home.anita.server;
+
+import home.anita.RoutingConfig;
+import home.anita.RoutingConfig.HashKeySource;
+import home.anita.RoutingConfig.RateLimitConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits the request rate of every client with a token bucket, so a single noisy client
+ * cannot saturate the server pool.
+ * Each bucket is kept as its theoretical arrival time (the generic cell rate algorithm): the
+ * time at which the bucket would be full again. A request adds one emission interval to it and
+ * is refused when that would end further ahead than the burst allows, the excess being the exact
+ * wait until the request would be allowed. A bucket is a single AtomicLong updated by CAS, so
+ * checks never lock, and buckets that stayed full for the idle timeout are evicted, since a
+ * new bucket starts full and behaves the same.
+ */
+@Component
+@Slf4j
+public class RateLimiter {
+
+    /**
+     * Lowest rate a client is limited to, one request in about 17 minutes.
+     */
+    private static final double MIN_RATE = 0.001;
+
+    private final RateLimitConfig rateLimitConfig;
+    private final HashKeyExtractor hashKeyExtractor;
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final LongAdder limited = new LongAdder();
+
+    public RateLimiter(RoutingConfig routingConfig, HashKeyExtractor hashKeyExtractor) {
+        this.rateLimitConfig = routingConfig.getRateLimit();
+        this.hashKeyExtractor = hashKeyExtractor;
+    }
+
+    /**
+     * Checks whether requests are rate limited.
+     *
+     * @return true if rate limiting is enabled
+     */
+    public boolean isEnabled() {
+        return rateLimitConfig.isEnabled();
+    }
+
+    /**
+     * Checks whether the client key is taken from the request body, which then has to be read
+     * before the request can be checked.
+     *
+     * @return true if the key source is a body field
+     */
+    public boolean isBodyKeyed() {
+        return rateLimitConfig.getKeySource() == HashKeySource.BODY_FIELD;
+    }
+
+    /**
+     * Takes a token from the bucket of the client sending the request.
+     *
+     * @param context The attributes of the request, the body is only needed for a body-field key
+     * @return 0 if the request may be routed, otherwise the nanoseconds until it would be allowed
+     */
+    public long tryAcquire(RoutingContext context) {
+        if (!rateLimitConfig.isEnabled()) {
+            return 0;
+        }
+
+        var key = hashKeyExtractor.extract(context, rateLimitConfig.getKeySource(), rateLimitConfig.getKeyName());
+        if (key == null) {
+            key = context.getClientAddress();
+        }
+        var waitNanos = tryAcquire(key, System.nanoTime());
+        if (waitNanos > 0) {
+            limited.increment();
+            log.debug("Rate limiting client {} for {}ns", key, waitNanos);
+        }
+        return waitNanos;
+    }
+
+    long tryAcquire(String key, long nowNanos) {
+        var bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(nowNanos));
+        }
+
+        var intervalNanos = getEmissionIntervalNanos();
+        var toleranceNanos = intervalNanos * Math.max(rateLimitConfig.getBurst(), 1);
+        while (true) {
+            var arrival = bucket.get();
+            // A bucket whose arrival time has passed is full
+            var next = (arrival - nowNanos < 0 ? nowNanos : arrival) + intervalNanos;
+            var waitNanos = next - nowNanos - toleranceNanos;
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+            if (bucket.compareAndSet(arrival, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Evicts the buckets that have been full for the idle timeout.
+     * Uses the interval defined in routing.rate-limit.idle-timeout.
+     */
+    @Scheduled(fixedDelayString = "#{@routingConfig.rateLimit.idleTimeout.toMillis()}")
+    public void scheduledEviction() {
+        evictIdle(System.nanoTime());
+    }
+
+    void evictIdle(long nowNanos) {
+        var idleNanos = rateLimitConfig.getIdleTimeout().toNanos();
+        // A request racing with the removal updates the evicted bucket, costing at most one token
+        buckets.entrySet().removeIf(entry -> nowNanos - entry.getValue().get() > idleNanos);
+    }
+
+    /**
+     * Gets the time between two requests at the sustained rate.
+     */
+    private long getEmissionIntervalNanos() {
+        var rate = Math.max(rateLimitConfig.getRequestsPerSecond(), MIN_RATE);
+        return Math.max(Math.round(1e9 / rate), 1);
+    }
+
+    /**
+     * Gets the number of clients with a bucket.
+     *
+     * @return The number of tracked clients
+     */
+    public int getClientCount() {
+        return buckets.size();
+    }
+
+    /**
+     * Gets the number of requests refused so far.
+     *
+     * @return The limited count
+     */
+    public long getLimited() {
+        return limited.sum();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,227 @@
+package home.anita.server;
+
+import home.anita.RoutingConfig;
+import home.anita.RoutingConfig.CoalescingConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces identical concurrent requests into a single call to a server (single flight).
+ * Coalescing is opt-in per path prefix, since every waiting client gets the response of
+ * another request. Requests are identical when they have the same path, the same values of
+ * the key headers and the same body, compared by its SHA-256 hash. The first request is routed
+ * as usual while identical requests arriving before its response wait for it, and get a copy
+ * of the response marked with the coalesced header. The map of requests that can be waited on
+ * holds at most max-in-flight entries, requests beyond it are routed on their own.
+ * Blocking and reactive requests share the map, a reactive waiter holds no thread.
+ */
+@Component
+@Slf4j
+public class RequestCoalescer {
+
+    private final CoalescingConfig coalescingConfig;
+    private final Map<String, CompletableFuture<ResponseEntity<String>>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder leaders = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder bypassed = new LongAdder();
+
+    public RequestCoalescer(RoutingConfig routingConfig) {
+        this.coalescingConfig = routingConfig.getCoalescing();
+    }
+
+    /**
+     * Routes a request, or waits for an identical request in flight and shares its response.
+     *
+     * @param context The attributes of the request
+     * @param route   Routes the request to a server
+     * @return The response of the request, or a copy of the shared response
+     */
+    public ResponseEntity<String> execute(RoutingContext context, Supplier<ResponseEntity<String>> route) {
+        var key = getKey(context);
+        if (key == null) {
+            return route.get();
+        }
+
+        var existing = inFlight.get(key);
+        if (existing == null) {
+            // The size check races with concurrent puts, the bound may be passed by a few entries
+            if (inFlight.size() >= coalescingConfig.getMaxInFlight()) {
+                bypassed.increment();
+                return route.get();
+            }
+            var future = new CompletableFuture<ResponseEntity<String>>();
+            existing = inFlight.putIfAbsent(key, future);
+            if (existing == null) {
+                return lead(key, future, route);
+            }
+        }
+        return await(existing, context, route);
+    }
+
+    /**
+     * Routes a request without blocking, or shares the response of an identical request in
+     * flight. The returned Mono waits for the identical request without holding a thread.
+     *
+     * @param context The attributes of the request
+     * @param route   Routes the request to a server when subscribed
+     * @return Mono emitting the response of the request, or a copy of the shared response
+     */
+    public Mono<ResponseEntity<String>> executeAsync(RoutingContext context,
+                                                     Supplier<Mono<ResponseEntity<String>>> route) {
+        var key = getKey(context);
+        if (key == null) {
+            return Mono.defer(route);
+        }
+
+        return Mono.defer(() -> {
+            var existing = inFlight.get(key);
+            if (existing == null) {
+                if (inFlight.size() >= coalescingConfig.getMaxInFlight()) {
+                    bypassed.increment();
+                    return route.get();
+                }
+                var future = new CompletableFuture<ResponseEntity<String>>();
+                existing = inFlight.putIfAbsent(key, future);
+                if (existing == null) {
+                    return leadAsync(key, future, route);
+                }
+            }
+            return awaitAsync(existing, context, route);
+        });
+    }
+
+    private ResponseEntity<String> lead(String key, CompletableFuture<ResponseEntity<String>> future,
+                                        Supplier<ResponseEntity<String>> route) {
+        leaders.increment();
+        try {
+            var response = route.get();
+            future.complete(response);
+            return response;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    private ResponseEntity<String> await(CompletableFuture<ResponseEntity<String>> future, RoutingContext context,
+                                         Supplier<ResponseEntity<String>> route) {
+        ResponseEntity<String> response;
+        try {
+            response = future.join();
+        } catch (CompletionException e) {
+            log.debug("Coalesced request to {} failed, routing it on its own: {}", context.getPath(), e.getMessage());
+            return route.get();
+        }
+
+        coalesced.increment();
+        log.debug("Sharing response of an identical request to {}", context.getPath());
+        return response != null ? shared(response) : null;
+    }
+
+    private Mono<ResponseEntity<String>> leadAsync(String key, CompletableFuture<ResponseEntity<String>> future,
+                                                   Supplier<Mono<ResponseEntity<String>>> route) {
+        leaders.increment();
+        return Mono.defer(route)
+                .doOnNext(future::complete)
+                .doOnError(future::completeExceptionally)
+                .doFinally(signal -> {
+                    inFlight.remove(key, future);
+                    // Cancelled or empty, the waiters route on their own
+                    future.completeExceptionally(new CancellationException("Coalesced request was not answered"));
+                });
+    }
+
+    private Mono<ResponseEntity<String>> awaitAsync(CompletableFuture<ResponseEntity<String>> future,
+                                                    RoutingContext context,
+                                                    Supplier<Mono<ResponseEntity<String>>> route) {
+        // A copy, so a cancelled waiter does not cancel the shared future
+        return Mono.fromFuture(future.copy())
+                .map(response -> {
+                    coalesced.increment();
+                    log.debug("Sharing response of an identical request to {}", context.getPath());
+                    return shared(response);
+                })
+                .onErrorResume(e -> {
+                    log.debug("Coalesced request to {} failed, routing it on its own: {}", context.getPath(),
+                            e.getMessage());
+                    return Mono.defer(route);
+                });
+    }
+
+    private ResponseEntity<String> shared(ResponseEntity<String> response) {
+        return ResponseEntity.status(response.getStatusCode())
+                .headers(response.getHeaders())
+                .header(coalescingConfig.getHeader(), "true")
+                .body(response.getBody());
+    }
+
+    /**
+     * Gets the coalescing key of a request.
+     *
+     * @return The key, or null if the request is not coalesced
+     */
+    String getKey(RoutingContext context) {
+        if (!coalescingConfig.isEnabled() || context.getPath() == null || !isCoalescedPath(context.getPath())) {
+            return null;
+        }
+
+        return RequestFingerprint.of("POST", context, coalescingConfig.getKeyHeaders());
+    }
+
+    private boolean isCoalescedPath(String path) {
+        for (var prefix : coalescingConfig.getPaths()) {
+            if (path.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the number of distinct requests in flight that can be waited on.
+     *
+     * @return The number of in-flight keys
+     */
+    public int getInFlight() {
+        return inFlight.size();
+    }
+
+    /**
+     * Gets the number of coalescable requests routed to a server, which identical requests could wait on.
+     *
+     * @return The leader count
+     */
+    public long getLeaders() {
+        return leaders.sum();
+    }
+
+    /**
+     * Gets the number of requests answered with the response of an identical request.
+     *
+     * @return The coalesced count
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * Gets the number of coalescable requests routed on their own because the map was full.
+     *
+     * @return The bypassed count
+     */
+    public long getBypassed() {
+        return bypassed.sum();
+    }
+}
\ No newline at end of file
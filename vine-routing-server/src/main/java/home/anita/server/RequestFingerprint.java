@@ -0,0 +1,52 @@
+package home.anita.server;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Builds the key identifying identical requests, for coalescing and caching.
+ * Two requests get the same key when they have the same method, path and values of the given
+ * headers and the same body, compared by its SHA-256 hash so large bodies are not kept.
+ */
+final class RequestFingerprint {
+
+    private RequestFingerprint() {
+    }
+
+    /**
+     * Builds the key of a request.
+     *
+     * @param method     The HTTP method of the request
+     * @param context    The attributes of the request
+     * @param keyHeaders The headers whose values are part of the key
+     * @return The key
+     */
+    static String of(String method, RoutingContext context, List<String> keyHeaders) {
+        var key = new StringBuilder(method).append(' ').append(context.getPath());
+        var headers = context.getHeaders();
+        for (var name : keyHeaders) {
+            var values = headers != null ? headers.get(name) : null;
+            key.append('\n').append(name).append('=').append(values != null ? String.join(",", values) : "");
+        }
+        var body = context.getBody() != null ? context.getBody() : "";
+        return key.append('\n').append(HexFormat.of().formatHex(sha256(body))).toString();
+    }
+
+    /**
+     * Hashes the given value with SHA-256.
+     *
+     * @param value The value to hash, encoded as UTF-8
+     * @return The 32-byte digest
+     */
+    static byte[] sha256(String value) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
\ No newline at end of file
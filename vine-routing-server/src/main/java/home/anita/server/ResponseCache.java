@@ -0,0 +1,404 @@
+package home.anita.server;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import home.anita.RoutingConfig;
+import home.anita.RoutingConfig.CacheConfig;
+import home.anita.RoutingConfig.RouteCacheConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Caches the successful responses of routes whose response depends on nothing but the path,
+ * body and key headers of the request, so a hit is answered without selecting a server.
+ * Entries are held in a Caffeine cache bounded by the approximate size of their keys and
+ * bodies, which admits and evicts entries with W-TinyLFU: a new entry only replaces an old
+ * one if it is requested more often, so a burst of one-off requests cannot flush the entries
+ * that are hit all the time. A response is fresh for the TTL of its route; after that it is
+ * still served for the stale-while-revalidate window while a single background request
+ * per key refreshes it. In reactive mode the refresh is a subscription rather than a task
+ * on the revalidation threads. A refresh takes an admission slot like a request, but only
+ * when one is free right away; otherwise it is left to a later stale hit. Headers of the
+ * single response or connection, and the coalescing marker, are not stored.
+ */
+@Component
+@Slf4j
+public class ResponseCache {
+
+    static final String HIT = "HIT";
+    static final String STALE = "STALE";
+    static final String MISS = "MISS";
+
+    /**
+     * Estimated bytes of an entry besides its key and body.
+     */
+    private static final int ENTRY_OVERHEAD = 256;
+
+    /**
+     * Lower-case names of the response headers that describe a single response or connection.
+     */
+    private static final Set<String> UNCACHED_HEADERS = Set.of(
+            "connection", "keep-alive", "proxy-authenticate", "proxy-authorization", "te", "trailer",
+            "transfer-encoding", "upgrade", "date", "content-length", "age", "set-cookie");
+
+    private final CacheConfig cacheConfig;
+    private final String coalescedHeader;
+    private final AdmissionQueue admissionQueue;
+    private final Ticker ticker;
+    private final Executor revalidationExecutor;
+    private final Cache<String, CachedResponse> cache;
+    private final Set<String> revalidating = ConcurrentHashMap.newKeySet();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder revalidations = new LongAdder();
+
+    @Autowired
+    public ResponseCache(RoutingConfig routingConfig, AdmissionQueue admissionQueue, Environment environment) {
+        this(routingConfig, admissionQueue, Ticker.systemTicker(),
+                createRevalidationExecutor(routingConfig.getCache(), environment));
+    }
+
+    ResponseCache(RoutingConfig routingConfig, AdmissionQueue admissionQueue, Ticker ticker,
+                  Executor revalidationExecutor) {
+        this.cacheConfig = routingConfig.getCache();
+        this.coalescedHeader = routingConfig.getCoalescing().getHeader();
+        this.admissionQueue = admissionQueue;
+        this.ticker = ticker;
+        this.revalidationExecutor = revalidationExecutor;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(cacheConfig.getMaxSize().toBytes())
+                .weigher((String key, CachedResponse response) -> response.weight(key))
+                .expireAfter(new Expiry<String, CachedResponse>() {
+                    @Override
+                    public long expireAfterCreate(String key, CachedResponse response, long currentTime) {
+                        return response.ttlNanos() + response.staleNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, CachedResponse response, long currentTime,
+                                                  long currentDuration) {
+                        return response.ttlNanos() + response.staleNanos();
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, CachedResponse response, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .ticker(ticker)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Answers a request from the cache, or routes it and caches a successful response.
+     *
+     * @param context The attributes of the request
+     * @param route   Routes the request to a server
+     * @return The cached or routed response, marked with the cache header unless the route is not cached
+     */
+    public ResponseEntity<String> execute(RoutingContext context, Supplier<ResponseEntity<String>> route) {
+        var routeConfig = getRoute(context.getPath());
+        if (routeConfig == null) {
+            return route.get();
+        }
+
+        var key = RequestFingerprint.of("POST", context, cacheConfig.getKeyHeaders());
+        var cached = cache.getIfPresent(key);
+        if (cached != null) {
+            if (ticker.read() - cached.storedNanos() < cached.ttlNanos()) {
+                hits.increment();
+                return cached.toResponse(cacheConfig.getHeader(), HIT);
+            }
+            staleHits.increment();
+            revalidate(key, routeConfig, route);
+            return cached.toResponse(cacheConfig.getHeader(), STALE);
+        }
+
+        misses.increment();
+        var response = route.get();
+        store(key, routeConfig, response);
+        return response != null ? missed(response) : null;
+    }
+
+    /**
+     * Answers a request from the cache, or routes it without blocking and caches a successful response.
+     *
+     * @param context The attributes of the request
+     * @param route   Routes the request to a server when subscribed
+     * @return Mono emitting the cached or routed response, marked with the cache header unless
+     * the route is not cached
+     */
+    public Mono<ResponseEntity<String>> executeAsync(RoutingContext context,
+                                                     Supplier<Mono<ResponseEntity<String>>> route) {
+        var routeConfig = getRoute(context.getPath());
+        if (routeConfig == null) {
+            return Mono.defer(route);
+        }
+
+        return Mono.defer(() -> {
+            var key = RequestFingerprint.of("POST", context, cacheConfig.getKeyHeaders());
+            var cached = cache.getIfPresent(key);
+            if (cached != null) {
+                if (ticker.read() - cached.storedNanos() < cached.ttlNanos()) {
+                    hits.increment();
+                    return Mono.just(cached.toResponse(cacheConfig.getHeader(), HIT));
+                }
+                staleHits.increment();
+                revalidateAsync(key, routeConfig, route);
+                return Mono.just(cached.toResponse(cacheConfig.getHeader(), STALE));
+            }
+
+            misses.increment();
+            return route.get()
+                    .doOnNext(response -> store(key, routeConfig, response))
+                    .map(this::missed);
+        });
+    }
+
+    private ResponseEntity<String> missed(ResponseEntity<String> response) {
+        return ResponseEntity.status(response.getStatusCode())
+                .headers(response.getHeaders())
+                .header(cacheConfig.getHeader(), MISS)
+                .body(response.getBody());
+    }
+
+    /**
+     * Refreshes a stale entry in the background, unless it is already being refreshed.
+     */
+    private void revalidate(String key, RouteCacheConfig routeConfig, Supplier<ResponseEntity<String>> route) {
+        if (!revalidating.add(key)) {
+            return;
+        }
+
+        try {
+            revalidationExecutor.execute(() -> {
+                if (!admissionQueue.tryAcquireNow()) {
+                    log.debug("No admission slot free, leaving the cached response stale");
+                    revalidating.remove(key);
+                    return;
+                }
+                try {
+                    store(key, routeConfig, route.get());
+                    revalidations.increment();
+                } catch (RuntimeException e) {
+                    log.warn("Failed to revalidate cached response: {}", e.getMessage());
+                } finally {
+                    admissionQueue.release();
+                    revalidating.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            revalidating.remove(key);
+        }
+    }
+
+    /**
+     * Refreshes a stale entry by subscribing to the route, unless it is already being refreshed.
+     */
+    private void revalidateAsync(String key, RouteCacheConfig routeConfig,
+                                 Supplier<Mono<ResponseEntity<String>>> route) {
+        if (!revalidating.add(key)) {
+            return;
+        }
+        if (!admissionQueue.tryAcquireNow()) {
+            log.debug("No admission slot free, leaving the cached response stale");
+            revalidating.remove(key);
+            return;
+        }
+
+        Mono.defer(route)
+                .doFinally(signal -> {
+                    admissionQueue.release();
+                    revalidating.remove(key);
+                })
+                .subscribe(response -> {
+                    store(key, routeConfig, response);
+                    revalidations.increment();
+                }, e -> log.warn("Failed to revalidate cached response: {}", e.getMessage()));
+    }
+
+    private void store(String key, RouteCacheConfig routeConfig, ResponseEntity<String> response) {
+        if (response == null || !response.getStatusCode().is2xxSuccessful()) {
+            return;
+        }
+
+        var ttl = routeConfig.getTtl() != null ? routeConfig.getTtl() : cacheConfig.getTtl();
+        var stale = routeConfig.getStaleWhileRevalidate() != null
+                ? routeConfig.getStaleWhileRevalidate() : cacheConfig.getStaleWhileRevalidate();
+        if (ttl.isZero() || ttl.isNegative()) {
+            return;
+        }
+        cache.put(key, new CachedResponse(response.getStatusCode(), getCacheableHeaders(response.getHeaders()),
+                response.getBody(), ticker.read(), ttl.toNanos(), Math.max(stale.toNanos(), 0)));
+    }
+
+    /**
+     * Copies the headers that hold for every response served from the cache: drops the hop-by-hop
+     * headers, including those named in Connection, the headers describing this single response,
+     * and the coalescing and cache markers.
+     */
+    private HttpHeaders getCacheableHeaders(HttpHeaders headers) {
+        var connectionHeaders = headers.getConnection();
+        var cacheable = new HttpHeaders();
+        headers.forEach((name, values) -> {
+            var lowerCaseName = name.toLowerCase(Locale.ROOT);
+            if (!UNCACHED_HEADERS.contains(lowerCaseName)
+                    && !name.equalsIgnoreCase(coalescedHeader)
+                    && !name.equalsIgnoreCase(cacheConfig.getHeader())
+                    && connectionHeaders.stream().noneMatch(name::equalsIgnoreCase)) {
+                cacheable.addAll(name, values);
+            }
+        });
+        return HttpHeaders.readOnlyHttpHeaders(cacheable);
+    }
+
+    /**
+     * Gets the first cached route whose path prefix the given path matches.
+     */
+    private RouteCacheConfig getRoute(String path) {
+        if (!cacheConfig.isEnabled() || path == null) {
+            return null;
+        }
+        for (var route : cacheConfig.getRoutes()) {
+            if (route.getPath() != null && path.startsWith(route.getPath())) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Creates the executor of the background refreshes. With virtual threads every refresh gets
+     * its own virtual thread, the refreshes in flight are bounded by the keys being refreshed.
+     */
+    private static Executor createRevalidationExecutor(CacheConfig cacheConfig, Environment environment) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            var executor = new SimpleAsyncTaskExecutor("cache-revalidation-");
+            executor.setVirtualThreads(true);
+            return executor;
+        }
+        var threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(cacheConfig.getRevalidationThreads(), 1), runnable -> {
+            var thread = new Thread(runnable, "cache-revalidation-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Runs pending evictions, so the counters are up to date.
+     */
+    void cleanUp() {
+        cache.cleanUp();
+    }
+
+    /**
+     * Gets the number of cached responses.
+     *
+     * @return The estimated entry count
+     */
+    public long getEntryCount() {
+        return cache.estimatedSize();
+    }
+
+    /**
+     * Gets the approximate memory taken by the cached responses.
+     *
+     * @return The size in bytes
+     */
+    public long getSizeBytes() {
+        var eviction = cache.policy().eviction();
+        return eviction.isPresent() ? eviction.get().weightedSize().orElse(0) : 0;
+    }
+
+    /**
+     * Gets the number of requests answered with a fresh cached response.
+     *
+     * @return The hit count
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets the number of requests answered with a stale cached response while it was refreshed.
+     *
+     * @return The stale hit count
+     */
+    public long getStaleHits() {
+        return staleHits.sum();
+    }
+
+    /**
+     * Gets the number of cacheable requests routed to a server.
+     *
+     * @return The miss count
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Gets the number of responses evicted for size or after expiring.
+     *
+     * @return The eviction count
+     */
+    public long getEvictions() {
+        return cache.stats().evictionCount();
+    }
+
+    /**
+     * Gets the number of stale responses refreshed in the background.
+     *
+     * @return The revalidation count
+     */
+    public long getRevalidations() {
+        return revalidations.sum();
+    }
+
+    /**
+     * A cached response with the time it was stored.
+     *
+     * @param status      The status code
+     * @param headers     The response headers
+     * @param body        The response body
+     * @param storedNanos The time the response was stored, as a ticker value
+     * @param ttlNanos    The time the response is fresh
+     * @param staleNanos  The time after the TTL the response is served while it is refreshed
+     */
+    private record CachedResponse(HttpStatusCode status, HttpHeaders headers, String body, long storedNanos,
+                                  long ttlNanos, long staleNanos) {
+
+        ResponseEntity<String> toResponse(String headerName, String cacheStatus) {
+            return ResponseEntity.status(status).headers(headers).header(headerName, cacheStatus).body(body);
+        }
+
+        int weight(String key) {
+            var bytes = 2L * (key.length() + (body != null ? body.length() : 0)) + ENTRY_OVERHEAD;
+            return (int) Math.min(bytes, Integer.MAX_VALUE);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,109 @@
+package home.anita.server;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket that caps retries at a share of the routed requests.
+ * Every request deposits a fraction of a token and every retry withdraws a whole one,
+ * so retries stay below that fraction of the traffic however many requests fail and
+ * cannot multiply the load on servers that are already struggling. A small refill
+ * over time keeps retries possible while traffic is low.
+ * Deposits and withdrawals are lock-free.
+ */
+public class RetryBudget {
+
+    /**
+     * Balance units per token, so fractional deposits stay exact.
+     */
+    static final long TOKEN = 1000;
+
+    /**
+     * Number of retries saved up at most, so a long quiet period cannot fund a retry storm.
+     */
+    static final long MAX_TOKENS = 100;
+
+    private final long depositPerRequest;
+    private final double minRetriesPerSecond;
+    private final AtomicLong balance = new AtomicLong();
+    private final AtomicLong lastRefillNanos;
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * Creates a retry budget.
+     *
+     * @param budgetRatio         Retries allowed per routed request, for example 0.1 for 10%
+     * @param minRetriesPerSecond Retries allowed per second regardless of the traffic
+     * @param nowNanos            The current System.nanoTime() value
+     */
+    public RetryBudget(double budgetRatio, double minRetriesPerSecond, long nowNanos) {
+        this.depositPerRequest = Math.round(budgetRatio * TOKEN);
+        this.minRetriesPerSecond = minRetriesPerSecond;
+        this.lastRefillNanos = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * Deposits the share of a routed request.
+     */
+    public void onRequest() {
+        deposit(depositPerRequest);
+    }
+
+    /**
+     * Withdraws a token for a retry.
+     *
+     * @param nowNanos The current System.nanoTime() value
+     * @return true if the retry may be sent, false if the budget is spent
+     */
+    public boolean tryWithdraw(long nowNanos) {
+        refill(nowNanos);
+        while (true) {
+            var current = balance.get();
+            if (current < TOKEN) {
+                rejected.incrementAndGet();
+                return false;
+            }
+            if (balance.compareAndSet(current, current - TOKEN)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Gets the number of retries the budget can fund right now.
+     *
+     * @return The whole tokens in the bucket
+     */
+    public long getAvailableRetries() {
+        return balance.get() / TOKEN;
+    }
+
+    /**
+     * Gets the number of retries refused because the budget was spent.
+     *
+     * @return The rejected retry count
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    private void refill(long nowNanos) {
+        var last = lastRefillNanos.get();
+        var elapsedNanos = nowNanos - last;
+        var amount = (long) (minRetriesPerSecond * TOKEN * Math.min(elapsedNanos, TimeUnit.SECONDS.toNanos(1)) / 1e9);
+        // Only the thread that moves the refill time adds the refill
+        if (amount > 0 && lastRefillNanos.compareAndSet(last, nowNanos)) {
+            deposit(amount);
+        }
+    }
+
+    private void deposit(long amount) {
+        while (true) {
+            var current = balance.get();
+            var next = Math.min(current + amount, MAX_TOKENS * TOKEN);
+            if (next == current || balance.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+}
\ No newline at end of file
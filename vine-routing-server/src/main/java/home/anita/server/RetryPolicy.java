@@ -0,0 +1,108 @@
+package home.anita.server;
+
+import home.anita.RoutingConfig;
+import home.anita.RoutingConfig.RetryConfig;
+import io.netty.handler.timeout.ReadTimeoutException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.netty.http.client.PrematureCloseException;
+
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Decides whether a failed request is sent again to another server.
+ * Only failures that happen before a response starts are retried: refused or reset
+ * connections and timeouts waiting for the response. Retries are limited per request
+ * by the maximum number of attempts and across requests by a shared RetryBudget.
+ */
+@Component
+@Slf4j
+public class RetryPolicy {
+
+    private final RetryConfig retryConfig;
+    private final RetryBudget retryBudget;
+
+    public RetryPolicy(RoutingConfig routingConfig) {
+        this.retryConfig = routingConfig.getRetry();
+        this.retryBudget = new RetryBudget(retryConfig.getBudgetRatio(), retryConfig.getMinRetriesPerSecond(),
+                System.nanoTime());
+    }
+
+    /**
+     * Records a routed request, which adds to the retry budget.
+     */
+    public void onRequest() {
+        retryBudget.onRequest();
+    }
+
+    /**
+     * Gets the maximum number of attempts per request, including the first one.
+     *
+     * @return The maximum attempts, 1 if retries are disabled
+     */
+    public int getMaxAttempts() {
+        return retryConfig.isEnabled() ? Math.max(retryConfig.getMaxAttempts(), 1) : 1;
+    }
+
+    /**
+     * Checks whether the given failure happened before the server could respond.
+     *
+     * @param failure The exception thrown by the request
+     * @return true if the request may be sent again to another server
+     */
+    public boolean isRetryable(Throwable failure) {
+        for (var cause = failure; cause != null; cause = cause.getCause()) {
+            // ConnectException covers refused connections and connect timeouts,
+            // SocketException and PrematureCloseException connections reset before the response
+            if (cause instanceof ConnectException || cause instanceof SocketException
+                    || cause instanceof PrematureCloseException
+                    || cause instanceof TimeoutException || cause instanceof ReadTimeoutException) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Takes a retry from the shared budget.
+     *
+     * @return true if the retry may be sent, false if the budget is spent
+     */
+    public boolean tryAcquireRetry() {
+        var acquired = retryBudget.tryWithdraw(System.nanoTime());
+        if (!acquired) {
+            log.warn("Retry budget exhausted, {} retries refused so far", retryBudget.getRejected());
+        }
+        return acquired;
+    }
+
+    /**
+     * Gets the delay before the given retry, with full jitter: a random time up to the
+     * initial backoff doubled per earlier retry, capped at the maximum backoff.
+     *
+     * @param retry The retry number, starting at 1
+     * @return The delay in nanoseconds
+     */
+    public long getBackoffNanos(int retry) {
+        var initial = retryConfig.getInitialBackoff().toNanos();
+        var max = retryConfig.getMaxBackoff().toNanos();
+        var shift = Math.min(retry - 1, 30);
+        var ceiling = initial > max >> shift ? max : initial << shift;
+        return ceiling > 0 ? ThreadLocalRandom.current().nextLong(ceiling + 1) : 0;
+    }
+
+    /**
+     * Gets the shared retry budget.
+     *
+     * @return The RetryBudget
+     */
+    public RetryBudget getRetryBudget() {
+        return retryBudget;
+    }
+}
\ No newline at end of file
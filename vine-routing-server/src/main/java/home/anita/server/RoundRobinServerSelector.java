@@ -1,10 +1,9 @@
 package home.anita.server;
 
+import home.anita.RoutingConfig.PriorityConfig;
 import home.anita.RoutingConfig.ServerConfig;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.stereotype.Component;
 
-import java.util.ArrayList;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -13,49 +12,54 @@ import java.util.concurrent.atomic.AtomicInteger;
  * Distributes requests evenly across all available servers.
  * Health-aware implementation that only selects from healthy servers.
  */
-@Component
 @Slf4j
 public class RoundRobinServerSelector extends HealthAwareServerSelector {
 
     private final AtomicInteger counter = new AtomicInteger(0);
 
     public RoundRobinServerSelector(RandomServerSelector randomServerSelector,
-                                    HealthCheckService healthCheckService) {
-        super(randomServerSelector, healthCheckService);
+                                    HealthCheckService healthCheckService,
+                                    PriorityConfig priorityConfig) {
+        super(randomServerSelector, healthCheckService, priorityConfig);
     }
 
     /**
      * Selects a server using round-robin algorithm from healthy servers.
-     * Falls back to all servers if no healthy servers are available.
+     * Servers excluded for the request are skipped in turn.
+     * Uses all servers if the healthy share is below the panic threshold.
      *
      * @param servers The set of available servers to select from
+     * @param context The attributes of the request being routed, may be null
      * @return The selected server configuration
      * @throws IllegalArgumentException if the server set is null or empty
      */
     @Override
-    public ServerConfig select(Set<ServerConfig> servers) {
-        var healthyServers = getHealthyServers(servers);
-
-        Set<ServerConfig> serversToUse;
-        if (!healthyServers.isEmpty()) {
-            serversToUse = healthyServers;
-            log.debug("Using {} healthy servers out of {} total servers for round-robin selection",
-                    healthyServers.size(), servers.size());
-        } else {
-            serversToUse = servers;
-            log.warn("No healthy servers available, using all {} servers for round-robin selection",
+    public ServerConfig select(Set<ServerConfig> servers, RoutingContext context) {
+        var healthySnapshot = getHealthySnapshot(servers);
+        if (healthySnapshot.panic()) {
+            log.warn("Healthy share below panic threshold, using all {} servers for round-robin selection",
                     servers.size());
         }
 
-        // Convert to list for indexed access (needed for round-robin)
-        var serverList = new ArrayList<>(serversToUse);
+        // The snapshot is array-backed, so indexed access needs no copy
+        var serversToUse = healthySnapshot.candidates();
 
-        // Get next server using round-robin
-        var index = Math.abs(counter.getAndIncrement()) % serverList.size();
-        var selectedServer = serverList.get(index);
+        // Get next server using round-robin, skipping excluded servers
+        var size = serversToUse.size();
+        var index = Math.floorMod(counter.getAndIncrement(), size);
+        for (var offset = 0; offset < size; offset++) {
+            var candidate = (index + offset) % size;
+            if (!isExcluded(context, serversToUse.get(candidate))) {
+                index = candidate;
+                break;
+            }
+        }
+        var selectedServer = serversToUse.get(index);
 
-        log.debug("Round-robin selected server {}/{}: {}",
-                index + 1, serverList.size(), selectedServer.getUrl());
+        if (log.isDebugEnabled()) {
+            log.debug("Round-robin selected server {}/{}: {}",
+                    index + 1, serversToUse.size(), selectedServer.getUrl());
+        }
 
         return selectedServer;
     }
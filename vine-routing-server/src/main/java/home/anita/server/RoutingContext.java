@@ -0,0 +1,119 @@
+package home.anita.server;
+
+import home.anita.RoutingConfig.ServerConfig;
+import lombok.AccessLevel;
+import lombok.Getter;
+import org.springframework.http.HttpHeaders;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Attributes of an incoming request that server selectors can route on.
+ * Used by request-aware selectors such as ConsistentHashServerSelector.
+ * Also records the servers excluded for this request, for example a server
+ * that is still in its slow-start ramp, so a re-selection picks another server.
+ * A context belongs to a single request. Its exclusions can be updated from another
+ * thread while the request is in flight, such as the timer sending a hedge, so they
+ * are kept in a concurrent set.
+ */
+@Getter
+public class RoutingContext {
+
+    private final String path;
+    private final HttpHeaders headers;
+    private final String body;
+    private final String clientAddress;
+
+    @Getter(AccessLevel.NONE)
+    private volatile Set<ServerConfig> excludedServers;
+
+    /**
+     * Creates a routing context for an incoming request.
+     *
+     * @param path          The request path
+     * @param headers       The HTTP headers as received from the client
+     * @param body          The request body
+     * @param clientAddress The IP address of the client
+     */
+    public RoutingContext(String path, HttpHeaders headers, String body, String clientAddress) {
+        this.path = path;
+        this.headers = headers;
+        this.body = body;
+        this.clientAddress = clientAddress;
+    }
+
+    /**
+     * Creates a RoutingContext from the provided parameters.
+     *
+     * @param path          The request path
+     * @param headers       The HTTP headers as received from the client
+     * @param body          The request body
+     * @param clientAddress The IP address of the client
+     * @return A new RoutingContext instance
+     */
+    public static RoutingContext create(String path, HttpHeaders headers, String body, String clientAddress) {
+        return new RoutingContext(path, headers, body, clientAddress);
+    }
+
+    /**
+     * Excludes the given server from further selections for this request.
+     *
+     * @param server The server to exclude
+     */
+    public void exclude(ServerConfig server) {
+        var servers = excludedServers;
+        if (servers == null) {
+            synchronized (this) {
+                servers = excludedServers;
+                if (servers == null) {
+                    servers = ConcurrentHashMap.newKeySet();
+                    excludedServers = servers;
+                }
+            }
+        }
+        servers.add(server);
+    }
+
+    /**
+     * Checks if the given server was excluded for this request.
+     *
+     * @param server The server to check
+     * @return true if the server was excluded
+     */
+    public boolean isExcluded(ServerConfig server) {
+        var servers = excludedServers;
+        return servers != null && servers.contains(server);
+    }
+
+    /**
+     * Checks if any server was excluded for this request.
+     *
+     * @return true if at least one server was excluded
+     */
+    public boolean hasExclusions() {
+        var servers = excludedServers;
+        return servers != null && !servers.isEmpty();
+    }
+
+    /**
+     * Gets the servers excluded for this request.
+     *
+     * @return The excluded servers (unmodifiable)
+     */
+    public Set<ServerConfig> getExcludedServers() {
+        var servers = excludedServers;
+        return servers != null ? Set.copyOf(servers) : Set.of();
+    }
+
+    @Override
+    public String toString() {
+        var servers = excludedServers;
+        return String.format("RoutingContext{path='%s', clientAddress='%s', excluded=%d, hasHeaders=%s, hasBody=%s}",
+                path,
+                clientAddress,
+                servers != null ? servers.size() : 0,
+                headers != null && !headers.isEmpty(),
+                body != null && !body.isEmpty());
+    }
+}
\ No newline at end of file
@@ -1,16 +1,22 @@
 package home.anita.server;
 
+import lombok.AccessLevel;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 
 import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static home.anita.server.ServerHealth.Status.UNHEALTHY;
 
 /**
  * Model representing the health status of a server node.
+ * Besides the status set by active health checks, it holds the outlier detection state
+ * derived from live traffic: a server ejected as an outlier is left out of the published
+ * healthy set until the ejection expires, whatever its status.
  */
 @Getter
 @RequiredArgsConstructor
@@ -25,26 +31,220 @@ public class ServerHealth {
     @EqualsAndHashCode.Include
     private final String url;
     
-    private Status status = UNHEALTHY; // Default to unhealthy until proven otherwise
+    private volatile Status status = UNHEALTHY; // Default to unhealthy until proven otherwise
     private LocalDateTime lastChecked;
+    private LocalDateTime healthySince;
+
+    /**
+     * System.nanoTime() of the last recovery from UNHEALTHY to HEALTHY,
+     * or 0 if the server has not recovered since it was first checked.
+     */
+    private volatile long recoveredAtNanos;
     
     @Setter
     private String errorMessage;
 
+    /**
+     * System.nanoTime() until which the server is ejected from selection by outlier detection,
+     * or 0 if it is not ejected.
+     */
+    private volatile long ejectedUntilNanos;
+
+    /**
+     * Number of recent ejections, which doubles the length of every further ejection.
+     */
+    private volatile int ejectionCount;
+
+    /**
+     * System.nanoTime() of the last ejection or decay of the ejection count.
+     */
+    @Getter(AccessLevel.NONE)
+    private volatile long ejectionCountChangedNanos;
+
+    @Getter(AccessLevel.NONE)
+    private final AtomicInteger consecutive5xx = new AtomicInteger();
+
+    @Getter(AccessLevel.NONE)
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+    @Getter(AccessLevel.NONE)
+    private final AtomicLong latencyEwmaBits = new AtomicLong();
+
+    @Getter(AccessLevel.NONE)
+    private volatile Runnable statusChangeListener;
+
     /**
      * Sets the health status and updates the last checked timestamp.
      * Clears error message when status becomes healthy.
+     * Records the recovery time when a previously checked server becomes healthy again,
+     * which starts its slow-start ramp. The first check of a server is not a recovery.
+     * Notifies the status change listener if the status changed.
      * 
      * @param status The new health status
      */
     public void setStatus(Status status) {
-        this.status = status;
+        var previousStatus = this.status;
+        var previouslyChecked = this.lastChecked != null;
         this.lastChecked = LocalDateTime.now();
         if (status == Status.HEALTHY) {
             this.errorMessage = null; // Clear error message when healthy
+            if (previousStatus != Status.HEALTHY) {
+                this.healthySince = this.lastChecked;
+                this.recoveredAtNanos = previouslyChecked ? System.nanoTime() : 0;
+            }
+        } else {
+            this.healthySince = null;
+            this.recoveredAtNanos = 0;
+        }
+        this.status = status;
+
+        if (previousStatus != status) {
+            notifyStatusChange();
+        }
+    }
+
+    /**
+     * Records a 5xx response from the server.
+     *
+     * @return The number of consecutive 5xx responses including this one
+     */
+    public int record5xx() {
+        return consecutive5xx.incrementAndGet();
+    }
+
+    /**
+     * Records a request to the server failing without a response.
+     *
+     * @return The number of consecutive failures including this one
+     */
+    public int recordFailure() {
+        return consecutiveFailures.incrementAndGet();
+    }
+
+    /**
+     * Records a response that is not a 5xx, which ends any run of errors.
+     */
+    public void recordSuccess() {
+        // Skip the writes in the common case so healthy traffic does not contend on the counters
+        if (consecutive5xx.get() != 0) {
+            consecutive5xx.set(0);
+        }
+        if (consecutiveFailures.get() != 0) {
+            consecutiveFailures.set(0);
+        }
+    }
+
+    /**
+     * Folds a response latency into the exponentially weighted moving average of the server.
+     * Lock-free, the average is kept as the bits of a double.
+     *
+     * @param latencyNanos The observed latency in nanoseconds
+     * @param alpha        The weight of the new sample, between 0 and 1
+     */
+    public void recordLatency(long latencyNanos, double alpha) {
+        while (true) {
+            var bits = latencyEwmaBits.get();
+            var current = Double.longBitsToDouble(bits);
+            var next = current == 0 ? latencyNanos : current + alpha * (latencyNanos - current);
+            if (latencyEwmaBits.compareAndSet(bits, Double.doubleToRawLongBits(next))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Gets the moving average of the response latency.
+     *
+     * @return The average latency in nanoseconds, or 0 if no latency was recorded since the last ejection
+     */
+    public double getLatencyEwmaNanos() {
+        return Double.longBitsToDouble(latencyEwmaBits.get());
+    }
+
+    /**
+     * Ejects the server from selection until the given time and resets its error counters
+     * and latency average, so it is judged on fresh results once it returns.
+     *
+     * @param untilNanos The System.nanoTime() value at which the ejection expires
+     * @param nowNanos   The current System.nanoTime() value
+     */
+    void eject(long untilNanos, long nowNanos) {
+        consecutive5xx.set(0);
+        consecutiveFailures.set(0);
+        latencyEwmaBits.set(0);
+        ejectionCount++;
+        ejectionCountChangedNanos = nowNanos;
+        ejectedUntilNanos = untilNanos;
+        notifyStatusChange();
+    }
+
+    /**
+     * Returns the server to selection if its ejection has expired.
+     *
+     * @param nowNanos The current System.nanoTime() value
+     * @return true if the server was ejected and has now returned
+     */
+    boolean unejectIfExpired(long nowNanos) {
+        var until = ejectedUntilNanos;
+        if (until == 0 || nowNanos - until < 0) {
+            return false;
+        }
+        ejectedUntilNanos = 0;
+        ejectionCountChangedNanos = nowNanos;
+        notifyStatusChange();
+        return true;
+    }
+
+    /**
+     * Lowers the ejection count of a server that is not ejected once per period since the
+     * count last changed, so a server that stays well behaved is ejected for shorter periods again.
+     *
+     * @param nowNanos    The current System.nanoTime() value
+     * @param periodNanos The time without ejection after which the count is lowered by one
+     */
+    void decayEjectionCount(long nowNanos, long periodNanos) {
+        if (ejectedUntilNanos == 0 && ejectionCount > 0
+                && nowNanos - ejectionCountChangedNanos >= periodNanos) {
+            ejectionCount--;
+            ejectionCountChangedNanos = nowNanos;
+        }
+    }
+
+    /**
+     * Checks if the server is ejected from selection by outlier detection.
+     *
+     * @return true if the server is ejected
+     */
+    public boolean isEjected() {
+        return ejectedUntilNanos != 0;
+    }
+
+    /**
+     * Checks if the server can receive traffic: healthy and not ejected.
+     *
+     * @return true if the server is available for selection
+     */
+    public boolean isAvailable() {
+        return status == Status.HEALTHY && ejectedUntilNanos == 0;
+    }
+
+    private void notifyStatusChange() {
+        var listener = statusChangeListener;
+        if (listener != null) {
+            listener.run();
         }
     }
 
+    /**
+     * Registers the listener notified whenever the status or the ejection changes.
+     * Used by ServerHealthMap to republish its healthy server set.
+     *
+     * @param listener The listener to notify, replacing any previous one
+     */
+    void setStatusChangeListener(Runnable listener) {
+        this.statusChangeListener = listener;
+    }
+
     /**
      * Checks if the server is currently healthy.
      * 
@@ -65,7 +265,7 @@ public class ServerHealth {
 
     @Override
     public String toString() {
-        return String.format("ServerHealth{url='%s', status=%s, lastChecked=%s, errorMessage='%s'}",
-                url, status, lastChecked, errorMessage);
+        return String.format("ServerHealth{url='%s', status=%s, ejected=%s, lastChecked=%s, healthySince=%s, errorMessage='%s'}",
+                url, status, isEjected(), lastChecked, healthySince, errorMessage);
     }
 }
\ No newline at end of file
@@ -12,12 +12,16 @@ import java.util.stream.Collectors;
  * Model class that manages the collection of server health statuses.
  * Encapsulates server health storage and provides operations for 
  * querying and manipulating server health data.
+ * The set of healthy servers is kept as an immutable snapshot that is
+ * republished only when a server is added, changes status or is ejected,
+ * so reading it on every routed request does not allocate.
  */
 @Component
 @Slf4j
 public class ServerHealthMap {
 
     private final Map<String, ServerHealth> serverMap = new ConcurrentHashMap<>();
+    private volatile Set<String> healthyServers = Set.of();
 
     /**
      * Adds or updates a server health entry in the health map.
@@ -27,6 +31,8 @@ public class ServerHealthMap {
      */
     public void addServer(String url, ServerHealth health) {
         serverMap.put(url, health);
+        health.setStatusChangeListener(this::publishHealthyServers);
+        publishHealthyServers();
         log.debug("Added server to health map: {}", url);
     }
 
@@ -50,15 +56,14 @@ public class ServerHealthMap {
     }
 
     /**
-     * Gets all healthy servers.
+     * Gets all healthy servers that are not ejected by outlier detection.
+     * The returned set is replaced, not modified, when health changes,
+     * so callers can detect changes by comparing references.
      * 
-     * @return Set of healthy server URLs
+     * @return Set of healthy server URLs (immutable snapshot)
      */
     public Set<String> getHealthyServers() {
-        return serverMap.entrySet().stream()
-                .filter(entry -> entry.getValue().isHealthy())
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toSet());
+        return healthyServers;
     }
 
     /**
@@ -148,6 +153,22 @@ public class ServerHealthMap {
      */
     public void clear() {
         serverMap.clear();
+        publishHealthyServers();
         log.debug("Cleared all servers from health map");
     }
+
+    /**
+     * Recomputes the healthy server snapshot and publishes it if it changed.
+     * Synchronized so concurrent status changes cannot publish a stale set last.
+     */
+    private synchronized void publishHealthyServers() {
+        var current = serverMap.entrySet().stream()
+                .filter(entry -> entry.getValue().isAvailable())
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toUnmodifiableSet());
+        if (!current.equals(healthyServers)) {
+            healthyServers = current;
+            log.debug("Published {} healthy servers", current.size());
+        }
+    }
 }
\ No newline at end of file
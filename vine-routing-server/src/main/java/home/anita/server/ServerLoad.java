@@ -0,0 +1,128 @@
+package home.anita.server;
+
+import lombok.Getter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Model representing the live load of a single server node.
+ * All counters are updated lock-free so they can be touched on every routed request.
+ */
+public class ServerLoad {
+
+    /**
+     * Cost reported for a server that has requests in flight but no latency sample yet,
+     * so that a server whose first request hangs does not keep attracting traffic.
+     */
+    static final double UNMEASURED_PENALTY = Double.MAX_VALUE / 2;
+
+    @Getter
+    private final String url;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicReference<LatencyEstimate> latency = new AtomicReference<>(LatencyEstimate.EMPTY);
+
+    public ServerLoad(String url) {
+        this.url = url;
+    }
+
+    /**
+     * Records a request being dispatched to this server.
+     *
+     * @return The number of in-flight requests including the new one
+     */
+    public int incrementInFlight() {
+        return inFlight.incrementAndGet();
+    }
+
+    /**
+     * Records a request to this server completing, successfully or not.
+     *
+     * @return The number of in-flight requests after the completion
+     */
+    public int decrementInFlight() {
+        return inFlight.decrementAndGet();
+    }
+
+    /**
+     * Gets the number of requests currently dispatched to this server and not yet completed.
+     *
+     * @return The in-flight request count
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Folds a latency sample into the peak-sensitive EWMA of this server.
+     * A sample above the current estimate replaces it immediately, lower samples
+     * pull the estimate down with a weight that decays over the given decay time.
+     *
+     * @param latencyNanos The observed latency in nanoseconds
+     * @param nowNanos     The current System.nanoTime() value
+     * @param decayNanos   The decay time constant in nanoseconds
+     */
+    public void recordLatency(long latencyNanos, long nowNanos, long decayNanos) {
+        latency.updateAndGet(current -> current.observe(latencyNanos, nowNanos, decayNanos));
+    }
+
+    /**
+     * Gets the latency estimate decayed to the given point in time.
+     *
+     * @param nowNanos   The current System.nanoTime() value
+     * @param decayNanos The decay time constant in nanoseconds
+     * @return The estimated latency in nanoseconds, or 0 if no sample was recorded yet
+     */
+    public double getLatencyEstimate(long nowNanos, long decayNanos) {
+        return latency.get().decayedCost(nowNanos, decayNanos);
+    }
+
+    /**
+     * Gets the peak-EWMA cost of sending one more request to this server,
+     * which is the latency estimate scaled by the number of in-flight requests.
+     *
+     * @param nowNanos   The current System.nanoTime() value
+     * @param decayNanos The decay time constant in nanoseconds
+     * @return The cost score, lower is better
+     */
+    public double getPeakEwmaCost(long nowNanos, long decayNanos) {
+        var pending = inFlight.get();
+        var estimate = getLatencyEstimate(nowNanos, decayNanos);
+        if (estimate == 0) {
+            return pending == 0 ? 0 : UNMEASURED_PENALTY;
+        }
+        return estimate * (pending + 1);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ServerLoad{url='%s', inFlight=%d, latencyEwmaMs=%.1f}",
+                url, inFlight.get(), latency.get().cost() / 1_000_000.0);
+    }
+
+    /**
+     * Immutable latency estimate, replaced atomically on every sample.
+     */
+    private record LatencyEstimate(double cost, long stamp) {
+
+        static final LatencyEstimate EMPTY = new LatencyEstimate(0, 0);
+
+        LatencyEstimate observe(long latencyNanos, long nowNanos, long decayNanos) {
+            if (latencyNanos > cost || this == EMPTY) {
+                return new LatencyEstimate(latencyNanos, nowNanos);
+            }
+            var weight = decayWeight(nowNanos, decayNanos);
+            return new LatencyEstimate(cost * weight + latencyNanos * (1 - weight), nowNanos);
+        }
+
+        double decayedCost(long nowNanos, long decayNanos) {
+            return this == EMPTY ? 0 : cost * decayWeight(nowNanos, decayNanos);
+        }
+
+        private double decayWeight(long nowNanos, long decayNanos) {
+            var elapsed = Math.max(nowNanos - stamp, 0);
+            return Math.exp(-(double) elapsed / decayNanos);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,132 @@
+package home.anita.server;
+
+import home.anita.RoutingConfig;
+import home.anita.RoutingConfig.ServerConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks the live load of every server that requests are routed to.
+ * RoutingService reports each dispatch and completion, and load-aware
+ * selectors read the counters and latency estimates when picking a server.
+ */
+@Component
+@Slf4j
+public class ServerLoadTracker {
+
+    /**
+     * Minimum latency recorded for a request that failed without a response,
+     * so that a server failing fast does not look like the fastest server.
+     */
+    static final long FAILURE_LATENCY_PENALTY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Map<String, ServerLoad> loadMap = new ConcurrentHashMap<>();
+    private final RoutingConfig routingConfig;
+
+    public ServerLoadTracker(RoutingConfig routingConfig) {
+        this.routingConfig = routingConfig;
+    }
+
+    /**
+     * Records a request being dispatched to the given server.
+     *
+     * @param server The server the request is sent to
+     */
+    public void onDispatch(ServerConfig server) {
+        var inFlight = getLoad(server).incrementInFlight();
+        log.debug("Dispatched request to {}, in-flight: {}", server.getUrl(), inFlight);
+    }
+
+    /**
+     * Records a response from the given server, including HTTP error responses.
+     *
+     * @param server       The server the request was sent to
+     * @param latencyNanos The time taken by the server to respond
+     */
+    public void onComplete(ServerConfig server, long latencyNanos) {
+        var load = getLoad(server);
+        var inFlight = load.decrementInFlight();
+        load.recordLatency(latencyNanos, System.nanoTime(), getDecayNanos());
+        log.debug("Completed request to {} in {}ms, in-flight: {}",
+                server.getUrl(), TimeUnit.NANOSECONDS.toMillis(latencyNanos), inFlight);
+    }
+
+    /**
+     * Records a request to the given server failing without a response.
+     * The latency sample is raised to a penalty so the failure counts as a slow response.
+     *
+     * @param server       The server the request was sent to
+     * @param latencyNanos The time until the failure was detected
+     */
+    public void onFailure(ServerConfig server, long latencyNanos) {
+        var load = getLoad(server);
+        var inFlight = load.decrementInFlight();
+        load.recordLatency(Math.max(latencyNanos, FAILURE_LATENCY_PENALTY_NANOS), System.nanoTime(), getDecayNanos());
+        log.debug("Failed request to {}, in-flight: {}", server.getUrl(), inFlight);
+    }
+
+    /**
+     * Records a request to the given server being cancelled before it completed,
+     * for example the losing copy of a hedged request. No latency is recorded,
+     * since the request was cut short.
+     *
+     * @param server The server the request was sent to
+     */
+    public void onCancel(ServerConfig server) {
+        var inFlight = getLoad(server).decrementInFlight();
+        log.debug("Cancelled request to {}, in-flight: {}", server.getUrl(), inFlight);
+    }
+
+    /**
+     * Gets the number of in-flight requests for the given server.
+     *
+     * @param server The server to look up
+     * @return The in-flight request count, or 0 if nothing was dispatched to it yet
+     */
+    public int getInFlight(ServerConfig server) {
+        var load = loadMap.get(server.getUrl());
+        return load != null ? load.getInFlight() : 0;
+    }
+
+    /**
+     * Gets the peak-EWMA cost score for the given server.
+     *
+     * @param server The server to look up
+     * @return The cost score, or 0 if nothing was dispatched to it yet
+     */
+    public double getPeakEwmaCost(ServerConfig server) {
+        var load = loadMap.get(server.getUrl());
+        return load != null ? load.getPeakEwmaCost(System.nanoTime(), getDecayNanos()) : 0;
+    }
+
+    /**
+     * Gets the load entry for the given server, creating it on first use.
+     *
+     * @param server The server to look up
+     * @return The ServerLoad for the server
+     */
+    public ServerLoad getLoad(ServerConfig server) {
+        var load = loadMap.get(server.getUrl());
+        if (load != null) {
+            return load;
+        }
+        return loadMap.computeIfAbsent(server.getUrl(), ServerLoad::new);
+    }
+
+    /**
+     * Gets the load entries of all servers seen so far.
+     *
+     * @return Map of server URL to ServerLoad (defensive copy)
+     */
+    public Map<String, ServerLoad> getAllLoads() {
+        return new ConcurrentHashMap<>(loadMap);
+    }
+
+    private long getDecayNanos() {
+        return routingConfig.getLatencyDecayTime().toNanos();
+    }
+}
\ No newline at end of file
@@ -18,4 +18,18 @@ public interface ServerSelector {
      * @throws IllegalArgumentException if the server set is null or empty
      */
     ServerConfig select(Set<ServerConfig> servers);
+
+    /**
+     * Selects a server for the given request from the set of available servers.
+     * Request-aware strategies override this method, the default ignores the request.
+     *
+     * @param servers The set of available servers to select from
+     * @param context The attributes of the request being routed
+     * @return The selected server configuration, or null if a strategy that caps the load of
+     * its servers finds every server at its cap
+     * @throws IllegalArgumentException if the server set is null or empty
+     */
+    default ServerConfig select(Set<ServerConfig> servers, RoutingContext context) {
+        return select(servers);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,85 @@
+package home.anita.server;
+
+import home.anita.RoutingConfig.ServerConfig;
+
+import java.util.Set;
+
+/**
+ * Immutable, array-backed snapshot of a set of servers.
+ * Gives selectors O(1) indexed access without copying the set on every request.
+ */
+public final class ServerSnapshot {
+
+    private static final ServerConfig[] NO_SERVERS = new ServerConfig[0];
+
+    private final Set<ServerConfig> servers;
+    private final ServerConfig[] serverArray;
+
+    private ServerSnapshot(Set<ServerConfig> servers) {
+        this.servers = Set.copyOf(servers);
+        this.serverArray = this.servers.toArray(NO_SERVERS);
+    }
+
+    /**
+     * Creates a snapshot of the given servers.
+     *
+     * @param servers The servers to capture
+     * @return A new ServerSnapshot instance
+     */
+    public static ServerSnapshot of(Set<ServerConfig> servers) {
+        return new ServerSnapshot(servers);
+    }
+
+    /**
+     * Gets the server at the given index.
+     *
+     * @param index The index, between 0 and size() - 1
+     * @return The server at the index
+     */
+    public ServerConfig get(int index) {
+        return serverArray[index];
+    }
+
+    /**
+     * Gets the number of servers in the snapshot.
+     *
+     * @return The server count
+     */
+    public int size() {
+        return serverArray.length;
+    }
+
+    /**
+     * Checks if the snapshot is empty.
+     *
+     * @return true if the snapshot holds no servers
+     */
+    public boolean isEmpty() {
+        return serverArray.length == 0;
+    }
+
+    /**
+     * Checks if the snapshot holds exactly the given servers.
+     * Used to detect when a cached snapshot has to be rebuilt.
+     *
+     * @param otherServers The servers to compare with
+     * @return true if both contain the same servers
+     */
+    public boolean hasSameServers(Set<ServerConfig> otherServers) {
+        return servers.equals(otherServers);
+    }
+
+    /**
+     * Gets the servers of the snapshot as an unmodifiable set.
+     *
+     * @return The servers in the snapshot
+     */
+    public Set<ServerConfig> asSet() {
+        return servers;
+    }
+
+    @Override
+    public String toString() {
+        return "ServerSnapshot{servers=" + servers + "}";
+    }
+}
\ No newline at end of file
@@ -0,0 +1,89 @@
+package home.anita.server;
+
+import home.anita.RoutingConfig;
+import home.anita.RoutingConfig.ServerConfig;
+import home.anita.RoutingConfig.SlowStartConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Ramps up the traffic of servers that recovered from UNHEALTHY, so a restarted
+ * server with cold caches and connection pools is not hit with a full share at once.
+ * The effective weight of a recovered server grows from the configured minimum to 1
+ * over the slow-start window. RoutingService turns a selected server away with
+ * probability 1 - weight and selects again, which works with every server selector.
+ */
+@Component
+@Slf4j
+public class SlowStartPolicy {
+
+    private final SlowStartConfig slowStartConfig;
+    private final HealthCheckService healthCheckService;
+
+    public SlowStartPolicy(RoutingConfig routingConfig, HealthCheckService healthCheckService) {
+        this.slowStartConfig = routingConfig.getSlowStart();
+        this.healthCheckService = healthCheckService;
+    }
+
+    /**
+     * Gets the effective weight of the given server at the current time.
+     *
+     * @param server The server to look up
+     * @return The weight between the minimum weight and 1, or 1 if the server is not ramping up
+     */
+    public double getWeight(ServerConfig server) {
+        var health = healthCheckService.getServerHealth(server.getUrl());
+        if (health == null || !health.isHealthy()) {
+            return 1;
+        }
+        return getWeight(health.getRecoveredAtNanos(), System.nanoTime());
+    }
+
+    /**
+     * Checks if a request selected for the given server should be sent elsewhere
+     * because the server is still ramping up.
+     *
+     * @param server The selected server
+     * @return true if the request should be routed to another server
+     */
+    public boolean isThrottled(ServerConfig server) {
+        var weight = getWeight(server);
+        if (weight >= 1) {
+            return false;
+        }
+
+        var throttled = ThreadLocalRandom.current().nextDouble() >= weight;
+        if (throttled && log.isDebugEnabled()) {
+            log.debug("Slow start turned away request for {} at weight {}", server.getUrl(), weight);
+        }
+        return throttled;
+    }
+
+    /**
+     * Gets the weight for a server that recovered at the given time.
+     *
+     * @param recoveredAtNanos The System.nanoTime() of the recovery, or 0 if the server did not recover
+     * @param nowNanos         The current System.nanoTime() value
+     * @return The weight between the minimum weight and 1
+     */
+    double getWeight(long recoveredAtNanos, long nowNanos) {
+        var windowNanos = slowStartConfig.getWindow().toNanos();
+        if (windowNanos <= 0 || recoveredAtNanos == 0) {
+            return 1;
+        }
+
+        var progress = (double) (nowNanos - recoveredAtNanos) / windowNanos;
+        if (progress >= 1) {
+            return 1;
+        }
+
+        var minWeight = Math.min(Math.max(slowStartConfig.getMinWeight(), 0.01), 1);
+        var weight = switch (slowStartConfig.getCurve()) {
+            case LINEAR -> minWeight + (1 - minWeight) * progress;
+            case EXPONENTIAL -> minWeight * Math.pow(1 / minWeight, progress);
+        };
+        return Math.min(Math.max(weight, minWeight), 1);
+    }
+}
\ No newline at end of file
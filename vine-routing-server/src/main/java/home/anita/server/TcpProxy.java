@@ -0,0 +1,649 @@
+package home.anita.server;
+
+import home.anita.RoutingConfig;
+import home.anita.RoutingConfig.ServerConfig;
+import home.anita.RoutingConfig.TcpConfig;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Layer-4 passthrough of TCP connections. When enabled, vine accepts TCP connections on a
+ * port of their own and forwards the bytes of each, unparsed, to a server picked by the
+ * ServerSelector, so a route needing none of the HTTP features pays no parsing or copying
+ * of headers and bodies. The server is picked once per connection; a server with an open
+ * circuit or refusing the connection is excluded and another one is picked, and connect
+ * failures count for the circuit breaker and outlier detection. An open connection counts
+ * as a request in flight to its server. Servers are selected and connected on a small pool of
+ * connect threads, virtual when virtual threads are enabled. The bytes are then copied by a
+ * single selector thread over non-blocking channels, through a pooled direct buffer per
+ * direction, so an open connection holds no thread and the bytes never enter the Java heap.
+ */
+@Component
+@Slf4j
+public class TcpProxy {
+
+    private final RoutingConfig routingConfig;
+    private final TcpConfig tcpConfig;
+    private final ServerSelector serverSelector;
+    private final ServerLoadTracker serverLoadTracker;
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final OutlierDetector outlierDetector;
+    private final Executor executor;
+
+    private final Map<Long, TcpConnection> openConnections = new ConcurrentHashMap<>();
+    private final Deque<TcpConnection> recentConnections = new ArrayDeque<>();
+    private final Queue<TcpConnection> registrations = new ConcurrentLinkedQueue<>();
+    private final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idleBuffers = new AtomicInteger();
+    private final AtomicInteger open = new AtomicInteger();
+    private final AtomicLong connectionIds = new AtomicLong();
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong refused = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong bytesFromClients = new AtomicLong();
+    private final AtomicLong bytesFromServers = new AtomicLong();
+    private volatile ServerSocketChannel serverChannel;
+    private volatile Selector selector;
+
+    @Autowired
+    public TcpProxy(RoutingConfig routingConfig, ServerSelector serverSelector, ServerLoadTracker serverLoadTracker,
+                    CircuitBreakerRegistry circuitBreakerRegistry, OutlierDetector outlierDetector,
+                    Environment environment) {
+        this(routingConfig, serverSelector, serverLoadTracker, circuitBreakerRegistry, outlierDetector,
+                createExecutor(routingConfig.getTcp(), environment));
+    }
+
+    TcpProxy(RoutingConfig routingConfig, ServerSelector serverSelector, ServerLoadTracker serverLoadTracker,
+             CircuitBreakerRegistry circuitBreakerRegistry, OutlierDetector outlierDetector, Executor executor) {
+        this.routingConfig = routingConfig;
+        this.tcpConfig = routingConfig.getTcp();
+        this.serverSelector = serverSelector;
+        this.serverLoadTracker = serverLoadTracker;
+        this.circuitBreakerRegistry = circuitBreakerRegistry;
+        this.outlierDetector = outlierDetector;
+        this.executor = executor;
+    }
+
+    /**
+     * Opens the passthrough port and starts accepting connections, if the passthrough is enabled.
+     *
+     * @throws IOException if the port cannot be bound
+     */
+    @PostConstruct
+    public void start() throws IOException {
+        if (!tcpConfig.isEnabled()) {
+            return;
+        }
+
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(tcpConfig.getPort()));
+        var forwarder = new Thread(this::forward, "tcp-forward");
+        forwarder.setDaemon(true);
+        forwarder.start();
+        var acceptor = new Thread(this::accept, "tcp-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        log.info("TCP passthrough listening on port {}", getPort());
+    }
+
+    /**
+     * Closes the passthrough port and every forwarded connection.
+     */
+    @PreDestroy
+    public void stop() {
+        closeQuietly(serverChannel);
+        closeQuietly(selector);
+        openConnections.values().forEach(connection -> {
+            closeQuietly(connection.client);
+            closeQuietly(connection.server);
+        });
+        if (executor instanceof ExecutorService executorService) {
+            executorService.shutdown();
+        }
+    }
+
+    /**
+     * Gets the port the passthrough listens on.
+     *
+     * @return The bound port, or -1 if the passthrough is not running
+     */
+    public int getPort() {
+        var channel = serverChannel;
+        if (channel == null || !channel.isOpen()) {
+            return -1;
+        }
+        try {
+            return ((InetSocketAddress) channel.getLocalAddress()).getPort();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Gets the metrics of the open connections and of the most recently closed ones.
+     *
+     * @return The connections, newest first
+     */
+    public List<ConnectionStats> getConnections() {
+        var connections = new ArrayList<ConnectionStats>();
+        openConnections.values().forEach(connection -> connections.add(connection.getStats()));
+        synchronized (recentConnections) {
+            recentConnections.forEach(connection -> connections.add(connection.getStats()));
+        }
+        connections.sort(Comparator.comparingLong(ConnectionStats::id).reversed());
+        return connections;
+    }
+
+    /**
+     * Gets the number of connections being forwarded.
+     *
+     * @return The open count
+     */
+    public int getOpenConnections() {
+        return open.get();
+    }
+
+    /**
+     * Gets the number of connections accepted.
+     *
+     * @return The accepted count
+     */
+    public long getAccepted() {
+        return accepted.get();
+    }
+
+    /**
+     * Gets the number of connections closed for exceeding max-connections.
+     *
+     * @return The refused count
+     */
+    public long getRefused() {
+        return refused.get();
+    }
+
+    /**
+     * Gets the number of connections no server accepted.
+     *
+     * @return The failed count
+     */
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * Gets the bytes forwarded from clients to servers.
+     *
+     * @return The byte count
+     */
+    public long getBytesFromClients() {
+        return bytesFromClients.get();
+    }
+
+    /**
+     * Gets the bytes forwarded from servers to clients.
+     *
+     * @return The byte count
+     */
+    public long getBytesFromServers() {
+        return bytesFromServers.get();
+    }
+
+    /**
+     * Accepts connections until the passthrough port is closed, refusing those beyond
+     * max-connections.
+     */
+    private void accept() {
+        while (serverChannel.isOpen()) {
+            SocketChannel client;
+            try {
+                client = serverChannel.accept();
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                log.warn("Failed to accept TCP connection: {}", e.getMessage());
+                continue;
+            }
+
+            if (open.incrementAndGet() > tcpConfig.getMaxConnections()) {
+                open.decrementAndGet();
+                refused.incrementAndGet();
+                closeQuietly(client);
+                continue;
+            }
+            accepted.incrementAndGet();
+            try {
+                executor.execute(() -> handle(client));
+            } catch (RuntimeException e) {
+                log.warn("Failed to start forwarding TCP connection: {}", e.getMessage());
+                open.decrementAndGet();
+                refused.incrementAndGet();
+                closeQuietly(client);
+            }
+        }
+    }
+
+    /**
+     * Connects a client to a server and hands both connections to the selector thread.
+     */
+    private void handle(SocketChannel client) {
+        var clientAddress = getClientAddress(client);
+        var forwarding = false;
+        try {
+            var context = RoutingContext.create(null, new HttpHeaders(), null, clientAddress);
+            var selected = connect(context);
+            if (selected == null) {
+                failed.incrementAndGet();
+                log.warn("No server accepted the TCP connection from {}", clientAddress);
+                return;
+            }
+            var server = selected.server();
+            var connection = new TcpConnection(connectionIds.incrementAndGet(), clientAddress, server,
+                    client, selected.channel(), acquireBuffer(), acquireBuffer());
+            openConnections.put(connection.id, connection);
+            serverLoadTracker.onDispatch(server);
+            registrations.offer(connection);
+            selector.wakeup();
+            forwarding = true;
+        } catch (RuntimeException e) {
+            failed.incrementAndGet();
+            log.warn("Failed to forward TCP connection from {}: {}", clientAddress, e.getMessage());
+        } finally {
+            if (!forwarding) {
+                closeQuietly(client);
+                open.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Selects servers until one accepts the connection, at most once per server.
+     *
+     * @return The server and the connection to it, or null if no server accepted it
+     */
+    private SelectedServer connect(RoutingContext context) {
+        var servers = routingConfig.getServers();
+        if (servers == null || servers.isEmpty()) {
+            return null;
+        }
+
+        for (var attempt = 0; attempt < servers.size(); attempt++) {
+            ServerConfig server;
+            try {
+                server = serverSelector.select(servers, context);
+            } catch (NoHealthyServerException e) {
+                return null;
+            }
+            if (server == null) {
+                return null;
+            }
+            if (!context.isExcluded(server) && circuitBreakerRegistry.tryAcquirePermission(server)) {
+                var channel = connect(server);
+                if (channel != null) {
+                    return new SelectedServer(server, channel);
+                }
+            }
+            context.exclude(server);
+        }
+        return null;
+    }
+
+    /**
+     * Opens a connection to the host and port of the server URL within its connect timeout.
+     *
+     * @return The connection, or null if the server refused it or did not answer in time
+     */
+    private SocketChannel connect(ServerConfig server) {
+        var startNanos = System.nanoTime();
+        SocketChannel channel = null;
+        try {
+            var uri = URI.create(server.getUrl());
+            var port = uri.getPort() != -1 ? uri.getPort() : "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+            var connectTimeout = server.getConnectTimeout() != null
+                    ? server.getConnectTimeout() : routingConfig.getTimeout().getConnect();
+            channel = SocketChannel.open();
+            channel.socket().connect(new InetSocketAddress(uri.getHost(), port), toTimeoutMillis(connectTimeout));
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            circuitBreakerRegistry.onResult(server, System.nanoTime() - startNanos, false);
+            outlierDetector.onConnectSuccess(server);
+            return channel;
+        } catch (IOException | IllegalArgumentException e) {
+            closeQuietly(channel);
+            circuitBreakerRegistry.onResult(server, System.nanoTime() - startNanos, true);
+            outlierDetector.onFailure(server);
+            log.warn("Failed to open TCP connection to {}: {}", server.getUrl(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Copies the bytes of every connection both ways on the selector thread until the
+     * passthrough is stopped.
+     */
+    private void forward() {
+        while (selector.isOpen()) {
+            try {
+                selector.select();
+                TcpConnection connection;
+                while ((connection = registrations.poll()) != null) {
+                    register(connection);
+                }
+                var selectedKeys = selector.selectedKeys();
+                for (var key : selectedKeys) {
+                    // The key is cancelled if the other side of its connection failed in this round
+                    if (key.isValid()) {
+                        transfer((TcpConnection) key.attachment());
+                    }
+                }
+                selectedKeys.clear();
+            } catch (ClosedSelectorException e) {
+                return;
+            } catch (IOException e) {
+                log.warn("Failed to select TCP connections: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void register(TcpConnection connection) {
+        try {
+            connection.client.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            connection.client.configureBlocking(false);
+            connection.server.configureBlocking(false);
+            connection.clientKey = connection.client.register(selector, SelectionKey.OP_READ, connection);
+            connection.serverKey = connection.server.register(selector, SelectionKey.OP_READ, connection);
+        } catch (IOException e) {
+            log.warn("Failed to configure TCP connection from {}: {}", connection.clientAddress, e.getMessage());
+            finish(connection);
+        }
+    }
+
+    /**
+     * Moves what it can of both directions of a connection without blocking, then waits for
+     * the channels that can take or give more. The connection is finished once both sides
+     * are done sending; a failure on either side aborts both.
+     */
+    private void transfer(TcpConnection connection) {
+        try {
+            connection.fromClient.transfer(bytesFromClients);
+            connection.fromServer.transfer(bytesFromServers);
+            if (connection.fromClient.shutdown && connection.fromServer.shutdown) {
+                finish(connection);
+                return;
+            }
+            connection.clientKey.interestOps(getInterestOps(connection.fromClient, connection.fromServer));
+            connection.serverKey.interestOps(getInterestOps(connection.fromServer, connection.fromClient));
+        } catch (IOException e) {
+            finish(connection);
+        }
+    }
+
+    /**
+     * Gets the events to wait for on a channel: readable while its outgoing buffer has room,
+     * writable while its incoming buffer holds bytes not yet written.
+     */
+    private static int getInterestOps(Direction outgoing, Direction incoming) {
+        var ops = 0;
+        if (!outgoing.eof && outgoing.buffer.hasRemaining()) {
+            ops |= SelectionKey.OP_READ;
+        }
+        if (incoming.buffer.position() > 0) {
+            ops |= SelectionKey.OP_WRITE;
+        }
+        return ops;
+    }
+
+    /**
+     * Closes both sides of a connection, returns its buffers and records it.
+     */
+    private void finish(TcpConnection connection) {
+        if (connection.finished) {
+            return;
+        }
+        connection.finished = true;
+        if (connection.clientKey != null) {
+            connection.clientKey.cancel();
+        }
+        if (connection.serverKey != null) {
+            connection.serverKey.cancel();
+        }
+        closeQuietly(connection.client);
+        closeQuietly(connection.server);
+        releaseBuffer(connection.fromClient.buffer);
+        releaseBuffer(connection.fromServer.buffer);
+        // The duration of a connection says nothing of the server's response time
+        serverLoadTracker.onCancel(connection.serverConfig);
+        close(connection);
+        open.decrementAndGet();
+    }
+
+    private void close(TcpConnection connection) {
+        connection.endNanos = System.nanoTime();
+        openConnections.remove(connection.id);
+        synchronized (recentConnections) {
+            recentConnections.addFirst(connection);
+            while (recentConnections.size() > tcpConfig.getRecentConnections()) {
+                recentConnections.removeLast();
+            }
+        }
+        var stats = connection.getStats();
+        log.debug("TCP connection from {} to {} closed after {}ms, {} bytes in, {} bytes out",
+                stats.clientAddress(), stats.serverUrl(), stats.durationMs(), stats.bytesFromClient(),
+                stats.bytesFromServer());
+    }
+
+    private ByteBuffer acquireBuffer() {
+        var buffer = buffers.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect((int) tcpConfig.getBufferSize().toBytes());
+        }
+        idleBuffers.decrementAndGet();
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer to the pool, or leaves it to the garbage collector once the pool
+     * holds idle-buffers buffers.
+     */
+    private void releaseBuffer(ByteBuffer buffer) {
+        if (idleBuffers.incrementAndGet() > tcpConfig.getIdleBuffers()) {
+            idleBuffers.decrementAndGet();
+            return;
+        }
+        buffer.clear();
+        buffers.offer(buffer);
+    }
+
+    /**
+     * Gets the number of buffers kept for reuse.
+     */
+    int getIdleBuffers() {
+        return idleBuffers.get();
+    }
+
+    private static String getClientAddress(SocketChannel client) {
+        try {
+            return client.getRemoteAddress() instanceof InetSocketAddress address
+                    ? address.getAddress().getHostAddress() : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static int toTimeoutMillis(Duration timeout) {
+        return timeout != null ? (int) Math.min(timeout.toMillis(), Integer.MAX_VALUE) : 0;
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            log.debug("Failed to close TCP channel: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Creates the executor connecting accepted connections to servers: at most connect-threads
+     * platform threads, with further connections waiting in line. With virtual threads every
+     * connection gets its own virtual thread.
+     */
+    private static Executor createExecutor(TcpConfig tcpConfig, Environment environment) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            var executor = new SimpleAsyncTaskExecutor("tcp-connect-");
+            executor.setVirtualThreads(true);
+            return executor;
+        }
+        var threadCount = new AtomicInteger();
+        var threads = Math.max(tcpConfig.getConnectThreads(), 1);
+        var executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    var thread = new Thread(runnable, "tcp-connect-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Metrics of a single forwarded connection.
+     *
+     * @param id              The sequence number of the connection
+     * @param clientAddress   The IP address of the client
+     * @param serverUrl       The URL of the server the connection is forwarded to
+     * @param startedAt       The time the server connection was opened
+     * @param open            Whether bytes are still forwarded
+     * @param durationMs      The time the connection was open, up to now if it still is
+     * @param bytesFromClient The bytes forwarded from the client to the server
+     * @param bytesFromServer The bytes forwarded from the server to the client
+     */
+    public record ConnectionStats(long id, String clientAddress, String serverUrl, LocalDateTime startedAt,
+                                  boolean open, long durationMs, long bytesFromClient, long bytesFromServer) {
+    }
+
+    private record SelectedServer(ServerConfig server, SocketChannel channel) {
+    }
+
+    /**
+     * A connection forwarded from a client to a server. Apart from the stats it is only used by
+     * the selector thread once registered.
+     */
+    private static final class TcpConnection {
+
+        private final long id;
+        private final String clientAddress;
+        private final ServerConfig serverConfig;
+        private final String serverUrl;
+        private final SocketChannel client;
+        private final SocketChannel server;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final long startNanos = System.nanoTime();
+        private final AtomicLong bytesFromClient = new AtomicLong();
+        private final AtomicLong bytesFromServer = new AtomicLong();
+        private final Direction fromClient;
+        private final Direction fromServer;
+        private SelectionKey clientKey;
+        private SelectionKey serverKey;
+        private boolean finished;
+        private volatile long endNanos;
+
+        TcpConnection(long id, String clientAddress, ServerConfig serverConfig, SocketChannel client,
+                      SocketChannel server, ByteBuffer clientBuffer, ByteBuffer serverBuffer) {
+            this.id = id;
+            this.clientAddress = clientAddress;
+            this.serverConfig = serverConfig;
+            this.serverUrl = serverConfig.getUrl();
+            this.client = client;
+            this.server = server;
+            this.fromClient = new Direction(client, server, clientBuffer, bytesFromClient);
+            this.fromServer = new Direction(server, client, serverBuffer, bytesFromServer);
+        }
+
+        ConnectionStats getStats() {
+            var end = endNanos;
+            var open = end == 0;
+            return new ConnectionStats(id, clientAddress, serverUrl, startedAt, open,
+                    TimeUnit.NANOSECONDS.toMillis((open ? System.nanoTime() : end) - startNanos),
+                    bytesFromClient.get(), bytesFromServer.get());
+        }
+    }
+
+    /**
+     * One direction of a connection: bytes read from the source wait in the buffer until the
+     * target takes them. Once the source is done and the buffer is empty, the target's write
+     * half is closed so the other direction can still finish.
+     */
+    private static final class Direction {
+
+        private final SocketChannel source;
+        private final SocketChannel target;
+        private final ByteBuffer buffer;
+        private final AtomicLong bytes;
+        private boolean eof;
+        private boolean shutdown;
+
+        Direction(SocketChannel source, SocketChannel target, ByteBuffer buffer, AtomicLong bytes) {
+            this.source = source;
+            this.target = target;
+            this.buffer = buffer;
+            this.bytes = bytes;
+        }
+
+        void transfer(AtomicLong totalBytes) throws IOException {
+            if (!eof && buffer.hasRemaining() && source.read(buffer) < 0) {
+                eof = true;
+            }
+            if (buffer.position() > 0) {
+                buffer.flip();
+                var written = target.write(buffer);
+                buffer.compact();
+                bytes.addAndGet(written);
+                totalBytes.addAndGet(written);
+            }
+            if (eof && !shutdown && buffer.position() == 0) {
+                target.shutdownOutput();
+                shutdown = true;
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,173 @@
+package home.anita.server;
+
+import home.anita.RoutingConfig;
+import home.anita.RoutingConfig.RouteTimeoutConfig;
+import home.anita.RoutingConfig.ServerConfig;
+import home.anita.RoutingConfig.TimeoutConfig;
+import home.anita.http.RequestTimeouts;
+import io.netty.channel.ConnectTimeoutException;
+import io.netty.handler.timeout.ReadTimeoutException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Resolves the timeouts of routed requests and keeps their deadline.
+ * A request gets a deadline when it arrives: the total timeout of its route, or the deadline
+ * it arrived with in the deadline header if that is earlier. Every attempt on a server is
+ * bounded by the timeouts of its route, falling back to those of the server and then to the
+ * defaults, with the total timeout cut to the time left until the deadline. The deadline of
+ * the attempt is forwarded in the deadline header so the server can stop working on a request
+ * whose response nobody will read. The header carries the milliseconds left until the deadline
+ * rather than a point in time, so the clocks of the client, the router and the server need not
+ * agree; deadlines are kept as System.nanoTime() values from the moment the header is read.
+ */
+@Component
+@Slf4j
+public class TimeoutPolicy {
+
+    private final TimeoutConfig timeoutConfig;
+
+    public TimeoutPolicy(RoutingConfig routingConfig) {
+        this.timeoutConfig = routingConfig.getTimeout();
+    }
+
+    /**
+     * Gets the deadline of an incoming request.
+     *
+     * @param context The attributes of the request
+     * @return The deadline as a System.nanoTime() value
+     */
+    public long getDeadlineNanos(RoutingContext context) {
+        return getDeadlineNanos(context, System.nanoTime());
+    }
+
+    long getDeadlineNanos(RoutingContext context, long nowNanos) {
+        var route = getRoute(context.getPath());
+        var total = route != null && route.getTotal() != null ? route.getTotal() : timeoutConfig.getTotal();
+        var deadlineNanos = nowNanos + total.toNanos();
+
+        var headers = context.getHeaders();
+        var incoming = headers != null ? headers.getFirst(timeoutConfig.getDeadlineHeader()) : null;
+        if (incoming == null) {
+            return deadlineNanos;
+        }
+        try {
+            // A negative time left is clamped to now, which keeps the nanoTime arithmetic from overflowing
+            var remainingNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(Long.parseLong(incoming.trim())), 0);
+            return remainingNanos < deadlineNanos - nowNanos ? nowNanos + remainingNanos : deadlineNanos;
+        } catch (NumberFormatException e) {
+            log.debug("Ignoring invalid {} header: {}", timeoutConfig.getDeadlineHeader(), incoming);
+            return deadlineNanos;
+        }
+    }
+
+    /**
+     * Checks whether the given deadline has passed.
+     *
+     * @param deadlineNanos The deadline as a System.nanoTime() value
+     * @return true if no time is left until the deadline
+     */
+    public boolean isExpired(long deadlineNanos) {
+        return deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * Gets the timeouts of an attempt on the given server.
+     *
+     * @param server        The server the attempt is sent to
+     * @param path          The request path
+     * @param deadlineNanos The deadline of the request as a System.nanoTime() value
+     * @return The timeouts, with the total timeout cut to the time left until the deadline
+     */
+    public RequestTimeouts getTimeouts(ServerConfig server, String path, long deadlineNanos) {
+        return getTimeouts(server, path, deadlineNanos, System.nanoTime());
+    }
+
+    RequestTimeouts getTimeouts(ServerConfig server, String path, long deadlineNanos, long nowNanos) {
+        var route = getRoute(path);
+        var firstByte = resolve(route != null ? route.getFirstByte() : null, server.getFirstByteTimeout(),
+                timeoutConfig.getFirstByte());
+        var total = resolve(route != null ? route.getTotal() : null, server.getTotalTimeout(),
+                timeoutConfig.getTotal());
+
+        var remainingNanos = Math.max(deadlineNanos - nowNanos, 0);
+        if (remainingNanos < total.toNanos()) {
+            total = Duration.ofNanos(remainingNanos);
+        }
+        return new RequestTimeouts(firstByte, total);
+    }
+
+    /**
+     * Sets the deadline of an attempt, which ends with its total timeout, in the forwarded headers
+     * as the milliseconds left until it.
+     *
+     * @param headers  The headers forwarded to the server
+     * @param timeouts The timeouts of the attempt
+     */
+    public void setDeadlineHeader(HttpHeaders headers, RequestTimeouts timeouts) {
+        if (headers == null || timeouts == null || timeouts.total() == null) {
+            return;
+        }
+        headers.set(timeoutConfig.getDeadlineHeader(), String.valueOf(timeouts.total().toMillis()));
+    }
+
+    /**
+     * Checks whether a response is a 504 the server answered because the forwarded deadline
+     * passed, which says nothing about the health of the server.
+     *
+     * @param statusCode The HTTP status code of the response
+     * @param headers    The headers of the response, may be null
+     * @return true if the response carries the deadline-expired header
+     */
+    public boolean isDeadlineExpired(int statusCode, HttpHeaders headers) {
+        return statusCode == HttpStatus.GATEWAY_TIMEOUT.value() && headers != null
+                && "true".equalsIgnoreCase(headers.getFirst(timeoutConfig.getDeadlineExpiredHeader()));
+    }
+
+    /**
+     * Checks whether the given failure is a connect, first-byte or total timeout.
+     *
+     * @param failure The exception thrown by the request
+     * @return true if the request timed out
+     */
+    public boolean isTimeout(Throwable failure) {
+        for (var cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TimeoutException || cause instanceof ReadTimeoutException
+                    || cause instanceof ConnectTimeoutException) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the first route timeout configuration whose path prefix the given path matches.
+     */
+    private RouteTimeoutConfig getRoute(String path) {
+        if (path == null) {
+            return null;
+        }
+        for (var route : timeoutConfig.getRoutes()) {
+            if (route.getPath() != null && path.startsWith(route.getPath())) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    private static Duration resolve(Duration routeTimeout, Duration serverTimeout, Duration defaultTimeout) {
+        if (routeTimeout != null) {
+            return routeTimeout;
+        }
+        return serverTimeout != null ? serverTimeout : defaultTimeout;
+    }
+}
\ No newline at end of file
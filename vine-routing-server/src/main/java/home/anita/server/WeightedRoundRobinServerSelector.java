@@ -0,0 +1,189 @@
+package home.anita.server;
+
+import home.anita.RoutingConfig.PriorityConfig;
+import home.anita.RoutingConfig.ServerConfig;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Server selector that implements smooth weighted round-robin, as used by nginx.
+ * Servers receive traffic in proportion to their configured weight, and picks of
+ * heavier servers are interleaved with lighter ones instead of sent in bursts.
+ * The interleaved schedule is computed once per healthy set, so each pick is a
+ * counter increment and an array lookup.
+ * Health-aware implementation that only selects from healthy servers.
+ */
+@Slf4j
+public class WeightedRoundRobinServerSelector extends HealthAwareServerSelector {
+
+    /**
+     * Number of schedules kept at most, one per priority tier that receives traffic.
+     */
+    private static final int MAX_CACHED_SCHEDULES = 4;
+
+    private final ServerLoadTracker serverLoadTracker;
+    private final AtomicInteger counter = new AtomicInteger(0);
+    private final AtomicInteger scheduleBuilds = new AtomicInteger(0);
+
+    /**
+     * Schedules kept per candidate snapshot, most recent first. Holds more than one
+     * schedule while traffic spills over between priority tiers.
+     */
+    private volatile Schedule[] schedules = new Schedule[0];
+
+    public WeightedRoundRobinServerSelector(RandomServerSelector randomServerSelector,
+                                            HealthCheckService healthCheckService,
+                                            PriorityConfig priorityConfig,
+                                            ServerLoadTracker serverLoadTracker) {
+        super(randomServerSelector, healthCheckService, priorityConfig);
+        this.serverLoadTracker = serverLoadTracker;
+    }
+
+    /**
+     * Selects the next server of the smooth weighted round-robin schedule.
+     * Servers that reached their maxConnections limit or were excluded for the request
+     * are skipped. Once every server was excluded the scheduled server is returned, so the
+     * caller can move on to another priority tier.
+     * Uses all servers if the healthy share is below the panic threshold.
+     *
+     * @param servers The set of available servers to select from
+     * @param context The attributes of the request being routed, may be null
+     * @return The selected server configuration, or null if every server that is not excluded
+     * reached its maxConnections limit
+     * @throws IllegalArgumentException if the server set is null or empty
+     */
+    @Override
+    public ServerConfig select(Set<ServerConfig> servers, RoutingContext context) {
+        var healthySnapshot = getHealthySnapshot(servers);
+        if (healthySnapshot.panic()) {
+            log.warn("Healthy share below panic threshold, using all {} servers for weighted round-robin selection",
+                    servers.size());
+        }
+
+        var sequence = getSchedule(healthySnapshot.candidates()).sequence;
+        var start = Math.floorMod(counter.getAndIncrement(), sequence.length);
+
+        var saturated = false;
+        for (var offset = 0; offset < sequence.length; offset++) {
+            var candidate = sequence[(start + offset) % sequence.length];
+            if (isExcluded(context, candidate)) {
+                continue;
+            }
+            if (!hasCapacity(candidate)) {
+                saturated = true;
+                continue;
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("Weighted round-robin selected server {}", candidate.getUrl());
+            }
+            return candidate;
+        }
+
+        if (saturated) {
+            log.debug("Every server is at its maxConnections limit");
+            return null;
+        }
+        return sequence[start];
+    }
+
+    /**
+     * Resets the round-robin counter.
+     * Useful for testing or when server list changes significantly.
+     */
+    public void resetCounter() {
+        counter.set(0);
+        log.debug("Weighted round-robin counter reset");
+    }
+
+    /**
+     * Gets the number of times the schedule was recomputed, for monitoring purposes.
+     */
+    public int getScheduleBuilds() {
+        return scheduleBuilds.get();
+    }
+
+    private boolean hasCapacity(ServerConfig server) {
+        var maxConnections = server.getMaxConnections();
+        return maxConnections == null || serverLoadTracker.getInFlight(server) < maxConnections;
+    }
+
+    /**
+     * Gets the schedule for the given servers, recomputing it only when no schedule was
+     * computed for the snapshot yet.
+     */
+    private Schedule getSchedule(ServerSnapshot serversToUse) {
+        var currentSchedules = schedules;
+        for (var currentSchedule : currentSchedules) {
+            if (currentSchedule.snapshot == serversToUse) {
+                return currentSchedule;
+            }
+        }
+
+        var newSchedule = Schedule.build(serversToUse);
+        var kept = Math.min(currentSchedules.length, MAX_CACHED_SCHEDULES - 1);
+        var newSchedules = new Schedule[kept + 1];
+        newSchedules[0] = newSchedule;
+        System.arraycopy(currentSchedules, 0, newSchedules, 1, kept);
+        schedules = newSchedules;
+        scheduleBuilds.incrementAndGet();
+        log.info("Recomputed weighted round-robin schedule of length {} for {} servers",
+                newSchedule.sequence.length, newSchedule.snapshot.size());
+        return newSchedule;
+    }
+
+    /**
+     * Precomputed smooth weighted round-robin order for a fixed server set.
+     */
+    private static final class Schedule {
+
+        private final ServerSnapshot snapshot;
+        private final ServerConfig[] sequence;
+
+        private Schedule(ServerSnapshot snapshot, ServerConfig[] sequence) {
+            this.snapshot = snapshot;
+            this.sequence = sequence;
+        }
+
+        /**
+         * Runs the nginx smooth weighted round-robin algorithm for one full cycle:
+         * every step adds each server's weight to its current weight, picks the
+         * server with the highest current weight and subtracts the total weight from it.
+         */
+        static Schedule build(ServerSnapshot snapshot) {
+            var size = snapshot.size();
+            var weights = new int[size];
+            var divisor = 0;
+            for (var i = 0; i < size; i++) {
+                weights[i] = snapshot.get(i).getWeight();
+                divisor = gcd(divisor, weights[i]);
+            }
+
+            var totalWeight = 0;
+            for (var i = 0; i < size; i++) {
+                weights[i] /= divisor;
+                totalWeight += weights[i];
+            }
+
+            var sequence = new ServerConfig[totalWeight];
+            var currentWeights = new int[size];
+            for (var step = 0; step < totalWeight; step++) {
+                var best = 0;
+                for (var i = 0; i < size; i++) {
+                    currentWeights[i] += weights[i];
+                    if (currentWeights[i] > currentWeights[best]) {
+                        best = i;
+                    }
+                }
+                currentWeights[best] -= totalWeight;
+                sequence[step] = snapshot.get(best);
+            }
+            return new Schedule(snapshot, sequence);
+        }
+
+        private static int gcd(int a, int b) {
+            return b == 0 ? a : gcd(b, a % b);
+        }
+    }
+}
\ No newline at end of file
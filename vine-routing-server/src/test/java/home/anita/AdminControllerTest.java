@@ -0,0 +1,308 @@
+package home.anita;
+
+import home.anita.RoutingConfig.CircuitBreakerConfig;
+import home.anita.RoutingConfig.ConcurrencyLimitConfig;
+import home.anita.http.ConnectionPools;
+import home.anita.server.AdmissionQueue;
+import home.anita.server.CircuitBreaker;
+import home.anita.server.CircuitBreakerRegistry;
+import home.anita.server.ConcurrencyLimit;
+import home.anita.server.ConcurrencyLimiter;
+import home.anita.server.HealthCheckService;
+import home.anita.server.IdempotencyStore;
+import home.anita.server.RateLimiter;
+import home.anita.server.RequestCoalescer;
+import home.anita.server.ResponseCache;
+import home.anita.server.ServerHealth;
+import home.anita.server.ServerLoadTracker;
+import home.anita.server.SlowStartPolicy;
+import home.anita.server.TcpProxy;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(AdminController.class)
+class AdminControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private RoutingConfig routingConfig;
+
+    @MockBean
+    private HealthCheckService healthCheckService;
+
+    @MockBean
+    private ServerLoadTracker serverLoadTracker;
+
+    @MockBean
+    private SlowStartPolicy slowStartPolicy;
+
+    @MockBean
+    private ConcurrencyLimiter concurrencyLimiter;
+
+    @MockBean
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    @MockBean
+    private AdmissionQueue admissionQueue;
+
+    @MockBean
+    private RateLimiter rateLimiter;
+
+    @MockBean
+    private RequestCoalescer requestCoalescer;
+
+    @MockBean
+    private ResponseCache responseCache;
+
+    @MockBean
+    private IdempotencyStore idempotencyStore;
+
+    @MockBean
+    private ConnectionPools connectionPools;
+
+    @MockBean
+    private TcpProxy tcpProxy;
+
+    @Test
+    void testGetServers() throws Exception {
+        RoutingConfig.ServerConfig server1 = createServer("http://localhost:9001");
+        RoutingConfig.ServerConfig server2 = createServer("http://localhost:9002");
+        server2.setPriority(1);
+        Set<RoutingConfig.ServerConfig> servers = new LinkedHashSet<>();
+        servers.add(server2);
+        servers.add(server1);
+        when(routingConfig.getServers()).thenReturn(servers);
+
+        ServerHealth health1 = new ServerHealth("http://localhost:9001");
+        health1.setStatus(ServerHealth.Status.HEALTHY);
+        when(healthCheckService.getServerHealth("http://localhost:9001")).thenReturn(health1);
+        when(slowStartPolicy.getWeight(any())).thenReturn(1.0);
+        when(serverLoadTracker.getInFlight(server1)).thenReturn(3);
+
+        mockMvc.perform(get("/admin/servers"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].url").value("http://localhost:9001"))
+                .andExpect(jsonPath("$[0].status").value("HEALTHY"))
+                .andExpect(jsonPath("$[0].slowStartWeight").value(1.0))
+                .andExpect(jsonPath("$[0].inFlight").value(3))
+                .andExpect(jsonPath("$[0].priority").value(0))
+                .andExpect(jsonPath("$[0].ejected").value(false))
+                .andExpect(jsonPath("$[1].url").value("http://localhost:9002"))
+                .andExpect(jsonPath("$[1].status").value("UNKNOWN"))
+                .andExpect(jsonPath("$[1].priority").value(1));
+    }
+
+    @Test
+    void testGetServersWithoutConfiguredServers() throws Exception {
+        when(routingConfig.getServers()).thenReturn(null);
+
+        mockMvc.perform(get("/admin/servers"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+    }
+
+    @Test
+    void testGetLimits() throws Exception {
+        RoutingConfig.ServerConfig server1 = createServer("http://localhost:9001");
+        RoutingConfig.ServerConfig server2 = createServer("http://localhost:9002");
+        Set<RoutingConfig.ServerConfig> servers = new LinkedHashSet<>();
+        servers.add(server2);
+        servers.add(server1);
+        when(routingConfig.getServers()).thenReturn(servers);
+
+        ConcurrencyLimit limit1 = new ConcurrencyLimit(server1.getUrl(), new ConcurrencyLimitConfig());
+        limit1.tryAcquire();
+        when(concurrencyLimiter.getLimit(server1)).thenReturn(limit1);
+        when(concurrencyLimiter.getLimit(server2)).thenReturn(new ConcurrencyLimit(server2.getUrl(), new ConcurrencyLimitConfig()));
+
+        mockMvc.perform(get("/admin/limits"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].url").value("http://localhost:9001"))
+                .andExpect(jsonPath("$[0].limit").value(20))
+                .andExpect(jsonPath("$[0].inFlight").value(1))
+                .andExpect(jsonPath("$[1].url").value("http://localhost:9002"))
+                .andExpect(jsonPath("$[1].inFlight").value(0));
+    }
+
+    @Test
+    void testGetCircuits() throws Exception {
+        RoutingConfig.ServerConfig server1 = createServer("http://localhost:9001");
+        RoutingConfig.ServerConfig server2 = createServer("http://localhost:9002");
+        Set<RoutingConfig.ServerConfig> servers = new LinkedHashSet<>();
+        servers.add(server2);
+        servers.add(server1);
+        when(routingConfig.getServers()).thenReturn(servers);
+
+        CircuitBreakerConfig config = new CircuitBreakerConfig();
+        config.setMinimumCalls(1);
+        CircuitBreaker circuit1 = new CircuitBreaker(server1.getUrl(), config);
+        circuit1.onResult(1_000_000L, true, System.nanoTime());
+        when(circuitBreakerRegistry.getCircuitBreaker(server1)).thenReturn(circuit1);
+        when(circuitBreakerRegistry.getCircuitBreaker(server2)).thenReturn(new CircuitBreaker(server2.getUrl(), config));
+
+        mockMvc.perform(get("/admin/circuits"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].url").value("http://localhost:9001"))
+                .andExpect(jsonPath("$[0].state").value("OPEN"))
+                .andExpect(jsonPath("$[1].url").value("http://localhost:9002"))
+                .andExpect(jsonPath("$[1].state").value("CLOSED"))
+                .andExpect(jsonPath("$[1].calls").value(0));
+    }
+
+    @Test
+    void testGetAdmission() throws Exception {
+        when(admissionQueue.getInFlight()).thenReturn(100);
+        when(admissionQueue.getQueueDepth()).thenReturn(7);
+        when(admissionQueue.isOverloaded()).thenReturn(true);
+        when(admissionQueue.getDropped()).thenReturn(12L);
+        when(admissionQueue.getSojournPercentileMillis(99)).thenReturn(4.5);
+
+        mockMvc.perform(get("/admin/admission"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.inFlight").value(100))
+                .andExpect(jsonPath("$.queueDepth").value(7))
+                .andExpect(jsonPath("$.overloaded").value(true))
+                .andExpect(jsonPath("$.dropped").value(12))
+                .andExpect(jsonPath("$.sojournP99Ms").value(4.5));
+    }
+
+    @Test
+    void testGetRateLimit() throws Exception {
+        when(rateLimiter.isEnabled()).thenReturn(true);
+        when(rateLimiter.getClientCount()).thenReturn(3);
+        when(rateLimiter.getLimited()).thenReturn(42L);
+
+        mockMvc.perform(get("/admin/rate-limit"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.enabled").value(true))
+                .andExpect(jsonPath("$.clients").value(3))
+                .andExpect(jsonPath("$.limited").value(42));
+    }
+
+    @Test
+    void testGetCoalescing() throws Exception {
+        when(requestCoalescer.getInFlight()).thenReturn(2);
+        when(requestCoalescer.getLeaders()).thenReturn(10L);
+        when(requestCoalescer.getCoalesced()).thenReturn(90L);
+
+        mockMvc.perform(get("/admin/coalescing"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.inFlight").value(2))
+                .andExpect(jsonPath("$.leaders").value(10))
+                .andExpect(jsonPath("$.coalesced").value(90))
+                .andExpect(jsonPath("$.bypassed").value(0));
+    }
+
+    @Test
+    void testGetCache() throws Exception {
+        when(responseCache.getEntryCount()).thenReturn(3L);
+        when(responseCache.getSizeBytes()).thenReturn(2048L);
+        when(responseCache.getHits()).thenReturn(40L);
+        when(responseCache.getMisses()).thenReturn(5L);
+        when(responseCache.getEvictions()).thenReturn(2L);
+
+        mockMvc.perform(get("/admin/cache"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.entries").value(3))
+                .andExpect(jsonPath("$.sizeBytes").value(2048))
+                .andExpect(jsonPath("$.hits").value(40))
+                .andExpect(jsonPath("$.misses").value(5))
+                .andExpect(jsonPath("$.evictions").value(2));
+    }
+
+    @Test
+    void testGetIdempotency() throws Exception {
+        when(idempotencyStore.getStored()).thenReturn(7L);
+        when(idempotencyStore.getReplayed()).thenReturn(3L);
+        when(idempotencyStore.getConflicts()).thenReturn(1L);
+        when(idempotencyStore.getAllocatedBytes()).thenReturn(1024L);
+
+        mockMvc.perform(get("/admin/idempotency"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.stored").value(7))
+                .andExpect(jsonPath("$.replayed").value(3))
+                .andExpect(jsonPath("$.conflicts").value(1))
+                .andExpect(jsonPath("$.allocatedBytes").value(1024));
+    }
+
+    @Test
+    void testGetPools() throws Exception {
+        RoutingConfig.ServerConfig server1 = createServer("http://localhost:9001");
+        RoutingConfig.ServerConfig server2 = createServer("http://localhost:9002");
+        Set<RoutingConfig.ServerConfig> servers = new LinkedHashSet<>();
+        servers.add(server2);
+        servers.add(server1);
+        when(routingConfig.getServers()).thenReturn(servers);
+        when(connectionPools.getStats(server1.getUrl()))
+                .thenReturn(new ConnectionPools.PoolStats(3, 2, 1, 500, 40, 1, 0.1, 2.5));
+        when(connectionPools.getStats(server2.getUrl()))
+                .thenReturn(new ConnectionPools.PoolStats(0, 0, 0, 500, 0, 0, -1, -1));
+
+        mockMvc.perform(get("/admin/pools"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].url").value("http://localhost:9001"))
+                .andExpect(jsonPath("$[0].active").value(3))
+                .andExpect(jsonPath("$[0].idle").value(2))
+                .andExpect(jsonPath("$[0].pending").value(1))
+                .andExpect(jsonPath("$[0].failedAcquires").value(1))
+                .andExpect(jsonPath("$[0].acquireP99Ms").value(2.5))
+                .andExpect(jsonPath("$[1].url").value("http://localhost:9002"))
+                .andExpect(jsonPath("$[1].acquired").value(0));
+    }
+
+    @Test
+    void testGetTcp() throws Exception {
+        RoutingConfig.TcpConfig tcpConfig = new RoutingConfig.TcpConfig();
+        tcpConfig.setEnabled(true);
+        when(routingConfig.getTcp()).thenReturn(tcpConfig);
+        when(tcpProxy.getPort()).thenReturn(8091);
+        when(tcpProxy.getOpenConnections()).thenReturn(1);
+        when(tcpProxy.getAccepted()).thenReturn(2L);
+        when(tcpProxy.getBytesFromClients()).thenReturn(300L);
+        when(tcpProxy.getBytesFromServers()).thenReturn(700L);
+        when(tcpProxy.getConnections()).thenReturn(List.of(
+                new TcpProxy.ConnectionStats(2, "127.0.0.1", "http://localhost:9002", LocalDateTime.now(), true, 50,
+                        100, 200),
+                new TcpProxy.ConnectionStats(1, "127.0.0.1", "http://localhost:9001", LocalDateTime.now(), false, 120,
+                        200, 500)));
+
+        mockMvc.perform(get("/admin/tcp"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.enabled").value(true))
+                .andExpect(jsonPath("$.port").value(8091))
+                .andExpect(jsonPath("$.open").value(1))
+                .andExpect(jsonPath("$.accepted").value(2))
+                .andExpect(jsonPath("$.bytesFromClients").value(300))
+                .andExpect(jsonPath("$.bytesFromServers").value(700))
+                .andExpect(jsonPath("$.connections.length()").value(2))
+                .andExpect(jsonPath("$.connections[0].serverUrl").value("http://localhost:9002"))
+                .andExpect(jsonPath("$.connections[0].open").value(true))
+                .andExpect(jsonPath("$.connections[1].durationMs").value(120))
+                .andExpect(jsonPath("$.connections[1].bytesFromServer").value(500));
+    }
+
+    private RoutingConfig.ServerConfig createServer(String url) {
+        RoutingConfig.ServerConfig server = new RoutingConfig.ServerConfig();
+        server.setUrl(url);
+        return server;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,168 @@
+package home.anita;
+
+import io.netty.handler.codec.http2.Http2StreamChannel;
+import io.netty.util.AttributeKey;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Benchmark of HTTP/1.1 keep-alive connections to the servers against h2c multiplexing. The
+ * backend accepts both protocols, like grape with --h2c=true, and answers after 50ms. vine runs
+ * in reactive mode so its own threads do not bound the concurrency, and the same load is sent
+ * in both modes. For each mode the connections the backend accepted, the most open at once and
+ * the p99 latency are reported.
+ * Runs only with VINE_BENCHMARK=true:
+ * <pre>VINE_BENCHMARK=true ./gradlew test --tests home.anita.H2cBenchmarkTest -i</pre>
+ */
+@EnabledIfEnvironmentVariable(named = "VINE_BENCHMARK", matches = "true")
+@Slf4j
+class H2cBenchmarkTest {
+
+    private static final long BACKEND_DELAY_MILLIS = 50;
+    private static final int CONCURRENCY = 150;
+    private static final int REQUESTS_PER_CLIENT = 20;
+    private static final AttributeKey<Boolean> CONNECTION_COUNTED = AttributeKey.valueOf("connectionCounted");
+
+    private static final AtomicInteger acceptedConnections = new AtomicInteger();
+    private static final AtomicInteger openConnections = new AtomicInteger();
+    private static final AtomicInteger peakOpenConnections = new AtomicInteger();
+
+    private static DisposableServer backend;
+
+    @BeforeAll
+    static void startBackend() {
+        backend = HttpServer.create()
+                .port(0)
+                .protocol(HttpProtocol.HTTP11, HttpProtocol.H2C)
+                .doOnConnection(connection -> {
+                    // Streams of an h2c connection are child channels of the connection
+                    var channel = connection.channel() instanceof Http2StreamChannel
+                            ? connection.channel().parent() : connection.channel();
+                    if (channel.attr(CONNECTION_COUNTED).setIfAbsent(true) == null) {
+                        acceptedConnections.incrementAndGet();
+                        peakOpenConnections.accumulateAndGet(openConnections.incrementAndGet(), Math::max);
+                        channel.closeFuture().addListener(future -> openConnections.decrementAndGet());
+                    }
+                })
+                .route(routes -> routes
+                        .get("/health", (request, response) -> response
+                                .header("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                                .sendString(Mono.just("{\"status\": \"UP\"}")))
+                        .post("/api/echo", (request, response) -> response
+                                .sendString(Mono.delay(Duration.ofMillis(BACKEND_DELAY_MILLIS))
+                                        .thenReturn("{\"message\": \"benchmark\"}"))))
+                .bindNow();
+    }
+
+    @AfterAll
+    static void stopBackend() {
+        backend.disposeNow();
+    }
+
+    @Test
+    void testH2cUsesFewerConnectionsThanKeepAlive() {
+        var keepAlive = benchmark("http11");
+        var h2c = benchmark("h2c");
+
+        log.info("Connections accepted: HTTP/1.1 {}, h2c {}; p99: HTTP/1.1 {}ms, h2c {}ms",
+                keepAlive.acceptedConnections(), h2c.acceptedConnections(), keepAlive.p99Millis(), h2c.p99Millis());
+        assertEquals(0, keepAlive.errors());
+        assertEquals(0, h2c.errors());
+        assertTrue(h2c.peakOpenConnections() < keepAlive.peakOpenConnections());
+    }
+
+    private BenchmarkResult benchmark(String protocol) {
+        acceptedConnections.set(0);
+        peakOpenConnections.set(openConnections.get());
+        try (var context = new SpringApplicationBuilder(VineRoutingServer.class)
+                .properties(
+                        "server.port=0",
+                        "routing.mode=reactive",
+                        "routing.connection-pool.protocol=" + protocol,
+                        "routing.servers[0].url=http://localhost:" + backend.port(),
+                        "routing.admission.enabled=false",
+                        "routing.concurrency-limit.enabled=false",
+                        "routing.retry.enabled=false",
+                        "logging.level.home.anita=WARN")
+                .run()) {
+            var port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            var connectionProvider = ConnectionProvider.builder("benchmark")
+                    .maxConnections(CONCURRENCY)
+                    .pendingAcquireMaxCount(-1)
+                    .build();
+            var client = WebClient.builder()
+                    .baseUrl("http://localhost:" + port)
+                    .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider)))
+                    .build();
+            try {
+                var latencies = Flux.range(0, CONCURRENCY)
+                        .flatMap(clientIndex -> Flux.range(0, REQUESTS_PER_CLIENT)
+                                .concatMap(i -> send(client)), CONCURRENCY)
+                        .collectList()
+                        .block(Duration.ofMinutes(2));
+
+                var errors = latencies.stream().filter(latency -> latency < 0).count();
+                var sorted = latencies.stream().filter(latency -> latency >= 0).sorted().toList();
+                var p99Millis = sorted.isEmpty() ? Long.MAX_VALUE
+                        : TimeUnit.NANOSECONDS.toMillis(sorted.get((int) Math.ceil(sorted.size() * 0.99) - 1));
+                var result = new BenchmarkResult(acceptedConnections.get(), peakOpenConnections.get(), p99Millis, errors);
+                log.info("{}: {} connections accepted, peak {} open, p99 {}ms, {} errors", protocol,
+                        result.acceptedConnections(), result.peakOpenConnections(), result.p99Millis(), result.errors());
+                return result;
+            } finally {
+                connectionProvider.disposeLater().block();
+            }
+        }
+    }
+
+    /**
+     * Sends one request.
+     *
+     * @return Mono emitting the latency in nanoseconds, or -1 if the request failed
+     */
+    private static Mono<Long> send(WebClient client) {
+        return Mono.defer(() -> {
+            var startNanos = System.nanoTime();
+            return client.post()
+                    .uri("/api/echo")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue("{\"message\": \"benchmark\"}")
+                    .retrieve()
+                    .toBodilessEntity()
+                    .map(response -> response.getStatusCode().is2xxSuccessful() ? System.nanoTime() - startNanos : -1L)
+                    .onErrorReturn(-1L);
+        });
+    }
+
+    /**
+     * Results of one mode.
+     *
+     * @param acceptedConnections The connections the backend accepted
+     * @param peakOpenConnections The most connections open to the backend at once
+     * @param p99Millis           The 99th percentile latency of the successful requests
+     * @param errors              The number of failed requests
+     */
+    private record BenchmarkResult(int acceptedConnections, int peakOpenConnections, long p99Millis, long errors) {
+    }
+}
\ No newline at end of file
@@ -0,0 +1,157 @@
+package home.anita;
+
+import home.anita.server.AdmissionQueue;
+import home.anita.server.RateLimiter;
+import home.anita.server.RoutingContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Runs the reactive controller on the embedded server, since only a real servlet container
+ * reads the request body without blocking.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "routing.mode=reactive")
+class ReactiveRoutingControllerTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    @LocalServerPort
+    private int port;
+
+    @MockBean
+    private RoutingService routingService;
+
+    @MockBean
+    private AdmissionQueue admissionQueue;
+
+    @MockBean
+    private RateLimiter rateLimiter;
+
+    private WebClient client;
+
+    @BeforeEach
+    void setUp() {
+        when(admissionQueue.acquireAsync()).thenReturn(Mono.just(true));
+        client = WebClient.create("http://localhost:" + port);
+    }
+
+    @Test
+    void testPostRequestRoutedAsynchronously() {
+        String requestBody = "{\"message\": \"test\"}";
+        String responseBody = "{\"message\": \"test\", \"port\": \"9001\"}";
+        when(routingService.routeRequestAsync(eq(requestBody), any(HttpHeaders.class), eq("/api/echo"), any(), any()))
+            .thenReturn(Mono.just(ResponseEntity.ok(responseBody)));
+
+        ResponseEntity<String> response = post(requestBody).block(TIMEOUT);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(responseBody, response.getBody());
+        verify(routingService, never()).routeRequest(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void testBodySentInPartsIsReadWhole() {
+        String requestBody = "{\"message\": \"" + "x".repeat(100_000) + "\"}";
+        when(routingService.routeRequestAsync(eq(requestBody), any(HttpHeaders.class), eq("/api/echo"), any(), any()))
+            .thenReturn(Mono.just(ResponseEntity.ok("{}")));
+
+        ResponseEntity<String> response = post(requestBody).block(TIMEOUT);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+    }
+
+    @Test
+    void testAdmissionSlotHeldUntilResponse() throws Exception {
+        Sinks.One<ResponseEntity<String>> upstream = Sinks.one();
+        when(routingService.routeRequestAsync(any(), any(HttpHeaders.class), eq("/api/echo"), any(), any()))
+            .thenReturn(upstream.asMono());
+
+        CompletableFuture<ResponseEntity<String>> response = post("{}").toFuture();
+        verify(routingService, timeout(TIMEOUT.toMillis())).routeRequestAsync(any(), any(), any(), any(), any());
+
+        verify(admissionQueue, never()).release();
+        upstream.tryEmitValue(ResponseEntity.ok("{}"));
+        assertEquals(HttpStatus.OK, response.get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS).getStatusCode());
+        verify(admissionQueue, timeout(TIMEOUT.toMillis())).release();
+    }
+
+    @Test
+    void testAdmissionAwaitedWithoutBlockingTheRequestThread() throws Exception {
+        Sinks.One<Boolean> admission = Sinks.one();
+        when(admissionQueue.acquireAsync()).thenReturn(admission.asMono());
+        when(routingService.routeRequestAsync(any(), any(HttpHeaders.class), eq("/api/echo"), any(), any()))
+            .thenReturn(Mono.just(ResponseEntity.ok("{}")));
+
+        CompletableFuture<ResponseEntity<String>> response = post("{}").toFuture();
+        verify(admissionQueue, timeout(TIMEOUT.toMillis())).acquireAsync();
+
+        verify(routingService, never()).routeRequestAsync(any(), any(), any(), any(), any());
+        admission.tryEmitValue(true);
+        assertEquals(HttpStatus.OK, response.get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS).getStatusCode());
+        verify(admissionQueue, timeout(TIMEOUT.toMillis())).release();
+    }
+
+    @Test
+    void testDroppedRequestReturns503WithRetryAfter() {
+        when(admissionQueue.acquireAsync()).thenReturn(Mono.just(false));
+        when(admissionQueue.getRetryAfterSeconds()).thenReturn(2L);
+
+        ResponseEntity<String> response = post("{}").block(TIMEOUT);
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+        assertEquals("2", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertTrue(response.getBody().contains("Router is overloaded"));
+        verify(routingService, never()).routeRequestAsync(any(), any(), any(), any(), any());
+        verify(admissionQueue, never()).release();
+    }
+
+    @Test
+    void testRateLimitedRequestReturns429WithRetryAfter() {
+        when(rateLimiter.isEnabled()).thenReturn(true);
+        when(rateLimiter.tryAcquire(any(RoutingContext.class))).thenReturn(1_500_000_000L);
+
+        ResponseEntity<String> response = post("{}").block(TIMEOUT);
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, response.getStatusCode());
+        assertEquals("2", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        verify(admissionQueue, never()).acquireAsync();
+    }
+
+    @Test
+    void testMissingBodyReturns400() {
+        ResponseEntity<String> response = client.post()
+                .uri("/api/echo")
+                .contentType(MediaType.APPLICATION_JSON)
+                .exchangeToMono(clientResponse -> clientResponse.toEntity(String.class))
+                .block(TIMEOUT);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verify(routingService, never()).routeRequestAsync(any(), any(), any(), any(), any());
+    }
+
+    private Mono<ResponseEntity<String>> post(String body) {
+        return client.post()
+                .uri("/api/echo")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(body)
+                .exchangeToMono(clientResponse -> clientResponse.toEntity(String.class));
+    }
+}
\ No newline at end of file
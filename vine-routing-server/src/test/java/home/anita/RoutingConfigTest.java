@@ -1,16 +1,24 @@
 package home.anita;
 
+import home.anita.server.LoadMetric;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 @SpringBootTest
 @TestPropertySource(properties = {
     "routing.servers[0].url=http://test1:9001",
-    "routing.servers[1].url=http://test2:9002"
+    "routing.servers[1].url=http://test2:9002",
+    "routing.servers[1].weight=3",
+    "routing.servers[1].max-connections=50",
+    "routing.servers[1].priority=1"
 })
 class RoutingConfigTest {
 
@@ -39,4 +47,144 @@ class RoutingConfigTest {
         
         assertEquals("http://example:8080", server.getUrl());
     }
+
+    @Test
+    void testServerWeightBinding() {
+        RoutingConfig.ServerConfig server1 = findServer("http://test1:9001");
+        RoutingConfig.ServerConfig server2 = findServer("http://test2:9002");
+
+        assertEquals(1, server1.getWeight());
+        assertNull(server1.getMaxConnections());
+        assertEquals(3, server2.getWeight());
+        assertEquals(50, server2.getMaxConnections());
+        assertEquals(0, server1.getPriority());
+        assertEquals(1, server2.getPriority());
+    }
+
+    @Test
+    void testServerWeightOutOfRangeRejected() {
+        RoutingConfig.ServerConfig server = new RoutingConfig.ServerConfig();
+
+        assertThrows(IllegalArgumentException.class, () -> server.setWeight(0));
+        assertThrows(IllegalArgumentException.class, () -> server.setWeight(-1));
+        assertThrows(IllegalArgumentException.class, () -> server.setWeight(1001));
+        assertEquals(1, server.getWeight());
+
+        server.setWeight(1000);
+        assertEquals(1000, server.getWeight());
+    }
+
+    @Test
+    void testDefaultSelectorSettings() {
+        RoutingConfig config = new RoutingConfig();
+
+        assertEquals(RoutingConfig.RoutingMode.BLOCKING, config.getMode());
+        assertEquals(RoutingConfig.SelectorType.ROUND_ROBIN, config.getSelector());
+        assertEquals(Duration.ofSeconds(10), config.getLatencyDecayTime());
+        assertEquals(LoadMetric.IN_FLIGHT, config.getLoadMetric());
+        assertEquals(RoutingConfig.HashKeySource.CLIENT_IP, config.getConsistentHash().getKeySource());
+        assertNull(config.getConsistentHash().getKeyName());
+        assertEquals(1.25, config.getConsistentHash().getLoadFactor());
+        assertEquals(160, config.getConsistentHash().getVirtualNodes());
+        assertEquals(Duration.ZERO, config.getSlowStart().getWindow());
+        assertEquals(RoutingConfig.SlowStartCurve.LINEAR, config.getSlowStart().getCurve());
+        assertEquals(0.1, config.getSlowStart().getMinWeight());
+        assertFalse(config.getConcurrencyLimit().isEnabled());
+        assertEquals(20, config.getConcurrencyLimit().getInitialLimit());
+        assertEquals(1, config.getConcurrencyLimit().getMinLimit());
+        assertEquals(500, config.getConcurrencyLimit().getMaxLimit());
+        assertEquals(0.9, config.getConcurrencyLimit().getBackoffRatio());
+        assertEquals(1.4, config.getPriority().getOverprovisioningFactor());
+        assertEquals(0, config.getPriority().getPanicThreshold());
+        assertFalse(config.getOutlierDetection().isEnabled());
+        assertEquals(5, config.getOutlierDetection().getConsecutive5xx());
+        assertEquals(5, config.getOutlierDetection().getConsecutiveFailures());
+        assertEquals(5, config.getOutlierDetection().getLatencyMultiplier());
+        assertEquals(Duration.ofSeconds(1), config.getOutlierDetection().getInterval());
+        assertEquals(Duration.ofSeconds(30), config.getOutlierDetection().getBaseEjectionTime());
+        assertEquals(Duration.ofSeconds(300), config.getOutlierDetection().getMaxEjectionTime());
+        assertEquals(10, config.getOutlierDetection().getMaxEjectionPercent());
+        assertFalse(config.getCircuitBreaker().isEnabled());
+        assertEquals(50, config.getCircuitBreaker().getFailureRateThreshold());
+        assertEquals(80, config.getCircuitBreaker().getSlowCallRateThreshold());
+        assertEquals(Duration.ofSeconds(2), config.getCircuitBreaker().getSlowCallDuration());
+        assertEquals(Duration.ofSeconds(10), config.getCircuitBreaker().getWindow());
+        assertEquals(20, config.getCircuitBreaker().getMinimumCalls());
+        assertEquals(Duration.ofSeconds(10), config.getCircuitBreaker().getWaitDurationInOpenState());
+        assertEquals(5, config.getCircuitBreaker().getPermittedCallsInHalfOpenState());
+        assertFalse(config.getRetry().isEnabled());
+        assertEquals(3, config.getRetry().getMaxAttempts());
+        assertEquals(Duration.ofMillis(10), config.getRetry().getInitialBackoff());
+        assertEquals(Duration.ofMillis(100), config.getRetry().getMaxBackoff());
+        assertEquals(0.1, config.getRetry().getBudgetRatio());
+        assertEquals(5, config.getRetry().getMinRetriesPerSecond());
+        assertFalse(config.getHedging().isEnabled());
+        assertTrue(config.getHedging().getPaths().isEmpty());
+        assertEquals("X-Hedge", config.getHedging().getHeader());
+        assertEquals(Duration.ZERO, config.getHedging().getDelay());
+        assertEquals(95, config.getHedging().getPercentile());
+        assertEquals(0.05, config.getHedging().getBudgetRatio());
+        assertEquals(Duration.ofSeconds(2), config.getTimeout().getConnect());
+        assertEquals(Duration.ofSeconds(10), config.getTimeout().getFirstByte());
+        assertEquals(Duration.ofSeconds(30), config.getTimeout().getTotal());
+        assertEquals("X-Request-Deadline", config.getTimeout().getDeadlineHeader());
+        assertEquals("X-Deadline-Expired", config.getTimeout().getDeadlineExpiredHeader());
+        assertTrue(config.getTimeout().getRoutes().isEmpty());
+        assertFalse(config.getAdmission().isEnabled());
+        assertEquals(100, config.getAdmission().getMaxConcurrent());
+        assertEquals(100, config.getAdmission().getMaxQueueSize());
+        assertEquals(Duration.ofMillis(5), config.getAdmission().getTarget());
+        assertEquals(Duration.ofMillis(100), config.getAdmission().getInterval());
+        assertEquals(Duration.ofSeconds(1), config.getAdmission().getRetryAfter());
+        assertFalse(config.getRateLimit().isEnabled());
+        assertEquals(RoutingConfig.HashKeySource.CLIENT_IP, config.getRateLimit().getKeySource());
+        assertNull(config.getRateLimit().getKeyName());
+        assertEquals(100, config.getRateLimit().getRequestsPerSecond());
+        assertEquals(200, config.getRateLimit().getBurst());
+        assertEquals(Duration.ofMinutes(1), config.getRateLimit().getIdleTimeout());
+        assertFalse(config.getCoalescing().isEnabled());
+        assertTrue(config.getCoalescing().getPaths().isEmpty());
+        assertEquals(List.of("Authorization"), config.getCoalescing().getKeyHeaders());
+        assertEquals(10000, config.getCoalescing().getMaxInFlight());
+        assertEquals("X-Coalesced", config.getCoalescing().getHeader());
+        assertFalse(config.getCache().isEnabled());
+        assertTrue(config.getCache().getRoutes().isEmpty());
+        assertEquals(Duration.ofMinutes(1), config.getCache().getTtl());
+        assertEquals(Duration.ofSeconds(10), config.getCache().getStaleWhileRevalidate());
+        assertEquals(DataSize.ofMegabytes(64), config.getCache().getMaxSize());
+        assertEquals("X-Cache", config.getCache().getHeader());
+        assertFalse(config.getIdempotency().isEnabled());
+        assertEquals("Idempotency-Key", config.getIdempotency().getHeader());
+        assertEquals(List.of("Authorization"), config.getIdempotency().getScopeHeaders());
+        assertEquals(255, config.getIdempotency().getMaxKeyLength());
+        assertEquals(Duration.ofHours(24), config.getIdempotency().getRetention());
+        assertEquals(DataSize.ofMegabytes(64), config.getIdempotency().getCapacity());
+        assertEquals(1_000_000, config.getIdempotency().getMaxKeys());
+        assertEquals(DataSize.ofKilobytes(8), config.getStreaming().getChunkSize());
+        assertEquals(4, config.getStreaming().getPrefetch());
+        assertEquals(500, config.getConnectionPool().getMaxConnections());
+        assertEquals(1000, config.getConnectionPool().getMaxPendingAcquires());
+        assertEquals(Duration.ofSeconds(5), config.getConnectionPool().getPendingAcquireTimeout());
+        assertEquals(Duration.ofSeconds(30), config.getConnectionPool().getMaxIdleTime());
+        assertEquals(Duration.ofMinutes(5), config.getConnectionPool().getMaxLifeTime());
+        assertEquals(Duration.ofSeconds(10), config.getConnectionPool().getEvictionInterval());
+        assertTrue(config.getConnectionPool().isNativeTransport());
+        assertEquals(RoutingConfig.UpstreamProtocol.HTTP11, config.getConnectionPool().getProtocol());
+        assertEquals(2, config.getConnectionPool().getMaxMultiplexedConnections());
+        assertEquals(100, config.getConnectionPool().getMaxConcurrentStreams());
+        assertFalse(config.getTcp().isEnabled());
+        assertEquals(8091, config.getTcp().getPort());
+        assertEquals(DataSize.ofKilobytes(64), config.getTcp().getBufferSize());
+        assertEquals(64, config.getTcp().getIdleBuffers());
+        assertEquals(16, config.getTcp().getConnectThreads());
+        assertEquals(1000, config.getTcp().getMaxConnections());
+        assertEquals(100, config.getTcp().getRecentConnections());
+    }
+
+    private RoutingConfig.ServerConfig findServer(String url) {
+        return routingConfig.getServers().stream()
+            .filter(server -> url.equals(server.getUrl()))
+            .findFirst()
+            .orElseThrow();
+    }
 }
\ No newline at end of file
@@ -1,10 +1,17 @@
 package home.anita;
 
+import home.anita.server.ConsistentHashServerSelector;
+import home.anita.server.HashKeyExtractor;
 import home.anita.server.HealthAwareServerSelector;
 import home.anita.server.HealthCheckService;
+import home.anita.server.LeastOutstandingServerSelector;
+import home.anita.server.PeakEwmaServerSelector;
+import home.anita.server.PowerOfTwoChoicesServerSelector;
 import home.anita.server.RandomServerSelector;
 import home.anita.server.RoundRobinServerSelector;
+import home.anita.server.ServerLoadTracker;
 import home.anita.server.ServerSelector;
+import home.anita.server.WeightedRoundRobinServerSelector;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.ApplicationContext;
@@ -64,4 +71,42 @@ class RoutingConfigurationTest {
         assertNotNull(applicationContext.getBean(RandomServerSelector.class));
         assertNotNull(applicationContext.getBean(HealthCheckService.class));
     }
+
+    @Test
+    void testSelectorTypeChoosesImplementation() {
+        RoutingConfiguration routingConfiguration = new RoutingConfiguration();
+        RandomServerSelector randomServerSelector = applicationContext.getBean(RandomServerSelector.class);
+        HealthCheckService healthCheckService = applicationContext.getBean(HealthCheckService.class);
+        ServerLoadTracker serverLoadTracker = applicationContext.getBean(ServerLoadTracker.class);
+        HashKeyExtractor hashKeyExtractor = applicationContext.getBean(HashKeyExtractor.class);
+
+        RoutingConfig routingConfig = new RoutingConfig();
+        routingConfig.setSelector(RoutingConfig.SelectorType.LEAST_OUTSTANDING);
+        assertInstanceOf(LeastOutstandingServerSelector.class, routingConfiguration.serverSelector(
+                routingConfig, randomServerSelector, healthCheckService, serverLoadTracker, hashKeyExtractor));
+
+        routingConfig.setSelector(RoutingConfig.SelectorType.PEAK_EWMA);
+        assertInstanceOf(PeakEwmaServerSelector.class, routingConfiguration.serverSelector(
+                routingConfig, randomServerSelector, healthCheckService, serverLoadTracker, hashKeyExtractor));
+
+        routingConfig.setSelector(RoutingConfig.SelectorType.POWER_OF_TWO_CHOICES);
+        assertInstanceOf(PowerOfTwoChoicesServerSelector.class, routingConfiguration.serverSelector(
+                routingConfig, randomServerSelector, healthCheckService, serverLoadTracker, hashKeyExtractor));
+
+        routingConfig.setSelector(RoutingConfig.SelectorType.WEIGHTED_ROUND_ROBIN);
+        assertInstanceOf(WeightedRoundRobinServerSelector.class, routingConfiguration.serverSelector(
+                routingConfig, randomServerSelector, healthCheckService, serverLoadTracker, hashKeyExtractor));
+
+        routingConfig.setSelector(RoutingConfig.SelectorType.CONSISTENT_HASH);
+        assertInstanceOf(ConsistentHashServerSelector.class, routingConfiguration.serverSelector(
+                routingConfig, randomServerSelector, healthCheckService, serverLoadTracker, hashKeyExtractor));
+
+        routingConfig.setSelector(RoutingConfig.SelectorType.HEALTH_AWARE);
+        assertInstanceOf(HealthAwareServerSelector.class, routingConfiguration.serverSelector(
+                routingConfig, randomServerSelector, healthCheckService, serverLoadTracker, hashKeyExtractor));
+
+        routingConfig.setSelector(RoutingConfig.SelectorType.ROUND_ROBIN);
+        assertInstanceOf(RoundRobinServerSelector.class, routingConfiguration.serverSelector(
+                routingConfig, randomServerSelector, healthCheckService, serverLoadTracker, hashKeyExtractor));
+    }
 }
\ No newline at end of file
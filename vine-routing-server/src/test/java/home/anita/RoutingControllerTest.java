@@ -1,5 +1,9 @@
 package home.anita;
 
+import home.anita.server.AdmissionQueue;
+import home.anita.server.RateLimiter;
+import home.anita.server.RoutingContext;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -10,6 +14,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.test.web.servlet.MockMvc;
 
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -26,12 +32,23 @@ class RoutingControllerTest {
     @MockBean
     private RoutingConfig routingConfig;
 
+    @MockBean
+    private AdmissionQueue admissionQueue;
+
+    @MockBean
+    private RateLimiter rateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        when(admissionQueue.tryAcquire()).thenReturn(true);
+    }
+
     @Test
     void testPostRequestRouting() throws Exception {
         String requestBody = "{\"message\": \"test\"}";
         String responseBody = "{\"message\": \"test\", \"port\": \"9001\"}";
         
-        when(routingService.routeRequest(eq(requestBody), any(HttpHeaders.class), eq("/api/echo"), any()))
+        when(routingService.routeRequest(eq(requestBody), any(HttpHeaders.class), eq("/api/echo"), any(), any()))
             .thenReturn(ResponseEntity.ok(responseBody));
 
         mockMvc.perform(post("/api/echo")
@@ -41,6 +58,24 @@ class RoutingControllerTest {
                 .andExpect(content().string(responseBody));
     }
 
+    @Test
+    void testClientAddressPassedToRoutingService() throws Exception {
+        String requestBody = "{\"message\": \"test\"}";
+
+        when(routingService.routeRequest(eq(requestBody), any(HttpHeaders.class), eq("/api/echo"), eq("10.0.0.7"), any()))
+            .thenReturn(ResponseEntity.ok(requestBody));
+
+        mockMvc.perform(post("/api/echo")
+                .with(request -> {
+                    request.setRemoteAddr("10.0.0.7");
+                    return request;
+                })
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(requestBody))
+                .andExpect(status().isOk())
+                .andExpect(content().string(requestBody));
+    }
+
     @Test
     void testGetRequestReturns405() throws Exception {
         mockMvc.perform(get("/api/echo"))
@@ -65,7 +100,7 @@ class RoutingControllerTest {
     void testErrorPropagation404() throws Exception {
         String requestBody = "{\"message\": \"test\"}";
         
-        when(routingService.routeRequest(eq(requestBody), any(HttpHeaders.class), eq("/nonexistent"), any()))
+        when(routingService.routeRequest(eq(requestBody), any(HttpHeaders.class), eq("/nonexistent"), any(), any()))
             .thenReturn(ResponseEntity.notFound().build());
 
         mockMvc.perform(post("/nonexistent")
@@ -79,7 +114,7 @@ class RoutingControllerTest {
         String requestBody = "{\"message\": \"test\"}";
         String errorBody = "Internal server error";
         
-        when(routingService.routeRequest(eq(requestBody), any(HttpHeaders.class), eq("/api/echo"), any()))
+        when(routingService.routeRequest(eq(requestBody), any(HttpHeaders.class), eq("/api/echo"), any(), any()))
             .thenReturn(ResponseEntity.internalServerError().body(errorBody));
 
         mockMvc.perform(post("/api/echo")
@@ -88,4 +123,89 @@ class RoutingControllerTest {
                 .andExpect(status().isInternalServerError())
                 .andExpect(content().string(errorBody));
     }
+
+    @Test
+    void testAdmittedRequestReleasesSlot() throws Exception {
+        when(routingService.routeRequest(any(), any(HttpHeaders.class), eq("/api/echo"), any(), any()))
+            .thenReturn(ResponseEntity.ok("{}"));
+
+        mockMvc.perform(post("/api/echo")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{}"))
+                .andExpect(status().isOk());
+
+        verify(admissionQueue).release();
+    }
+
+    @Test
+    void testDroppedRequestReturns503WithRetryAfter() throws Exception {
+        when(admissionQueue.tryAcquire()).thenReturn(false);
+        when(admissionQueue.getRetryAfterSeconds()).thenReturn(2L);
+
+        mockMvc.perform(post("/api/echo")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{}"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "2"))
+                .andExpect(jsonPath("$.message").value("Router is overloaded"));
+
+        verify(routingService, never()).routeRequest(any(), any(), any(), any(), any());
+        verify(admissionQueue, never()).release();
+    }
+
+    @Test
+    void testMissingBodyReturns400() throws Exception {
+        mockMvc.perform(post("/api/echo")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+
+        verify(routingService, never()).routeRequest(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void testRateLimitedRequestReturns429WithRetryAfter() throws Exception {
+        when(rateLimiter.isEnabled()).thenReturn(true);
+        when(rateLimiter.tryAcquire(any(RoutingContext.class))).thenReturn(1_500_000_000L);
+
+        mockMvc.perform(post("/api/echo")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{}"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "2"))
+                .andExpect(jsonPath("$.message").value("Rate limit exceeded"));
+
+        verify(admissionQueue, never()).tryAcquire();
+        verify(routingService, never()).routeRequest(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void testRateLimitCheckedBeforeBodyIsRead() throws Exception {
+        when(rateLimiter.isEnabled()).thenReturn(true);
+        when(rateLimiter.tryAcquire(any(RoutingContext.class))).thenReturn(0L);
+        when(routingService.routeRequest(any(), any(HttpHeaders.class), eq("/api/echo"), any(), any()))
+            .thenReturn(ResponseEntity.ok("{}"));
+
+        mockMvc.perform(post("/api/echo")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"userId\": \"user-42\"}"))
+                .andExpect(status().isOk());
+
+        verify(rateLimiter).tryAcquire(argThat((RoutingContext context) -> context.getBody() == null));
+    }
+
+    @Test
+    void testBodyKeyedRateLimitCheckedWithBody() throws Exception {
+        String requestBody = "{\"userId\": \"user-42\"}";
+        when(rateLimiter.isEnabled()).thenReturn(true);
+        when(rateLimiter.isBodyKeyed()).thenReturn(true);
+        when(rateLimiter.tryAcquire(any(RoutingContext.class))).thenReturn(500_000_000L);
+
+        mockMvc.perform(post("/api/echo")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(requestBody))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "1"));
+
+        verify(rateLimiter).tryAcquire(argThat((RoutingContext context) -> requestBody.equals(context.getBody())));
+    }
 }
\ No newline at end of file
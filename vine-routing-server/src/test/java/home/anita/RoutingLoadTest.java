@@ -0,0 +1,132 @@
+package home.anita;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Load test of the reactive mode against a backend whose latency is raised between rounds.
+ * Requests arrive at a fixed rate, so the requests in flight grow with the latency: from
+ * about 10 at 50ms to about 200 at 1s. A thread per in-flight request would add as many
+ * threads, in reactive mode the peak thread count stays flat. Everything but the mode keeps
+ * the shipped defaults.
+ * Runs only with VINE_BENCHMARK=true:
+ * <pre>VINE_BENCHMARK=true ./gradlew test --tests home.anita.RoutingLoadTest -i</pre>
+ */
+@EnabledIfEnvironmentVariable(named = "VINE_BENCHMARK", matches = "true")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "routing.mode=reactive")
+@Slf4j
+class RoutingLoadTest {
+
+    private static final int REQUESTS_PER_SECOND = 200;
+    private static final int REQUESTS_PER_ROUND = 400;
+
+    /**
+     * Threads the peak may grow by between the lowest and the highest latency.
+     */
+    private static final int THREAD_TOLERANCE = 25;
+
+    private static final AtomicLong backendLatencyMillis = new AtomicLong();
+    private static DisposableServer backend;
+
+    @LocalServerPort
+    private int port;
+
+    @DynamicPropertySource
+    static void backendProperties(DynamicPropertyRegistry registry) {
+        backend = HttpServer.create()
+                .port(0)
+                .route(routes -> routes
+                        .get("/health", (request, response) -> response
+                                .header("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                                .sendString(Mono.just("{\"status\": \"UP\"}")))
+                        .post("/api/echo", (request, response) -> response
+                                .sendString(Mono.delay(Duration.ofMillis(backendLatencyMillis.get()))
+                                        .thenReturn("{\"message\": \"ok\"}"))))
+                .bindNow();
+        registry.add("routing.servers[0].url", () -> "http://localhost:" + backend.port());
+    }
+
+    @AfterAll
+    static void stopBackend() {
+        backend.disposeNow();
+    }
+
+    @Test
+    void testThreadCountStaysFlatAsBackendLatencyGrows() {
+        var connectionProvider = ConnectionProvider.builder("load-test")
+                .maxConnections(REQUESTS_PER_ROUND)
+                .pendingAcquireMaxCount(-1)
+                .build();
+        var client = WebClient.builder()
+                .baseUrl("http://localhost:" + port)
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider)))
+                .build();
+        var threadBean = ManagementFactory.getThreadMXBean();
+
+        try {
+            // Warm up, so the threads started once are not counted
+            runRound(client, 10);
+
+            long lowestLatencyPeak = -1;
+            for (var latencyMillis : List.of(50L, 250L, 1000L)) {
+                threadBean.resetPeakThreadCount();
+                runRound(client, latencyMillis);
+                var peakThreads = threadBean.getPeakThreadCount();
+                log.info("Backend latency {}ms: about {} requests in flight, peak of {} threads",
+                        latencyMillis, latencyMillis * REQUESTS_PER_SECOND / 1000, peakThreads);
+
+                if (lowestLatencyPeak < 0) {
+                    lowestLatencyPeak = peakThreads;
+                }
+                assertTrue(peakThreads - lowestLatencyPeak <= THREAD_TOLERANCE,
+                        "peak of " + peakThreads + " threads at " + latencyMillis + "ms, "
+                                + lowestLatencyPeak + " at the lowest latency");
+            }
+        } finally {
+            connectionProvider.disposeLater().block();
+        }
+    }
+
+    private void runRound(WebClient client, long latencyMillis) {
+        backendLatencyMillis.set(latencyMillis);
+        var statuses = Flux.interval(Duration.ofSeconds(1).dividedBy(REQUESTS_PER_SECOND))
+                .take(REQUESTS_PER_ROUND)
+                .flatMap(i -> client.post()
+                        .uri("/api/echo")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue("{\"message\": \"load\"}")
+                        .retrieve()
+                        .toBodilessEntity()
+                        .map(response -> response.getStatusCode().value()), REQUESTS_PER_ROUND)
+                .collectList()
+                .block(Duration.ofSeconds(30));
+
+        assertEquals(REQUESTS_PER_ROUND, statuses.size());
+        assertTrue(statuses.stream().allMatch(status -> status == HttpStatus.OK.value()),
+                "every request is routed at " + latencyMillis + "ms");
+    }
+}
\ No newline at end of file
@@ -1,23 +1,51 @@
 package home.anita;
 
 import home.anita.RoutingConfig.ServerConfig;
+import home.anita.http.ConnectionPools;
 import home.anita.http.RequestHandler;
+import home.anita.http.RequestTimeouts;
+import home.anita.http.RoutingRequest;
+import home.anita.server.CircuitBreakerRegistry;
+import home.anita.server.HedgePolicy;
+import home.anita.server.IdempotencyStore;
+import home.anita.server.ConcurrencyLimiter;
+import home.anita.server.NoHealthyServerException;
+import home.anita.server.OutlierDetector;
+import home.anita.server.RequestCoalescer;
+import home.anita.server.ResponseCache;
+import home.anita.server.RetryPolicy;
+import home.anita.server.RoutingContext;
+import home.anita.server.ServerLoadTracker;
 import home.anita.server.ServerSelector;
+import home.anita.server.SlowStartPolicy;
+import home.anita.server.TimeoutPolicy;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -32,6 +60,42 @@ class RoutingServiceTest {
     @Mock
     private RequestHandler requestHandler;
 
+    @Mock
+    private ServerLoadTracker serverLoadTracker;
+
+    @Mock
+    private SlowStartPolicy slowStartPolicy;
+
+    @Mock
+    private ConcurrencyLimiter concurrencyLimiter;
+
+    @Mock
+    private OutlierDetector outlierDetector;
+
+    @Mock
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    @Mock
+    private RetryPolicy retryPolicy;
+
+    @Mock
+    private HedgePolicy hedgePolicy;
+
+    @Mock
+    private TimeoutPolicy timeoutPolicy;
+
+    @Mock
+    private RequestCoalescer requestCoalescer;
+
+    @Mock
+    private ResponseCache responseCache;
+
+    @Mock
+    private IdempotencyStore idempotencyStore;
+
+    @Mock
+    private ConnectionPools connectionPools;
+
     @InjectMocks
     private RoutingService routingService;
 
@@ -48,6 +112,24 @@ class RoutingServiceTest {
         mockServers = new HashSet<>();
         mockServers.add(server1);
         mockServers.add(server2);
+
+        // Servers have capacity and closed circuits unless a test says otherwise
+        lenient().when(concurrencyLimiter.tryAcquire(any())).thenReturn(true);
+        lenient().when(circuitBreakerRegistry.tryAcquirePermission(any())).thenReturn(true);
+        lenient().when(connectionPools.getStreamCapacity()).thenReturn(-1);
+        // Requests are neither replayed, cached nor coalesced unless a test says otherwise
+        lenient().when(idempotencyStore.execute(any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<ResponseEntity<String>>>getArgument(1).get());
+        lenient().when(responseCache.execute(any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<ResponseEntity<String>>>getArgument(1).get());
+        lenient().when(requestCoalescer.execute(any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<ResponseEntity<String>>>getArgument(1).get());
+        lenient().when(idempotencyStore.executeAsync(any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<Mono<ResponseEntity<String>>>>getArgument(1).get());
+        lenient().when(responseCache.executeAsync(any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<Mono<ResponseEntity<String>>>>getArgument(1).get());
+        lenient().when(requestCoalescer.executeAsync(any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<Mono<ResponseEntity<String>>>>getArgument(1).get());
     }
 
     @Test
@@ -55,33 +137,33 @@ class RoutingServiceTest {
         ServerConfig selectedServer = mockServers.iterator().next();
 
         when(headerHandler.processHeaders(any(HttpHeaders.class))).thenReturn(new HttpHeaders());
-        when(serverSelector.select(mockServers)).thenReturn(selectedServer);
+        when(serverSelector.select(eq(mockServers), any(RoutingContext.class))).thenReturn(selectedServer);
         when(requestHandler.sendRequest(any())).thenReturn(ResponseEntity.ok("Success"));
 
         HttpHeaders headers = new HttpHeaders();
         String requestBody = "{\"test\": \"data\"}";
         String path = "/api/echo";
 
-        ResponseEntity<String> response = routingService.routeRequest(requestBody, headers, path, mockServers);
+        ResponseEntity<String> response = routingService.routeRequest(requestBody, headers, path, "127.0.0.1", mockServers);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals("Success", response.getBody());
 
         // Verify that all components were called
         verify(headerHandler).processHeaders(any(HttpHeaders.class));
-        verify(serverSelector).select(mockServers);
+        verify(serverSelector).select(eq(mockServers), any(RoutingContext.class));
         verify(requestHandler).sendRequest(any());
     }
 
     @Test
     void testNoServersConfigured() {
-        when(serverSelector.select(Collections.emptySet())).thenThrow(new IllegalArgumentException("No servers available"));
+        when(serverSelector.select(eq(Collections.emptySet()), any(RoutingContext.class))).thenThrow(new IllegalArgumentException("No servers available"));
 
         HttpHeaders headers = new HttpHeaders();
         String requestBody = "{\"test\": \"data\"}";
         String path = "/api/echo";
 
-        ResponseEntity<String> response = routingService.routeRequest(requestBody, headers, path, Collections.emptySet());
+        ResponseEntity<String> response = routingService.routeRequest(requestBody, headers, path, "127.0.0.1", Collections.emptySet());
 
         assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
         assertEquals("{\"status\": \"error\", \"message\": \"No available servers\"}", response.getBody());
@@ -89,22 +171,34 @@ class RoutingServiceTest {
 
     @Test
     void testNullServersConfiguration() {
-        when(serverSelector.select(null)).thenThrow(new IllegalArgumentException("Server set cannot be null"));
+        when(serverSelector.select(isNull(), any(RoutingContext.class))).thenThrow(new IllegalArgumentException("Server set cannot be null"));
 
         HttpHeaders headers = new HttpHeaders();
         String requestBody = "{\"test\": \"data\"}";
         String path = "/api/echo";
 
-        ResponseEntity<String> response = routingService.routeRequest(requestBody, headers, path, null);
+        ResponseEntity<String> response = routingService.routeRequest(requestBody, headers, path, "127.0.0.1", null);
 
         assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
         assertEquals("{\"status\": \"error\", \"message\": \"No available servers\"}", response.getBody());
     }
 
+    @Test
+    void testNoHealthyServersRejectedWith503() {
+        when(serverSelector.select(eq(mockServers), any(RoutingContext.class)))
+                .thenThrow(new NoHealthyServerException("No healthy servers available"));
+
+        ResponseEntity<String> response = routingService.routeRequest("{}", new HttpHeaders(), "/api/echo", "127.0.0.1", mockServers);
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+        assertEquals("{\"status\": \"error\", \"message\": \"No healthy servers available\"}", response.getBody());
+        verifyNoInteractions(requestHandler, serverLoadTracker);
+    }
+
     @Test
     void testHeaderForwarding() {
         ServerConfig selectedServer = mockServers.iterator().next();
-        when(serverSelector.select(mockServers)).thenReturn(selectedServer);
+        when(serverSelector.select(eq(mockServers), any(RoutingContext.class))).thenReturn(selectedServer);
         when(headerHandler.processHeaders(any(HttpHeaders.class))).thenReturn(new HttpHeaders());
         when(requestHandler.sendRequest(any())).thenReturn(ResponseEntity.ok("Success"));
 
@@ -116,7 +210,7 @@ class RoutingServiceTest {
         String requestBody = "{\"test\": \"data\"}";
         String path = "/api/echo";
 
-        ResponseEntity<String> response = routingService.routeRequest(requestBody, headers, path, mockServers);
+        ResponseEntity<String> response = routingService.routeRequest(requestBody, headers, path, "127.0.0.1", mockServers);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals("Success", response.getBody());
@@ -124,4 +218,773 @@ class RoutingServiceTest {
         verify(headerHandler).processHeaders(headers);
         verify(requestHandler).sendRequest(any());
     }
+
+    @Test
+    void testInFlightTrackedAroundSuccessfulRequest() {
+        ServerConfig selectedServer = mockServers.iterator().next();
+        when(serverSelector.select(eq(mockServers), any(RoutingContext.class))).thenReturn(selectedServer);
+        when(headerHandler.processHeaders(any(HttpHeaders.class))).thenReturn(new HttpHeaders());
+        when(requestHandler.sendRequest(any())).thenReturn(ResponseEntity.ok("Success"));
+
+        routingService.routeRequest("{}", new HttpHeaders(), "/api/echo", "127.0.0.1", mockServers);
+
+        var inOrder = inOrder(serverLoadTracker, requestHandler);
+        inOrder.verify(serverLoadTracker).onDispatch(selectedServer);
+        inOrder.verify(requestHandler).sendRequest(any());
+        inOrder.verify(serverLoadTracker).onComplete(eq(selectedServer), anyLong());
+    }
+
+    @Test
+    void testInFlightReleasedWhenRequestFails() {
+        ServerConfig selectedServer = mockServers.iterator().next();
+        when(serverSelector.select(eq(mockServers), any(RoutingContext.class))).thenReturn(selectedServer);
+        when(headerHandler.processHeaders(any(HttpHeaders.class))).thenReturn(new HttpHeaders());
+        when(requestHandler.sendRequest(any())).thenThrow(new RuntimeException("Failed to send HTTP request"));
+
+        ResponseEntity<String> response = routingService.routeRequest("{}", new HttpHeaders(), "/api/echo", "127.0.0.1", mockServers);
+
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+        verify(serverLoadTracker).onDispatch(selectedServer);
+        verify(serverLoadTracker).onFailure(eq(selectedServer), anyLong());
+        verify(serverLoadTracker, never()).onComplete(any(), anyLong());
+    }
+
+    @Test
+    void testHttpErrorResponseRecordedAsCompletion() {
+        ServerConfig selectedServer = mockServers.iterator().next();
+        when(serverSelector.select(eq(mockServers), any(RoutingContext.class))).thenReturn(selectedServer);
+        when(headerHandler.processHeaders(any(HttpHeaders.class))).thenReturn(new HttpHeaders());
+        when(requestHandler.sendRequest(any())).thenThrow(WebClientResponseException.create(
+                503, "Service Unavailable", new HttpHeaders(), new byte[0], null));
+
+        ResponseEntity<String> response = routingService.routeRequest("{}", new HttpHeaders(), "/api/echo", "127.0.0.1", mockServers);
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+        verify(serverLoadTracker).onComplete(eq(selectedServer), anyLong());
+        verify(serverLoadTracker, never()).onFailure(any(), anyLong());
+    }
+
+    @Test
+    void testNoInFlightTrackingWhenNoServerSelected() {
+        when(serverSelector.select(eq(Collections.emptySet()), any(RoutingContext.class))).thenThrow(new IllegalArgumentException("No servers available"));
+
+        routingService.routeRequest("{}", new HttpHeaders(), "/api/echo", "127.0.0.1", Collections.emptySet());
+
+        verifyNoInteractions(serverLoadTracker);
+    }
+
+    @Test
+    void testRoutingContextPassedToSelector() {
+        ServerConfig selectedServer = mockServers.iterator().next();
+        when(serverSelector.select(eq(mockServers), any(RoutingContext.class))).thenReturn(selectedServer);
+        when(headerHandler.processHeaders(any(HttpHeaders.class))).thenReturn(new HttpHeaders());
+        when(requestHandler.sendRequest(any())).thenReturn(ResponseEntity.ok("Success"));
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("X-User-Id", "user-42");
+
+        routingService.routeRequest("{\"id\": 1}", headers, "/api/echo", "10.0.0.7", mockServers);
+
+        ArgumentCaptor<RoutingContext> contextCaptor = ArgumentCaptor.forClass(RoutingContext.class);
+        verify(serverSelector).select(eq(mockServers), contextCaptor.capture());
+        RoutingContext context = contextCaptor.getValue();
+        assertEquals("/api/echo", context.getPath());
+        assertEquals("user-42", context.getHeaders().getFirst("X-User-Id"));
+        assertEquals("{\"id\": 1}", context.getBody());
+        assertEquals("10.0.0.7", context.getClientAddress());
+    }
+
+    @Test
+    void testThrottledServerIsExcludedAndSelectionRepeated() {
+        var iterator = mockServers.iterator();
+        ServerConfig rampingServer = iterator.next();
+        ServerConfig warmServer = iterator.next();
+        when(serverSelector.select(eq(mockServers), any(RoutingContext.class))).thenReturn(rampingServer, warmServer);
+        when(slowStartPolicy.isThrottled(rampingServer)).thenReturn(true);
+        when(headerHandler.processHeaders(any(HttpHeaders.class))).thenReturn(new HttpHeaders());
+        when(requestHandler.sendRequest(any())).thenReturn(ResponseEntity.ok("Success"));
+
+        routingService.routeRequest("{}", new HttpHeaders(), "/api/echo", "127.0.0.1", mockServers);
+
+        ArgumentCaptor<RoutingContext> contextCaptor = ArgumentCaptor.forClass(RoutingContext.class);
+        verify(serverSelector, times(2)).select(eq(mockServers), contextCaptor.capture());
+        assertTrue(contextCaptor.getValue().isExcluded(rampingServer));
+        verify(serverLoadTracker).onDispatch(warmServer);
+        verify(serverLoadTracker, never()).onDispatch(rampingServer);
+    }
+
+    @Test
+    void testThrottledServerUsedWhenEveryServerWasTried() {
+        ServerConfig selectedServer = mockServers.iterator().next();
+        when(serverSelector.select(eq(mockServers), any(RoutingContext.class))).thenReturn(selectedServer);
+        when(slowStartPolicy.isThrottled(selectedServer)).thenReturn(true);
+        when(headerHandler.processHeaders(any(HttpHeaders.class))).thenReturn(new HttpHeaders());
+        when(requestHandler.sendRequest(any())).thenReturn(ResponseEntity.ok("Success"));
+
+        ResponseEntity<String> response = routingService.routeRequest("{}", new HttpHeaders(), "/api/echo", "127.0.0.1", mockServers);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(serverSelector, times(mockServers.size())).select(eq(mockServers), any(RoutingContext.class));
+        verify(serverLoadTracker).onDispatch(selectedServer);
+    }
+
+    @Test
+    void testServerAtConcurrencyLimitIsExcludedAndSelectionRepeated() {
+        var iterator = mockServers.iterator();
+        ServerConfig saturatedServer = iterator.next();
+        ServerConfig freeServer = iterator.next();
+        when(serverSelector.select(eq(mockServers), any(RoutingContext.class))).thenReturn(saturatedServer, freeServer);
+        when(concurrencyLimiter.tryAcquire(saturatedServer)).thenReturn(false);
+        when(headerHandler.processHeaders(any(HttpHeaders.class))).thenReturn(new HttpHeaders());
+        when(requestHandler.sendRequest(any())).thenReturn(ResponseEntity.ok("Success"));
+
+        ResponseEntity<String> response = routingService.routeRequest("{}", new HttpHeaders(), "/api/echo", "127.0.0.1", mockServers);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(serverLoadTracker).onDispatch(freeServer);
+        verify(concurrencyLimiter).release(eq(freeServer), anyLong(), eq(false));
+        verify(concurrencyLimiter, never()).release(eq(saturatedServer), anyLong(), anyBoolean());
+    }
+
+    @Test
+    void testServerWithoutFreeStreamIsExcludedAndSelectionRepeated() {
+        var iterator = mockServers.iterator();
+        ServerConfig saturatedServer = iterator.next();
+        ServerConfig freeServer = iterator.next();
+        when(connectionPools.getStreamCapacity()).thenReturn(200);
+        when(serverLoadTracker.getInFlight(saturatedServer)).thenReturn(200);
+        when(serverLoadTracker.getInFlight(freeServer)).thenReturn(199);
+        when(serverSelector.select(eq(mockServers), any(RoutingContext.class))).thenReturn(saturatedServer, freeServer);
+        when(headerHandler.processHeaders(any(HttpHeaders.class))).thenReturn(new HttpHeaders());
+        when(requestHandler.sendRequest(any())).thenReturn(ResponseEntity.ok("Success"));
+
+        ResponseEntity<String> response = routingService.routeRequest("{}", new HttpHeaders(), "/api/echo", "127.0.0.1", mockServers);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(serverLoadTracker).onDispatch(freeServer);
+        verify(circuitBreakerRegistry, never()).tryAcquirePermission(saturatedServer);
+        verify(concurrencyLimiter, never()).tryAcquire(saturatedServer);
+    }
+
+    @Test
+    void testRejectedWith503WhenSelectorFindsEveryServerAtMaxConnections() {
+        when(serverSelector.select(eq(mockServers), any(RoutingContext.class))).thenReturn(null);
+
+        ResponseEntity<String> response = routingService.routeRequest("{}", new HttpHeaders(), "/api/echo", "127.0.0.1", mockServers);
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+        verifyNoInteractions(requestHandler, serverLoadTracker);
+        verify(circuitBreakerRegistry, never()).tryAcquirePermission(any());
+    }
+
+    @Test
+    void testRejectedWith503WhenEveryServerIsAtConcurrencyLimit() {
+        var iterator = mockServers.iterator();
+        ServerConfig server1 = iterator.next();
+        ServerConfig server2 = iterator.next();
+        when(serverSelector.select(eq(mockServers), any(RoutingContext.class))).thenReturn(server1, server2);
+        when(concurrencyLimiter.tryAcquire(any())).thenReturn(false);
+
+        ResponseEntity<String> response = routingService.routeRequest("{}", new HttpHeaders(), "/api/echo", "127.0.0.1", mockServers);
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+        assertEquals("{\"status\": \"error\", \"message\": \"All servers are at their concurrency limit\"}", response.getBody());
+        verifyNoInteractions(requestHandler, serverLoadTracker);
+        verify(concurrencyLimiter, never()).release(any(), anyLong(), anyBoolean());
+    }
+
+    @Test
+    void testPermitReleasedAsDroppedWhenRequestFails() {
+        ServerConfig selectedServer = mockServers.iterator().next();
+        when(serverSelector.select(eq(mockServers), any(RoutingContext.class))).thenReturn(selectedServer);
+        when(headerHandler.processHeaders(any(HttpHeaders.class))).thenReturn(new HttpHeaders());
+        when(requestHandler.sendRequest(any())).thenThrow(new RuntimeException("Failed to send HTTP request"));
+
+        routingService.routeRequest("{}", new HttpHeaders(), "/api/echo", "127.0.0.1", mockServers);
+
+        verify(concurrencyLimiter).release(eq(selectedServer), anyLong(), eq(true));
+    }
+
+    @Test
+    void testPermitReleasedAsDroppedWhenServerSheds() {
+        ServerConfig selectedServer = mockServers.iterator().next();
+        when(serverSelector.select(eq(mockServers), any(RoutingContext.class))).thenReturn(selectedServer);
+        when(headerHandler.processHeaders(any(HttpHeaders.class))).thenReturn(new HttpHeaders());
+        when(requestHandler.sendRequest(any())).thenThrow(WebClientResponseException.create(
+                503, "Service Unavailable", new HttpHeaders(), new byte[0], null));
+
+        routingService.routeRequest("{}", new HttpHeaders(), "/api/echo", "127.0.0.1", mockServers);
+
+        verify(concurrencyLimiter).release(eq(selectedServer), anyLong(), eq(true));
+    }
+
+    @Test
+    void testPermitReleasedAsSampleOnClientError() {
+        ServerConfig selectedServer = mockServers.iterator().next();
+        when(serverSelector.select(eq(mockServers), any(RoutingContext.class))).thenReturn(selectedServer);
+        when(headerHandler.processHeaders(any(HttpHeaders.class))).thenReturn(new HttpHeaders());
+        when(requestHandler.sendRequest(any())).thenThrow(WebClientResponseException.create(
+                404, "Not Found", new HttpHeaders(), new byte[0], null));
+
+        routingService.routeRequest("{}", new HttpHeaders(), "/api/echo", "127.0.0.1", mockServers);
+
+        verify(concurrencyLimiter).release(eq(selectedServer), anyLong(), eq(false));
+    }
+
+    @Test
+    void testOutlierDetectorSeesResponseStatus() {
+        ServerConfig selectedServer = mockServers.iterator().next();
+        when(serverSelector.select(eq(mockServers), any(RoutingContext.class))).thenReturn(selectedServer);
+        when(headerHandler.processHeaders(any(HttpHeaders.class))).thenReturn(new HttpHeaders());
+        when(requestHandler.sendRequest(any())).thenReturn(ResponseEntity.ok("Success"));
+
+        routingService.routeRequest("{}", new HttpHeaders(), "/api/echo", "127.0.0.1", mockServers);
+
+        verify(outlierDetector).onResponse(eq(selectedServer), eq(200), anyLong());
+        verify(outlierDetector, never()).onFailure(any());
+    }
+
+    @Test
+    void testOutlierDetectorSeesServerErrorStatus() {
+        ServerConfig selectedServer = mockServers.iterator().next();
+        when(serverSelector.select(eq(mockServers), any(RoutingContext.class))).thenReturn(selectedServer);
+        when(headerHandler.processHeaders(any(HttpHeaders.class))).thenReturn(new HttpHeaders());
+        when(requestHandler.sendRequest(any())).thenThrow(WebClientResponseException.create(
+                502, "Bad Gateway", new HttpHeaders(), new byte[0], null));
+
+        routingService.routeRequest("{}", new HttpHeaders(), "/api/echo", "127.0.0.1", mockServers);
+
+        verify(outlierDetector).onResponse(eq(selectedServer), eq(502), anyLong());
+    }
+
+    @Test
+    void testOutlierDetectorSeesFailure() {
+        ServerConfig selectedServer = mockServers.iterator().next();
+        when(serverSelector.select(eq(mockServers), any(RoutingContext.class))).thenReturn(selectedServer);
+        when(headerHandler.processHeaders(any(HttpHeaders.class))).thenReturn(new HttpHeaders());
+        when(requestHandler.sendRequest(any())).thenThrow(new RuntimeException("Connection refused"));
+
+        routingService.routeRequest("{}", new HttpHeaders(), "/api/echo", "127.0.0.1", mockServers);
+
+        verify(outlierDetector).onFailure(selectedServer);
+        verify(outlierDetector, never()).onResponse(any(), anyInt(), anyLong());
+    }
+
+    @Test
+    void testServerWithOpenCircuitIsExcludedAndSelectionRepeated() {
+        var iterator = mockServers.iterator();
+        ServerConfig brokenServer = iterator.next();
+        ServerConfig workingServer = iterator.next();
+        when(serverSelector.select(eq(mockServers), any(RoutingContext.class))).thenReturn(brokenServer, workingServer);
+        when(circuitBreakerRegistry.tryAcquirePermission(brokenServer)).thenReturn(false);
+        when(headerHandler.processHeaders(any(HttpHeaders.class))).thenReturn(new HttpHeaders());
+        when(requestHandler.sendRequest(any())).thenReturn(ResponseEntity.ok("Success"));
+
+        ResponseEntity<String> response = routingService.routeRequest("{}", new HttpHeaders(), "/api/echo", "127.0.0.1", mockServers);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(serverLoadTracker).onDispatch(workingServer);
+        verify(concurrencyLimiter, never()).tryAcquire(brokenServer);
+        verify(circuitBreakerRegistry).onResult(eq(workingServer), anyLong(), eq(false));
+    }
+
+    @Test
+    void testRejectedWith503WhenEveryCircuitIsOpen() {
+        var iterator = mockServers.iterator();
+        ServerConfig server1 = iterator.next();
+        ServerConfig server2 = iterator.next();
+        when(serverSelector.select(eq(mockServers), any(RoutingContext.class))).thenReturn(server1, server2);
+        when(circuitBreakerRegistry.tryAcquirePermission(any())).thenReturn(false);
+
+        ResponseEntity<String> response = routingService.routeRequest("{}", new HttpHeaders(), "/api/echo", "127.0.0.1", mockServers);
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+        assertEquals("{\"status\": \"error\", \"message\": \"All servers have an open circuit\"}", response.getBody());
+        verifyNoInteractions(requestHandler, serverLoadTracker);
+    }
+
+    @Test
+    void testCircuitPermissionReturnedWhenServerIsAtConcurrencyLimit() {
+        var iterator = mockServers.iterator();
+        ServerConfig saturatedServer = iterator.next();
+        ServerConfig freeServer = iterator.next();
+        when(serverSelector.select(eq(mockServers), any(RoutingContext.class))).thenReturn(saturatedServer, freeServer);
+        when(concurrencyLimiter.tryAcquire(saturatedServer)).thenReturn(false);
+        when(headerHandler.processHeaders(any(HttpHeaders.class))).thenReturn(new HttpHeaders());
+        when(requestHandler.sendRequest(any())).thenReturn(ResponseEntity.ok("Success"));
+
+        routingService.routeRequest("{}", new HttpHeaders(), "/api/echo", "127.0.0.1", mockServers);
+
+        verify(circuitBreakerRegistry).releasePermission(saturatedServer);
+        verify(circuitBreakerRegistry, never()).releasePermission(freeServer);
+    }
+
+    @Test
+    void testServerErrorRecordedAsCircuitFailure() {
+        ServerConfig selectedServer = mockServers.iterator().next();
+        when(serverSelector.select(eq(mockServers), any(RoutingContext.class))).thenReturn(selectedServer);
+        when(headerHandler.processHeaders(any(HttpHeaders.class))).thenReturn(new HttpHeaders());
+        when(requestHandler.sendRequest(any())).thenThrow(WebClientResponseException.create(
+                500, "Internal Server Error", new HttpHeaders(), new byte[0], null));
+
+        routingService.routeRequest("{}", new HttpHeaders(), "/api/echo", "127.0.0.1", mockServers);
+
+        verify(circuitBreakerRegistry).onResult(eq(selectedServer), anyLong(), eq(true));
+    }
+
+    @Test
+    void testConnectFailureRetriedOnAnotherServer() {
+        var iterator = mockServers.iterator();
+        ServerConfig deadServer = iterator.next();
+        ServerConfig liveServer = iterator.next();
+        enableRetries();
+        when(serverSelector.select(eq(mockServers), any(RoutingContext.class))).thenReturn(deadServer, deadServer, liveServer);
+        when(headerHandler.processHeaders(any(HttpHeaders.class))).thenReturn(new HttpHeaders());
+        when(requestHandler.sendRequest(any()))
+                .thenThrow(new RuntimeException("Failed to send HTTP request"))
+                .thenReturn(ResponseEntity.ok("Success"));
+
+        ResponseEntity<String> response = routingService.routeRequest("{}", new HttpHeaders(), "/api/echo", "127.0.0.1", mockServers);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("Success", response.getBody());
+        verify(serverLoadTracker).onDispatch(deadServer);
+        verify(serverLoadTracker).onDispatch(liveServer);
+        verify(concurrencyLimiter).release(eq(deadServer), anyLong(), eq(true));
+        verify(concurrencyLimiter).release(eq(liveServer), anyLong(), eq(false));
+    }
+
+    @Test
+    void testRetryNotSentWhenBudgetIsSpent() {
+        ServerConfig selectedServer = mockServers.iterator().next();
+        enableRetries();
+        when(retryPolicy.tryAcquireRetry()).thenReturn(false);
+        when(serverSelector.select(eq(mockServers), any(RoutingContext.class))).thenReturn(selectedServer);
+        when(headerHandler.processHeaders(any(HttpHeaders.class))).thenReturn(new HttpHeaders());
+        when(requestHandler.sendRequest(any())).thenThrow(new RuntimeException("Failed to send HTTP request"));
+
+        ResponseEntity<String> response = routingService.routeRequest("{}", new HttpHeaders(), "/api/echo", "127.0.0.1", mockServers);
+
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+        verify(requestHandler, times(1)).sendRequest(any());
+    }
+
+    @Test
+    void testRetryStopsWhenEveryServerWasTried() {
+        var iterator = mockServers.iterator();
+        ServerConfig server1 = iterator.next();
+        ServerConfig server2 = iterator.next();
+        enableRetries();
+        when(retryPolicy.getMaxAttempts()).thenReturn(5);
+        when(serverSelector.select(eq(mockServers), any(RoutingContext.class))).thenReturn(server1, server2, server1, server2);
+        when(headerHandler.processHeaders(any(HttpHeaders.class))).thenReturn(new HttpHeaders());
+        when(requestHandler.sendRequest(any())).thenThrow(new RuntimeException("Failed to send HTTP request"));
+
+        ResponseEntity<String> response = routingService.routeRequest("{}", new HttpHeaders(), "/api/echo", "127.0.0.1", mockServers);
+
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+        verify(requestHandler, times(2)).sendRequest(any());
+        verify(serverLoadTracker).onDispatch(server1);
+        verify(serverLoadTracker).onDispatch(server2);
+    }
+
+    @Test
+    void testServerErrorIsNotRetried() {
+        ServerConfig selectedServer = mockServers.iterator().next();
+        when(retryPolicy.getMaxAttempts()).thenReturn(3);
+        when(serverSelector.select(eq(mockServers), any(RoutingContext.class))).thenReturn(selectedServer);
+        when(headerHandler.processHeaders(any(HttpHeaders.class))).thenReturn(new HttpHeaders());
+        when(requestHandler.sendRequest(any())).thenThrow(WebClientResponseException.create(
+                500, "Internal Server Error", new HttpHeaders(), new byte[0], null));
+
+        ResponseEntity<String> response = routingService.routeRequest("{}", new HttpHeaders(), "/api/echo", "127.0.0.1", mockServers);
+
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+        verify(requestHandler, times(1)).sendRequest(any());
+        verify(retryPolicy, never()).tryAcquireRetry();
+    }
+
+    private void enableRetries() {
+        lenient().when(retryPolicy.getMaxAttempts()).thenReturn(3);
+        lenient().when(retryPolicy.isRetryable(any())).thenReturn(true);
+        lenient().when(retryPolicy.tryAcquireRetry()).thenReturn(true);
+    }
+
+    @Test
+    void testHedgeSentWhenPrimaryIsSlowAndFirstResponseWins() {
+        var iterator = mockServers.iterator();
+        ServerConfig slowServer = iterator.next();
+        ServerConfig fastServer = iterator.next();
+        enableHedging(TimeUnit.MILLISECONDS.toNanos(20));
+        when(serverSelector.select(eq(mockServers), any(RoutingContext.class))).thenReturn(slowServer, fastServer);
+        when(headerHandler.processHeaders(any(HttpHeaders.class))).thenReturn(new HttpHeaders());
+        when(requestHandler.sendRequestAsync(argThat(request -> request != null && request.getUrl().startsWith(slowServer.getUrl()))))
+                .thenReturn(Mono.never());
+        when(requestHandler.sendRequestAsync(argThat(request -> request != null && request.getUrl().startsWith(fastServer.getUrl()))))
+                .thenReturn(Mono.just(ResponseEntity.ok("Hedged")));
+
+        ResponseEntity<String> response = routingService.routeRequest("{}", new HttpHeaders(), "/api/echo", "127.0.0.1", mockServers);
+
+        assertEquals("Hedged", response.getBody());
+        verify(serverLoadTracker).onComplete(eq(fastServer), anyLong());
+        verify(serverLoadTracker).onCancel(slowServer);
+        verify(concurrencyLimiter).release(slowServer, 0, false);
+        verify(circuitBreakerRegistry).releasePermission(slowServer);
+        verify(hedgePolicy).recordLatency(eq("/api/echo"), anyLong());
+    }
+
+    @Test
+    void testHedgeWinsWhenPrimaryFailsAfterHedgeDelay() {
+        var iterator = mockServers.iterator();
+        ServerConfig failingServer = iterator.next();
+        ServerConfig hedgeServer = iterator.next();
+        enableHedging(TimeUnit.MILLISECONDS.toNanos(20));
+        when(serverSelector.select(eq(mockServers), any(RoutingContext.class))).thenReturn(failingServer, hedgeServer);
+        when(headerHandler.processHeaders(any(HttpHeaders.class))).thenReturn(new HttpHeaders());
+        when(requestHandler.sendRequestAsync(argThat(request -> request != null && request.getUrl().startsWith(failingServer.getUrl()))))
+                .thenReturn(Mono.delay(Duration.ofMillis(50))
+                        .thenReturn(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error")));
+        when(requestHandler.sendRequestAsync(argThat(request -> request != null && request.getUrl().startsWith(hedgeServer.getUrl()))))
+                .thenReturn(Mono.delay(Duration.ofMillis(100)).thenReturn(ResponseEntity.ok("Hedged")));
+
+        ResponseEntity<String> response = routingService.routeRequest("{}", new HttpHeaders(), "/api/echo", "127.0.0.1", mockServers);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("Hedged", response.getBody());
+        verify(serverLoadTracker).onComplete(eq(hedgeServer), anyLong());
+        verify(serverLoadTracker, never()).onCancel(any());
+    }
+
+    @Test
+    void testNoHedgeWhenPrimaryFailsBeforeHedgeDelay() {
+        ServerConfig selectedServer = mockServers.iterator().next();
+        enableHedging(TimeUnit.SECONDS.toNanos(10));
+        when(serverSelector.select(eq(mockServers), any(RoutingContext.class))).thenReturn(selectedServer);
+        when(headerHandler.processHeaders(any(HttpHeaders.class))).thenReturn(new HttpHeaders());
+        when(requestHandler.sendRequestAsync(any()))
+                .thenReturn(Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error")));
+
+        ResponseEntity<String> response = routingService.routeRequest("{}", new HttpHeaders(), "/api/echo", "127.0.0.1", mockServers);
+
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+        verify(hedgePolicy, never()).tryAcquireHedge();
+    }
+
+    @Test
+    void testNoHedgeWhenPrimaryAnswersInTime() {
+        ServerConfig selectedServer = mockServers.iterator().next();
+        enableHedging(TimeUnit.SECONDS.toNanos(10));
+        when(serverSelector.select(eq(mockServers), any(RoutingContext.class))).thenReturn(selectedServer);
+        when(headerHandler.processHeaders(any(HttpHeaders.class))).thenReturn(new HttpHeaders());
+        when(requestHandler.sendRequestAsync(any())).thenReturn(Mono.just(ResponseEntity.ok("Success")));
+
+        ResponseEntity<String> response = routingService.routeRequest("{}", new HttpHeaders(), "/api/echo", "127.0.0.1", mockServers);
+
+        assertEquals("Success", response.getBody());
+        verify(serverSelector, times(1)).select(eq(mockServers), any(RoutingContext.class));
+        verify(hedgePolicy, never()).tryAcquireHedge();
+        verify(serverLoadTracker, never()).onCancel(any());
+    }
+
+    @Test
+    void testNoHedgeWithoutLatencySamples() {
+        ServerConfig selectedServer = mockServers.iterator().next();
+        when(hedgePolicy.getRoute(any())).thenReturn("/api/echo");
+        when(hedgePolicy.getDelayNanos("/api/echo")).thenReturn(-1L);
+        when(serverSelector.select(eq(mockServers), any(RoutingContext.class))).thenReturn(selectedServer);
+        when(headerHandler.processHeaders(any(HttpHeaders.class))).thenReturn(new HttpHeaders());
+        when(requestHandler.sendRequest(any())).thenReturn(ResponseEntity.ok("Success"));
+
+        ResponseEntity<String> response = routingService.routeRequest("{}", new HttpHeaders(), "/api/echo", "127.0.0.1", mockServers);
+
+        assertEquals("Success", response.getBody());
+        verify(requestHandler, never()).sendRequestAsync(any());
+        verify(hedgePolicy).recordLatency(eq("/api/echo"), anyLong());
+    }
+
+    private void enableHedging(long delayNanos) {
+        when(hedgePolicy.getRoute(any())).thenReturn("/api/echo");
+        when(hedgePolicy.getDelayNanos("/api/echo")).thenReturn(delayNanos);
+        lenient().when(hedgePolicy.tryAcquireHedge()).thenReturn(true);
+    }
+
+    @Test
+    void testExpiredDeadlineRejectedWith504() {
+        when(timeoutPolicy.isExpired(anyLong())).thenReturn(true);
+
+        ResponseEntity<String> response = routingService.routeRequest("{}", new HttpHeaders(), "/api/echo", "127.0.0.1", mockServers);
+
+        assertEquals(HttpStatus.GATEWAY_TIMEOUT, response.getStatusCode());
+        assertEquals("{\"status\": \"error\", \"message\": \"Request deadline exceeded\"}", response.getBody());
+        verifyNoInteractions(serverSelector, requestHandler, serverLoadTracker);
+    }
+
+    @Test
+    void testDeadlineExpiredResponseNotRecordedAgainstServer() {
+        ServerConfig selectedServer = mockServers.iterator().next();
+        HttpHeaders responseHeaders = new HttpHeaders();
+        responseHeaders.set("X-Deadline-Expired", "true");
+        when(serverSelector.select(eq(mockServers), any(RoutingContext.class))).thenReturn(selectedServer);
+        when(headerHandler.processHeaders(any(HttpHeaders.class))).thenReturn(new HttpHeaders());
+        when(requestHandler.sendRequest(any()))
+                .thenReturn(ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).headers(responseHeaders).body("Deadline exceeded"));
+        when(timeoutPolicy.isDeadlineExpired(504, responseHeaders)).thenReturn(true);
+
+        ResponseEntity<String> response = routingService.routeRequest("{}", new HttpHeaders(), "/api/echo", "127.0.0.1", mockServers);
+
+        assertEquals(HttpStatus.GATEWAY_TIMEOUT, response.getStatusCode());
+        verify(outlierDetector, never()).onResponse(any(), anyInt(), anyLong());
+        verify(circuitBreakerRegistry, never()).onResult(any(), anyLong(), anyBoolean());
+        verify(circuitBreakerRegistry).releasePermission(selectedServer);
+        verify(serverLoadTracker).onCancel(selectedServer);
+        verify(serverLoadTracker, never()).onComplete(any(), anyLong());
+    }
+
+    @Test
+    void testTimeoutsAndDeadlineForwarded() {
+        ServerConfig selectedServer = mockServers.iterator().next();
+        HttpHeaders forwardHeaders = new HttpHeaders();
+        RequestTimeouts timeouts = new RequestTimeouts(Duration.ofSeconds(2), Duration.ofSeconds(3));
+        when(timeoutPolicy.getDeadlineNanos(any())).thenReturn(42L);
+        when(timeoutPolicy.getTimeouts(selectedServer, "/api/echo", 42L)).thenReturn(timeouts);
+        when(serverSelector.select(eq(mockServers), any(RoutingContext.class))).thenReturn(selectedServer);
+        when(headerHandler.processHeaders(any(HttpHeaders.class))).thenReturn(forwardHeaders);
+        when(requestHandler.sendRequest(any())).thenReturn(ResponseEntity.ok("Success"));
+
+        routingService.routeRequest("{}", new HttpHeaders(), "/api/echo", "127.0.0.1", mockServers);
+
+        ArgumentCaptor<RoutingRequest> requestCaptor = ArgumentCaptor.forClass(RoutingRequest.class);
+        verify(requestHandler).sendRequest(requestCaptor.capture());
+        assertEquals(timeouts, requestCaptor.getValue().getTimeouts());
+        verify(timeoutPolicy).setDeadlineHeader(forwardHeaders, timeouts);
+    }
+
+    @Test
+    void testTimedOutRequestReturns504() {
+        ServerConfig selectedServer = mockServers.iterator().next();
+        when(timeoutPolicy.isTimeout(any())).thenReturn(true);
+        when(serverSelector.select(eq(mockServers), any(RoutingContext.class))).thenReturn(selectedServer);
+        when(headerHandler.processHeaders(any(HttpHeaders.class))).thenReturn(new HttpHeaders());
+        when(requestHandler.sendRequest(any())).thenThrow(new RuntimeException("Failed to send HTTP request"));
+
+        ResponseEntity<String> response = routingService.routeRequest("{}", new HttpHeaders(), "/api/echo", "127.0.0.1", mockServers);
+
+        assertEquals(HttpStatus.GATEWAY_TIMEOUT, response.getStatusCode());
+        verify(serverLoadTracker).onFailure(eq(selectedServer), anyLong());
+        verify(circuitBreakerRegistry).onResult(eq(selectedServer), anyLong(), eq(true));
+    }
+
+    @Test
+    void testNoRetryOnceDeadlinePassed() {
+        ServerConfig selectedServer = mockServers.iterator().next();
+        enableRetries();
+        when(timeoutPolicy.isExpired(anyLong())).thenReturn(false, true);
+        when(serverSelector.select(eq(mockServers), any(RoutingContext.class))).thenReturn(selectedServer);
+        when(headerHandler.processHeaders(any(HttpHeaders.class))).thenReturn(new HttpHeaders());
+        when(requestHandler.sendRequest(any())).thenThrow(new RuntimeException("Failed to send HTTP request"));
+
+        routingService.routeRequest("{}", new HttpHeaders(), "/api/echo", "127.0.0.1", mockServers);
+
+        verify(requestHandler, times(1)).sendRequest(any());
+        verify(retryPolicy, never()).tryAcquireRetry();
+    }
+
+    @Test
+    void testCoalescedRequestSharesResponse() {
+        ResponseEntity<String> shared = ResponseEntity.ok().header("X-Coalesced", "true").body("Shared");
+        when(requestCoalescer.execute(any(RoutingContext.class), any())).thenReturn(shared);
+
+        ResponseEntity<String> response = routingService.routeRequest("{}", new HttpHeaders(), "/api/echo", "127.0.0.1", mockServers);
+
+        assertEquals(shared, response);
+        verify(serverSelector, never()).select(any(), any());
+        verify(requestHandler, never()).sendRequest(any());
+    }
+
+    @Test
+    void testCacheHitSkipsServerSelection() {
+        ResponseEntity<String> cached = ResponseEntity.ok().header("X-Cache", "HIT").body("Cached");
+        when(responseCache.execute(any(RoutingContext.class), any())).thenReturn(cached);
+
+        ResponseEntity<String> response = routingService.routeRequest("{}", new HttpHeaders(), "/api/echo", "127.0.0.1", mockServers);
+
+        assertEquals(cached, response);
+        verify(requestCoalescer, never()).execute(any(), any());
+        verify(serverSelector, never()).select(any(), any());
+        verify(requestHandler, never()).sendRequest(any());
+    }
+
+    @Test
+    void testReplayedRequestSkipsRouting() {
+        ResponseEntity<String> replayed = ResponseEntity.ok().header("Idempotent-Replayed", "true").body("Stored");
+        when(idempotencyStore.execute(any(RoutingContext.class), any())).thenReturn(replayed);
+
+        ResponseEntity<String> response = routingService.routeRequest("{}", new HttpHeaders(), "/api/echo", "127.0.0.1", mockServers);
+
+        assertEquals(replayed, response);
+        verify(responseCache, never()).execute(any(), any());
+        verify(requestHandler, never()).sendRequest(any());
+    }
+
+    @Test
+    void testAsyncRoutingSendsRequestWithoutBlocking() {
+        ServerConfig selectedServer = mockServers.iterator().next();
+        when(serverSelector.select(eq(mockServers), any(RoutingContext.class))).thenReturn(selectedServer);
+        when(headerHandler.processHeaders(any(HttpHeaders.class))).thenReturn(new HttpHeaders());
+        when(requestHandler.sendRequestAsync(any())).thenReturn(Mono.just(ResponseEntity.ok("Success")));
+
+        Mono<ResponseEntity<String>> result = routingService.routeRequestAsync("{}", new HttpHeaders(), "/api/echo", "127.0.0.1", mockServers);
+
+        verify(requestHandler, never()).sendRequestAsync(any());
+        ResponseEntity<String> response = result.block(Duration.ofSeconds(5));
+        assertEquals("Success", response.getBody());
+        verify(requestHandler, never()).sendRequest(any());
+        verify(serverLoadTracker).onComplete(eq(selectedServer), anyLong());
+        verify(concurrencyLimiter).release(eq(selectedServer), anyLong(), eq(false));
+    }
+
+    @Test
+    void testAsyncConnectFailureRetriedOnAnotherServer() {
+        var iterator = mockServers.iterator();
+        ServerConfig deadServer = iterator.next();
+        ServerConfig liveServer = iterator.next();
+        enableRetries();
+        when(serverSelector.select(eq(mockServers), any(RoutingContext.class))).thenReturn(deadServer, deadServer, liveServer);
+        when(headerHandler.processHeaders(any(HttpHeaders.class))).thenReturn(new HttpHeaders());
+        when(requestHandler.sendRequestAsync(any()))
+                .thenReturn(Mono.error(new RuntimeException("Failed to send HTTP request")))
+                .thenReturn(Mono.just(ResponseEntity.ok("Success")));
+
+        ResponseEntity<String> response = routingService.routeRequestAsync("{}", new HttpHeaders(), "/api/echo", "127.0.0.1", mockServers)
+                .block(Duration.ofSeconds(5));
+
+        assertEquals("Success", response.getBody());
+        verify(concurrencyLimiter).release(eq(deadServer), anyLong(), eq(true));
+        verify(concurrencyLimiter).release(eq(liveServer), anyLong(), eq(false));
+    }
+
+    @Test
+    void testAsyncRetryNotSentWhenBudgetIsSpent() {
+        ServerConfig selectedServer = mockServers.iterator().next();
+        enableRetries();
+        when(retryPolicy.tryAcquireRetry()).thenReturn(false);
+        when(serverSelector.select(eq(mockServers), any(RoutingContext.class))).thenReturn(selectedServer);
+        when(headerHandler.processHeaders(any(HttpHeaders.class))).thenReturn(new HttpHeaders());
+        when(requestHandler.sendRequestAsync(any())).thenReturn(Mono.error(new RuntimeException("Failed to send HTTP request")));
+
+        ResponseEntity<String> response = routingService.routeRequestAsync("{}", new HttpHeaders(), "/api/echo", "127.0.0.1", mockServers)
+                .block(Duration.ofSeconds(5));
+
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+        verify(requestHandler, times(1)).sendRequestAsync(any());
+    }
+
+    @Test
+    void testAsyncHedgeSentWhenPrimaryIsSlow() {
+        var iterator = mockServers.iterator();
+        ServerConfig slowServer = iterator.next();
+        ServerConfig fastServer = iterator.next();
+        enableHedging(TimeUnit.MILLISECONDS.toNanos(20));
+        when(serverSelector.select(eq(mockServers), any(RoutingContext.class))).thenReturn(slowServer, fastServer);
+        when(headerHandler.processHeaders(any(HttpHeaders.class))).thenReturn(new HttpHeaders());
+        when(requestHandler.sendRequestAsync(argThat(request -> request != null && request.getUrl().startsWith(slowServer.getUrl()))))
+                .thenReturn(Mono.never());
+        when(requestHandler.sendRequestAsync(argThat(request -> request != null && request.getUrl().startsWith(fastServer.getUrl()))))
+                .thenReturn(Mono.just(ResponseEntity.ok("Hedged")));
+
+        ResponseEntity<String> response = routingService.routeRequestAsync("{}", new HttpHeaders(), "/api/echo", "127.0.0.1", mockServers)
+                .block(Duration.ofSeconds(5));
+
+        assertEquals("Hedged", response.getBody());
+        verify(serverLoadTracker).onCancel(slowServer);
+        verify(hedgePolicy).recordLatency(eq("/api/echo"), anyLong());
+    }
+
+    @Test
+    void testAsyncExpiredDeadlineRejectedWith504() {
+        when(timeoutPolicy.isExpired(anyLong())).thenReturn(true);
+
+        ResponseEntity<String> response = routingService.routeRequestAsync("{}", new HttpHeaders(), "/api/echo", "127.0.0.1", mockServers)
+                .block(Duration.ofSeconds(5));
+
+        assertEquals(HttpStatus.GATEWAY_TIMEOUT, response.getStatusCode());
+        verify(serverSelector, never()).select(any(), any());
+    }
+
+    @Test
+    void testAsyncCacheHitSkipsServerSelection() {
+        ResponseEntity<String> cached = ResponseEntity.ok().header("X-Cache", "HIT").body("Cached");
+        when(responseCache.executeAsync(any(RoutingContext.class), any())).thenReturn(Mono.just(cached));
+
+        ResponseEntity<String> response = routingService.routeRequestAsync("{}", new HttpHeaders(), "/api/echo", "127.0.0.1", mockServers)
+                .block(Duration.ofSeconds(5));
+
+        assertEquals(cached, response);
+        verify(requestCoalescer, never()).executeAsync(any(), any());
+        verify(requestHandler, never()).sendRequestAsync(any());
+    }
+
+    @Test
+    void testStreamingRequestHoldsPermitsUntilResponseBodyEnds() {
+        ServerConfig selectedServer = mockServers.iterator().next();
+        when(serverSelector.select(eq(mockServers), any(RoutingContext.class))).thenReturn(selectedServer);
+        when(headerHandler.processHeaders(any(HttpHeaders.class))).thenReturn(new HttpHeaders());
+        when(requestHandler.sendStreamingRequest(any(), any()))
+                .thenReturn(Mono.just(ResponseEntity.ok().body(Flux.just(buffer("part1"), buffer("part2")))));
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentLength(5);
+
+        ResponseEntity<Flux<DataBuffer>> response = routingService.routeRequestStreaming(Flux.just(buffer("hello")),
+                headers, "/api/upload", "127.0.0.1", mockServers).block(Duration.ofSeconds(5));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(concurrencyLimiter, never()).release(any(), anyLong(), anyBoolean());
+        assertEquals("part1part2", DataBufferUtils.join(response.getBody()).block(Duration.ofSeconds(5))
+                .toString(StandardCharsets.UTF_8));
+        verify(serverLoadTracker).onComplete(eq(selectedServer), anyLong());
+        verify(concurrencyLimiter).release(eq(selectedServer), anyLong(), eq(false));
+        verify(requestHandler, never()).sendRequest(any());
+        ArgumentCaptor<RoutingRequest> requestCaptor = ArgumentCaptor.forClass(RoutingRequest.class);
+        verify(requestHandler).sendStreamingRequest(requestCaptor.capture(), any());
+        assertEquals(5, requestCaptor.getValue().getHeaders().getContentLength());
+    }
+
+    @Test
+    void testStreamingFailureAnsweredWithoutRetry() {
+        ServerConfig selectedServer = mockServers.iterator().next();
+        enableRetries();
+        when(serverSelector.select(eq(mockServers), any(RoutingContext.class))).thenReturn(selectedServer);
+        when(headerHandler.processHeaders(any(HttpHeaders.class))).thenReturn(new HttpHeaders());
+        when(requestHandler.sendStreamingRequest(any(), any()))
+                .thenReturn(Mono.error(new RuntimeException("Failed to send HTTP request")));
+
+        ResponseEntity<Flux<DataBuffer>> response = routingService.routeRequestStreaming(Flux.just(buffer("hello")),
+                new HttpHeaders(), "/api/upload", "127.0.0.1", mockServers).block(Duration.ofSeconds(5));
+
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+        assertEquals("Internal routing error", DataBufferUtils.join(response.getBody()).block(Duration.ofSeconds(5))
+                .toString(StandardCharsets.UTF_8));
+        verify(requestHandler, times(1)).sendStreamingRequest(any(), any());
+        verify(concurrencyLimiter).release(eq(selectedServer), anyLong(), eq(true));
+    }
+
+    @Test
+    void testStreamingResponseCancelledByClientFreesPermits() {
+        ServerConfig selectedServer = mockServers.iterator().next();
+        when(serverSelector.select(eq(mockServers), any(RoutingContext.class))).thenReturn(selectedServer);
+        when(headerHandler.processHeaders(any(HttpHeaders.class))).thenReturn(new HttpHeaders());
+        when(requestHandler.sendStreamingRequest(any(), any()))
+                .thenReturn(Mono.just(ResponseEntity.ok().body(Flux.<DataBuffer>never())));
+
+        ResponseEntity<Flux<DataBuffer>> response = routingService.routeRequestStreaming(Flux.just(buffer("hello")),
+                new HttpHeaders(), "/api/upload", "127.0.0.1", mockServers).block(Duration.ofSeconds(5));
+        response.getBody().subscribe().dispose();
+
+        verify(serverLoadTracker).onCancel(selectedServer);
+        verify(serverLoadTracker, never()).onComplete(any(), anyLong());
+    }
+
+    private static DataBuffer buffer(String content) {
+        return DefaultDataBufferFactory.sharedInstance.wrap(content.getBytes(StandardCharsets.UTF_8));
+    }
 }
\ No newline at end of file
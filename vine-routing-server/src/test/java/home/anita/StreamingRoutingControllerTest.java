@@ -0,0 +1,127 @@
+package home.anita;
+
+import home.anita.server.AdmissionQueue;
+import home.anita.server.RateLimiter;
+import home.anita.server.RoutingContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(StreamingRoutingController.class)
+@TestPropertySource(properties = "routing.mode=streaming")
+class StreamingRoutingControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private RoutingService routingService;
+
+    @MockBean
+    private RoutingConfig routingConfig;
+
+    @MockBean
+    private AdmissionQueue admissionQueue;
+
+    @MockBean
+    private RateLimiter rateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        when(routingConfig.getStreaming()).thenReturn(new RoutingConfig.StreamingConfig());
+        when(admissionQueue.tryAcquire()).thenReturn(true);
+    }
+
+    @Test
+    void testBodiesStreamedWithServerStatusAndHeaders() throws Exception {
+        String requestBody = "{\"message\": \"test\"}";
+        AtomicReference<String> forwardedBody = new AtomicReference<>();
+        when(routingService.routeRequestStreaming(any(), any(HttpHeaders.class), eq("/api/upload"), any(), any()))
+            .thenAnswer(invocation -> {
+                Flux<DataBuffer> body = invocation.getArgument(0);
+                forwardedBody.set(DataBufferUtils.join(body).block(Duration.ofSeconds(5)).toString(StandardCharsets.UTF_8));
+                return Mono.just(ResponseEntity.status(HttpStatus.CREATED)
+                    .header("X-Server", "9001")
+                    .header(HttpHeaders.TRANSFER_ENCODING, "chunked")
+                    .body(Flux.just(buffer("part1"), buffer("part2"))));
+            });
+
+        mockMvc.perform(post("/api/upload")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(requestBody))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("X-Server", "9001"))
+                .andExpect(header().doesNotExist(HttpHeaders.TRANSFER_ENCODING))
+                .andExpect(content().string("part1part2"));
+
+        assertEquals(requestBody, forwardedBody.get());
+        verify(routingService, never()).routeRequest(any(), any(), any(), any(), any());
+        verify(admissionQueue).release();
+    }
+
+    @Test
+    void testDroppedRequestReturns503WithRetryAfter() throws Exception {
+        when(admissionQueue.tryAcquire()).thenReturn(false);
+        when(admissionQueue.getRetryAfterSeconds()).thenReturn(2L);
+
+        mockMvc.perform(post("/api/upload")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{}"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "2"))
+                .andExpect(jsonPath("$.message").value("Router is overloaded"));
+        verify(routingService, never()).routeRequestStreaming(any(), any(), any(), any(), any());
+        verify(admissionQueue, never()).release();
+    }
+
+    @Test
+    void testRateLimitedRequestReturns429WithRetryAfter() throws Exception {
+        when(rateLimiter.isEnabled()).thenReturn(true);
+        when(rateLimiter.tryAcquire(any(RoutingContext.class))).thenReturn(1_500_000_000L);
+
+        mockMvc.perform(post("/api/upload")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{}"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "2"));
+        verify(admissionQueue, never()).tryAcquire();
+    }
+
+    @Test
+    void testMissingBodyReturns400() throws Exception {
+        mockMvc.perform(post("/api/upload")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+
+        verify(routingService, never()).routeRequestStreaming(any(), any(), any(), any(), any());
+    }
+
+    private static DataBuffer buffer(String content) {
+        return DefaultDataBufferFactory.sharedInstance.wrap(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
\ No newline at end of file
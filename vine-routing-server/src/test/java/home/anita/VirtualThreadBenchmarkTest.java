@@ -0,0 +1,192 @@
+package home.anita;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Benchmark of the blocking mode on Tomcat's platform thread pool against the same mode on
+ * virtual threads. The backend answers like grape with --slow=true, after 800ms, and the
+ * number of concurrent clients is raised step by step. A concurrency level is sustained when
+ * every request succeeds with a p99 below 1.5 times the backend latency; beyond the 200
+ * Tomcat threads, requests queue for a thread and the p99 grows. For each level the peak
+ * platform thread count and the heap used are reported as the memory footprint.
+ * Runs only with VINE_BENCHMARK=true on Java 21 or later:
+ * <pre>VINE_BENCHMARK=true ./gradlew test --tests home.anita.VirtualThreadBenchmarkTest -i</pre>
+ */
+@EnabledIfEnvironmentVariable(named = "VINE_BENCHMARK", matches = "true")
+@EnabledForJreRange(min = JRE.JAVA_21)
+@Slf4j
+class VirtualThreadBenchmarkTest {
+
+    /**
+     * Delay of grape's slow feature, app.slow.sleep-time-ms.
+     */
+    private static final long SLOW_SLEEP_MILLIS = 800;
+    private static final List<Integer> CONCURRENCY_LEVELS = List.of(100, 200, 300, 400, 500);
+    private static final int REQUESTS_PER_CLIENT = 3;
+    private static final long MAX_SUSTAINED_P99_MILLIS = SLOW_SLEEP_MILLIS * 3 / 2;
+
+    private static DisposableServer backend;
+
+    @BeforeAll
+    static void startBackend() {
+        backend = HttpServer.create()
+                .port(0)
+                .route(routes -> routes
+                        .get("/health", (request, response) -> response
+                                .header("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                                .sendString(Mono.just("{\"status\": \"UP\"}")))
+                        .post("/api/echo", (request, response) -> response
+                                .sendString(Mono.delay(Duration.ofMillis(SLOW_SLEEP_MILLIS))
+                                        .thenReturn("{\"message\": \"slow\"}"))))
+                .bindNow();
+    }
+
+    @AfterAll
+    static void stopBackend() {
+        backend.disposeNow();
+    }
+
+    @Test
+    void testVirtualThreadsSustainMoreConcurrencyThanThreadPool() {
+        var threadPool = benchmark(false);
+        var virtualThreads = benchmark(true);
+
+        log.info("Max sustained concurrency: thread pool {}, virtual threads {}",
+                threadPool.maxSustainedConcurrency(), virtualThreads.maxSustainedConcurrency());
+        assertTrue(virtualThreads.maxSustainedConcurrency() >= threadPool.maxSustainedConcurrency());
+    }
+
+    private BenchmarkResult benchmark(boolean virtualThreads) {
+        var mode = virtualThreads ? "virtual threads" : "thread pool";
+        var levels = new ArrayList<LevelResult>();
+        try (var context = new SpringApplicationBuilder(VineRoutingServer.class)
+                .properties(
+                        "server.port=0",
+                        "spring.threads.virtual.enabled=" + virtualThreads,
+                        "routing.servers[0].url=http://localhost:" + backend.port(),
+                        "routing.admission.enabled=false",
+                        "routing.concurrency-limit.enabled=false",
+                        "routing.retry.enabled=false",
+                        "logging.level.home.anita=WARN")
+                .run()) {
+            var port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            var connectionProvider = ConnectionProvider.builder("benchmark")
+                    .maxConnections(CONCURRENCY_LEVELS.get(CONCURRENCY_LEVELS.size() - 1))
+                    .pendingAcquireMaxCount(-1)
+                    .build();
+            var client = WebClient.builder()
+                    .baseUrl("http://localhost:" + port)
+                    .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider)))
+                    .build();
+            try {
+                for (var concurrency : CONCURRENCY_LEVELS) {
+                    var level = runLevel(client, concurrency);
+                    log.info("{}: {} clients, p99 {}ms, {} errors, peak {} platform threads, {}MB heap used",
+                            mode, concurrency, level.p99Millis(), level.errors(), level.peakThreads(),
+                            level.heapUsedBytes() / (1024 * 1024));
+                    levels.add(level);
+                }
+            } finally {
+                connectionProvider.disposeLater().block();
+            }
+        }
+        return new BenchmarkResult(levels);
+    }
+
+    /**
+     * Runs the given number of clients, each sending its requests one after the other.
+     */
+    private LevelResult runLevel(WebClient client, int concurrency) {
+        var threadBean = ManagementFactory.getThreadMXBean();
+        threadBean.resetPeakThreadCount();
+
+        var latencies = Flux.range(0, concurrency)
+                .flatMap(clientIndex -> Flux.range(0, REQUESTS_PER_CLIENT)
+                        .concatMap(i -> send(client)), concurrency)
+                .collectList()
+                .block(Duration.ofMinutes(2));
+
+        var errors = latencies.stream().filter(latency -> latency < 0).count();
+        var sorted = latencies.stream().filter(latency -> latency >= 0).sorted().toList();
+        var p99Millis = sorted.isEmpty() ? Long.MAX_VALUE
+                : TimeUnit.NANOSECONDS.toMillis(sorted.get((int) Math.ceil(sorted.size() * 0.99) - 1));
+        var heapUsedBytes = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        return new LevelResult(concurrency, p99Millis, errors, threadBean.getPeakThreadCount(), heapUsedBytes);
+    }
+
+    /**
+     * Sends one request.
+     *
+     * @return Mono emitting the latency in nanoseconds, or -1 if the request failed
+     */
+    private static Mono<Long> send(WebClient client) {
+        return Mono.defer(() -> {
+            var startNanos = System.nanoTime();
+            return client.post()
+                    .uri("/api/echo")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue("{\"message\": \"benchmark\"}")
+                    .retrieve()
+                    .toBodilessEntity()
+                    .map(response -> response.getStatusCode().is2xxSuccessful() ? System.nanoTime() - startNanos : -1L)
+                    .onErrorReturn(-1L);
+        });
+    }
+
+    /**
+     * Results of one concurrency level.
+     *
+     * @param concurrency   The number of concurrent clients
+     * @param p99Millis     The 99th percentile latency of the successful requests
+     * @param errors        The number of failed requests
+     * @param peakThreads   The peak number of live platform threads
+     * @param heapUsedBytes The heap used after the level
+     */
+    private record LevelResult(int concurrency, long p99Millis, long errors, int peakThreads, long heapUsedBytes) {
+
+        boolean isSustained() {
+            return errors == 0 && p99Millis <= MAX_SUSTAINED_P99_MILLIS;
+        }
+    }
+
+    private record BenchmarkResult(List<LevelResult> levels) {
+
+        /**
+         * Gets the highest concurrency level sustained, with every lower level sustained too.
+         */
+        int maxSustainedConcurrency() {
+            var max = 0;
+            for (var level : levels) {
+                if (!level.isSustained()) {
+                    break;
+                }
+                max = level.concurrency();
+            }
+            return max;
+        }
+    }
+}
\ No newline at end of file
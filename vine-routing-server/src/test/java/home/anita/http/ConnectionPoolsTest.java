@@ -0,0 +1,199 @@
+package home.anita.http;
+
+import home.anita.RoutingConfig;
+import home.anita.RoutingConfig.UpstreamProtocol;
+import io.netty.channel.ChannelOption;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.server.HttpServer;
+
+import java.net.SocketAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionPoolsTest {
+
+    private RoutingConfig routingConfig;
+    private ConnectionPools connectionPools;
+    private DisposableServer server;
+
+    @BeforeEach
+    void setUp() {
+        routingConfig = new RoutingConfig();
+        server = HttpServer.create()
+                .port(0)
+                .route(routes -> routes.post("/api/echo", (request, response) -> response
+                        .sendString(Mono.delay(Duration.ofMillis(300)).thenReturn("ok"))))
+                .bindNow();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (connectionPools != null) {
+            connectionPools.close();
+        }
+        server.disposeNow();
+    }
+
+    @Test
+    void testOriginNormalizesSchemeHostAndDefaultPort() {
+        assertEquals("http://localhost:9001", ConnectionPools.getOrigin("http://LocalHost:9001/api/echo"));
+        assertEquals("http://example.com:80", ConnectionPools.getOrigin("HTTP://example.com/api"));
+        assertEquals("https://example.com:443", ConnectionPools.getOrigin("https://example.com"));
+        assertThrows(IllegalArgumentException.class, () -> ConnectionPools.getOrigin("invalid-url/test"));
+    }
+
+    @Test
+    void testStatsBeforeFirstRequestAreEmpty() {
+        connectionPools = new ConnectionPools(routingConfig);
+
+        ConnectionPools.PoolStats stats = connectionPools.getStats("http://localhost:9001");
+
+        assertEquals(0, stats.active());
+        assertEquals(0, stats.acquired());
+        assertEquals(500, stats.maxConnections());
+        assertEquals(-1, stats.acquireP99Ms());
+    }
+
+    @Test
+    void testStatsFollowConnectionsOfServer() throws Exception {
+        connectionPools = new ConnectionPools(routingConfig);
+        RequestHandler requestHandler = new RequestHandler(connectionPools);
+        String url = "http://localhost:" + server.port();
+
+        CompletableFuture<?> response = requestHandler.sendRequestAsync(
+                RoutingRequest.create(url, "/api/echo", new HttpHeaders(), "test")).toFuture();
+        awaitActive(url, 1);
+        response.get(5, TimeUnit.SECONDS);
+        // The connection returns to the pool once the response was read
+        awaitActive(url, 0);
+
+        ConnectionPools.PoolStats stats = connectionPools.getStats(url);
+        assertEquals(1, stats.idle());
+        assertEquals(1, stats.acquired());
+        assertTrue(stats.acquireP99Ms() > 0);
+        assertEquals(0, connectionPools.getStats("http://localhost:9001").acquired());
+    }
+
+    @Test
+    void testRequestBeyondMaxConnectionsWaitsThenFailsAcquire() throws Exception {
+        routingConfig.getConnectionPool().setMaxConnections(1);
+        routingConfig.getConnectionPool().setPendingAcquireTimeout(Duration.ofMillis(100));
+        connectionPools = new ConnectionPools(routingConfig);
+        RequestHandler requestHandler = new RequestHandler(connectionPools);
+        String url = "http://localhost:" + server.port();
+
+        CompletableFuture<?> first = requestHandler.sendRequestAsync(
+                RoutingRequest.create(url, "/api/echo", new HttpHeaders(), "test")).toFuture();
+        awaitActive(url, 1);
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> requestHandler.sendRequestAsync(
+                RoutingRequest.create(url, "/api/echo", new HttpHeaders(), "test")).block(Duration.ofSeconds(5)));
+        first.get(5, TimeUnit.SECONDS);
+
+        assertEquals("Failed to send HTTP request", exception.getMessage());
+        ConnectionPools.PoolStats stats = connectionPools.getStats(url);
+        assertEquals(1, stats.acquired());
+        assertEquals(1, stats.failedAcquires());
+    }
+
+    @Test
+    void testServerMaxConnectionsOverridesPoolLimit() {
+        RoutingConfig.ServerConfig limited = new RoutingConfig.ServerConfig();
+        limited.setUrl("http://localhost:9001");
+        limited.setMaxConnections(20);
+        RoutingConfig.ServerConfig unlimited = new RoutingConfig.ServerConfig();
+        unlimited.setUrl("http://localhost:9002");
+        routingConfig.setServers(Set.of(limited, unlimited));
+        connectionPools = new ConnectionPools(routingConfig);
+
+        assertEquals(20, connectionPools.getStats("http://LOCALHOST:9001/api/echo").maxConnections());
+        assertEquals(500, connectionPools.getStats("http://localhost:9002").maxConnections());
+
+        connectionPools.startAcquire("http://localhost:9001/api/echo");
+        assertEquals(20, connectionPools.getStats("http://localhost:9001").maxConnections());
+    }
+
+    @Test
+    void testServerConnectTimeoutFixedForItsPool() {
+        RoutingConfig.ServerConfig slow = new RoutingConfig.ServerConfig();
+        slow.setUrl("http://localhost:9001");
+        slow.setConnectTimeout(Duration.ofMillis(500));
+        RoutingConfig.ServerConfig other = new RoutingConfig.ServerConfig();
+        other.setUrl("http://localhost:9002");
+        routingConfig.setServers(Set.of(slow, other));
+        connectionPools = new ConnectionPools(routingConfig);
+
+        assertEquals(500, getConnectTimeoutMillis("http://localhost:9001/api/echo"));
+        assertEquals(2000, getConnectTimeoutMillis("http://localhost:9002/api/echo"));
+        assertSame(connectionPools.getHttpClient("http://localhost:9001/api/echo"),
+                connectionPools.getHttpClient("http://localhost:9001/api/other"));
+    }
+
+    @Test
+    void testStreamCapacityBoundedOnlyInH2cMode() {
+        connectionPools = new ConnectionPools(routingConfig);
+        assertEquals(-1, connectionPools.getStreamCapacity());
+
+        routingConfig.getConnectionPool().setProtocol(UpstreamProtocol.H2C);
+
+        assertEquals(200, connectionPools.getStreamCapacity());
+        assertEquals(2, connectionPools.getStats("http://localhost:9001").maxConnections());
+    }
+
+    @Test
+    void testH2cRequestsMultiplexedOverFewConnections() {
+        routingConfig.getConnectionPool().setProtocol(UpstreamProtocol.H2C);
+        Set<SocketAddress> clientConnections = ConcurrentHashMap.newKeySet();
+        DisposableServer h2cServer = HttpServer.create()
+                .port(0)
+                .protocol(HttpProtocol.H2C)
+                .route(routes -> routes.post("/api/echo", (request, response) -> {
+                    clientConnections.add(request.remoteAddress());
+                    return response.sendString(Mono.delay(Duration.ofMillis(300)).thenReturn("ok"));
+                }))
+                .bindNow();
+        try {
+            connectionPools = new ConnectionPools(routingConfig);
+            RequestHandler requestHandler = new RequestHandler(connectionPools);
+            String url = "http://localhost:" + h2cServer.port();
+
+            List<ResponseEntity<String>> responses = Flux.range(0, 50)
+                    .flatMap(i -> requestHandler.sendRequestAsync(
+                            RoutingRequest.create(url, "/api/echo", new HttpHeaders(), "test")))
+                    .collectList()
+                    .block(Duration.ofSeconds(10));
+
+            assertEquals(50, responses.size());
+            responses.forEach(response -> assertEquals("ok", response.getBody()));
+            assertTrue(clientConnections.size() <= 2, "Connections opened: " + clientConnections.size());
+            assertEquals(50, connectionPools.getStats(url).acquired());
+        } finally {
+            h2cServer.disposeNow();
+        }
+    }
+
+    private int getConnectTimeoutMillis(String url) {
+        return (Integer) connectionPools.getHttpClient(url).configuration().options().get(ChannelOption.CONNECT_TIMEOUT_MILLIS);
+    }
+
+    private void awaitActive(String url, int active) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (connectionPools.getStats(url).active() != active && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(active, connectionPools.getStats(url).active());
+    }
+}
\ No newline at end of file
@@ -1,10 +1,23 @@
 package home.anita.http;
 
+import io.netty.handler.timeout.ReadTimeoutException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.server.HttpServer;
+
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -50,4 +63,108 @@ class RequestHandlerTest {
         assertTrue(exception.getCause() instanceof IllegalArgumentException);
         assertTrue(exception.getCause().getMessage().contains("Unsupported HTTP method"));
     }
+
+    @Test
+    void testSendRequestAsyncWithUnsupportedHttpMethod() {
+        HttpRequest request = new HttpRequest("http://localhost:8080/test", HttpMethod.PATCH, new HttpHeaders(), null) {};
+
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> {
+            requestHandler.sendRequestAsync(request).block();
+        });
+
+        assertEquals("Failed to send HTTP request", exception.getMessage());
+        assertTrue(exception.getCause() instanceof IllegalArgumentException);
+    }
+
+    @Test
+    void testTotalTimeoutFailsRequest() throws Exception {
+        // A listening socket that never answers keeps the request waiting for its response
+        try (ServerSocket silentServer = new ServerSocket(0)) {
+            HttpRequest request = RoutingRequest.create("http://localhost:" + silentServer.getLocalPort(), "/api/echo",
+                    new HttpHeaders(), "test", new RequestTimeouts(null, Duration.ofMillis(200)));
+
+            RuntimeException exception = assertThrows(RuntimeException.class, () -> requestHandler.sendRequest(request));
+
+            assertEquals("Failed to send HTTP request", exception.getMessage());
+            assertTrue(hasCause(exception, TimeoutException.class));
+        }
+    }
+
+    @Test
+    void testFirstByteTimeoutFailsRequest() throws Exception {
+        try (ServerSocket silentServer = new ServerSocket(0)) {
+            HttpRequest request = RoutingRequest.create("http://localhost:" + silentServer.getLocalPort(), "/api/echo",
+                    new HttpHeaders(), "test", new RequestTimeouts(Duration.ofMillis(200), null));
+
+            RuntimeException exception = assertThrows(RuntimeException.class,
+                    () -> requestHandler.sendRequestAsync(request).block(Duration.ofSeconds(5)));
+
+            assertEquals("Failed to send HTTP request", exception.getMessage());
+            assertTrue(hasCause(exception, ReadTimeoutException.class));
+        }
+    }
+
+    @Test
+    void testStreamingRequestPassesLargeBodyThroughInChunks() {
+        var echoServer = HttpServer.create()
+                .port(0)
+                .route(routes -> routes.post("/api/upload", (request, response) ->
+                        response.send(request.receive().retain())))
+                .bindNow();
+        try {
+            int chunks = 512;
+            int chunkSize = 8 * 1024;
+            Flux<DataBuffer> body = Flux.range(0, chunks)
+                    .map(i -> DefaultDataBufferFactory.sharedInstance.wrap(new byte[chunkSize]));
+            HttpRequest request = RoutingRequest.create("http://localhost:" + echoServer.port(), "/api/upload",
+                    new HttpHeaders(), null);
+
+            ResponseEntity<Flux<DataBuffer>> response = requestHandler.sendStreamingRequest(request, body)
+                    .block(Duration.ofSeconds(5));
+
+            assertEquals(HttpStatus.OK, response.getStatusCode());
+            long received = response.getBody()
+                    .map(buffer -> {
+                        int size = buffer.readableByteCount();
+                        DataBufferUtils.release(buffer);
+                        return (long) size;
+                    })
+                    .reduce(0L, Long::sum)
+                    .block(Duration.ofSeconds(10));
+            assertEquals((long) chunks * chunkSize, received);
+        } finally {
+            echoServer.disposeNow();
+        }
+    }
+
+    @Test
+    void testStreamingRequestPassesErrorStatusOn() {
+        var failingServer = HttpServer.create()
+                .port(0)
+                .route(routes -> routes.post("/api/upload", (request, response) ->
+                        response.status(503).sendString(Mono.just("Busy"))))
+                .bindNow();
+        try {
+            HttpRequest request = RoutingRequest.create("http://localhost:" + failingServer.port(), "/api/upload",
+                    new HttpHeaders(), null);
+
+            ResponseEntity<Flux<DataBuffer>> response = requestHandler.sendStreamingRequest(request,
+                    Flux.just(DefaultDataBufferFactory.sharedInstance.wrap("test".getBytes()))).block(Duration.ofSeconds(5));
+
+            assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+            DataBuffer body = DataBufferUtils.join(response.getBody()).block(Duration.ofSeconds(5));
+            assertEquals("Busy", body.toString(StandardCharsets.UTF_8));
+        } finally {
+            failingServer.disposeNow();
+        }
+    }
+
+    private static boolean hasCause(Throwable failure, Class<? extends Throwable> type) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (type.isInstance(cause)) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
\ No newline at end of file
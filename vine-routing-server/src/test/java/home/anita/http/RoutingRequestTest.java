@@ -4,6 +4,8 @@ import org.junit.jupiter.api.Test;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 
+import java.time.Duration;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class RoutingRequestTest {
@@ -87,4 +89,14 @@ class RoutingRequestTest {
         assertEquals(serverUrl + path, request.getUrl());
         assertNull(request.getBody());
     }
+
+    @Test
+    void testRoutingRequestWithTimeouts() {
+        RequestTimeouts timeouts = new RequestTimeouts(Duration.ofSeconds(5), Duration.ofSeconds(10));
+
+        RoutingRequest request = RoutingRequest.create("http://localhost:9001", "/api/echo", new HttpHeaders(), "test", timeouts);
+
+        assertEquals(timeouts, request.getTimeouts());
+        assertNull(new RoutingRequest("http://localhost:9001", "/api/echo", new HttpHeaders(), "test").getTimeouts());
+    }
 }
\ No newline at end of file
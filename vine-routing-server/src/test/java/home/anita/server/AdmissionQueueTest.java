@@ -0,0 +1,200 @@
+package home.anita.server;
+
+import home.anita.RoutingConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionQueueTest {
+
+    private RoutingConfig routingConfig;
+
+    @BeforeEach
+    void setUp() {
+        routingConfig = new RoutingConfig();
+        routingConfig.getAdmission().setEnabled(true);
+        routingConfig.getAdmission().setMaxConcurrent(1);
+        routingConfig.getAdmission().setInterval(Duration.ofMillis(50));
+    }
+
+    @Test
+    void testFreeSlotAdmitsImmediately() {
+        AdmissionQueue admissionQueue = new AdmissionQueue(routingConfig);
+
+        assertTrue(admissionQueue.tryAcquire());
+
+        assertEquals(1, admissionQueue.getInFlight());
+        assertEquals(1, admissionQueue.getAdmitted());
+        assertEquals(0, admissionQueue.getQueueDepth());
+
+        admissionQueue.release();
+        assertEquals(0, admissionQueue.getInFlight());
+    }
+
+    @Test
+    void testBackgroundWorkAdmittedOnlyWithFreeSlot() {
+        AdmissionQueue admissionQueue = new AdmissionQueue(routingConfig);
+
+        assertTrue(admissionQueue.tryAcquireNow());
+        assertFalse(admissionQueue.tryAcquireNow());
+        assertEquals(0, admissionQueue.getAdmitted());
+
+        admissionQueue.release();
+        assertEquals(0, admissionQueue.getInFlight());
+    }
+
+    @Test
+    void testQueuedRequestAdmittedWhenSlotIsReleased() throws Exception {
+        routingConfig.getAdmission().setInterval(Duration.ofSeconds(5));
+        AdmissionQueue admissionQueue = new AdmissionQueue(routingConfig);
+        assertTrue(admissionQueue.tryAcquire());
+
+        CompletableFuture<Boolean> waiting = CompletableFuture.supplyAsync(admissionQueue::tryAcquire);
+        awaitQueueDepth(admissionQueue, 1);
+        admissionQueue.release();
+
+        assertTrue(waiting.get(5, TimeUnit.SECONDS));
+        assertEquals(0, admissionQueue.getQueueDepth());
+        assertEquals(2, admissionQueue.getAdmitted());
+        assertEquals(1, admissionQueue.getInFlight());
+    }
+
+    @Test
+    void testQueuedRequestDroppedAfterInterval() {
+        AdmissionQueue admissionQueue = new AdmissionQueue(routingConfig);
+        assertTrue(admissionQueue.tryAcquire());
+
+        long start = System.nanoTime();
+        assertFalse(admissionQueue.tryAcquire());
+        long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(waitedMillis >= 45, "waited " + waitedMillis + "ms");
+        assertEquals(1, admissionQueue.getDropped());
+        assertEquals(0, admissionQueue.getQueueDepth());
+        assertTrue(admissionQueue.getSojournPercentileMillis(99) >= 45);
+    }
+
+    @Test
+    void testWaitCutToTargetOnceQueueStaysNonEmpty() throws Exception {
+        routingConfig.getAdmission().setInterval(Duration.ofSeconds(1));
+        AdmissionQueue admissionQueue = new AdmissionQueue(routingConfig);
+        assertTrue(admissionQueue.tryAcquire());
+
+        CompletableFuture<Boolean> waiting = CompletableFuture.supplyAsync(admissionQueue::tryAcquire);
+        awaitQueueDepth(admissionQueue, 1);
+        long now = System.nanoTime();
+
+        assertEquals(Duration.ofSeconds(1).toNanos(), admissionQueue.getWaitTimeoutNanos(now));
+        assertEquals(Duration.ofMillis(5).toNanos(), admissionQueue.getWaitTimeoutNanos(now + Duration.ofSeconds(2).toNanos()));
+
+        admissionQueue.release();
+        assertTrue(waiting.get(5, TimeUnit.SECONDS));
+        assertEquals(Duration.ofSeconds(1).toNanos(), admissionQueue.getWaitTimeoutNanos(now + Duration.ofSeconds(2).toNanos()));
+    }
+
+    @Test
+    void testFullQueueRejectsImmediately() {
+        routingConfig.getAdmission().setMaxQueueSize(0);
+        routingConfig.getAdmission().setInterval(Duration.ofSeconds(5));
+        AdmissionQueue admissionQueue = new AdmissionQueue(routingConfig);
+        assertTrue(admissionQueue.tryAcquire());
+
+        long start = System.nanoTime();
+        assertFalse(admissionQueue.tryAcquire());
+
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(1).toNanos());
+        assertEquals(1, admissionQueue.getRejected());
+        assertEquals(0, admissionQueue.getDropped());
+        assertEquals(0, admissionQueue.getQueueDepth());
+    }
+
+    @Test
+    void testAsyncRequestQueuedWithoutThreadAndAdmittedOnRelease() {
+        routingConfig.getAdmission().setInterval(Duration.ofSeconds(5));
+        AdmissionQueue admissionQueue = new AdmissionQueue(routingConfig);
+        assertEquals(Boolean.TRUE, admissionQueue.acquireAsync().block());
+
+        CompletableFuture<Boolean> waiting = admissionQueue.acquireAsync().toFuture();
+        assertFalse(waiting.isDone());
+        assertEquals(1, admissionQueue.getQueueDepth());
+
+        admissionQueue.release();
+        assertTrue(waiting.getNow(false));
+        assertEquals(0, admissionQueue.getQueueDepth());
+        assertEquals(2, admissionQueue.getAdmitted());
+        assertEquals(1, admissionQueue.getInFlight());
+    }
+
+    @Test
+    void testAsyncRequestDroppedAfterInterval() {
+        AdmissionQueue admissionQueue = new AdmissionQueue(routingConfig);
+        assertTrue(admissionQueue.tryAcquire());
+
+        long start = System.nanoTime();
+        assertEquals(Boolean.FALSE, admissionQueue.acquireAsync().block(Duration.ofSeconds(5)));
+        long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(waitedMillis >= 45, "waited " + waitedMillis + "ms");
+        assertEquals(1, admissionQueue.getDropped());
+        assertEquals(0, admissionQueue.getQueueDepth());
+
+        admissionQueue.release();
+        assertEquals(0, admissionQueue.getInFlight());
+    }
+
+    @Test
+    void testCancelledAsyncRequestLeavesQueue() {
+        routingConfig.getAdmission().setInterval(Duration.ofSeconds(5));
+        AdmissionQueue admissionQueue = new AdmissionQueue(routingConfig);
+        assertTrue(admissionQueue.tryAcquire());
+
+        admissionQueue.acquireAsync().subscribe().dispose();
+        assertEquals(0, admissionQueue.getQueueDepth());
+
+        admissionQueue.release();
+        assertEquals(0, admissionQueue.getInFlight());
+        assertEquals(1, admissionQueue.getAdmitted());
+    }
+
+    @Test
+    void testDisabledQueueAdmitsEverything() {
+        routingConfig.getAdmission().setEnabled(false);
+        AdmissionQueue admissionQueue = new AdmissionQueue(routingConfig);
+
+        assertTrue(admissionQueue.tryAcquire());
+        assertTrue(admissionQueue.tryAcquire());
+        admissionQueue.release();
+
+        assertEquals(0, admissionQueue.getInFlight());
+        assertEquals(0, admissionQueue.getAdmitted());
+    }
+
+    @Test
+    void testRetryAfterRoundedUpToSeconds() {
+        routingConfig.getAdmission().setRetryAfter(Duration.ofMillis(1500));
+        assertEquals(2, new AdmissionQueue(routingConfig).getRetryAfterSeconds());
+
+        routingConfig.getAdmission().setRetryAfter(Duration.ZERO);
+        assertEquals(1, new AdmissionQueue(routingConfig).getRetryAfterSeconds());
+    }
+
+    @Test
+    void testSojournTimeUnknownBeforeAnyRequest() {
+        AdmissionQueue admissionQueue = new AdmissionQueue(routingConfig);
+
+        assertEquals(-1, admissionQueue.getSojournPercentileMillis(50));
+    }
+
+    private static void awaitQueueDepth(AdmissionQueue admissionQueue, int depth) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (admissionQueue.getQueueDepth() != depth && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(depth, admissionQueue.getQueueDepth());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,69 @@
+package home.anita.server;
+
+import home.anita.RoutingConfig;
+import home.anita.RoutingConfig.ServerConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerRegistryTest {
+
+    private static final long LATENCY_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private RoutingConfig routingConfig;
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+    private ServerConfig server1;
+    private ServerConfig server2;
+
+    @BeforeEach
+    void setUp() {
+        routingConfig = new RoutingConfig();
+        routingConfig.getCircuitBreaker().setEnabled(true);
+        routingConfig.getCircuitBreaker().setMinimumCalls(5);
+        circuitBreakerRegistry = new CircuitBreakerRegistry(routingConfig);
+
+        server1 = createServer("http://localhost:9001");
+        server2 = createServer("http://localhost:9002");
+    }
+
+    @Test
+    void testCircuitsAreIndependentPerServer() {
+        recordFailures(server1, 5);
+
+        assertFalse(circuitBreakerRegistry.tryAcquirePermission(server1));
+        assertTrue(circuitBreakerRegistry.tryAcquirePermission(server2));
+    }
+
+    @Test
+    void testSameCircuitBreakerReturnedForServer() {
+        CircuitBreaker circuitBreaker = circuitBreakerRegistry.getCircuitBreaker(server1);
+
+        assertSame(circuitBreaker, circuitBreakerRegistry.getCircuitBreaker(server1));
+        assertEquals("http://localhost:9001", circuitBreaker.getUrl());
+    }
+
+    @Test
+    void testDisabledRegistryAlwaysPermits() {
+        routingConfig.getCircuitBreaker().setEnabled(false);
+
+        recordFailures(server1, 5);
+
+        assertTrue(circuitBreakerRegistry.tryAcquirePermission(server1));
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreakerRegistry.getCircuitBreaker(server1).getState());
+    }
+
+    private void recordFailures(ServerConfig server, int count) {
+        for (int i = 0; i < count; i++) {
+            circuitBreakerRegistry.onResult(server, LATENCY_NANOS, true);
+        }
+    }
+
+    private ServerConfig createServer(String url) {
+        ServerConfig server = new ServerConfig();
+        server.setUrl(url);
+        return server;
+    }
+}
\ No newline at end of file
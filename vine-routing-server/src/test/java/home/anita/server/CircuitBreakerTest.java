@@ -0,0 +1,142 @@
+package home.anita.server;
+
+import home.anita.RoutingConfig.CircuitBreakerConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static home.anita.server.CircuitBreaker.State.CLOSED;
+import static home.anita.server.CircuitBreaker.State.HALF_OPEN;
+import static home.anita.server.CircuitBreaker.State.OPEN;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private static final long FAST_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW_NANOS = TimeUnit.SECONDS.toNanos(3);
+    private static final long WAIT_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private CircuitBreakerConfig config;
+    private CircuitBreaker circuitBreaker;
+    private long now;
+
+    @BeforeEach
+    void setUp() {
+        config = new CircuitBreakerConfig();
+        config.setMinimumCalls(10);
+        config.setPermittedCallsInHalfOpenState(2);
+        circuitBreaker = new CircuitBreaker("http://localhost:9001", config);
+        now = System.nanoTime();
+    }
+
+    @Test
+    void testClosedCircuitPermitsRequests() {
+        assertEquals(CLOSED, circuitBreaker.getState());
+        assertTrue(circuitBreaker.tryAcquirePermission(now));
+    }
+
+    @Test
+    void testOpensAtFailureRateThreshold() {
+        record(5, FAST_NANOS, false);
+        record(4, FAST_NANOS, true);
+        assertEquals(CLOSED, circuitBreaker.getState());
+
+        record(1, FAST_NANOS, true);
+
+        assertEquals(OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquirePermission(now));
+    }
+
+    @Test
+    void testOpensAtSlowCallRateThreshold() {
+        record(2, FAST_NANOS, false);
+        record(8, SLOW_NANOS, false);
+
+        assertEquals(OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    void testStaysClosedBelowMinimumCalls() {
+        record(9, FAST_NANOS, true);
+
+        assertEquals(CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void testOldOutcomesLeaveTheWindow() {
+        record(9, FAST_NANOS, true);
+        now += config.getWindow().toNanos() + Duration.ofSeconds(1).toNanos();
+
+        record(1, FAST_NANOS, true);
+
+        assertEquals(CLOSED, circuitBreaker.getState());
+        assertEquals(1, circuitBreaker.getWindowStats(now).calls());
+    }
+
+    @Test
+    void testHalfOpenAfterWaitDurationLimitsTrialRequests() {
+        record(10, FAST_NANOS, true);
+
+        assertFalse(circuitBreaker.tryAcquirePermission(now + WAIT_NANOS - 1));
+
+        now += WAIT_NANOS;
+        assertTrue(circuitBreaker.tryAcquirePermission(now));
+        assertEquals(HALF_OPEN, circuitBreaker.getState());
+        assertTrue(circuitBreaker.tryAcquirePermission(now));
+        assertFalse(circuitBreaker.tryAcquirePermission(now));
+
+        circuitBreaker.releasePermission();
+        assertTrue(circuitBreaker.tryAcquirePermission(now));
+    }
+
+    @Test
+    void testClosesAfterSuccessfulTrialRequests() {
+        record(10, FAST_NANOS, true);
+        now += WAIT_NANOS;
+        circuitBreaker.tryAcquirePermission(now);
+        circuitBreaker.tryAcquirePermission(now);
+
+        record(2, FAST_NANOS, false);
+
+        assertEquals(CLOSED, circuitBreaker.getState());
+        assertEquals(0, circuitBreaker.getWindowStats(now).calls());
+        assertTrue(circuitBreaker.tryAcquirePermission(now));
+    }
+
+    @Test
+    void testReopensAfterFailedTrialRequests() {
+        record(10, FAST_NANOS, true);
+        now += WAIT_NANOS;
+        circuitBreaker.tryAcquirePermission(now);
+        circuitBreaker.tryAcquirePermission(now);
+
+        record(1, FAST_NANOS, false);
+        record(1, FAST_NANOS, true);
+
+        assertEquals(OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquirePermission(now));
+
+        // A second trial phase starts with fresh permits
+        now += WAIT_NANOS;
+        assertTrue(circuitBreaker.tryAcquirePermission(now));
+        assertTrue(circuitBreaker.tryAcquirePermission(now));
+    }
+
+    @Test
+    void testOutcomesIgnoredWhileOpen() {
+        record(10, FAST_NANOS, true);
+
+        record(20, FAST_NANOS, false);
+
+        assertEquals(OPEN, circuitBreaker.getState());
+        assertEquals(0, circuitBreaker.getWindowStats(now).calls());
+    }
+
+    private void record(int count, long latencyNanos, boolean failed) {
+        for (int i = 0; i < count; i++) {
+            circuitBreaker.onResult(latencyNanos, failed, now);
+        }
+    }
+}
\ No newline at end of file
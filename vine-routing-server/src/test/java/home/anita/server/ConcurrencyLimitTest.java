@@ -0,0 +1,101 @@
+package home.anita.server;
+
+import home.anita.RoutingConfig.ConcurrencyLimitConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrencyLimitTest {
+
+    private static final long RTT_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private ConcurrencyLimitConfig config;
+    private ConcurrencyLimit limit;
+
+    @BeforeEach
+    void setUp() {
+        config = new ConcurrencyLimitConfig();
+        config.setInitialLimit(20);
+        config.setMinLimit(1);
+        config.setMaxLimit(100);
+        limit = new ConcurrencyLimit("http://localhost:9001", config);
+    }
+
+    @Test
+    void testAcquireUpToLimit() {
+        config.setInitialLimit(2);
+        limit = new ConcurrencyLimit("http://localhost:9001", config);
+
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        assertFalse(limit.tryAcquire());
+        assertEquals(2, limit.getInFlight());
+        assertEquals(1, limit.getRejected());
+
+        limit.release(RTT_NANOS, false);
+
+        assertEquals(1, limit.getInFlight());
+        assertTrue(limit.tryAcquire());
+    }
+
+    @Test
+    void testLimitGrowsWhileLatencyStaysAtMinimum() {
+        limit.update(RTT_NANOS, 20, false);
+        int afterFirst = limit.getLimit();
+        limit.update(RTT_NANOS, afterFirst, false);
+
+        assertTrue(afterFirst > 20);
+        assertTrue(limit.getLimit() > afterFirst);
+        assertEquals(RTT_NANOS, limit.getMinRttNanos());
+    }
+
+    @Test
+    void testLimitShrinksWhenLatencyQueuesUp() {
+        limit.update(RTT_NANOS, 20, false);
+        int grown = limit.getLimit();
+
+        limit.update(10 * RTT_NANOS, grown, false);
+
+        assertTrue(limit.getLimit() < grown);
+    }
+
+    @Test
+    void testLimitBacksOffOnDrop() {
+        limit.update(RTT_NANOS, 1, true);
+
+        assertEquals(18, limit.getLimit());
+    }
+
+    @Test
+    void testLimitUnchangedWhenNotConstrained() {
+        limit.update(RTT_NANOS, 5, false);
+
+        assertEquals(20, limit.getLimit());
+        assertEquals(RTT_NANOS, limit.getMinRttNanos());
+    }
+
+    @Test
+    void testLimitStaysWithinBounds() {
+        config.setMaxLimit(22);
+        for (int i = 0; i < 10; i++) {
+            limit.update(RTT_NANOS, limit.getLimit(), false);
+        }
+        assertEquals(22, limit.getLimit());
+
+        for (int i = 0; i < 100; i++) {
+            limit.update(RTT_NANOS, 1, true);
+        }
+        assertEquals(1, limit.getLimit());
+    }
+
+    @Test
+    void testInvalidSampleIgnored() {
+        limit.update(0, 20, true);
+
+        assertEquals(20, limit.getLimit());
+        assertEquals(0, limit.getMinRttNanos());
+    }
+}
\ No newline at end of file
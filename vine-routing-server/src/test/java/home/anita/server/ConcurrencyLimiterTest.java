@@ -0,0 +1,69 @@
+package home.anita.server;
+
+import home.anita.RoutingConfig;
+import home.anita.RoutingConfig.ServerConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrencyLimiterTest {
+
+    private static final long LATENCY_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private RoutingConfig routingConfig;
+    private ConcurrencyLimiter concurrencyLimiter;
+    private ServerConfig server1;
+    private ServerConfig server2;
+
+    @BeforeEach
+    void setUp() {
+        routingConfig = new RoutingConfig();
+        routingConfig.getConcurrencyLimit().setEnabled(true);
+        routingConfig.getConcurrencyLimit().setInitialLimit(1);
+        concurrencyLimiter = new ConcurrencyLimiter(routingConfig);
+
+        server1 = createServer("http://localhost:9001");
+        server2 = createServer("http://localhost:9002");
+    }
+
+    @Test
+    void testLimitsAreTrackedPerServer() {
+        assertTrue(concurrencyLimiter.tryAcquire(server1));
+        assertFalse(concurrencyLimiter.tryAcquire(server1));
+        assertTrue(concurrencyLimiter.tryAcquire(server2));
+
+        concurrencyLimiter.release(server1, LATENCY_NANOS, false);
+
+        assertTrue(concurrencyLimiter.tryAcquire(server1));
+        assertEquals(2, concurrencyLimiter.getAllLimits().size());
+    }
+
+    @Test
+    void testSameUrlSharesLimit() {
+        assertTrue(concurrencyLimiter.tryAcquire(server1));
+
+        assertFalse(concurrencyLimiter.tryAcquire(createServer("http://localhost:9001")));
+        assertSame(concurrencyLimiter.getLimit(server1), concurrencyLimiter.getLimit(createServer("http://localhost:9001")));
+    }
+
+    @Test
+    void testDisabledLimiterAlwaysAdmits() {
+        routingConfig.getConcurrencyLimit().setEnabled(false);
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(concurrencyLimiter.tryAcquire(server1));
+        }
+        concurrencyLimiter.release(server1, LATENCY_NANOS, true);
+
+        assertTrue(concurrencyLimiter.getAllLimits().isEmpty());
+    }
+
+    private ServerConfig createServer(String url) {
+        ServerConfig server = new ServerConfig();
+        server.setUrl(url);
+        return server;
+    }
+}
\ No newline at end of file
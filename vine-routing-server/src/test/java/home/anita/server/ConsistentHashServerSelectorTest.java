@@ -0,0 +1,221 @@
+package home.anita.server;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import home.anita.RoutingConfig;
+import home.anita.RoutingConfig.PriorityConfig;
+import home.anita.RoutingConfig.ServerConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ConsistentHashServerSelectorTest {
+
+    @Mock
+    private RandomServerSelector randomServerSelector;
+
+    @Mock
+    private HealthCheckService healthCheckService;
+
+    private PriorityConfig priorityConfig;
+    private ServerLoadTracker serverLoadTracker;
+    private ConsistentHashServerSelector serverSelector;
+    private Set<ServerConfig> servers;
+
+    @BeforeEach
+    void setUp() {
+        RoutingConfig routingConfig = new RoutingConfig();
+        routingConfig.getConsistentHash().setKeySource(RoutingConfig.HashKeySource.HEADER);
+        routingConfig.getConsistentHash().setKeyName("X-User-Id");
+
+        priorityConfig = routingConfig.getPriority();
+        serverLoadTracker = new ServerLoadTracker(routingConfig);
+        HashKeyExtractor hashKeyExtractor = new HashKeyExtractor(routingConfig, new ObjectMapper());
+        serverSelector = new ConsistentHashServerSelector(randomServerSelector, healthCheckService,
+                priorityConfig, serverLoadTracker, hashKeyExtractor, routingConfig.getConsistentHash());
+
+        servers = new HashSet<>();
+        for (int port = 9001; port <= 9003; port++) {
+            servers.add(createServer("http://localhost:" + port));
+        }
+    }
+
+    @Test
+    void testSameKeyAlwaysSelectsSameServer() {
+        setHealthy(servers);
+
+        ServerConfig first = serverSelector.select(servers, contextFor("user-1"));
+        for (int i = 0; i < 100; i++) {
+            assertEquals(first, serverSelector.select(servers, contextFor("user-1")));
+        }
+        verifyNoInteractions(randomServerSelector);
+    }
+
+    @Test
+    void testKeysSpreadAcrossServers() {
+        setHealthy(servers);
+
+        Map<ServerConfig, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 3000; i++) {
+            counts.merge(serverSelector.select(servers, contextFor("user-" + i)), 1, Integer::sum);
+        }
+
+        assertEquals(3, counts.size());
+        counts.values().forEach(count ->
+                assertTrue(count > 600, "Each server should own a fair share of keys, got " + count));
+    }
+
+    @Test
+    void testOnlyKeysOfRemovedServerRemap() {
+        Set<ServerConfig> largePool = new HashSet<>();
+        for (int port = 9001; port <= 9010; port++) {
+            largePool.add(createServer("http://localhost:" + port));
+        }
+        setHealthy(largePool);
+
+        Map<String, ServerConfig> before = new HashMap<>();
+        for (int i = 0; i < 5000; i++) {
+            before.put("user-" + i, serverSelector.select(largePool, contextFor("user-" + i)));
+        }
+
+        ServerConfig removed = createServer("http://localhost:9004");
+        Set<ServerConfig> remaining = new HashSet<>(largePool);
+        remaining.remove(removed);
+        setHealthy(remaining);
+
+        int moved = 0;
+        for (Map.Entry<String, ServerConfig> entry : before.entrySet()) {
+            ServerConfig after = serverSelector.select(largePool, contextFor(entry.getKey()));
+            assertNotEquals(removed, after);
+            if (!after.equals(entry.getValue())) {
+                assertEquals(removed, entry.getValue(), "Only keys of the removed server may move");
+                moved++;
+            }
+        }
+
+        double movedFraction = moved / 5000.0;
+        assertTrue(movedFraction > 0.05 && movedFraction < 0.2,
+                "About 1/N of the keys should move, got " + movedFraction);
+    }
+
+    @Test
+    void testHotKeyMovesOnWhenServerAboveLoadBound() {
+        setHealthy(servers);
+        ServerConfig owner = serverSelector.select(servers, contextFor("hot-key"));
+
+        // Capacity is ceil(1.25 * (10 + 1) / 3) = 5 in-flight requests per server
+        for (int i = 0; i < 10; i++) {
+            serverLoadTracker.onDispatch(owner);
+        }
+
+        ServerConfig selected = serverSelector.select(servers, contextFor("hot-key"));
+        assertNotEquals(owner, selected);
+
+        for (int i = 0; i < 10; i++) {
+            serverLoadTracker.onComplete(owner, 1_000_000);
+        }
+        assertEquals(owner, serverSelector.select(servers, contextFor("hot-key")));
+    }
+
+    @Test
+    void testRequestWithoutKeyUsesRandomSelection() {
+        setHealthy(servers);
+        ServerConfig expected = servers.iterator().next();
+        when(randomServerSelector.select(anySet())).thenReturn(expected);
+
+        RoutingContext context = RoutingContext.create("/api/echo", new HttpHeaders(), "{}", "127.0.0.1");
+
+        assertEquals(expected, serverSelector.select(servers, context));
+        assertEquals(expected, serverSelector.select(servers));
+        verify(randomServerSelector, times(2)).select(servers);
+    }
+
+    @Test
+    void testFallbackToAllServersWhenNoneHealthyInPanicMode() {
+        priorityConfig.setPanicThreshold(0.5);
+        setHealthy(Set.of());
+
+        ServerConfig selected = serverSelector.select(servers, contextFor("user-1"));
+
+        assertTrue(servers.contains(selected));
+        assertEquals(selected, serverSelector.select(servers, contextFor("user-1")));
+    }
+
+    @Test
+    void testSelectWithNullSet() {
+        IllegalArgumentException exception = assertThrows(
+                IllegalArgumentException.class,
+                () -> serverSelector.select(null, contextFor("user-1"))
+        );
+
+        assertEquals("Server set cannot be null or empty", exception.getMessage());
+    }
+
+    @Test
+    void testHashIsStable() {
+        assertEquals(ConsistentHashServerSelector.hash("user-1"), ConsistentHashServerSelector.hash("user-1"));
+        assertNotEquals(ConsistentHashServerSelector.hash("user-1"), ConsistentHashServerSelector.hash("user-2"));
+    }
+
+    @Test
+    void testHashMatchesUtf8Bytes() {
+        for (String key : new String[]{"user-1", "h\u00e9llo", "\u65e5\u672c", "\ud83d\ude00x", "\ud800a"}) {
+            long expected = 0xcbf29ce484222325L;
+            for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+                expected = (expected ^ (b & 0xff)) * 0x100000001b3L;
+            }
+            expected ^= expected >>> 33;
+            expected *= 0xff51afd7ed558ccdL;
+            expected ^= expected >>> 33;
+            expected *= 0xc4ceb9fe1a85ec53L;
+            expected ^= expected >>> 33;
+
+            assertEquals(expected, ConsistentHashServerSelector.hash(key), key);
+        }
+    }
+
+    private void setHealthy(Set<ServerConfig> healthyServers) {
+        when(healthCheckService.getHealthyServers()).thenReturn(healthyServers.stream()
+                .map(ServerConfig::getUrl)
+                .collect(Collectors.toSet()));
+    }
+
+    private RoutingContext contextFor(String userId) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("X-User-Id", userId);
+        return RoutingContext.create("/api/echo", headers, "{}", "127.0.0.1");
+    }
+
+    private ServerConfig createServer(String url) {
+        ServerConfig server = new ServerConfig();
+        server.setUrl(url);
+        return server;
+    }
+
+    @Test
+    void testExcludedOwnerIsPassedOver() {
+        setHealthy(servers);
+        RoutingContext context = contextFor("user-1");
+        ServerConfig owner = serverSelector.select(servers, context);
+
+        context.exclude(owner);
+        ServerConfig selected = serverSelector.select(servers, context);
+
+        assertNotEquals(owner, selected);
+        assertEquals(selected, serverSelector.select(servers, context), "The next ring owner is stable");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,92 @@
+package home.anita.server;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import home.anita.RoutingConfig;
+import home.anita.RoutingConfig.HashKeySource;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashKeyExtractorTest {
+
+    @Test
+    void testExtractFromHeader() {
+        HashKeyExtractor extractor = createExtractor(HashKeySource.HEADER, "X-User-Id");
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("X-User-Id", "user-42");
+
+        assertEquals("user-42", extractor.extract(RoutingContext.create("/api/echo", headers, "{}", "10.0.0.7")));
+    }
+
+    @Test
+    void testMissingHeaderReturnsNull() {
+        HashKeyExtractor extractor = createExtractor(HashKeySource.HEADER, "X-User-Id");
+
+        assertNull(extractor.extract(RoutingContext.create("/api/echo", new HttpHeaders(), "{}", "10.0.0.7")));
+    }
+
+    @Test
+    void testExtractClientIp() {
+        HashKeyExtractor extractor = createExtractor(HashKeySource.CLIENT_IP, null);
+
+        assertEquals("10.0.0.7", extractor.extract(RoutingContext.create("/api/echo", new HttpHeaders(), "{}", "10.0.0.7")));
+    }
+
+    @Test
+    void testExtractBodyField() {
+        HashKeyExtractor extractor = createExtractor(HashKeySource.BODY_FIELD, "userId");
+        String body = "{\"userId\": \"user-42\", \"message\": \"test\"}";
+
+        assertEquals("user-42", extractor.extract(RoutingContext.create("/api/echo", new HttpHeaders(), body, "10.0.0.7")));
+    }
+
+    @Test
+    void testExtractNestedBodyField() {
+        HashKeyExtractor extractor = createExtractor(HashKeySource.BODY_FIELD, "customer.id");
+        String body = "{\"customer\": {\"id\": 42}}";
+
+        assertEquals("42", extractor.extract(RoutingContext.create("/api/echo", new HttpHeaders(), body, "10.0.0.7")));
+    }
+
+    @Test
+    void testMissingOrNonValueBodyFieldReturnsNull() {
+        HashKeyExtractor extractor = createExtractor(HashKeySource.BODY_FIELD, "customer");
+
+        assertNull(extractor.extract(RoutingContext.create("/api/echo", new HttpHeaders(), "{\"message\": \"test\"}", "10.0.0.7")));
+        assertNull(extractor.extract(RoutingContext.create("/api/echo", new HttpHeaders(), "{\"customer\": {\"id\": 42}}", "10.0.0.7")));
+    }
+
+    @Test
+    void testInvalidJsonBodyReturnsNull() {
+        HashKeyExtractor extractor = createExtractor(HashKeySource.BODY_FIELD, "userId");
+
+        assertNull(extractor.extract(RoutingContext.create("/api/echo", new HttpHeaders(), "not json", "10.0.0.7")));
+    }
+
+    @Test
+    void testNullContextReturnsNull() {
+        HashKeyExtractor extractor = createExtractor(HashKeySource.CLIENT_IP, null);
+
+        assertNull(extractor.extract(null));
+    }
+
+    @Test
+    void testExtractWithExplicitKeySource() {
+        HashKeyExtractor extractor = createExtractor(HashKeySource.CLIENT_IP, null);
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("X-Api-Key", "key-7");
+        RoutingContext context = RoutingContext.create("/api/echo", headers, "{\"userId\": \"user-42\"}", "10.0.0.7");
+
+        assertEquals("key-7", extractor.extract(context, HashKeySource.HEADER, "X-Api-Key"));
+        assertEquals("user-42", extractor.extract(context, HashKeySource.BODY_FIELD, "userId"));
+        assertEquals("10.0.0.7", extractor.extract(context));
+    }
+
+    private HashKeyExtractor createExtractor(HashKeySource keySource, String keyName) {
+        RoutingConfig routingConfig = new RoutingConfig();
+        routingConfig.getConsistentHash().setKeySource(keySource);
+        routingConfig.getConsistentHash().setKeyName(keyName);
+        return new HashKeyExtractor(routingConfig, new ObjectMapper());
+    }
+}
\ No newline at end of file
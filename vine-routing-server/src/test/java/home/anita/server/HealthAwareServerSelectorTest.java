@@ -1,17 +1,21 @@
 package home.anita.server;
 
+import home.anita.RoutingConfig.PriorityConfig;
 import home.anita.RoutingConfig.ServerConfig;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
 
 import java.util.HashSet;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -23,6 +27,7 @@ class HealthAwareServerSelectorTest {
     @Mock
     private HealthCheckService healthCheckService;
 
+    private PriorityConfig priorityConfig;
     private HealthAwareServerSelector healthAwareSelector;
     private Set<ServerConfig> allServers;
     private ServerConfig server1;
@@ -31,7 +36,8 @@ class HealthAwareServerSelectorTest {
 
     @BeforeEach
     void setUp() {
-        healthAwareSelector = new HealthAwareServerSelector(randomServerSelector, healthCheckService);
+        priorityConfig = new PriorityConfig();
+        healthAwareSelector = new HealthAwareServerSelector(randomServerSelector, healthCheckService, priorityConfig);
 
         server1 = new ServerConfig();
         server1.setUrl("http://localhost:9001");
@@ -53,19 +59,14 @@ class HealthAwareServerSelectorTest {
         // Setup: server1 and server2 are healthy, server3 is not
         Set<String> healthyUrls = Set.of("http://localhost:9001", "http://localhost:9002");
         when(healthCheckService.getHealthyServers()).thenReturn(healthyUrls);
-        when(randomServerSelector.select(any())).thenReturn(server1);
+        when(randomServerSelector.select(any(ServerSnapshot.class), any())).thenReturn(server1);
 
         ServerConfig selected = healthAwareSelector.select(allServers);
 
         assertEquals(server1, selected);
         
         // Verify that randomServerSelector was called with only healthy servers
-        verify(randomServerSelector).select(argThat(servers ->
-            servers.size() == 2 && 
-            servers.contains(server1) && 
-            servers.contains(server2) &&
-            !servers.contains(server3)
-        ));
+        verify(randomServerSelector).select(snapshotOf(Set.of(server1, server2)), isNull());
     }
 
     @Test
@@ -73,29 +74,30 @@ class HealthAwareServerSelectorTest {
         // Setup: all servers are healthy
         Set<String> healthyUrls = Set.of("http://localhost:9001", "http://localhost:9002", "http://localhost:9003");
         when(healthCheckService.getHealthyServers()).thenReturn(healthyUrls);
-        when(randomServerSelector.select(any())).thenReturn(server2);
+        when(randomServerSelector.select(any(ServerSnapshot.class), any())).thenReturn(server2);
 
         ServerConfig selected = healthAwareSelector.select(allServers);
 
         assertEquals(server2, selected);
         
         // Verify that randomServerSelector was called with all servers
-        verify(randomServerSelector).select(allServers);
+        verify(randomServerSelector).select(snapshotOf(allServers), isNull());
     }
 
     @Test
-    void testSelectWhenNoServersHealthy() {
-        // Setup: no servers are healthy
+    void testSelectWhenNoServersHealthyInPanicMode() {
+        // Setup: no servers are healthy, panic mode allows unhealthy servers
+        priorityConfig.setPanicThreshold(0.5);
         Set<String> healthyUrls = Set.of();
         when(healthCheckService.getHealthyServers()).thenReturn(healthyUrls);
-        when(randomServerSelector.select(any())).thenReturn(server3);
+        when(randomServerSelector.select(any(ServerSnapshot.class), any())).thenReturn(server3);
 
         ServerConfig selected = healthAwareSelector.select(allServers);
 
         assertEquals(server3, selected);
         
         // Verify that randomServerSelector was called with all servers as fallback
-        verify(randomServerSelector).select(allServers);
+        verify(randomServerSelector).select(snapshotOf(allServers), isNull());
     }
 
     @Test
@@ -103,16 +105,14 @@ class HealthAwareServerSelectorTest {
         // Setup: only server2 is healthy
         Set<String> healthyUrls = Set.of("http://localhost:9002");
         when(healthCheckService.getHealthyServers()).thenReturn(healthyUrls);
-        when(randomServerSelector.select(any())).thenReturn(server2);
+        when(randomServerSelector.select(any(ServerSnapshot.class), any())).thenReturn(server2);
 
         ServerConfig selected = healthAwareSelector.select(allServers);
 
         assertEquals(server2, selected);
         
         // Verify that randomServerSelector was called with only the healthy server
-        verify(randomServerSelector).select(argThat(servers ->
-            servers.size() == 1 && servers.contains(server2)
-        ));
+        verify(randomServerSelector).select(snapshotOf(Set.of(server2)), isNull());
     }
 
     @Test
@@ -146,14 +146,14 @@ class HealthAwareServerSelectorTest {
         // Setup: healthy servers include URLs not in the server set
         Set<String> healthyUrls = Set.of("http://localhost:8080", "http://localhost:8081");
         when(healthCheckService.getHealthyServers()).thenReturn(healthyUrls);
-        when(randomServerSelector.select(any())).thenReturn(server1);
+        when(randomServerSelector.select(any(ServerSnapshot.class), any())).thenReturn(server1);
 
         ServerConfig selected = healthAwareSelector.select(allServers);
 
         assertEquals(server1, selected);
         
         // Should fall back to all servers since no intersection with healthy servers
-        verify(randomServerSelector).select(allServers);
+        verify(randomServerSelector).select(snapshotOf(allServers), isNull());
     }
 
     @Test
@@ -161,16 +161,14 @@ class HealthAwareServerSelectorTest {
         // Setup: some healthy servers are in the server set, some are not
         Set<String> healthyUrls = Set.of("http://localhost:9001", "http://localhost:8080");
         when(healthCheckService.getHealthyServers()).thenReturn(healthyUrls);
-        when(randomServerSelector.select(any())).thenReturn(server1);
+        when(randomServerSelector.select(any(ServerSnapshot.class), any())).thenReturn(server1);
 
         ServerConfig selected = healthAwareSelector.select(allServers);
 
         assertEquals(server1, selected);
         
         // Should select from the intersection (only server1)
-        verify(randomServerSelector).select(argThat(servers ->
-            servers.size() == 1 && servers.contains(server1)
-        ));
+        verify(randomServerSelector).select(snapshotOf(Set.of(server1)), isNull());
     }
 
     @Test
@@ -178,7 +176,7 @@ class HealthAwareServerSelectorTest {
         // First call: server1 is healthy
         Set<String> healthyUrls1 = Set.of("http://localhost:9001");
         when(healthCheckService.getHealthyServers()).thenReturn(healthyUrls1);
-        when(randomServerSelector.select(any())).thenReturn(server1);
+        when(randomServerSelector.select(any(ServerSnapshot.class), any())).thenReturn(server1);
 
         ServerConfig selected1 = healthAwareSelector.select(allServers);
         assertEquals(server1, selected1);
@@ -186,17 +184,203 @@ class HealthAwareServerSelectorTest {
         // Second call: server2 is healthy (server1 became unhealthy)
         Set<String> healthyUrls2 = Set.of("http://localhost:9002");
         when(healthCheckService.getHealthyServers()).thenReturn(healthyUrls2);
-        when(randomServerSelector.select(any())).thenReturn(server2);
+        when(randomServerSelector.select(any(ServerSnapshot.class), any())).thenReturn(server2);
 
         ServerConfig selected2 = healthAwareSelector.select(allServers);
         assertEquals(server2, selected2);
 
         // Verify both calls were made with appropriate server sets
-        verify(randomServerSelector).select(argThat(servers ->
-            servers.size() == 1 && servers.contains(server1)
-        ));
-        verify(randomServerSelector).select(argThat(servers ->
-            servers.size() == 1 && servers.contains(server2)
-        ));
+        verify(randomServerSelector).select(snapshotOf(Set.of(server1)), isNull());
+        verify(randomServerSelector).select(snapshotOf(Set.of(server2)), isNull());
+    }
+
+    @Test
+    void testHealthySnapshotCachedWhileHealthUnchanged() {
+        Set<String> healthyUrls = Set.of("http://localhost:9001", "http://localhost:9002");
+        when(healthCheckService.getHealthyServers()).thenReturn(healthyUrls);
+
+        HealthAwareServerSelector.HealthySnapshot first = healthAwareSelector.getHealthySnapshot(allServers);
+        HealthAwareServerSelector.HealthySnapshot second = healthAwareSelector.getHealthySnapshot(allServers);
+
+        assertSame(first, second);
+        assertEquals(Set.of(server1, server2), first.healthy().asSet());
+        assertSame(first.healthy(), first.candidates());
+    }
+
+    @Test
+    void testHealthySnapshotRefreshedWhenHealthChanges() {
+        when(healthCheckService.getHealthyServers()).thenReturn(Set.of("http://localhost:9001"));
+        ServerSnapshot before = healthAwareSelector.getHealthySnapshot(allServers).healthy();
+
+        when(healthCheckService.getHealthyServers()).thenReturn(Set.of("http://localhost:9001", "http://localhost:9003"));
+        ServerSnapshot after = healthAwareSelector.getHealthySnapshot(allServers).healthy();
+
+        assertEquals(Set.of(server1), before.asSet());
+        assertEquals(Set.of(server1, server3), after.asSet());
+    }
+
+    @Test
+    void testHealthySnapshotReusedWhenContentUnchanged() {
+        when(healthCheckService.getHealthyServers()).thenReturn(Set.of("http://localhost:9001"));
+        ServerSnapshot before = healthAwareSelector.getHealthySnapshot(allServers).healthy();
+
+        // A newly published set with an unrelated server keeps the same healthy snapshot
+        when(healthCheckService.getHealthyServers()).thenReturn(Set.of("http://localhost:9001", "http://localhost:9999"));
+        ServerSnapshot after = healthAwareSelector.getHealthySnapshot(allServers).healthy();
+
+        assertSame(before, after);
+    }
+
+    @Test
+    void testCandidatesFallBackToAllServersInPanicMode() {
+        priorityConfig.setPanicThreshold(0.5);
+        when(healthCheckService.getHealthyServers()).thenReturn(Set.of());
+
+        HealthAwareServerSelector.HealthySnapshot snapshot = healthAwareSelector.getHealthySnapshot(allServers);
+
+        assertFalse(snapshot.hasHealthyServers());
+        assertEquals(allServers, snapshot.candidates().asSet());
+    }
+
+    @Test
+    void testExclusionsPassedToRandomSelection() {
+        when(healthCheckService.getHealthyServers()).thenReturn(Set.of("http://localhost:9001", "http://localhost:9002"));
+        when(randomServerSelector.select(any(ServerSnapshot.class), any())).thenReturn(server2);
+
+        RoutingContext context = RoutingContext.create("/api/echo", new HttpHeaders(), "{}", "127.0.0.1");
+        context.exclude(server1);
+
+        assertEquals(server2, healthAwareSelector.select(allServers, context));
+        verify(randomServerSelector).select(snapshotOf(Set.of(server1, server2)), eq(context));
+    }
+
+    @Test
+    void testNoHealthyServersWithoutPanicMode() {
+        when(healthCheckService.getHealthyServers()).thenReturn(Set.of());
+
+        NoHealthyServerException exception = assertThrows(
+                NoHealthyServerException.class,
+                () -> healthAwareSelector.select(allServers)
+        );
+
+        assertEquals("No healthy servers available", exception.getMessage());
+        verifyNoInteractions(randomServerSelector);
+    }
+
+    @Test
+    void testPanicModeBelowThreshold() {
+        priorityConfig.setPanicThreshold(0.5);
+        // One of three servers healthy: 1/3 * 1.4 is below the threshold
+        when(healthCheckService.getHealthyServers()).thenReturn(Set.of("http://localhost:9001"));
+
+        HealthAwareServerSelector.HealthySnapshot snapshot = healthAwareSelector.getHealthySnapshot(allServers);
+
+        assertTrue(snapshot.panic());
+        assertEquals(allServers, snapshot.candidates().asSet());
+    }
+
+    @Test
+    void testNoPanicModeAboveThreshold() {
+        priorityConfig.setPanicThreshold(0.5);
+        when(healthCheckService.getHealthyServers()).thenReturn(Set.of("http://localhost:9001", "http://localhost:9002"));
+
+        HealthAwareServerSelector.HealthySnapshot snapshot = healthAwareSelector.getHealthySnapshot(allServers);
+
+        assertFalse(snapshot.panic());
+        assertEquals(Set.of(server1, server2), snapshot.candidates().asSet());
+    }
+
+    @Test
+    void testSecondaryTierUnusedWhilePrimaryHealthy() {
+        Set<ServerConfig> tieredServers = tieredServers();
+        when(healthCheckService.getHealthyServers()).thenReturn(Set.of(
+                "http://localhost:9001", "http://localhost:9002", "http://localhost:9003",
+                "http://localhost:9101", "http://localhost:9102"));
+
+        HealthAwareServerSelector.HealthySnapshot snapshot = healthAwareSelector.getHealthySnapshot(tieredServers);
+
+        assertEquals(1, snapshot.targets().length);
+        assertEquals(allServers, snapshot.candidates(0.0).asSet());
+        assertEquals(allServers, snapshot.candidates(0.99).asSet());
+    }
+
+    @Test
+    void testPrimaryKeepsTrafficWithinOverprovisioning() {
+        Set<ServerConfig> tieredServers = tieredServers();
+        // 3 of 4 primary servers healthy: 0.75 * 1.4 is above 100%
+        ServerConfig server4 = new ServerConfig();
+        server4.setUrl("http://localhost:9004");
+        tieredServers.add(server4);
+        when(healthCheckService.getHealthyServers()).thenReturn(Set.of(
+                "http://localhost:9001", "http://localhost:9002", "http://localhost:9003",
+                "http://localhost:9101", "http://localhost:9102"));
+
+        HealthAwareServerSelector.HealthySnapshot snapshot = healthAwareSelector.getHealthySnapshot(tieredServers);
+
+        assertEquals(1, snapshot.targets().length);
+        assertEquals(allServers, snapshot.candidates().asSet());
+    }
+
+    @Test
+    void testTrafficSpillsOverProportionally() {
+        Set<ServerConfig> tieredServers = tieredServers();
+        // 1 of 3 primary servers healthy: the primary tier keeps 1/3 * 1.4 of the traffic
+        when(healthCheckService.getHealthyServers()).thenReturn(Set.of(
+                "http://localhost:9001", "http://localhost:9101", "http://localhost:9102"));
+
+        HealthAwareServerSelector.HealthySnapshot snapshot = healthAwareSelector.getHealthySnapshot(tieredServers);
+
+        assertEquals(2, snapshot.targets().length);
+        assertEquals(1.4 / 3, snapshot.cumulativeLoad()[0], 1e-9);
+        assertEquals(Set.of(server1), snapshot.candidates(0.3).asSet());
+        assertEquals(2, snapshot.candidates(0.6).size());
+        assertFalse(snapshot.panic());
+    }
+
+    @Test
+    void testLoadNormalizedWhenLowerTiersAreDown() {
+        Set<ServerConfig> tieredServers = tieredServers();
+        // Only one primary server healthy and the secondary tier is down: the primary takes everything
+        when(healthCheckService.getHealthyServers()).thenReturn(Set.of("http://localhost:9001"));
+
+        HealthAwareServerSelector.HealthySnapshot snapshot = healthAwareSelector.getHealthySnapshot(tieredServers);
+
+        assertEquals(1, snapshot.targets().length);
+        assertEquals(Set.of(server1), snapshot.candidates(0.99).asSet());
+    }
+
+    @Test
+    void testTierSnapshotsReusedWhenContentUnchanged() {
+        Set<ServerConfig> tieredServers = tieredServers();
+        when(healthCheckService.getHealthyServers()).thenReturn(Set.of(
+                "http://localhost:9001", "http://localhost:9101", "http://localhost:9102"));
+        HealthAwareServerSelector.HealthySnapshot before = healthAwareSelector.getHealthySnapshot(tieredServers);
+
+        // Flipping an unrelated URL republishes the healthy set without changing any tier
+        when(healthCheckService.getHealthyServers()).thenReturn(Set.of(
+                "http://localhost:9001", "http://localhost:9101", "http://localhost:9102", "http://localhost:9999"));
+        HealthAwareServerSelector.HealthySnapshot after = healthAwareSelector.getHealthySnapshot(tieredServers);
+
+        assertNotSame(before, after);
+        assertSame(before.targets()[0], after.targets()[0]);
+        assertSame(before.targets()[1], after.targets()[1]);
+    }
+
+    private static ServerSnapshot snapshotOf(Set<ServerConfig> servers) {
+        return argThat(snapshot -> snapshot.hasSameServers(servers));
+    }
+
+    /**
+     * Creates a primary tier of server1 to server3 and a secondary tier of two servers.
+     */
+    private Set<ServerConfig> tieredServers() {
+        Set<ServerConfig> tieredServers = new HashSet<>(allServers);
+        for (String url : new String[]{"http://localhost:9101", "http://localhost:9102"}) {
+            ServerConfig secondary = new ServerConfig();
+            secondary.setUrl(url);
+            secondary.setPriority(1);
+            tieredServers.add(secondary);
+        }
+        return tieredServers;
     }
 }
\ No newline at end of file
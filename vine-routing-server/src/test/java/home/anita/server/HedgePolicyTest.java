@@ -0,0 +1,85 @@
+package home.anita.server;
+
+import home.anita.RoutingConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HedgePolicyTest {
+
+    private RoutingConfig routingConfig;
+    private HedgePolicy hedgePolicy;
+
+    @BeforeEach
+    void setUp() {
+        routingConfig = new RoutingConfig();
+        routingConfig.getHedging().setEnabled(true);
+        routingConfig.getHedging().setPaths(List.of("/api/search"));
+        hedgePolicy = new HedgePolicy(routingConfig);
+    }
+
+    @Test
+    void testConfiguredPathIsHedged() {
+        assertEquals("/api/search", hedgePolicy.getRoute(context("/api/search/items", new HttpHeaders())));
+        assertNull(hedgePolicy.getRoute(context("/api/echo", new HttpHeaders())));
+    }
+
+    @Test
+    void testHeaderOptsRequestIn() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("X-Hedge", "true");
+
+        assertEquals(HedgePolicy.HEADER_ROUTE, hedgePolicy.getRoute(context("/api/echo", headers)));
+    }
+
+    @Test
+    void testNothingHedgedWhenDisabled() {
+        routingConfig.getHedging().setEnabled(false);
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("X-Hedge", "true");
+
+        assertNull(hedgePolicy.getRoute(context("/api/search", headers)));
+    }
+
+    @Test
+    void testFixedDelay() {
+        routingConfig.getHedging().setDelay(Duration.ofMillis(50));
+
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(50), hedgePolicy.getDelayNanos("/api/search"));
+    }
+
+    @Test
+    void testDelayFollowsRouteLatencyPercentile() {
+        assertEquals(-1, hedgePolicy.getDelayNanos("/api/search"));
+
+        for (int i = 1; i <= HedgePolicy.MIN_SAMPLES; i++) {
+            hedgePolicy.recordLatency("/api/search", TimeUnit.MILLISECONDS.toNanos(i));
+        }
+
+        long delay = hedgePolicy.getDelayNanos("/api/search");
+        assertTrue(delay >= TimeUnit.MILLISECONDS.toNanos(95));
+        assertTrue(delay <= TimeUnit.MILLISECONDS.toNanos(105));
+        assertEquals(-1, hedgePolicy.getDelayNanos(HedgePolicy.HEADER_ROUTE));
+    }
+
+    @Test
+    void testHedgesCappedByBudget() {
+        for (int i = 0; i < 40; i++) {
+            hedgePolicy.onRequest();
+        }
+
+        assertTrue(hedgePolicy.tryAcquireHedge());
+        assertTrue(hedgePolicy.tryAcquireHedge());
+        assertFalse(hedgePolicy.tryAcquireHedge());
+    }
+
+    private RoutingContext context(String path, HttpHeaders headers) {
+        return RoutingContext.create(path, headers, "{}", "127.0.0.1");
+    }
+}
\ No newline at end of file
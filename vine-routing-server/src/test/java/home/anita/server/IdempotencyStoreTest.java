@@ -0,0 +1,228 @@
+package home.anita.server;
+
+import home.anita.RoutingConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyStoreTest {
+
+    private RoutingConfig routingConfig;
+    private AtomicLong nowMillis;
+    private AtomicInteger calls;
+
+    @BeforeEach
+    void setUp() {
+        routingConfig = new RoutingConfig();
+        routingConfig.getIdempotency().setEnabled(true);
+        routingConfig.getIdempotency().setRetention(Duration.ofMinutes(1));
+        routingConfig.getIdempotency().setCapacity(DataSize.ofKilobytes(64));
+        routingConfig.getIdempotency().setMaxKeys(1000);
+        nowMillis = new AtomicLong(1_700_000_000_000L);
+        calls = new AtomicInteger();
+    }
+
+    @Test
+    void testRetryReplaysStoredResponse() {
+        IdempotencyStore store = createStore();
+
+        ResponseEntity<String> first = store.execute(createContext("key-1", "{}", null), this::route);
+        ResponseEntity<String> retry = store.execute(createContext("key-1", "{}", null), this::route);
+
+        assertEquals("response-1", first.getBody());
+        assertNull(first.getHeaders().getFirst("Idempotent-Replayed"));
+        assertEquals(HttpStatus.CREATED, retry.getStatusCode());
+        assertEquals("response-1", retry.getBody());
+        assertEquals(MediaType.APPLICATION_JSON, retry.getHeaders().getContentType());
+        assertEquals("true", retry.getHeaders().getFirst("Idempotent-Replayed"));
+        assertEquals(1, calls.get());
+        assertEquals(1, store.getStored());
+        assertEquals(1, store.getReplayed());
+    }
+
+    @Test
+    void testRequestsWithoutKeyAlwaysRouted() {
+        IdempotencyStore store = createStore();
+
+        store.execute(RoutingContext.create("/api/echo", new HttpHeaders(), "{}", "10.0.0.7"), this::route);
+        store.execute(RoutingContext.create("/api/echo", new HttpHeaders(), "{}", "10.0.0.7"), this::route);
+
+        assertEquals(2, calls.get());
+        assertEquals(0, store.getStored());
+    }
+
+    @Test
+    void testResponseReplayedOnlyWithinRetention() {
+        IdempotencyStore store = createStore();
+        store.execute(createContext("key-1", "{}", null), this::route);
+
+        nowMillis.addAndGet(Duration.ofMinutes(1).toMillis());
+        ResponseEntity<String> response = store.execute(createContext("key-1", "{}", null), this::route);
+
+        assertEquals("response-2", response.getBody());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void testKeyReusedForDifferentBodyReturns422() {
+        IdempotencyStore store = createStore();
+        store.execute(createContext("key-1", "{\"amount\": 10}", null), this::route);
+
+        ResponseEntity<String> response = store.execute(createContext("key-1", "{\"amount\": 20}", null), this::route);
+
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, response.getStatusCode());
+        assertEquals(1, calls.get());
+        assertEquals(1, store.getConflicts());
+    }
+
+    @Test
+    void testKeyScopedByAuthorization() {
+        IdempotencyStore store = createStore();
+        store.execute(createContext("key-1", "{}", "Bearer a"), this::route);
+
+        ResponseEntity<String> response = store.execute(createContext("key-1", "{}", "Bearer b"), this::route);
+
+        assertEquals("response-2", response.getBody());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void testServerErrorsNotStored() {
+        IdempotencyStore store = createStore();
+        store.execute(createContext("key-1", "{}", null), () -> ResponseEntity.status(HttpStatus.BAD_GATEWAY).body("error"));
+
+        ResponseEntity<String> retry = store.execute(createContext("key-1", "{}", null), this::route);
+
+        assertEquals("response-1", retry.getBody());
+        assertEquals(0, store.getReplayed());
+    }
+
+    @Test
+    void testTooLongKeyReturns400() {
+        routingConfig.getIdempotency().setMaxKeyLength(8);
+        IdempotencyStore store = createStore();
+
+        ResponseEntity<String> response = store.execute(createContext("much-too-long-key", "{}", null), this::route);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals(0, calls.get());
+    }
+
+    @Test
+    void testConcurrentDuplicateWaitsForOriginal() throws Exception {
+        IdempotencyStore store = createStore();
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<ResponseEntity<String>> original = CompletableFuture.supplyAsync(() ->
+                store.execute(createContext("key-1", "{}", null), () -> {
+                    await(release);
+                    return route();
+                }));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (store.getInFlight() != 1 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        CompletableFuture<ResponseEntity<String>> duplicate = CompletableFuture.supplyAsync(() ->
+                store.execute(createContext("key-1", "{}", null), this::route));
+        // Give the duplicate time to find the original in flight before releasing it
+        Thread.sleep(100);
+        release.countDown();
+
+        assertEquals("response-1", original.get(5, TimeUnit.SECONDS).getBody());
+        ResponseEntity<String> replayed = duplicate.get(5, TimeUnit.SECONDS);
+        assertEquals("response-1", replayed.getBody());
+        assertEquals("true", replayed.getHeaders().getFirst("Idempotent-Replayed"));
+        assertEquals(1, calls.get());
+        assertEquals(0, store.getInFlight());
+    }
+
+    @Test
+    void testDisabledStoreAllocatesNothing() {
+        routingConfig.getIdempotency().setEnabled(false);
+        IdempotencyStore store = createStore();
+
+        store.execute(createContext("key-1", "{}", null), this::route);
+        store.execute(createContext("key-1", "{}", null), this::route);
+
+        assertEquals(2, calls.get());
+        assertEquals(0, store.getAllocatedBytes());
+    }
+
+    @Test
+    void testAsyncDuplicateWaitsForOriginalWithoutThread() throws Exception {
+        IdempotencyStore store = createStore();
+        Sinks.One<ResponseEntity<String>> upstream = Sinks.one();
+
+        CompletableFuture<ResponseEntity<String>> original = store.executeAsync(createContext("key-1", "{}", null),
+                () -> upstream.asMono()).toFuture();
+        CompletableFuture<ResponseEntity<String>> duplicate = store.executeAsync(createContext("key-1", "{}", null),
+                () -> Mono.fromSupplier(this::route)).toFuture();
+        assertFalse(duplicate.isDone());
+        upstream.tryEmitValue(route());
+
+        assertEquals("response-1", original.get(5, TimeUnit.SECONDS).getBody());
+        ResponseEntity<String> replayed = duplicate.get(5, TimeUnit.SECONDS);
+        assertEquals("response-1", replayed.getBody());
+        assertEquals("true", replayed.getHeaders().getFirst("Idempotent-Replayed"));
+        assertEquals(1, calls.get());
+        assertEquals(0, store.getInFlight());
+    }
+
+    @Test
+    void testAsyncFailedOriginalLetsDuplicateRoute() throws Exception {
+        IdempotencyStore store = createStore();
+        Sinks.One<ResponseEntity<String>> upstream = Sinks.one();
+
+        CompletableFuture<ResponseEntity<String>> original = store.executeAsync(createContext("key-1", "{}", null),
+                () -> upstream.asMono()).toFuture();
+        CompletableFuture<ResponseEntity<String>> duplicate = store.executeAsync(createContext("key-1", "{}", null),
+                () -> Mono.fromSupplier(this::route)).toFuture();
+        upstream.tryEmitError(new IllegalStateException("connection reset"));
+
+        assertTrue(original.isCompletedExceptionally());
+        assertEquals("response-1", duplicate.get(5, TimeUnit.SECONDS).getBody());
+        assertEquals(0, store.getReplayed());
+    }
+
+    private ResponseEntity<String> route() {
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body("response-" + calls.incrementAndGet());
+    }
+
+    private IdempotencyStore createStore() {
+        return new IdempotencyStore(routingConfig, nowMillis::get);
+    }
+
+    private static RoutingContext createContext(String idempotencyKey, String body, String authorization) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Idempotency-Key", idempotencyKey);
+        if (authorization != null) {
+            headers.set(HttpHeaders.AUTHORIZATION, authorization);
+        }
+        return RoutingContext.create("/api/echo", headers, body, "10.0.0.7");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
\ No newline at end of file
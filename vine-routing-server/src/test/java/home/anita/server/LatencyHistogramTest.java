@@ -0,0 +1,56 @@
+package home.anita.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void testPercentileWithinBucketWidth() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+
+        long p95 = histogram.getPercentileNanos(95, 1);
+
+        assertTrue(p95 >= TimeUnit.MILLISECONDS.toNanos(95), "p95 should not be below the 95th sample");
+        assertTrue(p95 <= TimeUnit.MILLISECONDS.toNanos(95) * 1.1, "p95 should be within one bucket");
+    }
+
+    @Test
+    void testNoPercentileBelowMinSamples() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(5));
+
+        assertEquals(-1, histogram.getPercentileNanos(95, 2));
+        assertTrue(histogram.getPercentileNanos(95, 1) > 0);
+    }
+
+    @Test
+    void testExtremeLatenciesClampedToEdgeBuckets() {
+        assertEquals(0, LatencyHistogram.indexOf(0));
+        assertEquals(0, LatencyHistogram.indexOf(LatencyHistogram.MIN_NANOS));
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.indexOf(TimeUnit.HOURS.toNanos(1)));
+    }
+
+    @Test
+    void testDecayLetsRecentLatencyDominate() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 100; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(100));
+        }
+
+        for (int i = 0; i < 10; i++) {
+            histogram.decay();
+        }
+        for (int i = 0; i < 100; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+
+        assertTrue(histogram.getPercentileNanos(95, 1) < TimeUnit.MILLISECONDS.toNanos(2));
+    }
+}
\ No newline at end of file
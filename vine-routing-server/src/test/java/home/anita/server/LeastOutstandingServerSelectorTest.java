@@ -0,0 +1,170 @@
+package home.anita.server;
+
+import home.anita.RoutingConfig;
+import home.anita.RoutingConfig.PriorityConfig;
+import home.anita.RoutingConfig.ServerConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LeastOutstandingServerSelectorTest {
+
+    @Mock
+    private RandomServerSelector randomServerSelector;
+
+    @Mock
+    private HealthCheckService healthCheckService;
+
+    private PriorityConfig priorityConfig;
+    private ServerLoadTracker serverLoadTracker;
+    private LeastOutstandingServerSelector serverSelector;
+    private Set<ServerConfig> servers;
+    private ServerConfig server1;
+    private ServerConfig server2;
+    private ServerConfig server3;
+
+    @BeforeEach
+    void setUp() {
+        priorityConfig = new PriorityConfig();
+        serverLoadTracker = new ServerLoadTracker(new RoutingConfig());
+        serverSelector = new LeastOutstandingServerSelector(randomServerSelector, healthCheckService, priorityConfig,
+                serverLoadTracker);
+
+        server1 = new ServerConfig();
+        server1.setUrl("http://localhost:9001");
+
+        server2 = new ServerConfig();
+        server2.setUrl("http://localhost:9002");
+
+        server3 = new ServerConfig();
+        server3.setUrl("http://localhost:9003");
+
+        servers = new HashSet<>();
+        servers.add(server1);
+        servers.add(server2);
+        servers.add(server3);
+    }
+
+    @Test
+    void testSelectsServerWithFewestInFlightRequests() {
+        when(healthCheckService.getHealthyServers()).thenReturn(Set.of(
+                "http://localhost:9001", "http://localhost:9002", "http://localhost:9003"));
+
+        serverLoadTracker.onDispatch(server1);
+        serverLoadTracker.onDispatch(server1);
+        serverLoadTracker.onDispatch(server2);
+        serverLoadTracker.onDispatch(server3);
+        serverLoadTracker.onDispatch(server3);
+
+        assertEquals(server2, serverSelector.select(servers));
+    }
+
+    @Test
+    void testSkipsUnhealthyServerEvenWhenIdle() {
+        when(healthCheckService.getHealthyServers()).thenReturn(Set.of(
+                "http://localhost:9001", "http://localhost:9002"));
+
+        serverLoadTracker.onDispatch(server1);
+        serverLoadTracker.onDispatch(server2);
+        serverLoadTracker.onDispatch(server2);
+
+        // server3 has no load but is unhealthy
+        assertEquals(server1, serverSelector.select(servers));
+    }
+
+    @Test
+    void testSlowServerReceivesLessTraffic() {
+        when(healthCheckService.getHealthyServers()).thenReturn(Set.of(
+                "http://localhost:9001", "http://localhost:9002", "http://localhost:9003"));
+
+        // Simulate server3 being slow: requests dispatched to it never complete
+        int[] counts = new int[3];
+        for (int i = 0; i < 300; i++) {
+            ServerConfig selected = serverSelector.select(servers);
+            serverLoadTracker.onDispatch(selected);
+            if (selected.equals(server3)) {
+                counts[2]++;
+            } else {
+                serverLoadTracker.onComplete(selected, 1_000_000);
+                counts[selected.equals(server1) ? 0 : 1]++;
+            }
+        }
+
+        assertEquals(1, counts[2], "Slow server should only be chosen while it is the least loaded");
+        assertEquals(299, counts[0] + counts[1]);
+    }
+
+    @Test
+    void testTiesAreBrokenAcrossServers() {
+        when(healthCheckService.getHealthyServers()).thenReturn(Set.of(
+                "http://localhost:9001", "http://localhost:9002", "http://localhost:9003"));
+
+        // All servers idle, sequential requests should not always hit the same server
+        Set<String> selectedUrls = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            selectedUrls.add(serverSelector.select(servers).getUrl());
+        }
+
+        assertTrue(selectedUrls.size() > 1, "Idle servers should share traffic");
+    }
+
+    @Test
+    void testFallbackToAllServersWhenNoneHealthyInPanicMode() {
+        priorityConfig.setPanicThreshold(0.5);
+        when(healthCheckService.getHealthyServers()).thenReturn(Collections.emptySet());
+
+        serverLoadTracker.onDispatch(server1);
+        serverLoadTracker.onDispatch(server3);
+
+        assertEquals(server2, serverSelector.select(servers));
+    }
+
+    @Test
+    void testSelectWithNullSet() {
+        IllegalArgumentException exception = assertThrows(
+                IllegalArgumentException.class,
+                () -> serverSelector.select(null)
+        );
+
+        assertEquals("Server set cannot be null or empty", exception.getMessage());
+    }
+
+    @Test
+    void testSelectWithEmptySet() {
+        IllegalArgumentException exception = assertThrows(
+                IllegalArgumentException.class,
+                () -> serverSelector.select(Collections.emptySet())
+        );
+
+        assertEquals("Server set cannot be null or empty", exception.getMessage());
+    }
+
+    @Test
+    void testExcludedServerIsSkipped() {
+        when(healthCheckService.getHealthyServers()).thenReturn(Set.of(
+                "http://localhost:9001", "http://localhost:9002", "http://localhost:9003"));
+        serverLoadTracker.onDispatch(server2);
+        serverLoadTracker.onDispatch(server3);
+        serverLoadTracker.onDispatch(server3);
+
+        RoutingContext context = RoutingContext.create("/api/echo", new HttpHeaders(), "{}", "127.0.0.1");
+        context.exclude(server1);
+
+        assertEquals(server2, serverSelector.select(servers, context));
+
+        context.exclude(server2);
+        context.exclude(server3);
+        assertEquals(server1, serverSelector.select(servers, context), "Exclusions are ignored once every server is excluded");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,36 @@
+package home.anita.server;
+
+import home.anita.RoutingConfig;
+import home.anita.RoutingConfig.ServerConfig;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadMetricTest {
+
+    @Test
+    void testInFlightMetric() {
+        ServerLoadTracker serverLoadTracker = new ServerLoadTracker(new RoutingConfig());
+        ServerConfig server = new ServerConfig();
+        server.setUrl("http://localhost:9001");
+
+        serverLoadTracker.onDispatch(server);
+        serverLoadTracker.onDispatch(server);
+
+        assertEquals(2, LoadMetric.IN_FLIGHT.getLoad(serverLoadTracker, server));
+    }
+
+    @Test
+    void testPeakEwmaMetric() {
+        ServerLoadTracker serverLoadTracker = new ServerLoadTracker(new RoutingConfig());
+        ServerConfig server = new ServerConfig();
+        server.setUrl("http://localhost:9001");
+
+        assertEquals(0, LoadMetric.PEAK_EWMA.getLoad(serverLoadTracker, server));
+
+        serverLoadTracker.onDispatch(server);
+        serverLoadTracker.onComplete(server, 10_000_000L);
+
+        assertEquals(serverLoadTracker.getPeakEwmaCost(server), LoadMetric.PEAK_EWMA.getLoad(serverLoadTracker, server), 1000);
+    }
+}
\ No newline at end of file
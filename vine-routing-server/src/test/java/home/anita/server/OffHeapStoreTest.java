@@ -0,0 +1,81 @@
+package home.anita.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapStoreTest {
+
+    private static final long NOW = 1_000_000L;
+
+    @Test
+    void testPutAndGet() {
+        OffHeapStore store = new OffHeapStore(4096, 16);
+
+        assertTrue(store.put(bytes("key-1"), bytes("value-1"), NOW + 1000, NOW));
+        assertTrue(store.put(bytes("key-2"), bytes("value-2"), NOW + 1000, NOW));
+
+        assertArrayEquals(bytes("value-1"), store.get(bytes("key-1"), NOW));
+        assertArrayEquals(bytes("value-2"), store.get(bytes("key-2"), NOW));
+        assertNull(store.get(bytes("key-3"), NOW));
+    }
+
+    @Test
+    void testPutReplacesValue() {
+        OffHeapStore store = new OffHeapStore(4096, 16);
+
+        store.put(bytes("key"), bytes("old"), NOW + 1000, NOW);
+        store.put(bytes("key"), bytes("new"), NOW + 1000, NOW);
+
+        assertArrayEquals(bytes("new"), store.get(bytes("key"), NOW));
+    }
+
+    @Test
+    void testExpiredValueNotReturned() {
+        OffHeapStore store = new OffHeapStore(4096, 16);
+        store.put(bytes("key"), bytes("value"), NOW + 1000, NOW);
+
+        assertNotNull(store.get(bytes("key"), NOW + 999));
+        assertNull(store.get(bytes("key"), NOW + 1000));
+    }
+
+    @Test
+    void testOldestRecordsOverwrittenWhenFull() {
+        OffHeapStore store = new OffHeapStore(256, 64);
+
+        for (int i = 0; i < 20; i++) {
+            assertTrue(store.put(bytes("key-" + i), bytes("value-" + i), NOW + 1000, NOW));
+        }
+
+        assertNull(store.get(bytes("key-0"), NOW));
+        assertArrayEquals(bytes("value-19"), store.get(bytes("key-19"), NOW));
+        assertEquals(256, store.getUsedBytes());
+        assertEquals(20, store.getRecordCount());
+    }
+
+    @Test
+    void testRecordLargerThanStoreRejected() {
+        OffHeapStore store = new OffHeapStore(64, 16);
+
+        assertFalse(store.put(bytes("key"), new byte[64], NOW + 1000, NOW));
+        assertNull(store.get(bytes("key"), NOW));
+    }
+
+    @Test
+    void testFullIndexKeepsRecentKeys() {
+        OffHeapStore store = new OffHeapStore(1 << 16, 4);
+
+        for (int i = 0; i < 100; i++) {
+            store.put(bytes("key-" + i), bytes("value-" + i), NOW + 1000, NOW);
+        }
+
+        assertArrayEquals(bytes("value-99"), store.get(bytes("key-99"), NOW));
+        assertEquals(8 * 16 + (1 << 16), store.getAllocatedBytes());
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
\ No newline at end of file
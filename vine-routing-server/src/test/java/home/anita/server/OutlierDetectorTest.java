@@ -0,0 +1,209 @@
+package home.anita.server;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import home.anita.RoutingConfig;
+import home.anita.RoutingConfig.ServerConfig;
+import home.anita.http.RequestHandler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutlierDetectorTest {
+
+    private static final long LATENCY_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    @Mock
+    private RequestHandler requestHandler;
+
+    @Mock
+    private ObjectMapper objectMapper;
+
+    private RoutingConfig routingConfig;
+    private ServerHealthMap serverHealthMap;
+    private OutlierDetector outlierDetector;
+    private List<ServerConfig> servers;
+    private List<ServerHealth> healths;
+
+    @BeforeEach
+    void setUp() {
+        routingConfig = new RoutingConfig();
+        routingConfig.getOutlierDetection().setEnabled(true);
+        routingConfig.getOutlierDetection().setMaxEjectionPercent(50);
+        serverHealthMap = new ServerHealthMap();
+        HealthCheckService healthCheckService = new HealthCheckService(requestHandler, objectMapper, serverHealthMap);
+        outlierDetector = new OutlierDetector(routingConfig, healthCheckService);
+
+        servers = new ArrayList<>();
+        healths = new ArrayList<>();
+        for (int i = 1; i <= 4; i++) {
+            ServerConfig server = new ServerConfig();
+            server.setUrl("http://localhost:900" + i);
+            ServerHealth health = new ServerHealth(server.getUrl());
+            health.setStatus(ServerHealth.Status.HEALTHY);
+            serverHealthMap.addServer(server.getUrl(), health);
+            servers.add(server);
+            healths.add(health);
+        }
+    }
+
+    @Test
+    void testConsecutive5xxEjectsServer() {
+        for (int i = 0; i < 4; i++) {
+            outlierDetector.onResponse(servers.get(0), 503, LATENCY_NANOS);
+        }
+        assertFalse(healths.get(0).isEjected());
+
+        outlierDetector.onResponse(servers.get(0), 500, LATENCY_NANOS);
+
+        assertTrue(healths.get(0).isEjected());
+        assertFalse(serverHealthMap.getHealthyServers().contains(servers.get(0).getUrl()));
+    }
+
+    @Test
+    void testSuccessBreaksRunOf5xx() {
+        for (int i = 0; i < 4; i++) {
+            outlierDetector.onResponse(servers.get(0), 503, LATENCY_NANOS);
+        }
+        outlierDetector.onResponse(servers.get(0), 404, LATENCY_NANOS);
+        for (int i = 0; i < 4; i++) {
+            outlierDetector.onResponse(servers.get(0), 503, LATENCY_NANOS);
+        }
+
+        assertFalse(healths.get(0).isEjected());
+    }
+
+    @Test
+    void testConsecutiveFailuresEjectServer() {
+        for (int i = 0; i < 5; i++) {
+            outlierDetector.onFailure(servers.get(1));
+        }
+
+        assertTrue(healths.get(1).isEjected());
+    }
+
+    @Test
+    void testConnectSuccessBreaksRunOfFailuresWithoutLatency() {
+        for (int i = 0; i < 4; i++) {
+            outlierDetector.onFailure(servers.get(1));
+        }
+        outlierDetector.onConnectSuccess(servers.get(1));
+        for (int i = 0; i < 4; i++) {
+            outlierDetector.onFailure(servers.get(1));
+        }
+
+        assertFalse(healths.get(1).isEjected());
+        assertEquals(0, healths.get(1).getLatencyEwmaNanos());
+    }
+
+    @Test
+    void testEjectionCapLimitsEjectedShareOfPool() {
+        ejectByFailures(0);
+        ejectByFailures(1);
+        ejectByFailures(2);
+
+        // 50% of four servers
+        assertTrue(healths.get(0).isEjected());
+        assertTrue(healths.get(1).isEjected());
+        assertFalse(healths.get(2).isEjected());
+    }
+
+    @Test
+    void testOneServerCanAlwaysBeEjected() {
+        routingConfig.getOutlierDetection().setMaxEjectionPercent(0);
+
+        ejectByFailures(0);
+        ejectByFailures(1);
+
+        assertTrue(healths.get(0).isEjected());
+        assertFalse(healths.get(1).isEjected());
+    }
+
+    @Test
+    void testSweepReturnsServerAfterEjectionTime() {
+        long now = System.nanoTime();
+        assertTrue(outlierDetector.eject(healths.get(0), now, "test"));
+
+        outlierDetector.sweep(now + Duration.ofSeconds(29).toNanos());
+        assertTrue(healths.get(0).isEjected());
+
+        outlierDetector.sweep(now + Duration.ofSeconds(30).toNanos());
+        assertFalse(healths.get(0).isEjected());
+        assertTrue(serverHealthMap.getHealthyServers().contains(servers.get(0).getUrl()));
+    }
+
+    @Test
+    void testEjectionTimeGrowsExponentiallyUpToMax() {
+        assertEquals(Duration.ofSeconds(30).toNanos(), outlierDetector.getEjectionNanos(0));
+        assertEquals(Duration.ofSeconds(60).toNanos(), outlierDetector.getEjectionNanos(1));
+        assertEquals(Duration.ofSeconds(240).toNanos(), outlierDetector.getEjectionNanos(3));
+        assertEquals(Duration.ofSeconds(300).toNanos(), outlierDetector.getEjectionNanos(4));
+        assertEquals(Duration.ofSeconds(300).toNanos(), outlierDetector.getEjectionNanos(100));
+    }
+
+    @Test
+    void testRepeatedEjectionLastsLonger() {
+        long now = System.nanoTime();
+        outlierDetector.eject(healths.get(0), now, "test");
+        now += Duration.ofSeconds(30).toNanos();
+        outlierDetector.sweep(now);
+
+        outlierDetector.eject(healths.get(0), now, "test");
+
+        outlierDetector.sweep(now + Duration.ofSeconds(30).toNanos());
+        assertTrue(healths.get(0).isEjected());
+        outlierDetector.sweep(now + Duration.ofSeconds(60).toNanos());
+        assertFalse(healths.get(0).isEjected());
+    }
+
+    @Test
+    void testSlowServerEjectedBySweep() {
+        outlierDetector.onResponse(servers.get(0), 200, LATENCY_NANOS);
+        outlierDetector.onResponse(servers.get(1), 200, LATENCY_NANOS);
+        outlierDetector.onResponse(servers.get(2), 200, LATENCY_NANOS);
+        outlierDetector.onResponse(servers.get(3), 200, 10 * LATENCY_NANOS);
+
+        outlierDetector.sweep(System.nanoTime());
+
+        assertTrue(healths.get(3).isEjected());
+        assertFalse(healths.get(0).isEjected());
+    }
+
+    @Test
+    void testLatencyNotJudgedWithTooFewServers() {
+        outlierDetector.onResponse(servers.get(0), 200, LATENCY_NANOS);
+        outlierDetector.onResponse(servers.get(1), 200, 10 * LATENCY_NANOS);
+
+        outlierDetector.sweep(System.nanoTime());
+
+        assertFalse(healths.get(1).isEjected());
+    }
+
+    @Test
+    void testDisabledDetectionNeverEjects() {
+        routingConfig.getOutlierDetection().setEnabled(false);
+
+        ejectByFailures(0);
+        for (int i = 0; i < 5; i++) {
+            outlierDetector.onResponse(servers.get(1), 500, LATENCY_NANOS);
+        }
+
+        assertFalse(healths.get(0).isEjected());
+        assertFalse(healths.get(1).isEjected());
+    }
+
+    private void ejectByFailures(int index) {
+        for (int i = 0; i < 5; i++) {
+            outlierDetector.onFailure(servers.get(index));
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,144 @@
+package home.anita.server;
+
+import home.anita.RoutingConfig;
+import home.anita.RoutingConfig.PriorityConfig;
+import home.anita.RoutingConfig.ServerConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PeakEwmaServerSelectorTest {
+
+    private static final long FAST_LATENCY_NANOS = 5_000_000L;
+    private static final long SLOW_LATENCY_NANOS = 800_000_000L;
+
+    @Mock
+    private RandomServerSelector randomServerSelector;
+
+    @Mock
+    private HealthCheckService healthCheckService;
+
+    private ServerLoadTracker serverLoadTracker;
+    private PeakEwmaServerSelector serverSelector;
+    private Set<ServerConfig> servers;
+    private ServerConfig server1;
+    private ServerConfig server2;
+    private ServerConfig server3;
+
+    @BeforeEach
+    void setUp() {
+        serverLoadTracker = new ServerLoadTracker(new RoutingConfig());
+        serverSelector = new PeakEwmaServerSelector(randomServerSelector, healthCheckService, new PriorityConfig(),
+                serverLoadTracker);
+
+        server1 = new ServerConfig();
+        server1.setUrl("http://localhost:9001");
+
+        server2 = new ServerConfig();
+        server2.setUrl("http://localhost:9002");
+
+        server3 = new ServerConfig();
+        server3.setUrl("http://localhost:9003");
+
+        servers = new HashSet<>();
+        servers.add(server1);
+        servers.add(server2);
+        servers.add(server3);
+    }
+
+    @Test
+    void testDegradedServerStopsReceivingTraffic() {
+        when(healthCheckService.getHealthyServers()).thenReturn(Set.of(
+                "http://localhost:9001", "http://localhost:9002", "http://localhost:9003"));
+
+        recordResponse(server1, FAST_LATENCY_NANOS);
+        recordResponse(server2, FAST_LATENCY_NANOS);
+        recordResponse(server3, FAST_LATENCY_NANOS);
+
+        // A single slow response is enough for the peak-sensitive estimate to react
+        recordResponse(server3, SLOW_LATENCY_NANOS);
+
+        for (int i = 0; i < 100; i++) {
+            ServerConfig selected = serverSelector.select(servers);
+            assertNotEquals(server3, selected, "Degraded server should not be selected");
+            recordResponse(selected, FAST_LATENCY_NANOS);
+        }
+    }
+
+    @Test
+    void testOutstandingRequestsIncreaseCost() {
+        when(healthCheckService.getHealthyServers()).thenReturn(Set.of(
+                "http://localhost:9001", "http://localhost:9002"));
+        Set<ServerConfig> twoServers = Set.of(server1, server2);
+
+        recordResponse(server1, FAST_LATENCY_NANOS);
+        recordResponse(server2, 2 * FAST_LATENCY_NANOS);
+
+        assertEquals(server1, serverSelector.select(twoServers));
+
+        // Two requests still pending on the faster server make it the more expensive one
+        serverLoadTracker.onDispatch(server1);
+        serverLoadTracker.onDispatch(server1);
+
+        assertEquals(server2, serverSelector.select(twoServers));
+    }
+
+    @Test
+    void testUnmeasuredServerIsExplored() {
+        when(healthCheckService.getHealthyServers()).thenReturn(Set.of(
+                "http://localhost:9001", "http://localhost:9002", "http://localhost:9003"));
+
+        recordResponse(server1, FAST_LATENCY_NANOS);
+        recordResponse(server2, FAST_LATENCY_NANOS);
+
+        assertEquals(server3, serverSelector.select(servers));
+    }
+
+    @Test
+    void testSkipsUnhealthyServer() {
+        when(healthCheckService.getHealthyServers()).thenReturn(Set.of(
+                "http://localhost:9001", "http://localhost:9002"));
+
+        recordResponse(server1, SLOW_LATENCY_NANOS);
+        recordResponse(server2, SLOW_LATENCY_NANOS);
+
+        // server3 would be cheapest but is unhealthy
+        ServerConfig selected = serverSelector.select(servers);
+        assertNotEquals(server3, selected);
+    }
+
+    @Test
+    void testSelectWithNullSet() {
+        IllegalArgumentException exception = assertThrows(
+                IllegalArgumentException.class,
+                () -> serverSelector.select(null)
+        );
+
+        assertEquals("Server set cannot be null or empty", exception.getMessage());
+    }
+
+    @Test
+    void testSelectWithEmptySet() {
+        IllegalArgumentException exception = assertThrows(
+                IllegalArgumentException.class,
+                () -> serverSelector.select(Collections.emptySet())
+        );
+
+        assertEquals("Server set cannot be null or empty", exception.getMessage());
+    }
+
+    private void recordResponse(ServerConfig server, long latencyNanos) {
+        serverLoadTracker.onDispatch(server);
+        serverLoadTracker.onComplete(server, latencyNanos);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,192 @@
+package home.anita.server;
+
+import home.anita.RoutingConfig;
+import home.anita.RoutingConfig.PriorityConfig;
+import home.anita.RoutingConfig.ServerConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PowerOfTwoChoicesServerSelectorTest {
+
+    @Mock
+    private RandomServerSelector randomServerSelector;
+
+    @Mock
+    private HealthCheckService healthCheckService;
+
+    private PriorityConfig priorityConfig;
+    private ServerLoadTracker serverLoadTracker;
+    private PowerOfTwoChoicesServerSelector serverSelector;
+    private Set<ServerConfig> servers;
+    private ServerConfig server1;
+    private ServerConfig server2;
+    private ServerConfig server3;
+
+    @BeforeEach
+    void setUp() {
+        priorityConfig = new PriorityConfig();
+        serverLoadTracker = new ServerLoadTracker(new RoutingConfig());
+        serverSelector = new PowerOfTwoChoicesServerSelector(randomServerSelector, healthCheckService,
+                priorityConfig, serverLoadTracker, LoadMetric.IN_FLIGHT);
+
+        server1 = new ServerConfig();
+        server1.setUrl("http://localhost:9001");
+
+        server2 = new ServerConfig();
+        server2.setUrl("http://localhost:9002");
+
+        server3 = new ServerConfig();
+        server3.setUrl("http://localhost:9003");
+
+        servers = new HashSet<>();
+        servers.add(server1);
+        servers.add(server2);
+        servers.add(server3);
+    }
+
+    @Test
+    void testMostLoadedServerIsNeverSelected() {
+        when(healthCheckService.getHealthyServers()).thenReturn(Set.of(
+                "http://localhost:9001", "http://localhost:9002", "http://localhost:9003"));
+
+        serverLoadTracker.onDispatch(server1);
+        serverLoadTracker.onDispatch(server2);
+        for (int i = 0; i < 10; i++) {
+            serverLoadTracker.onDispatch(server3);
+        }
+
+        // Two distinct servers are always compared, so the busiest one always loses
+        for (int i = 0; i < 200; i++) {
+            assertNotEquals(server3, serverSelector.select(servers));
+        }
+    }
+
+    @Test
+    void testTwoServersAlwaysPicksLessLoaded() {
+        when(healthCheckService.getHealthyServers()).thenReturn(Set.of(
+                "http://localhost:9001", "http://localhost:9002"));
+        Set<ServerConfig> twoServers = Set.of(server1, server2);
+
+        serverLoadTracker.onDispatch(server1);
+
+        for (int i = 0; i < 50; i++) {
+            assertEquals(server2, serverSelector.select(twoServers));
+        }
+    }
+
+    @Test
+    void testAllHealthyServersAreSampled() {
+        when(healthCheckService.getHealthyServers()).thenReturn(Set.of(
+                "http://localhost:9001", "http://localhost:9002", "http://localhost:9003"));
+
+        Map<ServerConfig, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 300; i++) {
+            counts.merge(serverSelector.select(servers), 1, Integer::sum);
+        }
+
+        assertEquals(3, counts.size(), "Every idle healthy server should be selected");
+    }
+
+    @Test
+    void testLatencyMetric() {
+        serverSelector = new PowerOfTwoChoicesServerSelector(randomServerSelector, healthCheckService,
+                priorityConfig, serverLoadTracker, LoadMetric.PEAK_EWMA);
+        when(healthCheckService.getHealthyServers()).thenReturn(Set.of(
+                "http://localhost:9001", "http://localhost:9002"));
+        Set<ServerConfig> twoServers = Set.of(server1, server2);
+
+        serverLoadTracker.onDispatch(server1);
+        serverLoadTracker.onComplete(server1, 800_000_000L);
+        serverLoadTracker.onDispatch(server2);
+        serverLoadTracker.onComplete(server2, 5_000_000L);
+
+        for (int i = 0; i < 50; i++) {
+            assertEquals(server2, serverSelector.select(twoServers));
+        }
+    }
+
+    @Test
+    void testSnapshotFollowsHealthChanges() {
+        when(healthCheckService.getHealthyServers()).thenReturn(Set.of(
+                "http://localhost:9001", "http://localhost:9002"));
+        for (int i = 0; i < 20; i++) {
+            assertNotEquals(server3, serverSelector.select(servers));
+        }
+
+        when(healthCheckService.getHealthyServers()).thenReturn(Set.of(
+                "http://localhost:9002", "http://localhost:9003"));
+        for (int i = 0; i < 20; i++) {
+            assertNotEquals(server1, serverSelector.select(servers));
+        }
+    }
+
+    @Test
+    void testFallsBackToHealthAwareWithSingleHealthyServer() {
+        when(healthCheckService.getHealthyServers()).thenReturn(Set.of("http://localhost:9002"));
+        when(randomServerSelector.select(any())).thenReturn(server2);
+
+        assertEquals(server2, serverSelector.select(servers));
+
+        verify(randomServerSelector).select(argThat(candidates ->
+                candidates.size() == 1 && candidates.contains(server2)));
+    }
+
+    @Test
+    void testSamplesAllServersWhenNoneHealthyInPanicMode() {
+        priorityConfig.setPanicThreshold(0.5);
+        when(healthCheckService.getHealthyServers()).thenReturn(Collections.emptySet());
+
+        Set<ServerConfig> selected = new HashSet<>();
+        for (int i = 0; i < 200; i++) {
+            selected.add(serverSelector.select(servers));
+        }
+
+        assertEquals(servers, selected);
+        verifyNoInteractions(randomServerSelector);
+    }
+
+    @Test
+    void testNoHealthyServersWithoutPanicMode() {
+        when(healthCheckService.getHealthyServers()).thenReturn(Collections.emptySet());
+
+        assertThrows(NoHealthyServerException.class, () -> serverSelector.select(servers));
+    }
+
+    @Test
+    void testSelectWithNullSet() {
+        IllegalArgumentException exception = assertThrows(
+                IllegalArgumentException.class,
+                () -> serverSelector.select(null)
+        );
+
+        assertEquals("Server set cannot be null or empty", exception.getMessage());
+    }
+
+    @Test
+    void testExcludedServerIsNeverSelected() {
+        when(healthCheckService.getHealthyServers()).thenReturn(Set.of(
+                "http://localhost:9001", "http://localhost:9002", "http://localhost:9003"));
+
+        RoutingContext context = RoutingContext.create("/api/echo", new HttpHeaders(), "{}", "127.0.0.1");
+        context.exclude(server1);
+
+        for (int i = 0; i < 200; i++) {
+            assertNotEquals(server1, serverSelector.select(servers, context));
+        }
+    }
+}
\ No newline at end of file
@@ -3,6 +3,7 @@ package home.anita.server;
 import home.anita.RoutingConfig.ServerConfig;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
 
 import java.util.Collections;
 import java.util.HashSet;
@@ -151,4 +152,31 @@ class RandomServerSelectorTest {
         assertTrue(mixedServers.contains(selected));
         assertTrue(selected.getUrl().startsWith("http://") || selected.getUrl().startsWith("https://"));
     }
+
+    @Test
+    void testSnapshotSelectionSkipsExcludedServers() {
+        ServerSnapshot snapshot = ServerSnapshot.of(servers);
+        RoutingContext context = RoutingContext.create("/api/echo", new HttpHeaders(), "{}", "127.0.0.1");
+        ServerConfig remaining = null;
+        for (ServerConfig server : servers) {
+            if (remaining == null) {
+                remaining = server;
+            } else {
+                context.exclude(server);
+            }
+        }
+
+        for (int i = 0; i < 50; i++) {
+            assertEquals(remaining, serverSelector.select(snapshot, context));
+        }
+    }
+
+    @Test
+    void testSnapshotSelectionUsesAllServersWhenAllExcluded() {
+        ServerSnapshot snapshot = ServerSnapshot.of(servers);
+        RoutingContext context = RoutingContext.create("/api/echo", new HttpHeaders(), "{}", "127.0.0.1");
+        servers.forEach(context::exclude);
+
+        assertTrue(servers.contains(serverSelector.select(snapshot, context)));
+    }
 }
\ No newline at end of file
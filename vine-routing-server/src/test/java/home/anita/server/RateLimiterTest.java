@@ -0,0 +1,139 @@
+package home.anita.server;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import home.anita.RoutingConfig;
+import home.anita.RoutingConfig.HashKeySource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private RoutingConfig routingConfig;
+
+    @BeforeEach
+    void setUp() {
+        routingConfig = new RoutingConfig();
+        routingConfig.getRateLimit().setEnabled(true);
+        routingConfig.getRateLimit().setRequestsPerSecond(10);
+        routingConfig.getRateLimit().setBurst(5);
+    }
+
+    @Test
+    void testBurstAllowedThenLimited() {
+        RateLimiter rateLimiter = createRateLimiter();
+        long now = 1_000 * SECOND;
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, rateLimiter.tryAcquire("client", now), "request " + i);
+        }
+
+        // The next token comes one emission interval (100ms) later
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), rateLimiter.tryAcquire("client", now));
+    }
+
+    @Test
+    void testTokensRefillAtSustainedRate() {
+        RateLimiter rateLimiter = createRateLimiter();
+        long now = 1_000 * SECOND;
+        for (int i = 0; i < 5; i++) {
+            rateLimiter.tryAcquire("client", now);
+        }
+
+        long later = now + TimeUnit.MILLISECONDS.toNanos(100);
+        assertEquals(0, rateLimiter.tryAcquire("client", later));
+        assertTrue(rateLimiter.tryAcquire("client", later) > 0);
+
+        // A full refill allows a whole burst again
+        long refilled = later + SECOND;
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, rateLimiter.tryAcquire("client", refilled), "request " + i);
+        }
+    }
+
+    @Test
+    void testClientsAreLimitedIndependently() {
+        RateLimiter rateLimiter = createRateLimiter();
+        long now = 1_000 * SECOND;
+        for (int i = 0; i < 5; i++) {
+            rateLimiter.tryAcquire("noisy", now);
+        }
+
+        assertTrue(rateLimiter.tryAcquire("noisy", now) > 0);
+        assertEquals(0, rateLimiter.tryAcquire("quiet", now));
+        assertEquals(2, rateLimiter.getClientCount());
+    }
+
+    @Test
+    void testLimitedByHeaderKey() {
+        routingConfig.getRateLimit().setKeySource(HashKeySource.HEADER);
+        routingConfig.getRateLimit().setKeyName("X-Api-Key");
+        routingConfig.getRateLimit().setBurst(1);
+        routingConfig.getRateLimit().setRequestsPerSecond(0.01);
+        RateLimiter rateLimiter = createRateLimiter();
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("X-Api-Key", "key-7");
+
+        assertEquals(0, rateLimiter.tryAcquire(RoutingContext.create("/api/echo", headers, null, "10.0.0.7")));
+        assertTrue(rateLimiter.tryAcquire(RoutingContext.create("/api/echo", headers, null, "10.0.0.8")) > 0);
+        assertEquals(1, rateLimiter.getLimited());
+    }
+
+    @Test
+    void testMissingKeyFallsBackToClientAddress() {
+        routingConfig.getRateLimit().setKeySource(HashKeySource.HEADER);
+        routingConfig.getRateLimit().setKeyName("X-Api-Key");
+        routingConfig.getRateLimit().setBurst(1);
+        routingConfig.getRateLimit().setRequestsPerSecond(0.01);
+        RateLimiter rateLimiter = createRateLimiter();
+
+        assertEquals(0, rateLimiter.tryAcquire(RoutingContext.create("/api/echo", new HttpHeaders(), null, "10.0.0.7")));
+        assertTrue(rateLimiter.tryAcquire(RoutingContext.create("/api/echo", new HttpHeaders(), null, "10.0.0.7")) > 0);
+        assertEquals(0, rateLimiter.tryAcquire(RoutingContext.create("/api/echo", new HttpHeaders(), null, "10.0.0.8")));
+    }
+
+    @Test
+    void testIdleBucketsEvicted() {
+        routingConfig.getRateLimit().setIdleTimeout(Duration.ofSeconds(10));
+        RateLimiter rateLimiter = createRateLimiter();
+        long now = 1_000 * SECOND;
+        rateLimiter.tryAcquire("idle", now);
+        rateLimiter.tryAcquire("active", now + 10 * SECOND);
+
+        rateLimiter.evictIdle(now + 11 * SECOND);
+
+        assertEquals(1, rateLimiter.getClientCount());
+    }
+
+    @Test
+    void testDisabledLimiterAllowsEverything() {
+        routingConfig.getRateLimit().setEnabled(false);
+        routingConfig.getRateLimit().setBurst(1);
+        RateLimiter rateLimiter = createRateLimiter();
+        RoutingContext context = RoutingContext.create("/api/echo", new HttpHeaders(), null, "10.0.0.7");
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0, rateLimiter.tryAcquire(context));
+        }
+        assertEquals(0, rateLimiter.getClientCount());
+    }
+
+    @Test
+    void testBodyKeyed() {
+        assertFalse(createRateLimiter().isBodyKeyed());
+
+        routingConfig.getRateLimit().setKeySource(HashKeySource.BODY_FIELD);
+        assertTrue(createRateLimiter().isBodyKeyed());
+    }
+
+    private RateLimiter createRateLimiter() {
+        return new RateLimiter(routingConfig, new HashKeyExtractor(routingConfig, new ObjectMapper()));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,182 @@
+package home.anita.server;
+
+import home.anita.RoutingConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestCoalescerTest {
+
+    private RoutingConfig routingConfig;
+
+    @BeforeEach
+    void setUp() {
+        routingConfig = new RoutingConfig();
+        routingConfig.getCoalescing().setEnabled(true);
+        routingConfig.getCoalescing().setPaths(List.of("/api/echo"));
+    }
+
+    @Test
+    void testIdenticalRequestsShareOneCall() throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer(routingConfig);
+        RoutingContext context = createContext("/api/echo", "{\"message\": \"test\"}", "Bearer a");
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<ResponseEntity<String>> leader = CompletableFuture.supplyAsync(() ->
+                coalescer.execute(context, () -> {
+                    calls.incrementAndGet();
+                    await(release);
+                    return ResponseEntity.ok("Success");
+                }));
+        awaitInFlight(coalescer, 1);
+        CompletableFuture<ResponseEntity<String>> waiter = CompletableFuture.supplyAsync(() ->
+                coalescer.execute(createContext("/api/echo", "{\"message\": \"test\"}", "Bearer a"), () -> {
+                    calls.incrementAndGet();
+                    return ResponseEntity.ok("Own call");
+                }));
+        // Give the waiter time to find the leader in flight before releasing it
+        Thread.sleep(100);
+        release.countDown();
+
+        ResponseEntity<String> leaderResponse = leader.get(5, TimeUnit.SECONDS);
+        ResponseEntity<String> waiterResponse = waiter.get(5, TimeUnit.SECONDS);
+        assertEquals("Success", leaderResponse.getBody());
+        assertNull(leaderResponse.getHeaders().getFirst("X-Coalesced"));
+        assertEquals("Success", waiterResponse.getBody());
+        assertEquals("true", waiterResponse.getHeaders().getFirst("X-Coalesced"));
+        assertEquals(1, calls.get());
+        assertEquals(1, coalescer.getLeaders());
+        assertEquals(1, coalescer.getCoalesced());
+        assertEquals(0, coalescer.getInFlight());
+    }
+
+    @Test
+    void testKeyDependsOnPathBodyAndKeyHeaders() {
+        RequestCoalescer coalescer = new RequestCoalescer(routingConfig);
+        String key = coalescer.getKey(createContext("/api/echo", "{\"a\": 1}", "Bearer a"));
+
+        assertNotNull(key);
+        assertEquals(key, coalescer.getKey(createContext("/api/echo", "{\"a\": 1}", "Bearer a")));
+        assertNotEquals(key, coalescer.getKey(createContext("/api/echo", "{\"a\": 2}", "Bearer a")));
+        assertNotEquals(key, coalescer.getKey(createContext("/api/echo", "{\"a\": 1}", "Bearer b")));
+        assertNotEquals(key, coalescer.getKey(createContext("/api/echo/v2", "{\"a\": 1}", "Bearer a")));
+    }
+
+    @Test
+    void testRequestsOutsideConfiguredPathsNotCoalesced() {
+        RequestCoalescer coalescer = new RequestCoalescer(routingConfig);
+
+        assertNull(coalescer.getKey(createContext("/api/orders", "{}", null)));
+    }
+
+    @Test
+    void testDisabledCoalescingRoutesEveryRequest() {
+        routingConfig.getCoalescing().setEnabled(false);
+        RequestCoalescer coalescer = new RequestCoalescer(routingConfig);
+
+        assertNull(coalescer.getKey(createContext("/api/echo", "{}", null)));
+        assertEquals("Own call", coalescer.execute(createContext("/api/echo", "{}", null),
+                () -> ResponseEntity.ok("Own call")).getBody());
+        assertEquals(0, coalescer.getLeaders());
+    }
+
+    @Test
+    void testFullMapRoutesRequestOnItsOwn() {
+        routingConfig.getCoalescing().setMaxInFlight(0);
+        RequestCoalescer coalescer = new RequestCoalescer(routingConfig);
+
+        ResponseEntity<String> response = coalescer.execute(createContext("/api/echo", "{}", null),
+                () -> ResponseEntity.ok("Own call"));
+
+        assertEquals("Own call", response.getBody());
+        assertEquals(1, coalescer.getBypassed());
+        assertEquals(0, coalescer.getLeaders());
+    }
+
+    @Test
+    void testFailedLeaderRemovedFromMap() {
+        RequestCoalescer coalescer = new RequestCoalescer(routingConfig);
+        RoutingContext context = createContext("/api/echo", "{}", null);
+
+        assertThrows(IllegalStateException.class, () -> coalescer.execute(context, () -> {
+            throw new IllegalStateException("Routing failed");
+        }));
+
+        assertEquals(0, coalescer.getInFlight());
+        assertEquals("Retried", coalescer.execute(context, () -> ResponseEntity.ok("Retried")).getBody());
+    }
+
+    @Test
+    void testAsyncWaiterSharesResponseWithoutThread() throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer(routingConfig);
+        Sinks.One<ResponseEntity<String>> upstream = Sinks.one();
+        AtomicInteger calls = new AtomicInteger();
+
+        CompletableFuture<ResponseEntity<String>> leader = coalescer.executeAsync(
+                createContext("/api/echo", "{}", null), () -> {
+                    calls.incrementAndGet();
+                    return upstream.asMono();
+                }).toFuture();
+        CompletableFuture<ResponseEntity<String>> waiter = coalescer.executeAsync(
+                createContext("/api/echo", "{}", null), () -> {
+                    calls.incrementAndGet();
+                    return Mono.just(ResponseEntity.ok("Own call"));
+                }).toFuture();
+        upstream.tryEmitValue(ResponseEntity.ok("Success"));
+
+        assertEquals("Success", leader.get(5, TimeUnit.SECONDS).getBody());
+        assertEquals("Success", waiter.get(5, TimeUnit.SECONDS).getBody());
+        assertEquals("true", waiter.get().getHeaders().getFirst("X-Coalesced"));
+        assertEquals(1, calls.get());
+        assertEquals(0, coalescer.getInFlight());
+    }
+
+    @Test
+    void testAsyncWaiterRoutesOnItsOwnWhenLeaderIsCancelled() throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer(routingConfig);
+
+        var leader = coalescer.executeAsync(createContext("/api/echo", "{}", null), Mono::never).subscribe();
+        CompletableFuture<ResponseEntity<String>> waiter = coalescer.executeAsync(
+                createContext("/api/echo", "{}", null), () -> Mono.just(ResponseEntity.ok("Own call"))).toFuture();
+        leader.dispose();
+
+        assertEquals("Own call", waiter.get(5, TimeUnit.SECONDS).getBody());
+        assertEquals(0, coalescer.getInFlight());
+    }
+
+    private static RoutingContext createContext(String path, String body, String authorization) {
+        HttpHeaders headers = new HttpHeaders();
+        if (authorization != null) {
+            headers.set(HttpHeaders.AUTHORIZATION, authorization);
+        }
+        return RoutingContext.create(path, headers, body, "10.0.0.7");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void awaitInFlight(RequestCoalescer coalescer, int inFlight) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (coalescer.getInFlight() != inFlight && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(inFlight, coalescer.getInFlight());
+    }
+}
\ No newline at end of file
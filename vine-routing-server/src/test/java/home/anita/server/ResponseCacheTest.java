@@ -0,0 +1,263 @@
+package home.anita.server;
+
+import home.anita.RoutingConfig;
+import home.anita.RoutingConfig.RouteCacheConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseCacheTest {
+
+    private RoutingConfig routingConfig;
+    private AtomicLong nowNanos;
+    private AtomicInteger calls;
+
+    @BeforeEach
+    void setUp() {
+        routingConfig = new RoutingConfig();
+        routingConfig.getCache().setEnabled(true);
+        routingConfig.getCache().setTtl(Duration.ofSeconds(10));
+        routingConfig.getCache().setStaleWhileRevalidate(Duration.ofSeconds(5));
+        routingConfig.getCache().setRoutes(new ArrayList<>(List.of(createRoute("/api/echo", null))));
+        nowNanos = new AtomicLong(1_000_000_000L);
+        calls = new AtomicInteger();
+    }
+
+    @Test
+    void testMissThenHit() {
+        ResponseCache cache = createCache(Runnable::run);
+
+        ResponseEntity<String> first = cache.execute(createContext("/api/echo", "{}"), this::route);
+        ResponseEntity<String> second = cache.execute(createContext("/api/echo", "{}"), this::route);
+
+        assertEquals("response-1", first.getBody());
+        assertEquals("MISS", first.getHeaders().getFirst("X-Cache"));
+        assertEquals("response-1", second.getBody());
+        assertEquals("HIT", second.getHeaders().getFirst("X-Cache"));
+        assertEquals(1, calls.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getEntryCount());
+    }
+
+    @Test
+    void testDifferentBodyOrKeyHeaderMisses() {
+        ResponseCache cache = createCache(Runnable::run);
+        HttpHeaders authorized = new HttpHeaders();
+        authorized.set(HttpHeaders.AUTHORIZATION, "Bearer a");
+
+        cache.execute(createContext("/api/echo", "{\"a\": 1}"), this::route);
+        cache.execute(createContext("/api/echo", "{\"a\": 2}"), this::route);
+        cache.execute(RoutingContext.create("/api/echo", authorized, "{\"a\": 1}", "10.0.0.7"), this::route);
+
+        assertEquals(3, calls.get());
+        assertEquals(3, cache.getMisses());
+    }
+
+    @Test
+    void testErrorResponsesNotCached() {
+        ResponseCache cache = createCache(Runnable::run);
+
+        cache.execute(createContext("/api/echo", "{}"), () -> ResponseEntity.status(HttpStatus.BAD_GATEWAY).body("error"));
+        cache.execute(createContext("/api/echo", "{}"), this::route);
+
+        assertEquals(1, calls.get());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    void testStaleResponseServedWhileRevalidating() {
+        List<Runnable> revalidations = new ArrayList<>();
+        ResponseCache cache = createCache(revalidations::add);
+        cache.execute(createContext("/api/echo", "{}"), this::route);
+
+        nowNanos.addAndGet(Duration.ofSeconds(12).toNanos());
+        ResponseEntity<String> stale = cache.execute(createContext("/api/echo", "{}"), this::route);
+        cache.execute(createContext("/api/echo", "{}"), this::route);
+
+        assertEquals("response-1", stale.getBody());
+        assertEquals("STALE", stale.getHeaders().getFirst("X-Cache"));
+        assertEquals(1, revalidations.size(), "a single refresh per key");
+
+        revalidations.get(0).run();
+        ResponseEntity<String> refreshed = cache.execute(createContext("/api/echo", "{}"), this::route);
+
+        assertEquals("response-2", refreshed.getBody());
+        assertEquals("HIT", refreshed.getHeaders().getFirst("X-Cache"));
+        assertEquals(2, cache.getStaleHits());
+        assertEquals(1, cache.getRevalidations());
+    }
+
+    @Test
+    void testPerResponseHeadersNotCached() {
+        ResponseCache cache = createCache(Runnable::run);
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.CONTENT_TYPE, "application/json");
+        headers.set(HttpHeaders.DATE, "Tue, 01 Sep 2026 10:00:00 GMT");
+        headers.set(HttpHeaders.CONTENT_LENGTH, "10");
+        headers.set(HttpHeaders.CONNECTION, "keep-alive, X-Trace");
+        headers.set("Keep-Alive", "timeout=60");
+        headers.set("X-Trace", "abc");
+        headers.set("X-Coalesced", "true");
+        headers.set("X-Server", "grape-1");
+
+        cache.execute(createContext("/api/echo", "{}"), () -> ResponseEntity.ok().headers(headers).body("response"));
+        ResponseEntity<String> hit = cache.execute(createContext("/api/echo", "{}"), this::route);
+
+        assertEquals("HIT", hit.getHeaders().getFirst("X-Cache"));
+        assertEquals("application/json", hit.getHeaders().getFirst(HttpHeaders.CONTENT_TYPE));
+        assertEquals("grape-1", hit.getHeaders().getFirst("X-Server"));
+        for (String name : List.of(HttpHeaders.DATE, HttpHeaders.CONTENT_LENGTH, HttpHeaders.CONNECTION, "Keep-Alive",
+                "X-Trace", "X-Coalesced")) {
+            assertFalse(hit.getHeaders().containsKey(name), name);
+        }
+    }
+
+    @Test
+    void testRevalidationSkippedWithoutFreeAdmissionSlot() {
+        routingConfig.getAdmission().setEnabled(true);
+        routingConfig.getAdmission().setMaxConcurrent(1);
+        AdmissionQueue admissionQueue = new AdmissionQueue(routingConfig);
+        ResponseCache cache = createCache(Runnable::run, admissionQueue);
+        cache.execute(createContext("/api/echo", "{}"), this::route);
+        nowNanos.addAndGet(Duration.ofSeconds(12).toNanos());
+
+        assertTrue(admissionQueue.tryAcquire());
+        cache.execute(createContext("/api/echo", "{}"), this::route);
+
+        assertEquals(1, calls.get());
+        assertEquals(0, cache.getRevalidations());
+
+        admissionQueue.release();
+        cache.execute(createContext("/api/echo", "{}"), this::route);
+
+        assertEquals(2, calls.get());
+        assertEquals(1, cache.getRevalidations());
+        assertEquals(0, admissionQueue.getInFlight());
+    }
+
+    @Test
+    void testExpiredResponseMisses() {
+        ResponseCache cache = createCache(Runnable::run);
+        cache.execute(createContext("/api/echo", "{}"), this::route);
+
+        nowNanos.addAndGet(Duration.ofSeconds(16).toNanos());
+        ResponseEntity<String> response = cache.execute(createContext("/api/echo", "{}"), this::route);
+
+        assertEquals("response-2", response.getBody());
+        assertEquals("MISS", response.getHeaders().getFirst("X-Cache"));
+    }
+
+    @Test
+    void testRouteTtlOverridesDefault() {
+        routingConfig.getCache().getRoutes().add(0, createRoute("/api/echo/short", Duration.ofSeconds(1)));
+        routingConfig.getCache().setStaleWhileRevalidate(Duration.ZERO);
+        ResponseCache cache = createCache(Runnable::run);
+        cache.execute(createContext("/api/echo/short", "{}"), this::route);
+        cache.execute(createContext("/api/echo/long", "{}"), this::route);
+
+        nowNanos.addAndGet(Duration.ofSeconds(2).toNanos());
+
+        assertEquals("MISS", cache.execute(createContext("/api/echo/short", "{}"), this::route)
+                .getHeaders().getFirst("X-Cache"));
+        assertEquals("HIT", cache.execute(createContext("/api/echo/long", "{}"), this::route)
+                .getHeaders().getFirst("X-Cache"));
+    }
+
+    @Test
+    void testSizeBoundEvictsEntries() {
+        routingConfig.getCache().setMaxSize(DataSize.ofKilobytes(4));
+        ResponseCache cache = createCache(Runnable::run);
+
+        for (int i = 0; i < 100; i++) {
+            cache.execute(createContext("/api/echo", "{\"i\": " + i + "}"), this::route);
+        }
+        cache.cleanUp();
+
+        assertTrue(cache.getSizeBytes() <= DataSize.ofKilobytes(4).toBytes());
+        assertTrue(cache.getEntryCount() < 100);
+        assertTrue(cache.getEvictions() > 0);
+    }
+
+    @Test
+    void testUncachedPathRoutedWithoutHeader() {
+        ResponseCache cache = createCache(Runnable::run);
+
+        ResponseEntity<String> first = cache.execute(createContext("/api/orders", "{}"), this::route);
+        cache.execute(createContext("/api/orders", "{}"), this::route);
+
+        assertNull(first.getHeaders().getFirst("X-Cache"));
+        assertEquals(2, calls.get());
+        assertEquals(0, cache.getMisses());
+    }
+
+    @Test
+    void testAsyncMissThenHit() {
+        ResponseCache cache = createCache(Runnable::run);
+
+        ResponseEntity<String> first = cache.executeAsync(createContext("/api/echo", "{}"), this::routeAsync).block();
+        ResponseEntity<String> second = cache.executeAsync(createContext("/api/echo", "{}"), this::routeAsync).block();
+
+        assertEquals("MISS", first.getHeaders().getFirst("X-Cache"));
+        assertEquals("response-1", second.getBody());
+        assertEquals("HIT", second.getHeaders().getFirst("X-Cache"));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void testAsyncStaleResponseRevalidatedBySubscription() {
+        List<Runnable> revalidations = new ArrayList<>();
+        ResponseCache cache = createCache(revalidations::add);
+        cache.executeAsync(createContext("/api/echo", "{}"), this::routeAsync).block();
+
+        nowNanos.addAndGet(Duration.ofSeconds(12).toNanos());
+        ResponseEntity<String> stale = cache.executeAsync(createContext("/api/echo", "{}"), this::routeAsync).block();
+        ResponseEntity<String> refreshed = cache.executeAsync(createContext("/api/echo", "{}"), this::routeAsync).block();
+
+        assertEquals("STALE", stale.getHeaders().getFirst("X-Cache"));
+        assertEquals("response-2", refreshed.getBody());
+        assertEquals("HIT", refreshed.getHeaders().getFirst("X-Cache"));
+        assertTrue(revalidations.isEmpty(), "no revalidation thread is used");
+        assertEquals(1, cache.getRevalidations());
+    }
+
+    private Mono<ResponseEntity<String>> routeAsync() {
+        return Mono.fromSupplier(this::route);
+    }
+
+    private ResponseEntity<String> route() {
+        return ResponseEntity.ok("response-" + calls.incrementAndGet());
+    }
+
+    private ResponseCache createCache(Executor revalidationExecutor) {
+        return createCache(revalidationExecutor, new AdmissionQueue(routingConfig));
+    }
+
+    private ResponseCache createCache(Executor revalidationExecutor, AdmissionQueue admissionQueue) {
+        return new ResponseCache(routingConfig, admissionQueue, nowNanos::get, revalidationExecutor);
+    }
+
+    private static RouteCacheConfig createRoute(String path, Duration ttl) {
+        RouteCacheConfig route = new RouteCacheConfig();
+        route.setPath(path);
+        route.setTtl(ttl);
+        return route;
+    }
+
+    private static RoutingContext createContext(String path, String body) {
+        return RoutingContext.create(path, new HttpHeaders(), body, "10.0.0.7");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,70 @@
+package home.anita.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RetryBudgetTest {
+
+    private static final long START = 1_000_000_000L;
+
+    @Test
+    void testRetriesCappedAtRatioOfRequests() {
+        RetryBudget retryBudget = new RetryBudget(0.1, 0, START);
+
+        for (int i = 0; i < 100; i++) {
+            retryBudget.onRequest();
+        }
+
+        int retries = 0;
+        while (retryBudget.tryWithdraw(START)) {
+            retries++;
+        }
+        assertEquals(10, retries);
+        assertEquals(1, retryBudget.getRejected());
+    }
+
+    @Test
+    void testEmptyBudgetRefusesRetry() {
+        RetryBudget retryBudget = new RetryBudget(0.1, 0, START);
+
+        for (int i = 0; i < 9; i++) {
+            retryBudget.onRequest();
+        }
+
+        assertFalse(retryBudget.tryWithdraw(START));
+    }
+
+    @Test
+    void testMinimumRetriesRefilledOverTime() {
+        RetryBudget retryBudget = new RetryBudget(0.1, 5, START);
+
+        assertFalse(retryBudget.tryWithdraw(START));
+
+        long later = START + TimeUnit.SECONDS.toNanos(1);
+        assertTrue(retryBudget.tryWithdraw(later));
+        assertEquals(4, retryBudget.getAvailableRetries());
+    }
+
+    @Test
+    void testRefillCappedAtOneSecond() {
+        RetryBudget retryBudget = new RetryBudget(0.1, 5, START);
+
+        retryBudget.tryWithdraw(START + TimeUnit.MINUTES.toNanos(10));
+
+        assertEquals(4, retryBudget.getAvailableRetries());
+    }
+
+    @Test
+    void testSavedRetriesCapped() {
+        RetryBudget retryBudget = new RetryBudget(1.0, 0, START);
+
+        for (int i = 0; i < 1000; i++) {
+            retryBudget.onRequest();
+        }
+
+        assertEquals(RetryBudget.MAX_TOKENS, retryBudget.getAvailableRetries());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,75 @@
+package home.anita.server;
+
+import home.anita.RoutingConfig;
+import io.netty.handler.timeout.ReadTimeoutException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RetryPolicyTest {
+
+    private RoutingConfig routingConfig;
+    private RetryPolicy retryPolicy;
+
+    @BeforeEach
+    void setUp() {
+        routingConfig = new RoutingConfig();
+        routingConfig.getRetry().setEnabled(true);
+        retryPolicy = new RetryPolicy(routingConfig);
+    }
+
+    @Test
+    void testConnectionFailuresAreRetryable() {
+        assertTrue(retryPolicy.isRetryable(new RuntimeException("Failed to send HTTP request",
+                new ConnectException("Connection refused"))));
+        assertTrue(retryPolicy.isRetryable(new RuntimeException("Failed to send HTTP request",
+                new SocketException("Connection reset"))));
+        assertTrue(retryPolicy.isRetryable(new RuntimeException("Failed to send HTTP request",
+                ReadTimeoutException.INSTANCE)));
+    }
+
+    @Test
+    void testOtherFailuresAreNotRetryable() {
+        assertFalse(retryPolicy.isRetryable(new RuntimeException("Failed to send HTTP request",
+                new IOException("Broken body"))));
+        assertFalse(retryPolicy.isRetryable(new IllegalStateException("Unexpected")));
+    }
+
+    @Test
+    void testMaxAttempts() {
+        assertEquals(3, retryPolicy.getMaxAttempts());
+
+        routingConfig.getRetry().setEnabled(false);
+
+        assertEquals(1, retryPolicy.getMaxAttempts());
+    }
+
+    @Test
+    void testBackoffGrowsUpToMaximum() {
+        routingConfig.getRetry().setInitialBackoff(Duration.ofMillis(10));
+        routingConfig.getRetry().setMaxBackoff(Duration.ofMillis(30));
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(retryPolicy.getBackoffNanos(1) <= TimeUnit.MILLISECONDS.toNanos(10));
+            assertTrue(retryPolicy.getBackoffNanos(2) <= TimeUnit.MILLISECONDS.toNanos(20));
+            assertTrue(retryPolicy.getBackoffNanos(10) <= TimeUnit.MILLISECONDS.toNanos(30));
+            assertTrue(retryPolicy.getBackoffNanos(1) >= 0);
+        }
+    }
+
+    @Test
+    void testRetryAcquiredFromBudget() {
+        for (int i = 0; i < 10; i++) {
+            retryPolicy.onRequest();
+        }
+
+        assertTrue(retryPolicy.tryAcquireRetry());
+    }
+}
\ No newline at end of file
@@ -1,11 +1,13 @@
 package home.anita.server;
 
+import home.anita.RoutingConfig.PriorityConfig;
 import home.anita.RoutingConfig.ServerConfig;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
 
 import java.util.Collections;
 import java.util.HashSet;
@@ -17,6 +19,7 @@ import static org.mockito.Mockito.*;
 @ExtendWith(MockitoExtension.class)
 class RoundRobinServerSelectorTest {
 
+    private PriorityConfig priorityConfig;
     private RoundRobinServerSelector serverSelector;
 
     @Mock
@@ -30,7 +33,8 @@ class RoundRobinServerSelectorTest {
 
     @BeforeEach
     void setUp() {
-        serverSelector = new RoundRobinServerSelector(randomServerSelector, healthCheckService);
+        priorityConfig = new PriorityConfig();
+        serverSelector = new RoundRobinServerSelector(randomServerSelector, healthCheckService, priorityConfig);
 
         ServerConfig server1 = new ServerConfig();
         server1.setUrl("http://localhost:9001");
@@ -128,8 +132,9 @@ class RoundRobinServerSelectorTest {
     }
 
     @Test
-    void testFallbackToAllServersWhenNoneHealthy() {
-        // No healthy servers
+    void testFallbackToAllServersWhenNoneHealthyInPanicMode() {
+        // No healthy servers, panic mode allows unhealthy servers
+        priorityConfig.setPanicThreshold(0.5);
         when(healthCheckService.getHealthyServers()).thenReturn(Collections.emptySet());
 
         serverSelector.resetCounter();
@@ -199,6 +204,27 @@ class RoundRobinServerSelectorTest {
         }
     }
 
+    @Test
+    void testNoHealthyServersWithoutPanicMode() {
+        when(healthCheckService.getHealthyServers()).thenReturn(Collections.emptySet());
+
+        assertThrows(NoHealthyServerException.class, () -> serverSelector.select(servers));
+    }
+
+    @Test
+    void testSecondaryTierUsedWhenPrimaryTierIsDown() {
+        ServerConfig secondary = new ServerConfig();
+        secondary.setUrl("http://localhost:9101");
+        secondary.setPriority(1);
+        Set<ServerConfig> tieredServers = new HashSet<>(servers);
+        tieredServers.add(secondary);
+        when(healthCheckService.getHealthyServers()).thenReturn(Set.of("http://localhost:9101"));
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(secondary, serverSelector.select(tieredServers));
+        }
+    }
+
     @Test
     void testSelectWithNullSet() {
         IllegalArgumentException exception = assertThrows(
@@ -282,4 +308,27 @@ class RoundRobinServerSelectorTest {
 
         verify(healthCheckService, times(1)).getHealthyServers();
     }
+
+    @Test
+    void testExcludedServerIsSkipped() {
+        Set<String> healthyUrls = Set.of("http://localhost:9001", "http://localhost:9002", "http://localhost:9003");
+        when(healthCheckService.getHealthyServers()).thenReturn(healthyUrls);
+        ServerConfig excluded = servers.iterator().next();
+        RoutingContext context = RoutingContext.create("/api/echo", new HttpHeaders(), "{}", "127.0.0.1");
+        context.exclude(excluded);
+
+        for (int i = 0; i < 30; i++) {
+            assertNotEquals(excluded, serverSelector.select(servers, context));
+        }
+    }
+
+    @Test
+    void testAllServersExcludedStillSelects() {
+        Set<String> healthyUrls = Set.of("http://localhost:9001", "http://localhost:9002", "http://localhost:9003");
+        when(healthCheckService.getHealthyServers()).thenReturn(healthyUrls);
+        RoutingContext context = RoutingContext.create("/api/echo", new HttpHeaders(), "{}", "127.0.0.1");
+        servers.forEach(context::exclude);
+
+        assertTrue(servers.contains(serverSelector.select(servers, context)));
+    }
 }
\ No newline at end of file
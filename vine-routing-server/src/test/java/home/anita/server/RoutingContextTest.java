@@ -0,0 +1,59 @@
+package home.anita.server;
+
+import home.anita.RoutingConfig.ServerConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoutingContextTest {
+
+    @Test
+    void testCreate() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("X-User-Id", "user-42");
+
+        RoutingContext context = RoutingContext.create("/api/echo", headers, "{}", "10.0.0.7");
+
+        assertEquals("/api/echo", context.getPath());
+        assertEquals("user-42", context.getHeaders().getFirst("X-User-Id"));
+        assertEquals("{}", context.getBody());
+        assertEquals("10.0.0.7", context.getClientAddress());
+        assertFalse(context.hasExclusions());
+        assertTrue(context.getExcludedServers().isEmpty());
+    }
+
+    @Test
+    void testExclude() {
+        ServerConfig server1 = createServer("http://localhost:9001");
+        ServerConfig server2 = createServer("http://localhost:9002");
+        RoutingContext context = RoutingContext.create("/api/echo", new HttpHeaders(), "{}", "10.0.0.7");
+
+        context.exclude(server1);
+
+        assertTrue(context.hasExclusions());
+        assertTrue(context.isExcluded(server1));
+        assertFalse(context.isExcluded(server2));
+        assertEquals(Set.of(server1), context.getExcludedServers());
+    }
+
+    @Test
+    void testToString() {
+        RoutingContext context = RoutingContext.create("/api/echo", new HttpHeaders(), "{}", "10.0.0.7");
+        context.exclude(createServer("http://localhost:9001"));
+
+        String toString = context.toString();
+
+        assertTrue(toString.contains("/api/echo"));
+        assertTrue(toString.contains("10.0.0.7"));
+        assertTrue(toString.contains("excluded=1"));
+    }
+
+    private ServerConfig createServer(String url) {
+        ServerConfig server = new ServerConfig();
+        server.setUrl(url);
+        return server;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,146 @@
+package home.anita.server;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import home.anita.RoutingConfig;
+import home.anita.RoutingConfig.PriorityConfig;
+import home.anita.RoutingConfig.ServerConfig;
+import home.anita.http.RequestHandler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Verifies that selection on the hot path allocates nothing once the healthy snapshot is built.
+ * Uses the real ServerHealthMap and HealthCheckService, since Mockito mocks allocate on every call.
+ */
+class SelectionAllocationTest {
+
+    private static final int WARMUP_ITERATIONS = 50_000;
+    private static final int ITERATIONS = 100_000;
+
+    private final com.sun.management.ThreadMXBean threadMXBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private Logger logger;
+    private Level previousLevel;
+    private HealthCheckService healthCheckService;
+    private ServerLoadTracker serverLoadTracker;
+    private RandomServerSelector randomServerSelector;
+    private PriorityConfig priorityConfig;
+    private Set<ServerConfig> servers;
+
+    @BeforeEach
+    void setUp() {
+        assumeTrue(threadMXBean.isThreadAllocatedMemorySupported(), "Allocation counting not supported by this JVM");
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+
+        // Debug logging allocates its arguments, production runs at INFO
+        logger = (Logger) LoggerFactory.getLogger("home.anita");
+        previousLevel = logger.getLevel();
+        logger.setLevel(Level.INFO);
+
+        ServerHealthMap serverHealthMap = new ServerHealthMap();
+        healthCheckService = new HealthCheckService(mock(RequestHandler.class), mock(ObjectMapper.class), serverHealthMap);
+        serverLoadTracker = new ServerLoadTracker(new RoutingConfig());
+        randomServerSelector = new RandomServerSelector();
+        priorityConfig = new PriorityConfig();
+
+        servers = new HashSet<>();
+        for (int port = 9001; port <= 9005; port++) {
+            ServerConfig server = new ServerConfig();
+            server.setUrl("http://localhost:" + port);
+            servers.add(server);
+
+            ServerHealth health = new ServerHealth(server.getUrl());
+            health.setStatus(port == 9005 ? ServerHealth.Status.UNHEALTHY : ServerHealth.Status.HEALTHY);
+            serverHealthMap.addServer(server.getUrl(), health);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (logger != null) {
+            logger.setLevel(previousLevel);
+        }
+    }
+
+    @Test
+    void testRoundRobinSelectDoesNotAllocate() {
+        assertNoAllocation(new RoundRobinServerSelector(randomServerSelector, healthCheckService, priorityConfig));
+    }
+
+    @Test
+    void testWeightedRoundRobinSelectDoesNotAllocate() {
+        assertNoAllocation(new WeightedRoundRobinServerSelector(randomServerSelector, healthCheckService, priorityConfig,
+                serverLoadTracker));
+    }
+
+    @Test
+    void testLeastOutstandingSelectDoesNotAllocate() {
+        assertNoAllocation(new LeastOutstandingServerSelector(randomServerSelector, healthCheckService, priorityConfig,
+                serverLoadTracker));
+    }
+
+    @Test
+    void testPeakEwmaSelectDoesNotAllocate() {
+        assertNoAllocation(new PeakEwmaServerSelector(randomServerSelector, healthCheckService, priorityConfig, serverLoadTracker));
+    }
+
+    @Test
+    void testPowerOfTwoChoicesSelectDoesNotAllocate() {
+        assertNoAllocation(new PowerOfTwoChoicesServerSelector(randomServerSelector, healthCheckService,
+                priorityConfig, serverLoadTracker, LoadMetric.IN_FLIGHT));
+    }
+
+    @Test
+    void testHealthAwareSelectDoesNotAllocate() {
+        assertNoAllocation(new HealthAwareServerSelector(randomServerSelector, healthCheckService, priorityConfig));
+    }
+
+    @Test
+    void testConsistentHashSelectDoesNotAllocate() {
+        RoutingConfig routingConfig = new RoutingConfig();
+        var serverSelector = new ConsistentHashServerSelector(randomServerSelector, healthCheckService, priorityConfig,
+                serverLoadTracker, new HashKeyExtractor(routingConfig, new ObjectMapper()), routingConfig.getConsistentHash());
+
+        // Keyed by the client IP address by default
+        assertNoAllocation(serverSelector, RoutingContext.create("/api/echo", new HttpHeaders(), "{}", "10.0.0.42"));
+    }
+
+    private void assertNoAllocation(ServerSelector serverSelector) {
+        assertNoAllocation(serverSelector, null);
+    }
+
+    private void assertNoAllocation(ServerSelector serverSelector, RoutingContext context) {
+        // Warm up so the snapshot is built and the selection path is compiled
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            assertNotNull(serverSelector.select(servers, context));
+        }
+
+        ServerConfig selected = null;
+        long before = threadMXBean.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < ITERATIONS; i++) {
+            selected = serverSelector.select(servers, context);
+        }
+        long allocated = threadMXBean.getCurrentThreadAllocatedBytes() - before;
+
+        assertNotNull(selected);
+        // Any allocation inside select() costs at least 16 bytes per call, so less than
+        // one byte per call leaves room only for the measurement call itself
+        assertTrue(allocated < ITERATIONS,
+                "Expected zero bytes allocated per select(), measured " + allocated + " bytes over "
+                        + ITERATIONS + " calls");
+    }
+}
\ No newline at end of file
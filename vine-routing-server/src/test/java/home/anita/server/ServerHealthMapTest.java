@@ -73,6 +73,22 @@ class ServerHealthMapTest {
         assertFalse(healthyServers.contains("http://localhost:9002"));
     }
 
+    @Test
+    void testEjectedServerLeftOutOfHealthyServers() {
+        health1.setStatus(ServerHealth.Status.HEALTHY);
+        health2.setStatus(ServerHealth.Status.HEALTHY);
+        serverHealthMap.addServer("http://localhost:9001", health1);
+        serverHealthMap.addServer("http://localhost:9002", health2);
+
+        health1.eject(System.nanoTime() + 1_000_000_000L, System.nanoTime());
+
+        assertEquals(Set.of("http://localhost:9002"), serverHealthMap.getHealthyServers());
+
+        health1.unejectIfExpired(System.nanoTime() + 2_000_000_000L);
+
+        assertEquals(Set.of("http://localhost:9001", "http://localhost:9002"), serverHealthMap.getHealthyServers());
+    }
+
     @Test
     void testGetUnhealthyServers() {
         // Set up mixed health statuses  
@@ -162,4 +178,51 @@ class ServerHealthMapTest {
         // Should not throw any exceptions
         assertDoesNotThrow(() -> serverHealthMap.logHealthCheckSummary());
     }
+
+    @Test
+    void testHealthyServersRepublishedOnStatusChange() {
+        serverHealthMap.addServer("http://localhost:9001", health1);
+        serverHealthMap.addServer("http://localhost:9002", health2);
+        assertTrue(serverHealthMap.getHealthyServers().isEmpty());
+
+        health1.setStatus(ServerHealth.Status.HEALTHY);
+
+        Set<String> healthyServers = serverHealthMap.getHealthyServers();
+        assertEquals(Set.of("http://localhost:9001"), healthyServers);
+
+        health2.setStatus(ServerHealth.Status.HEALTHY);
+        assertEquals(Set.of("http://localhost:9001", "http://localhost:9002"), serverHealthMap.getHealthyServers());
+        assertEquals(Set.of("http://localhost:9001"), healthyServers, "Published sets are never modified");
+    }
+
+    @Test
+    void testHealthyServersKeptWhenStatusUnchanged() {
+        health1.setStatus(ServerHealth.Status.HEALTHY);
+        serverHealthMap.addServer("http://localhost:9001", health1);
+        Set<String> healthyServers = serverHealthMap.getHealthyServers();
+
+        health1.setStatus(ServerHealth.Status.HEALTHY);
+
+        assertSame(healthyServers, serverHealthMap.getHealthyServers());
+        assertSame(healthyServers, serverHealthMap.getHealthyServers());
+    }
+
+    @Test
+    void testHealthyServersIsUnmodifiable() {
+        health1.setStatus(ServerHealth.Status.HEALTHY);
+        serverHealthMap.addServer("http://localhost:9001", health1);
+
+        assertThrows(UnsupportedOperationException.class,
+                () -> serverHealthMap.getHealthyServers().add("http://localhost:9002"));
+    }
+
+    @Test
+    void testClearRepublishesHealthyServers() {
+        health1.setStatus(ServerHealth.Status.HEALTHY);
+        serverHealthMap.addServer("http://localhost:9001", health1);
+
+        serverHealthMap.clear();
+
+        assertTrue(serverHealthMap.getHealthyServers().isEmpty());
+    }
 }
\ No newline at end of file
@@ -3,6 +3,7 @@ package home.anita.server;
 import org.junit.jupiter.api.Test;
 
 import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -118,4 +119,133 @@ class ServerHealthTest {
         assertEquals(ServerHealth.Status.HEALTHY, values[0]);
         assertEquals(ServerHealth.Status.UNHEALTHY, values[1]);
     }
+
+    @Test
+    void testStatusChangeListenerOnlyNotifiedOnChange() {
+        ServerHealth serverHealth = new ServerHealth("http://localhost:9001");
+        AtomicInteger notifications = new AtomicInteger();
+        serverHealth.setStatusChangeListener(notifications::incrementAndGet);
+
+        serverHealth.setStatus(ServerHealth.Status.UNHEALTHY);
+        assertEquals(0, notifications.get());
+
+        serverHealth.setStatus(ServerHealth.Status.HEALTHY);
+        serverHealth.setStatus(ServerHealth.Status.HEALTHY);
+        assertEquals(1, notifications.get());
+
+        serverHealth.setStatus(ServerHealth.Status.UNHEALTHY);
+        assertEquals(2, notifications.get());
+    }
+
+    @Test
+    void testFirstHealthyCheckIsNotARecovery() {
+        ServerHealth serverHealth = new ServerHealth("http://localhost:9001");
+
+        serverHealth.setStatus(ServerHealth.Status.HEALTHY);
+
+        assertEquals(0, serverHealth.getRecoveredAtNanos());
+        assertNotNull(serverHealth.getHealthySince());
+    }
+
+    @Test
+    void testRecoveryRecordedWhenServerBecomesHealthyAgain() {
+        ServerHealth serverHealth = new ServerHealth("http://localhost:9001");
+        serverHealth.setStatus(ServerHealth.Status.UNHEALTHY);
+
+        long beforeRecovery = System.nanoTime();
+        serverHealth.setStatus(ServerHealth.Status.HEALTHY);
+
+        assertTrue(serverHealth.getRecoveredAtNanos() >= beforeRecovery);
+        assertEquals(serverHealth.getLastChecked(), serverHealth.getHealthySince());
+
+        // Staying healthy keeps the recovery time
+        long recoveredAt = serverHealth.getRecoveredAtNanos();
+        serverHealth.setStatus(ServerHealth.Status.HEALTHY);
+        assertEquals(recoveredAt, serverHealth.getRecoveredAtNanos());
+    }
+
+    @Test
+    void testUnhealthyClearsRecovery() {
+        ServerHealth serverHealth = new ServerHealth("http://localhost:9001");
+        serverHealth.setStatus(ServerHealth.Status.UNHEALTHY);
+        serverHealth.setStatus(ServerHealth.Status.HEALTHY);
+
+        serverHealth.setStatus(ServerHealth.Status.UNHEALTHY);
+
+        assertEquals(0, serverHealth.getRecoveredAtNanos());
+        assertNull(serverHealth.getHealthySince());
+    }
+
+    @Test
+    void testConsecutiveErrorsResetBySuccess() {
+        ServerHealth serverHealth = new ServerHealth("http://localhost:9001");
+
+        assertEquals(1, serverHealth.record5xx());
+        assertEquals(2, serverHealth.record5xx());
+        assertEquals(1, serverHealth.recordFailure());
+
+        serverHealth.recordSuccess();
+
+        assertEquals(1, serverHealth.record5xx());
+        assertEquals(1, serverHealth.recordFailure());
+    }
+
+    @Test
+    void testEjectionHidesHealthyServerUntilExpired() {
+        ServerHealth serverHealth = new ServerHealth("http://localhost:9001");
+        serverHealth.setStatus(ServerHealth.Status.HEALTHY);
+        AtomicInteger notifications = new AtomicInteger();
+        serverHealth.setStatusChangeListener(notifications::incrementAndGet);
+
+        serverHealth.eject(1_000, 0);
+
+        assertTrue(serverHealth.isEjected());
+        assertTrue(serverHealth.isHealthy());
+        assertFalse(serverHealth.isAvailable());
+        assertEquals(1, serverHealth.getEjectionCount());
+        assertEquals(1, notifications.get());
+
+        assertFalse(serverHealth.unejectIfExpired(999));
+        assertTrue(serverHealth.unejectIfExpired(1_000));
+
+        assertFalse(serverHealth.isEjected());
+        assertTrue(serverHealth.isAvailable());
+        assertEquals(2, notifications.get());
+    }
+
+    @Test
+    void testEjectionCountDecaysOncePerPeriod() {
+        ServerHealth serverHealth = new ServerHealth("http://localhost:9001");
+        serverHealth.eject(100, 0);
+        serverHealth.unejectIfExpired(100);
+        serverHealth.eject(300, 200);
+        serverHealth.unejectIfExpired(300);
+        assertEquals(2, serverHealth.getEjectionCount());
+
+        serverHealth.decayEjectionCount(350, 100);
+        assertEquals(2, serverHealth.getEjectionCount());
+
+        serverHealth.decayEjectionCount(400, 100);
+        assertEquals(1, serverHealth.getEjectionCount());
+
+        serverHealth.decayEjectionCount(450, 100);
+        assertEquals(1, serverHealth.getEjectionCount());
+
+        serverHealth.decayEjectionCount(500, 100);
+        assertEquals(0, serverHealth.getEjectionCount());
+    }
+
+    @Test
+    void testLatencyAverageResetOnEjection() {
+        ServerHealth serverHealth = new ServerHealth("http://localhost:9001");
+
+        serverHealth.recordLatency(100, 0.5);
+        assertEquals(100, serverHealth.getLatencyEwmaNanos());
+
+        serverHealth.recordLatency(200, 0.5);
+        assertEquals(150, serverHealth.getLatencyEwmaNanos());
+
+        serverHealth.eject(1_000, 0);
+        assertEquals(0, serverHealth.getLatencyEwmaNanos());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,100 @@
+package home.anita.server;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServerLoadTest {
+
+    private static final long MILLIS = 1_000_000L;
+    private static final long DECAY_NANOS = 10_000 * MILLIS;
+
+    @Test
+    void testServerLoadCreation() {
+        ServerLoad serverLoad = new ServerLoad("http://localhost:9001");
+
+        assertEquals("http://localhost:9001", serverLoad.getUrl());
+        assertEquals(0, serverLoad.getInFlight());
+    }
+
+    @Test
+    void testIncrementAndDecrementInFlight() {
+        ServerLoad serverLoad = new ServerLoad("http://localhost:9001");
+
+        assertEquals(1, serverLoad.incrementInFlight());
+        assertEquals(2, serverLoad.incrementInFlight());
+        assertEquals(1, serverLoad.decrementInFlight());
+        assertEquals(1, serverLoad.getInFlight());
+    }
+
+    @Test
+    void testLatencyEstimateIsZeroWithoutSamples() {
+        ServerLoad serverLoad = new ServerLoad("http://localhost:9001");
+
+        assertEquals(0, serverLoad.getLatencyEstimate(System.nanoTime(), DECAY_NANOS));
+        assertEquals(0, serverLoad.getPeakEwmaCost(System.nanoTime(), DECAY_NANOS));
+    }
+
+    @Test
+    void testHigherSampleReplacesEstimateImmediately() {
+        ServerLoad serverLoad = new ServerLoad("http://localhost:9001");
+
+        serverLoad.recordLatency(5 * MILLIS, 0, DECAY_NANOS);
+        serverLoad.recordLatency(800 * MILLIS, 1, DECAY_NANOS);
+
+        assertEquals(800 * MILLIS, serverLoad.getLatencyEstimate(1, DECAY_NANOS), 1);
+    }
+
+    @Test
+    void testLowerSamplePullsEstimateDownGradually() {
+        ServerLoad serverLoad = new ServerLoad("http://localhost:9001");
+
+        serverLoad.recordLatency(800 * MILLIS, 0, DECAY_NANOS);
+        serverLoad.recordLatency(5 * MILLIS, DECAY_NANOS, DECAY_NANOS);
+
+        // After one decay time the old sample keeps a weight of 1/e
+        double weight = Math.exp(-1);
+        double expected = 800 * MILLIS * weight + 5 * MILLIS * (1 - weight);
+        assertEquals(expected, serverLoad.getLatencyEstimate(DECAY_NANOS, DECAY_NANOS), 1);
+    }
+
+    @Test
+    void testEstimateDecaysWhileIdle() {
+        ServerLoad serverLoad = new ServerLoad("http://localhost:9001");
+
+        serverLoad.recordLatency(800 * MILLIS, 0, DECAY_NANOS);
+
+        assertEquals(800 * MILLIS * Math.exp(-2), serverLoad.getLatencyEstimate(2 * DECAY_NANOS, DECAY_NANOS), 1);
+    }
+
+    @Test
+    void testPeakEwmaCostScalesWithInFlight() {
+        ServerLoad serverLoad = new ServerLoad("http://localhost:9001");
+        serverLoad.recordLatency(10 * MILLIS, 0, DECAY_NANOS);
+
+        double idleCost = serverLoad.getPeakEwmaCost(0, DECAY_NANOS);
+        serverLoad.incrementInFlight();
+        serverLoad.incrementInFlight();
+
+        assertEquals(3 * idleCost, serverLoad.getPeakEwmaCost(0, DECAY_NANOS), 1);
+    }
+
+    @Test
+    void testUnmeasuredServerWithPendingRequestsIsPenalized() {
+        ServerLoad serverLoad = new ServerLoad("http://localhost:9001");
+        serverLoad.incrementInFlight();
+
+        assertEquals(ServerLoad.UNMEASURED_PENALTY, serverLoad.getPeakEwmaCost(0, DECAY_NANOS));
+    }
+
+    @Test
+    void testToString() {
+        ServerLoad serverLoad = new ServerLoad("http://localhost:9001");
+        serverLoad.incrementInFlight();
+
+        String toString = serverLoad.toString();
+
+        assertTrue(toString.contains("http://localhost:9001"));
+        assertTrue(toString.contains("inFlight=1"));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,129 @@
+package home.anita.server;
+
+import home.anita.RoutingConfig;
+import home.anita.RoutingConfig.ServerConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServerLoadTrackerTest {
+
+    private ServerLoadTracker serverLoadTracker;
+    private ServerConfig server1;
+    private ServerConfig server2;
+
+    @BeforeEach
+    void setUp() {
+        serverLoadTracker = new ServerLoadTracker(new RoutingConfig());
+
+        server1 = new ServerConfig();
+        server1.setUrl("http://localhost:9001");
+
+        server2 = new ServerConfig();
+        server2.setUrl("http://localhost:9002");
+    }
+
+    @Test
+    void testInFlightIsZeroForUnknownServer() {
+        assertEquals(0, serverLoadTracker.getInFlight(server1));
+        assertTrue(serverLoadTracker.getAllLoads().isEmpty());
+    }
+
+    @Test
+    void testDispatchAndComplete() {
+        serverLoadTracker.onDispatch(server1);
+        serverLoadTracker.onDispatch(server1);
+        serverLoadTracker.onDispatch(server2);
+
+        assertEquals(2, serverLoadTracker.getInFlight(server1));
+        assertEquals(1, serverLoadTracker.getInFlight(server2));
+
+        serverLoadTracker.onComplete(server1, 1_000_000);
+
+        assertEquals(1, serverLoadTracker.getInFlight(server1));
+        assertEquals(1, serverLoadTracker.getInFlight(server2));
+    }
+
+    @Test
+    void testPeakEwmaCostReflectsLatencyAndInFlight() {
+        serverLoadTracker.onDispatch(server1);
+        serverLoadTracker.onComplete(server1, 5_000_000);
+        serverLoadTracker.onDispatch(server2);
+        serverLoadTracker.onComplete(server2, 800_000_000);
+
+        assertTrue(serverLoadTracker.getPeakEwmaCost(server2) > serverLoadTracker.getPeakEwmaCost(server1));
+
+        double idleCost = serverLoadTracker.getPeakEwmaCost(server1);
+        serverLoadTracker.onDispatch(server1);
+        assertTrue(serverLoadTracker.getPeakEwmaCost(server1) > idleCost);
+    }
+
+    @Test
+    void testFailureIsRecordedAsSlowResponse() {
+        serverLoadTracker.onDispatch(server1);
+        serverLoadTracker.onFailure(server1, 1_000);
+
+        assertEquals(0, serverLoadTracker.getInFlight(server1));
+        double estimate = serverLoadTracker.getLoad(server1)
+                .getLatencyEstimate(System.nanoTime(), new RoutingConfig().getLatencyDecayTime().toNanos());
+        assertTrue(estimate > ServerLoadTracker.FAILURE_LATENCY_PENALTY_NANOS * 0.9);
+    }
+
+    @Test
+    void testGetLoadReturnsSameInstance() {
+        ServerLoad load1 = serverLoadTracker.getLoad(server1);
+        ServerLoad load2 = serverLoadTracker.getLoad(server1);
+
+        assertSame(load1, load2);
+        assertEquals("http://localhost:9001", load1.getUrl());
+    }
+
+    @Test
+    void testGetAllLoadsIsDefensiveCopy() {
+        serverLoadTracker.onDispatch(server1);
+
+        var allLoads = serverLoadTracker.getAllLoads();
+        assertEquals(1, allLoads.size());
+
+        allLoads.clear();
+        assertEquals(1, serverLoadTracker.getAllLoads().size());
+    }
+
+    @Test
+    void testConcurrentDispatchAndComplete() throws Exception {
+        int threadCount = 8;
+        int iterations = 10_000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+
+        for (int i = 0; i < threadCount; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int j = 0; j < iterations; j++) {
+                    serverLoadTracker.onDispatch(server1);
+                    serverLoadTracker.onComplete(server1, 1_000_000);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Every dispatch was matched by a completion, so no request is left in flight
+        assertEquals(0, serverLoadTracker.getInFlight(server1));
+    }
+}
\ No newline at end of file
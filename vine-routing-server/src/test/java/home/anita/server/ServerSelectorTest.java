@@ -2,6 +2,7 @@ package home.anita.server;
 
 import home.anita.RoutingConfig.ServerConfig;
 import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
 
 import java.util.Collections;
 import java.util.HashSet;
@@ -63,4 +64,16 @@ class ServerSelectorTest {
         
         assertEquals("Server set cannot be null or empty", exception.getMessage());
     }
+
+    @Test
+    void testRequestAwareSelectDefaultsToSelect() {
+        ServerSelector selector = new TestServerSelector();
+
+        ServerConfig server1 = new ServerConfig();
+        server1.setUrl("http://localhost:9001");
+
+        RoutingContext context = RoutingContext.create("/api/echo", new HttpHeaders(), "{}", "127.0.0.1");
+
+        assertEquals(server1, selector.select(Set.of(server1), context));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,67 @@
+package home.anita.server;
+
+import home.anita.RoutingConfig.ServerConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServerSnapshotTest {
+
+    private ServerConfig server1;
+    private ServerConfig server2;
+
+    @BeforeEach
+    void setUp() {
+        server1 = new ServerConfig();
+        server1.setUrl("http://localhost:9001");
+
+        server2 = new ServerConfig();
+        server2.setUrl("http://localhost:9002");
+    }
+
+    @Test
+    void testIndexedAccess() {
+        ServerSnapshot snapshot = ServerSnapshot.of(Set.of(server1, server2));
+
+        assertEquals(2, snapshot.size());
+        assertFalse(snapshot.isEmpty());
+
+        Set<ServerConfig> indexed = new HashSet<>();
+        for (int i = 0; i < snapshot.size(); i++) {
+            indexed.add(snapshot.get(i));
+        }
+        assertEquals(Set.of(server1, server2), indexed);
+    }
+
+    @Test
+    void testEmptySnapshot() {
+        ServerSnapshot snapshot = ServerSnapshot.of(Set.of());
+
+        assertEquals(0, snapshot.size());
+        assertTrue(snapshot.isEmpty());
+        assertTrue(snapshot.asSet().isEmpty());
+    }
+
+    @Test
+    void testSnapshotIsIsolatedFromSource() {
+        Set<ServerConfig> source = new HashSet<>(Set.of(server1));
+        ServerSnapshot snapshot = ServerSnapshot.of(source);
+
+        source.add(server2);
+
+        assertEquals(1, snapshot.size());
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.asSet().add(server2));
+    }
+
+    @Test
+    void testHasSameServers() {
+        ServerSnapshot snapshot = ServerSnapshot.of(Set.of(server1, server2));
+
+        assertTrue(snapshot.hasSameServers(new HashSet<>(Set.of(server1, server2))));
+        assertFalse(snapshot.hasSameServers(Set.of(server1)));
+    }
+}
\ No newline at end of file
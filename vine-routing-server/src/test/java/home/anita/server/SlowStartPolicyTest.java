@@ -0,0 +1,121 @@
+package home.anita.server;
+
+import home.anita.RoutingConfig;
+import home.anita.RoutingConfig.ServerConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SlowStartPolicyTest {
+
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    @Mock
+    private HealthCheckService healthCheckService;
+
+    private RoutingConfig routingConfig;
+    private SlowStartPolicy slowStartPolicy;
+    private ServerConfig server;
+
+    @BeforeEach
+    void setUp() {
+        routingConfig = new RoutingConfig();
+        routingConfig.getSlowStart().setWindow(Duration.ofSeconds(60));
+        routingConfig.getSlowStart().setMinWeight(0.1);
+        slowStartPolicy = new SlowStartPolicy(routingConfig, healthCheckService);
+
+        server = new ServerConfig();
+        server.setUrl("http://localhost:9001");
+    }
+
+    @Test
+    void testLinearRamp() {
+        long recoveredAt = 1_000;
+
+        assertEquals(0.1, slowStartPolicy.getWeight(recoveredAt, recoveredAt), 1e-9);
+        assertEquals(0.55, slowStartPolicy.getWeight(recoveredAt, recoveredAt + WINDOW_NANOS / 2), 1e-9);
+        assertEquals(1.0, slowStartPolicy.getWeight(recoveredAt, recoveredAt + WINDOW_NANOS));
+        assertEquals(1.0, slowStartPolicy.getWeight(recoveredAt, recoveredAt + 2 * WINDOW_NANOS));
+    }
+
+    @Test
+    void testExponentialRamp() {
+        routingConfig.getSlowStart().setCurve(RoutingConfig.SlowStartCurve.EXPONENTIAL);
+        long recoveredAt = 1_000;
+
+        assertEquals(0.1, slowStartPolicy.getWeight(recoveredAt, recoveredAt), 1e-9);
+        assertEquals(Math.sqrt(0.1), slowStartPolicy.getWeight(recoveredAt, recoveredAt + WINDOW_NANOS / 2), 1e-9);
+        assertEquals(1.0, slowStartPolicy.getWeight(recoveredAt, recoveredAt + WINDOW_NANOS));
+    }
+
+    @Test
+    void testNoRampWithoutRecovery() {
+        assertEquals(1.0, slowStartPolicy.getWeight(0, 5_000));
+    }
+
+    @Test
+    void testNoRampWhenDisabled() {
+        routingConfig.getSlowStart().setWindow(Duration.ZERO);
+
+        assertEquals(1.0, slowStartPolicy.getWeight(1_000, 1_000));
+    }
+
+    @Test
+    void testRecoveredServerIsRamping() {
+        ServerHealth health = new ServerHealth(server.getUrl());
+        health.setStatus(ServerHealth.Status.UNHEALTHY);
+        health.setStatus(ServerHealth.Status.HEALTHY);
+        when(healthCheckService.getServerHealth(server.getUrl())).thenReturn(health);
+
+        double weight = slowStartPolicy.getWeight(server);
+
+        assertTrue(weight >= 0.1 && weight < 0.2, "Freshly recovered server should start near the minimum weight");
+    }
+
+    @Test
+    void testServerHealthyFromStartIsNotThrottled() {
+        ServerHealth health = new ServerHealth(server.getUrl());
+        health.setStatus(ServerHealth.Status.HEALTHY);
+        when(healthCheckService.getServerHealth(server.getUrl())).thenReturn(health);
+
+        for (int i = 0; i < 100; i++) {
+            assertFalse(slowStartPolicy.isThrottled(server));
+        }
+    }
+
+    @Test
+    void testUnknownServerIsNotThrottled() {
+        when(healthCheckService.getServerHealth(server.getUrl())).thenReturn(null);
+
+        assertEquals(1.0, slowStartPolicy.getWeight(server));
+        assertFalse(slowStartPolicy.isThrottled(server));
+    }
+
+    @Test
+    void testRampingServerIsThrottledProportionally() {
+        routingConfig.getSlowStart().setWindow(Duration.ofHours(1));
+        ServerHealth health = new ServerHealth(server.getUrl());
+        health.setStatus(ServerHealth.Status.UNHEALTHY);
+        health.setStatus(ServerHealth.Status.HEALTHY);
+        when(healthCheckService.getServerHealth(server.getUrl())).thenReturn(health);
+
+        int throttled = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (slowStartPolicy.isThrottled(server)) {
+                throttled++;
+            }
+        }
+
+        // Weight is about 0.1, so about 90% of requests are sent elsewhere
+        assertTrue(throttled > 8_500 && throttled < 9_500, "Unexpected throttled count " + throttled);
+    }
+}
\ No newline at end of file
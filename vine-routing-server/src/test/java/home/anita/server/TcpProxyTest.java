@@ -0,0 +1,248 @@
+package home.anita.server;
+
+import home.anita.RoutingConfig;
+import home.anita.RoutingConfig.ServerConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TcpProxyTest {
+
+    @Mock
+    private ServerSelector serverSelector;
+
+    @Mock
+    private ServerLoadTracker serverLoadTracker;
+
+    @Mock
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    @Mock
+    private OutlierDetector outlierDetector;
+
+    private RoutingConfig routingConfig;
+    private ServerSocket echoServer;
+    private TcpProxy tcpProxy;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        routingConfig = new RoutingConfig();
+        routingConfig.getTcp().setEnabled(true);
+        routingConfig.getTcp().setPort(0);
+        lenient().when(circuitBreakerRegistry.tryAcquirePermission(any())).thenReturn(true);
+
+        echoServer = new ServerSocket(0);
+        var acceptor = new Thread(this::echo, "echo-server");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (tcpProxy != null) {
+            tcpProxy.stop();
+        }
+        echoServer.close();
+    }
+
+    @Test
+    void testBytesForwardedBothWaysAndConnectionRecorded() throws Exception {
+        ServerConfig server = createServer("http://localhost:" + echoServer.getLocalPort());
+        routingConfig.setServers(Set.of(server));
+        when(serverSelector.select(eq(routingConfig.getServers()), any(RoutingContext.class))).thenReturn(server);
+        tcpProxy = startProxy();
+
+        try (Socket client = connect()) {
+            client.getOutputStream().write("hello".getBytes(StandardCharsets.UTF_8));
+            client.shutdownOutput();
+
+            assertEquals("hello", new String(client.getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+        }
+        awaitClosedConnections(1);
+
+        TcpProxy.ConnectionStats connection = tcpProxy.getConnections().get(0);
+        assertEquals(server.getUrl(), connection.serverUrl());
+        assertEquals("127.0.0.1", connection.clientAddress());
+        assertFalse(connection.open());
+        assertEquals(5, connection.bytesFromClient());
+        assertEquals(5, connection.bytesFromServer());
+        assertEquals(1, tcpProxy.getAccepted());
+        assertEquals(5, tcpProxy.getBytesFromClients());
+        assertEquals(5, tcpProxy.getBytesFromServers());
+        verify(serverLoadTracker).onDispatch(server);
+        verify(serverLoadTracker).onCancel(server);
+        verify(circuitBreakerRegistry).onResult(eq(server), anyLong(), eq(false));
+        verify(outlierDetector).onConnectSuccess(server);
+        verify(outlierDetector, never()).onResponse(any(), anyInt(), anyLong());
+        assertEquals(2, tcpProxy.getIdleBuffers());
+    }
+
+    @Test
+    void testIdleBuffersCapped() throws Exception {
+        routingConfig.getTcp().setIdleBuffers(1);
+        ServerConfig server = createServer("http://localhost:" + echoServer.getLocalPort());
+        routingConfig.setServers(Set.of(server));
+        when(serverSelector.select(eq(routingConfig.getServers()), any(RoutingContext.class))).thenReturn(server);
+        tcpProxy = startProxy();
+
+        try (Socket client = connect()) {
+            client.getOutputStream().write("hello".getBytes(StandardCharsets.UTF_8));
+            client.shutdownOutput();
+
+            assertEquals("hello", new String(client.getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+        }
+        awaitClosedConnections(1);
+
+        assertEquals(1, tcpProxy.getIdleBuffers());
+    }
+
+    @Test
+    void testServerRefusingConnectionIsExcludedAndAnotherSelected() throws Exception {
+        ServerConfig deadServer = createServer("http://localhost:" + findClosedPort());
+        ServerConfig liveServer = createServer("http://localhost:" + echoServer.getLocalPort());
+        routingConfig.setServers(new LinkedHashSet<>(List.of(deadServer, liveServer)));
+        when(serverSelector.select(eq(routingConfig.getServers()), any(RoutingContext.class)))
+                .thenReturn(deadServer, liveServer);
+        tcpProxy = startProxy();
+
+        try (Socket client = connect()) {
+            client.getOutputStream().write("ping".getBytes(StandardCharsets.UTF_8));
+            client.shutdownOutput();
+
+            assertEquals("ping", new String(client.getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+        }
+        awaitClosedConnections(1);
+
+        assertEquals(liveServer.getUrl(), tcpProxy.getConnections().get(0).serverUrl());
+        verify(circuitBreakerRegistry).onResult(eq(deadServer), anyLong(), eq(true));
+        verify(outlierDetector).onFailure(deadServer);
+        verify(outlierDetector, never()).onConnectSuccess(deadServer);
+        verify(serverLoadTracker, never()).onDispatch(deadServer);
+    }
+
+    @Test
+    void testConnectionClosedWhenNoServerAccepts() throws Exception {
+        ServerConfig deadServer = createServer("http://localhost:" + findClosedPort());
+        routingConfig.setServers(Set.of(deadServer));
+        when(serverSelector.select(eq(routingConfig.getServers()), any(RoutingContext.class))).thenReturn(deadServer);
+        tcpProxy = startProxy();
+
+        try (Socket client = connect()) {
+            assertEquals(-1, client.getInputStream().read());
+        }
+
+        assertEquals(1, tcpProxy.getFailed());
+        assertTrue(tcpProxy.getConnections().isEmpty());
+    }
+
+    @Test
+    void testConnectionsBeyondMaxConnectionsRefused() throws Exception {
+        routingConfig.getTcp().setMaxConnections(1);
+        ServerConfig server = createServer("http://localhost:" + echoServer.getLocalPort());
+        routingConfig.setServers(Set.of(server));
+        when(serverSelector.select(eq(routingConfig.getServers()), any(RoutingContext.class))).thenReturn(server);
+        tcpProxy = startProxy();
+
+        try (Socket first = connect(); Socket second = connect()) {
+            first.getOutputStream().write("a".getBytes(StandardCharsets.UTF_8));
+            assertEquals('a', first.getInputStream().read());
+
+            assertEquals(-1, second.getInputStream().read());
+            assertEquals(1, tcpProxy.getRefused());
+            assertEquals(1, tcpProxy.getOpenConnections());
+            assertTrue(tcpProxy.getConnections().get(0).open());
+        }
+    }
+
+    @Test
+    void testDisabledProxyDoesNotListen() throws Exception {
+        routingConfig.getTcp().setEnabled(false);
+        tcpProxy = startProxy();
+
+        assertEquals(-1, tcpProxy.getPort());
+        verifyNoInteractions(serverSelector);
+    }
+
+    private TcpProxy startProxy() throws IOException {
+        var proxy = new TcpProxy(routingConfig, serverSelector, serverLoadTracker, circuitBreakerRegistry,
+                outlierDetector, Executors.newCachedThreadPool());
+        proxy.start();
+        return proxy;
+    }
+
+    private Socket connect() throws IOException {
+        var socket = new Socket();
+        socket.connect(new InetSocketAddress("127.0.0.1", tcpProxy.getPort()), 1000);
+        socket.setSoTimeout(5000);
+        return socket;
+    }
+
+    /**
+     * Echoes the bytes of each connection back until the client half-closes it.
+     */
+    private void echo() {
+        while (!echoServer.isClosed()) {
+            try {
+                var socket = echoServer.accept();
+                var thread = new Thread(() -> {
+                    try (socket; InputStream input = socket.getInputStream()) {
+                        var buffer = new byte[1024];
+                        int read;
+                        while ((read = input.read(buffer)) >= 0) {
+                            socket.getOutputStream().write(buffer, 0, read);
+                        }
+                    } catch (IOException e) {
+                        // The test closed the connection
+                    }
+                });
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void awaitClosedConnections(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline && tcpProxy.getConnections().stream()
+                .filter(connection -> !connection.open()).count() < count) {
+            Thread.sleep(1);
+        }
+        assertEquals(count, tcpProxy.getConnections().stream().filter(connection -> !connection.open()).count());
+    }
+
+    private static int findClosedPort() throws IOException {
+        try (var socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static ServerConfig createServer(String url) {
+        ServerConfig server = new ServerConfig();
+        server.setUrl(url);
+        return server;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,180 @@
+package home.anita.server;
+
+import home.anita.RoutingConfig;
+import home.anita.RoutingConfig.RouteTimeoutConfig;
+import home.anita.RoutingConfig.ServerConfig;
+import home.anita.http.RequestTimeouts;
+import io.netty.channel.ConnectTimeoutException;
+import io.netty.handler.timeout.ReadTimeoutException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+
+import java.net.ConnectException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeoutPolicyTest {
+
+    private static final long NOW_NANOS = 1_000_000_000L;
+
+    private RoutingConfig routingConfig;
+    private TimeoutPolicy timeoutPolicy;
+    private ServerConfig server;
+
+    @BeforeEach
+    void setUp() {
+        routingConfig = new RoutingConfig();
+        timeoutPolicy = new TimeoutPolicy(routingConfig);
+        server = new ServerConfig();
+        server.setUrl("http://localhost:9001");
+    }
+
+    @Test
+    void testDeadlineIsDefaultTotalTimeout() {
+        long deadline = timeoutPolicy.getDeadlineNanos(context("/api/echo", new HttpHeaders()), NOW_NANOS);
+
+        assertEquals(NOW_NANOS + Duration.ofSeconds(30).toNanos(), deadline);
+    }
+
+    @Test
+    void testDeadlineUsesRouteTotalTimeout() {
+        addRoute("/api/slow", null, Duration.ofSeconds(60));
+
+        long deadline = timeoutPolicy.getDeadlineNanos(context("/api/slow/report", new HttpHeaders()), NOW_NANOS);
+
+        assertEquals(NOW_NANOS + Duration.ofSeconds(60).toNanos(), deadline);
+    }
+
+    @Test
+    void testEarlierIncomingDeadlineIsKept() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("X-Request-Deadline", "500");
+
+        long deadline = timeoutPolicy.getDeadlineNanos(context("/api/echo", headers), NOW_NANOS);
+
+        assertEquals(NOW_NANOS + TimeUnit.MILLISECONDS.toNanos(500), deadline);
+    }
+
+    @Test
+    void testLaterIncomingDeadlineIsCappedByTotalTimeout() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("X-Request-Deadline", String.valueOf(Duration.ofMinutes(5).toMillis()));
+
+        long deadline = timeoutPolicy.getDeadlineNanos(context("/api/echo", headers), NOW_NANOS);
+
+        assertEquals(NOW_NANOS + Duration.ofSeconds(30).toNanos(), deadline);
+    }
+
+    @Test
+    void testInvalidIncomingDeadlineIsIgnored() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("X-Request-Deadline", "soon");
+
+        long deadline = timeoutPolicy.getDeadlineNanos(context("/api/echo", headers), NOW_NANOS);
+
+        assertEquals(NOW_NANOS + Duration.ofSeconds(30).toNanos(), deadline);
+    }
+
+    @Test
+    void testPassedIncomingDeadlineIsExpired() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("X-Request-Deadline", "-1000");
+
+        assertTrue(timeoutPolicy.isExpired(timeoutPolicy.getDeadlineNanos(context("/api/echo", headers))));
+        assertFalse(timeoutPolicy.isExpired(timeoutPolicy.getDeadlineNanos(context("/api/echo", new HttpHeaders()))));
+    }
+
+    @Test
+    void testDefaultTimeouts() {
+        RequestTimeouts timeouts = timeoutPolicy.getTimeouts(server, "/api/echo", NOW_NANOS + Duration.ofMinutes(1).toNanos(), NOW_NANOS);
+
+        assertEquals(new RequestTimeouts(Duration.ofSeconds(10), Duration.ofSeconds(30)), timeouts);
+    }
+
+    @Test
+    void testServerTimeoutsOverrideDefaults() {
+        server.setTotalTimeout(Duration.ofSeconds(5));
+
+        RequestTimeouts timeouts = timeoutPolicy.getTimeouts(server, "/api/echo", NOW_NANOS + Duration.ofMinutes(1).toNanos(), NOW_NANOS);
+
+        assertEquals(new RequestTimeouts(Duration.ofSeconds(10), Duration.ofSeconds(5)), timeouts);
+    }
+
+    @Test
+    void testRouteTimeoutsOverrideServerTimeouts() {
+        server.setFirstByteTimeout(Duration.ofSeconds(1));
+        server.setTotalTimeout(Duration.ofSeconds(5));
+        addRoute("/api", Duration.ofSeconds(3), null);
+
+        RequestTimeouts timeouts = timeoutPolicy.getTimeouts(server, "/api/echo", NOW_NANOS + Duration.ofMinutes(1).toNanos(), NOW_NANOS);
+
+        assertEquals(new RequestTimeouts(Duration.ofSeconds(3), Duration.ofSeconds(5)), timeouts);
+    }
+
+    @Test
+    void testTotalTimeoutCutToDeadline() {
+        RequestTimeouts timeouts = timeoutPolicy.getTimeouts(server, "/api/echo", NOW_NANOS + TimeUnit.MILLISECONDS.toNanos(750), NOW_NANOS);
+        assertEquals(Duration.ofMillis(750), timeouts.total());
+
+        timeouts = timeoutPolicy.getTimeouts(server, "/api/echo", NOW_NANOS - 1, NOW_NANOS);
+        assertEquals(Duration.ZERO, timeouts.total());
+    }
+
+    @Test
+    void testDeadlineHeaderSetFromTotalTimeout() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("X-Request-Deadline", "1");
+
+        timeoutPolicy.setDeadlineHeader(headers, new RequestTimeouts(null, Duration.ofMillis(1500)));
+
+        assertEquals("1500", headers.getFirst("X-Request-Deadline"));
+        assertEquals(1, headers.get("X-Request-Deadline").size());
+    }
+
+    @Test
+    void testCustomDeadlineHeader() {
+        routingConfig.getTimeout().setDeadlineHeader("X-Deadline");
+        HttpHeaders headers = new HttpHeaders();
+
+        timeoutPolicy.setDeadlineHeader(headers, new RequestTimeouts(null, Duration.ofSeconds(1)));
+
+        assertEquals("1000", headers.getFirst("X-Deadline"));
+        assertFalse(headers.containsKey("X-Request-Deadline"));
+    }
+
+    @Test
+    void testTimeoutFailuresRecognized() {
+        assertTrue(timeoutPolicy.isTimeout(new RuntimeException("Failed to send HTTP request", new TimeoutException())));
+        assertTrue(timeoutPolicy.isTimeout(new RuntimeException(ReadTimeoutException.INSTANCE)));
+        assertTrue(timeoutPolicy.isTimeout(new ConnectTimeoutException("connection timed out")));
+        assertFalse(timeoutPolicy.isTimeout(new RuntimeException(new ConnectException("Connection refused"))));
+        assertFalse(timeoutPolicy.isTimeout(new IllegalStateException()));
+    }
+
+    @Test
+    void testDeadlineExpiredResponseRecognized() {
+        HttpHeaders expired = new HttpHeaders();
+        expired.set("X-Deadline-Expired", "true");
+
+        assertTrue(timeoutPolicy.isDeadlineExpired(504, expired));
+        assertFalse(timeoutPolicy.isDeadlineExpired(504, new HttpHeaders()));
+        assertFalse(timeoutPolicy.isDeadlineExpired(504, null));
+        assertFalse(timeoutPolicy.isDeadlineExpired(500, expired));
+    }
+
+    private void addRoute(String path, Duration firstByte, Duration total) {
+        RouteTimeoutConfig route = new RouteTimeoutConfig();
+        route.setPath(path);
+        route.setFirstByte(firstByte);
+        route.setTotal(total);
+        routingConfig.getTimeout().getRoutes().add(route);
+    }
+
+    private static RoutingContext context(String path, HttpHeaders headers) {
+        return RoutingContext.create(path, headers, "{}", "127.0.0.1");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,226 @@
+package home.anita.server;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import home.anita.RoutingConfig;
+import home.anita.RoutingConfig.PriorityConfig;
+import home.anita.RoutingConfig.ServerConfig;
+import home.anita.http.RequestHandler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static home.anita.server.ServerHealth.Status.HEALTHY;
+import static home.anita.server.ServerHealth.Status.UNHEALTHY;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class WeightedRoundRobinServerSelectorTest {
+
+    @Mock
+    private RandomServerSelector randomServerSelector;
+
+    @Mock
+    private RequestHandler requestHandler;
+
+    @Mock
+    private ObjectMapper objectMapper;
+
+    private ServerHealthMap serverHealthMap;
+    private PriorityConfig priorityConfig;
+    private ServerLoadTracker serverLoadTracker;
+    private WeightedRoundRobinServerSelector serverSelector;
+    private Set<ServerConfig> servers;
+    private ServerConfig server1;
+    private ServerConfig server2;
+    private ServerConfig server3;
+    private ServerHealth health1;
+    private ServerHealth health2;
+    private ServerHealth health3;
+
+    @BeforeEach
+    void setUp() {
+        // Use real ServerHealthMap so health flips go through the same path as health checks
+        serverHealthMap = new ServerHealthMap();
+        HealthCheckService healthCheckService = new HealthCheckService(requestHandler, objectMapper, serverHealthMap);
+        priorityConfig = new PriorityConfig();
+        serverLoadTracker = new ServerLoadTracker(new RoutingConfig());
+        serverSelector = new WeightedRoundRobinServerSelector(randomServerSelector, healthCheckService, priorityConfig,
+                serverLoadTracker);
+
+        server1 = createServer("http://localhost:9001", 3);
+        server2 = createServer("http://localhost:9002", 2);
+        server3 = createServer("http://localhost:9003", 1);
+
+        servers = new HashSet<>();
+        servers.add(server1);
+        servers.add(server2);
+        servers.add(server3);
+
+        health1 = addHealthyServer(server1);
+        health2 = addHealthyServer(server2);
+        health3 = addHealthyServer(server3);
+    }
+
+    @Test
+    void testDistributionFollowsWeights() {
+        Map<ServerConfig, Integer> counts = select(600);
+
+        assertEquals(300, counts.get(server1));
+        assertEquals(200, counts.get(server2));
+        assertEquals(100, counts.get(server3));
+    }
+
+    @Test
+    void testHeavyServerIsInterleaved() {
+        ServerConfig heavy = createServer("http://localhost:9001", 5);
+        ServerConfig lightA = createServer("http://localhost:9002", 1);
+        ServerConfig lightB = createServer("http://localhost:9003", 1);
+        Set<ServerConfig> skewedServers = Set.of(heavy, lightA, lightB);
+
+        List<ServerConfig> cycle = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            cycle.add(serverSelector.select(skewedServers));
+        }
+
+        // nginx order for weights 5,1,1 is a a b a c a a: the light servers are spread out
+        assertEquals(5, cycle.stream().filter(heavy::equals).count());
+        int firstLight = Math.min(cycle.indexOf(lightA), cycle.indexOf(lightB));
+        int secondLight = Math.max(cycle.indexOf(lightA), cycle.indexOf(lightB));
+        assertTrue(secondLight - firstLight > 1, "Light servers should not be picked back to back");
+        assertEquals(heavy, cycle.get(0));
+    }
+
+    @Test
+    void testDistributionWhenServerBecomesUnhealthy() {
+        select(6);
+
+        health3.setStatus(UNHEALTHY);
+
+        Map<ServerConfig, Integer> counts = select(500);
+        assertEquals(300, counts.get(server1));
+        assertEquals(200, counts.get(server2));
+        assertNull(counts.get(server3));
+    }
+
+    @Test
+    void testDistributionWhenServerRecovers() {
+        health1.setStatus(UNHEALTHY);
+
+        Map<ServerConfig, Integer> counts = select(300);
+        assertNull(counts.get(server1));
+        assertEquals(200, counts.get(server2));
+        assertEquals(100, counts.get(server3));
+
+        health1.setStatus(HEALTHY);
+
+        counts = select(600);
+        assertEquals(300, counts.get(server1));
+        assertEquals(200, counts.get(server2));
+        assertEquals(100, counts.get(server3));
+    }
+
+    @Test
+    void testScheduleRecomputedOnlyWhenHealthySetChanges() {
+        select(100);
+        assertEquals(1, serverSelector.getScheduleBuilds());
+
+        health2.setStatus(UNHEALTHY);
+        select(100);
+        assertEquals(2, serverSelector.getScheduleBuilds());
+
+        // A health check that keeps the status unchanged does not trigger a recompute
+        health1.setStatus(HEALTHY);
+        select(100);
+        assertEquals(2, serverSelector.getScheduleBuilds());
+
+        health2.setStatus(HEALTHY);
+        select(100);
+        assertEquals(3, serverSelector.getScheduleBuilds());
+    }
+
+    @Test
+    void testServerAtMaxConnectionsIsSkipped() {
+        server1.setMaxConnections(1);
+        serverLoadTracker.onDispatch(server1);
+
+        Map<ServerConfig, Integer> counts = select(300);
+
+        assertNull(counts.get(server1));
+        assertEquals(300, counts.get(server2) + counts.get(server3));
+    }
+
+    @Test
+    void testNoServerSelectedWhenAllServersAtMaxConnections() {
+        Set<ServerConfig> singleServer = Set.of(server1);
+        server1.setMaxConnections(1);
+        serverLoadTracker.onDispatch(server1);
+
+        assertNull(serverSelector.select(singleServer));
+    }
+
+    @Test
+    void testFallbackToAllServersWhenNoneHealthyInPanicMode() {
+        priorityConfig.setPanicThreshold(0.5);
+        health1.setStatus(UNHEALTHY);
+        health2.setStatus(UNHEALTHY);
+        health3.setStatus(UNHEALTHY);
+
+        Map<ServerConfig, Integer> counts = select(600);
+
+        assertEquals(300, counts.get(server1));
+        assertEquals(200, counts.get(server2));
+        assertEquals(100, counts.get(server3));
+    }
+
+    @Test
+    void testSelectWithNullSet() {
+        IllegalArgumentException exception = assertThrows(
+                IllegalArgumentException.class,
+                () -> serverSelector.select(null)
+        );
+
+        assertEquals("Server set cannot be null or empty", exception.getMessage());
+    }
+
+    private Map<ServerConfig, Integer> select(int iterations) {
+        Map<ServerConfig, Integer> counts = new HashMap<>();
+        for (int i = 0; i < iterations; i++) {
+            counts.merge(serverSelector.select(servers), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    private ServerConfig createServer(String url, int weight) {
+        ServerConfig server = new ServerConfig();
+        server.setUrl(url);
+        server.setWeight(weight);
+        return server;
+    }
+
+    private ServerHealth addHealthyServer(ServerConfig server) {
+        ServerHealth health = new ServerHealth(server.getUrl());
+        health.setStatus(HEALTHY);
+        serverHealthMap.addServer(server.getUrl(), health);
+        return health;
+    }
+
+    @Test
+    void testExcludedServerIsSkipped() {
+        RoutingContext context = RoutingContext.create("/api/echo", new HttpHeaders(), "{}", "127.0.0.1");
+        context.exclude(server1);
+
+        for (int i = 0; i < 60; i++) {
+            assertNotEquals(server1, serverSelector.select(servers, context));
+        }
+    }
+}
\ No newline at end of file